@@ -1,7 +1,14 @@
 package com.pharmajava;
 
 import com.formdev.flatlaf.FlatLightLaf;
+import com.pharmajava.dao.CatalogueProduits;
+import com.pharmajava.dao.SeuilsAlerte;
+import com.pharmajava.dao.VitessesVente;
+import com.pharmajava.service.PlanificateurExpiration;
+import com.pharmajava.service.PrevisionDemande;
+import com.pharmajava.service.ReconciliateurStock;
 import com.pharmajava.utils.DatabaseConfig;
+import com.pharmajava.utils.MigrateurSchema;
 import com.pharmajava.view.LoginView;
 
 import javax.swing.*;
@@ -38,6 +45,48 @@ public class PharmacieApp {
             System.exit(1);
         }
         
+        // Mise à jour du schéma de la base de données
+        try {
+            MigrateurSchema.migrer();
+        } catch (Exception e) {
+            JOptionPane.showMessageDialog(null, 
+                "Impossible de mettre à jour le schéma de la base de données : " + e.getMessage(), 
+                "Erreur de migration", 
+                JOptionPane.ERROR_MESSAGE);
+            e.printStackTrace();
+            System.exit(1);
+        }
+        
+        // Catalogue des produits partagé par les vues
+        try {
+            CatalogueProduits.getInstance().charger();
+        } catch (SQLException e) {
+            System.err.println("Impossible de charger le catalogue des produits : " + e.getMessage());
+        }
+        
+        // Produits sous le seuil d'alerte, tenus à jour ensuite par les écritures de stock
+        try {
+            SeuilsAlerte.getInstance().charger();
+        } catch (SQLException e) {
+            System.err.println("Impossible de charger les seuils d'alerte : " + e.getMessage());
+        }
+        
+        // Ventes par produit sur 7, 30 et 90 jours, tenues à jour à chaque vente
+        try {
+            VitessesVente.getInstance().charger();
+        } catch (SQLException e) {
+            System.err.println("Impossible de reconstruire les vitesses de vente : " + e.getMessage());
+        }
+        
+        // Expiration des lots à chaque changement de jour
+        PlanificateurExpiration.getInstance().demarrer();
+        
+        // Rattrapage en tâche de fond des écarts de quantités en stock
+        ReconciliateurStock.getInstance().demarrer();
+        
+        // Prévisions de demande recalculées une fois par jour
+        PrevisionDemande.getInstance().demarrer();
+        
         // Lancement de l'interface utilisateur
         EventQueue.invokeLater(() -> {
             try {
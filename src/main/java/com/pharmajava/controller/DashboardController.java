@@ -1,8 +1,18 @@
 package com.pharmajava.controller;
 
-import com.pharmajava.dao.ProduitDAO;
+import com.pharmajava.dao.CatalogueProduits;
+import com.pharmajava.dao.ClientDAO;
+import com.pharmajava.dao.PharmacienDAO;
+import com.pharmajava.dao.SeuilsAlerte;
 import com.pharmajava.dao.StockDAO;
+import com.pharmajava.dao.UniteDeTravail;
 import com.pharmajava.dao.VenteDAO;
+import com.pharmajava.dao.VitessesVente;
+import com.pharmajava.model.ProduitSousSeuil;
+import com.pharmajava.model.VitesseVente;
+import com.pharmajava.service.PlanificateurExpiration;
+import com.pharmajava.service.PrevisionDemande;
+import com.pharmajava.service.ReconciliateurStock;
 import com.pharmajava.utils.DatabaseConfig;
 import com.pharmajava.utils.SessionManager;
 
@@ -10,6 +20,7 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -19,7 +30,6 @@ import java.util.logging.Logger;
 public class DashboardController {
     private static final Logger LOGGER = Logger.getLogger(DashboardController.class.getName());
     
-    private final ProduitDAO produitDAO;
     private final VenteDAO venteDAO;
     private final StockDAO stockDAO;
     
@@ -27,7 +37,6 @@ public class DashboardController {
      * Constructeur du contrôleur de tableau de bord
      */
     public DashboardController() {
-        this.produitDAO = new ProduitDAO();
         this.venteDAO = new VenteDAO();
         this.stockDAO = new StockDAO();
     }
@@ -39,7 +48,7 @@ public class DashboardController {
      */
     public String getNombreProduits() {
         try {
-            int nombre = produitDAO.obtenirTous().size();
+            int nombre = CatalogueProduits.getInstance().nombreProduits();
             return String.valueOf(nombre);
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Erreur lors de la récupération du nombre de produits", e);
@@ -53,7 +62,7 @@ public class DashboardController {
      * @return Le nombre de ventes du jour sous forme de chaîne
      */
     public String getNombreVentesAujourdhui() {
-        try {
+        try (UniteDeTravail ignored = UniteDeTravail.ouvrir()) {
             LocalDateTime debutJour = LocalDateTime.of(LocalDate.now(), LocalTime.MIN);
             LocalDateTime finJour = LocalDateTime.of(LocalDate.now(), LocalTime.MAX);
             
@@ -72,21 +81,48 @@ public class DashboardController {
      */
     public String getNombreProduitsExpires() {
         try {
-            int nombre = stockDAO.obtenirStocksExpires().size();
-            return String.valueOf(nombre);
+            return String.valueOf(stockDAO.compterLotsExpires());
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Erreur lors de la récupération du nombre de produits expirés", e);
             return "0";
         }
     }
     
+    /**
+     * Récupère le nombre de produits sous le seuil d'alerte
+     * 
+     * @return Le nombre de produits à réapprovisionner
+     */
+    public int getNombreProduitsSousSeuil() {
+        return SeuilsAlerte.getInstance().nombreSousSeuil();
+    }
+    
+    /**
+     * Récupère les produits sous le seuil d'alerte, du plus grand déficit au plus petit
+     * 
+     * @return Les produits à réapprovisionner
+     */
+    public List<ProduitSousSeuil> getProduitsSousSeuil() {
+        return SeuilsAlerte.getInstance().produitsSousSeuil();
+    }
+    
+    /**
+     * Récupère les ventes d'un produit sur 7, 30 et 90 jours
+     * 
+     * @param produitId L'ID du produit
+     * @return Les quantités vendues et moyennes journalières du produit
+     */
+    public VitesseVente getVitesseVente(int produitId) {
+        return VitessesVente.getInstance().vitesse(produitId);
+    }
+    
     /**
      * Récupère le montant total des ventes d'aujourd'hui
      * 
      * @return Le montant total des ventes du jour sous forme de chaîne
      */
     public String getMontantVentesAujourdhui() {
-        try {
+        try (UniteDeTravail ignored = UniteDeTravail.ouvrir()) {
             LocalDateTime debutJour = LocalDateTime.of(LocalDate.now(), LocalTime.MIN);
             LocalDateTime finJour = LocalDateTime.of(LocalDate.now(), LocalTime.MAX);
             
@@ -116,6 +152,17 @@ public class DashboardController {
      */
     public void cleanup() {
         try {
+            // Arrêter les tâches de fond avant de fermer le pool
+            PlanificateurExpiration.getInstance().arreter();
+            ReconciliateurStock.getInstance().arreter();
+            PrevisionDemande.getInstance().arreter();
+            SeuilsAlerte.getInstance().arreter();
+            CatalogueProduits.getInstance().arreter();
+
+            // Efficacité des caches de référence sur la session
+            LOGGER.info(PharmacienDAO.getCache().toString());
+            LOGGER.info(ClientDAO.getCache().toString());
+            
             // Fermer la connexion à la base de données
             DatabaseConfig.closeDataSource();
         } catch (Exception e) {
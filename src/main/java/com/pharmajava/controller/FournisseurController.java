@@ -0,0 +1,174 @@
+package com.pharmajava.controller;
+
+import com.pharmajava.dao.FournisseurDAO;
+import com.pharmajava.dao.PrevisionDAO;
+import com.pharmajava.dao.RavitaillementDAO;
+import com.pharmajava.model.BilanReception;
+import com.pharmajava.model.CommandeSuggeree;
+import com.pharmajava.model.Fournisseur;
+import com.pharmajava.model.Ravitaillement;
+import com.pharmajava.model.Stock;
+import com.pharmajava.service.PrevisionDemande;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Contrôleur pour la gestion des fournisseurs et de leurs livraisons
+ */
+public class FournisseurController {
+    private static final Logger LOGGER = Logger.getLogger(FournisseurController.class.getName());
+    private final FournisseurDAO fournisseurDAO;
+    private final RavitaillementDAO ravitaillementDAO;
+    private final PrevisionDAO previsionDAO;
+
+    /**
+     * Constructeur par défaut
+     */
+    public FournisseurController() {
+        this.fournisseurDAO = new FournisseurDAO();
+        this.ravitaillementDAO = new RavitaillementDAO();
+        this.previsionDAO = new PrevisionDAO();
+    }
+
+    /**
+     * Ajoute un nouveau fournisseur
+     *
+     * @param fournisseur Le fournisseur à ajouter
+     * @return Le fournisseur avec son ID généré, ou null en cas d'erreur
+     */
+    public Fournisseur ajouterFournisseur(Fournisseur fournisseur) {
+        try {
+            return fournisseurDAO.ajouter(fournisseur);
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors de l'ajout d'un fournisseur", e);
+            return null;
+        }
+    }
+
+    /**
+     * Met à jour un fournisseur existant
+     *
+     * @param fournisseur Le fournisseur à mettre à jour
+     * @return true si la mise à jour a réussi, false sinon
+     */
+    public boolean mettreAJourFournisseur(Fournisseur fournisseur) {
+        try {
+            return fournisseurDAO.mettreAJour(fournisseur);
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors de la mise à jour d'un fournisseur", e);
+            return false;
+        }
+    }
+
+    /**
+     * Supprime un fournisseur par son ID
+     *
+     * @param id L'ID du fournisseur à supprimer
+     * @return true si la suppression a réussi, false sinon
+     */
+    public boolean supprimerFournisseur(int id) {
+        try {
+            return fournisseurDAO.supprimer(id);
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors de la suppression d'un fournisseur", e);
+            return false;
+        }
+    }
+
+    /**
+     * Récupère tous les fournisseurs
+     *
+     * @return Liste de tous les fournisseurs
+     */
+    public List<Fournisseur> obtenirTousLesFournisseurs() {
+        try {
+            return fournisseurDAO.obtenirTous();
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors de la récupération des fournisseurs", e);
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Recherche des fournisseurs par début de nom
+     *
+     * @param prefixe Le début du nom recherché
+     * @return Liste des fournisseurs correspondants
+     */
+    public List<Fournisseur> rechercherFournisseurs(String prefixe) {
+        try {
+            return fournisseurDAO.rechercher(prefixe);
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors de la recherche de fournisseurs", e);
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Enregistre une livraison d'un fournisseur : lots de stock et ravitaillements
+     *
+     * @param fournisseurId L'ID du fournisseur, ou null si inconnu
+     * @param lots Les lots du bon de livraison
+     * @return L'issue de chaque ligne, ou null si la livraison n'a pas pu être enregistrée
+     */
+    public BilanReception recevoirLivraison(Integer fournisseurId, List<Stock> lots) {
+        if (lots == null || lots.isEmpty()) {
+            return new BilanReception(new ArrayList<>(), 0, 0);
+        }
+        try {
+            BilanReception bilan = ravitaillementDAO.recevoir(fournisseurId, lots);
+            for (BilanReception.Ligne ligne : bilan.getLignesRejetees()) {
+                LOGGER.warning("Ligne " + ligne.getNumero() + " de la livraison rejetée: " + ligne.getMotif());
+            }
+            return bilan;
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors de la réception de la livraison du fournisseur " + fournisseurId, e);
+            return null;
+        }
+    }
+
+    /**
+     * Récupère une page de l'historique des achats auprès d'un fournisseur
+     *
+     * @param fournisseurId L'ID du fournisseur
+     * @param apres La dernière ligne de la page précédente, null pour la première page
+     * @param taille Le nombre de lignes par page
+     * @return Les ravitaillements, du plus récent au plus ancien
+     */
+    public List<Ravitaillement> historiqueFournisseur(int fournisseurId, Ravitaillement apres, int taille) {
+        return ravitaillementDAO.obtenirParFournisseur(fournisseurId, apres, taille);
+    }
+
+    /**
+     * Récupère une page de l'historique des achats d'un produit
+     *
+     * @param produitId L'ID du produit
+     * @param apres La dernière ligne de la page précédente, null pour la première page
+     * @param taille Le nombre de lignes par page
+     * @return Les ravitaillements, du plus récent au plus ancien
+     */
+    public List<Ravitaillement> historiqueProduit(int produitId, Ravitaillement apres, int taille) {
+        return ravitaillementDAO.obtenirParProduit(produitId, apres, taille);
+    }
+
+    /**
+     * Récupère les bons de commande suggérés par les dernières prévisions de demande
+     *
+     * @return Un bon par fournisseur, avec les produits à commander
+     */
+    public List<CommandeSuggeree> obtenirCommandesSuggerees() {
+        return previsionDAO.obtenirCommandesSuggerees();
+    }
+
+    /**
+     * Recalcule immédiatement les prévisions de demande de tout le catalogue
+     *
+     * @return Le nombre de produits prévus, -1 en cas d'erreur ou de calcul en cours sur un autre poste
+     */
+    public int recalculerPrevisions() {
+        return PrevisionDemande.getInstance().recalculer();
+    }
+}
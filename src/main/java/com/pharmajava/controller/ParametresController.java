@@ -1,5 +1,6 @@
 package com.pharmajava.controller;
 
+import com.pharmajava.dao.InfoPharmacie;
 import com.pharmajava.dao.PharmacieInfoDAO;
 import com.pharmajava.model.PharmacieInfo;
 
@@ -66,7 +67,12 @@ public class ParametresController {
             }
             
             // Enregistrer les informations de la pharmacie
-            return pharmacieInfoDAO.mettreAJour(pharmacieInfo);
+            boolean enregistre = pharmacieInfoDAO.mettreAJour(pharmacieInfo);
+            if (enregistre) {
+                // Les prochains tickets reprendront les nouvelles informations
+                InfoPharmacie.getInstance().invalider();
+            }
+            return enregistre;
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Erreur lors de l'enregistrement des paramètres de la pharmacie", e);
             return false;
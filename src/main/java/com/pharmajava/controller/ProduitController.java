@@ -1,7 +1,11 @@
 package com.pharmajava.controller;
 
 import com.pharmajava.model.Produit;
+import com.pharmajava.model.ResultatMiseAJour;
+import com.pharmajava.model.VitesseVente;
+import com.pharmajava.dao.CatalogueProduits;
 import com.pharmajava.dao.ProduitDAO;
+import com.pharmajava.dao.VitessesVente;
 
 import java.math.BigDecimal;
 import java.util.List;
@@ -21,13 +25,13 @@ public class ProduitController {
     }
 
     /**
-     * Récupère tous les produits
+     * Récupère tous les produits depuis le catalogue partagé, sans aller en base
      *
-     * @return Liste de tous les produits
+     * @return Liste non modifiable de tous les produits, triés par nom ; ces produits ne doivent pas être modifiés
      */
     public List<Produit> obtenirTous() {
         try {
-            return produitDAO.obtenirTous();
+            return CatalogueProduits.getInstance().produits();
         } catch (Exception e) {
             System.err.println("Erreur lors de la récupération des produits: " + e.getMessage());
             return new ArrayList<>();
@@ -137,28 +141,38 @@ public class ProduitController {
     /**
      * Met à jour un produit existant
      *
-     * @param produit Le produit à mettre à jour
-     * @return true si la mise à jour a réussi, false sinon
+     * @param produit Le produit à mettre à jour, avec la version lue
+     * @return Le résultat de la mise à jour, ou null en cas d'erreur
      */
-    public boolean mettreAJour(Produit produit) {
+    public ResultatMiseAJour mettreAJour(Produit produit) {
         try {
             return produitDAO.metreAJour(produit);
         } catch (Exception e) {
             System.err.println("Erreur lors de la mise à jour du produit: " + e.getMessage());
-            return false;
+            return null;
         }
     }
     
     /**
      * Met à jour un produit existant (alias pour mettreAJour)
      *
-     * @param produit Le produit à mettre à jour
-     * @return true si la mise à jour a réussi, false sinon
+     * @param produit Le produit à mettre à jour, avec la version lue
+     * @return Le résultat de la mise à jour, ou null en cas d'erreur
      */
-    public boolean modifierProduit(Produit produit) {
+    public ResultatMiseAJour modifierProduit(Produit produit) {
         return mettreAJour(produit);
     }
 
+    /**
+     * Récupère les ventes d'un produit sur 7, 30 et 90 jours, sans accès à la base
+     *
+     * @param produitId L'ID du produit
+     * @return Les quantités vendues et moyennes journalières du produit
+     */
+    public VitesseVente obtenirVitesseVente(int produitId) {
+        return VitessesVente.getInstance().vitesse(produitId);
+    }
+
     /**
      * Supprime un produit
      *
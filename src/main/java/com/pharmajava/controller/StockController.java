@@ -1,12 +1,30 @@
 package com.pharmajava.controller;
 
+import com.pharmajava.model.BilanRecalculStock;
+import com.pharmajava.model.BilanReception;
+import com.pharmajava.model.LotDormant;
+import com.pharmajava.model.RapportStockDormant;
 import com.pharmajava.model.Stock;
 import com.pharmajava.model.Produit;
+import com.pharmajava.model.ResultatMiseAJour;
+import com.pharmajava.dao.IndexLots;
+import com.pharmajava.dao.MouvementStockDAO;
 import com.pharmajava.dao.StockDAO;
+import com.pharmajava.dao.StockDormantDAO;
+import com.pharmajava.dao.UniteDeTravail;
 
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -16,6 +34,9 @@ import java.util.logging.Logger;
  */
 public class StockController {
     private StockDAO stockDAO;
+    private MouvementStockDAO mouvementStockDAO;
+    private StockDormantDAO stockDormantDAO;
+    private static final int LIGNES_STOCK_DORMANT = 500;
     private static final Logger LOGGER = Logger.getLogger(StockController.class.getName());
 
     /**
@@ -23,6 +44,8 @@ public class StockController {
      */
     public StockController() {
         this.stockDAO = new StockDAO();
+        this.mouvementStockDAO = new MouvementStockDAO();
+        this.stockDormantDAO = new StockDormantDAO();
     }
 
     /**
@@ -31,7 +54,7 @@ public class StockController {
      * @return Liste de tous les stocks
      */
     public List<Stock> obtenirTous() {
-        try {
+        try (UniteDeTravail ignored = UniteDeTravail.ouvrir()) {
             return stockDAO.findAll();
         } catch (Exception e) {
             System.err.println("Erreur lors de la récupération des stocks: " + e.getMessage());
@@ -61,7 +84,7 @@ public class StockController {
      * @return Liste des stocks pour le produit
      */
     public List<Stock> getStocksByProduit(Integer produitId) {
-        try {
+        try (UniteDeTravail ignored = UniteDeTravail.ouvrir()) {
             return stockDAO.findByProduitId(produitId);
         } catch (Exception e) {
             System.err.println("Erreur lors de la récupération des stocks par produit: " + e.getMessage());
@@ -118,18 +141,57 @@ public class StockController {
         }
     }
 
+    /**
+     * Enregistre en une seule fois les lots d'une livraison grossiste
+     *
+     * @param lots les lots du bon de livraison
+     * @return l'issue de chaque ligne, ou null si la livraison n'a pas pu être enregistrée
+     */
+    public BilanReception recevoirLivraison(List<Stock> lots) {
+        if (lots == null || lots.isEmpty()) {
+            return new BilanReception(new ArrayList<>(), 0, 0);
+        }
+        try {
+            BilanReception bilan = stockDAO.recevoirLivraison(lots);
+            for (BilanReception.Ligne ligne : bilan.getLignesRejetees()) {
+                LOGGER.warning("Ligne " + ligne.getNumero() + " de la livraison rejetée: " + ligne.getMotif());
+            }
+            return bilan;
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors de la réception de la livraison", e);
+            return null;
+        }
+    }
+
     /**
      * Met à jour un stock existant
      *
-     * @param stock le stock à mettre à jour
-     * @return true si la mise à jour a réussi, false sinon
+     * @param stock le stock à mettre à jour, avec la version lue
+     * @return le résultat de la mise à jour, ou null en cas d'erreur
      */
-    public boolean mettreAJour(Stock stock) {
+    public ResultatMiseAJour mettreAJour(Stock stock) {
         try {
             return stockDAO.update(stock);
         } catch (Exception e) {
             System.err.println("Erreur lors de la mise à jour du stock: " + e.getMessage());
-            return false;
+            return null;
+        }
+    }
+
+    /**
+     * Ajoute un écart à la quantité d'un lot (correction d'inventaire, casse),
+     * réappliqué automatiquement si une vente modifie le lot au même moment
+     *
+     * @param stockId l'ID du lot
+     * @param delta la quantité à ajouter (négative pour un retrait)
+     * @return le résultat de la mise à jour, ou null en cas d'erreur
+     */
+    public ResultatMiseAJour ajusterQuantite(Integer stockId, int delta) {
+        try {
+            return stockDAO.ajusterQuantite(stockId, delta);
+        } catch (Exception e) {
+            System.err.println("Erreur lors de l'ajustement du stock: " + e.getMessage());
+            return null;
         }
     }
 
@@ -154,7 +216,7 @@ public class StockController {
      * @return Liste des stocks périmés
      */
     public List<Stock> obtenirStocksExpires() {
-        try {
+        try (UniteDeTravail ignored = UniteDeTravail.ouvrir()) {
             return stockDAO.obtenirStocksExpires();
         } catch (Exception e) {
             System.err.println("Erreur lors de la récupération des stocks expirés: " + e.getMessage());
@@ -169,7 +231,7 @@ public class StockController {
      * @return Liste des stocks qui vont bientôt expirer
      */
     public List<Stock> obtenirStocksExpirantBientot(int jours) {
-        try {
+        try (UniteDeTravail ignored = UniteDeTravail.ouvrir()) {
             return stockDAO.obtenirStocksExpirantBientot(jours);
         } catch (Exception e) {
             System.err.println("Erreur lors de la récupération des stocks proches de l'expiration: " + e.getMessage());
@@ -204,17 +266,29 @@ public class StockController {
      */
     public int getTotalQuantityForProduct(Integer produitId) {
         try {
-            List<Stock> stocks = getStocksByProduit(produitId);
-            return stocks.stream()
-                    .filter(stock -> !stock.isExpired())
-                    .mapToInt(Stock::getQuantite)
-                    .sum();
+            return IndexLots.getInstance().quantiteDisponible(produitId);
         } catch (Exception e) {
             System.err.println("Erreur lors du calcul de la quantité totale: " + e.getMessage());
             return 0;
         }
     }
 
+    /**
+     * Reconstruit la quantité vendable de chaque lot à une date passée
+     * à partir du journal des mouvements de stock
+     * 
+     * @param date la date de l'état recherché
+     * @return la quantité par ID de lot, vide en cas d'erreur
+     */
+    public Map<Integer, Integer> getQuantitesParLotAu(LocalDateTime date) {
+        try {
+            return mouvementStockDAO.quantitesParLotAu(date);
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors de la reconstruction du stock au " + date, e);
+            return new HashMap<>();
+        }
+    }
+
     /**
      * Diminue le stock d'un produit en commençant par les lots qui expirent le plus tôt
      * 
@@ -239,16 +313,82 @@ public class StockController {
      */
     public boolean actualiserTousLesStocks() {
         try {
-            boolean resultat = stockDAO.actualiserTousLesStocks();
-            if (resultat) {
-                LOGGER.info("Actualisation de tous les stocks effectuée avec succès");
-            } else {
-                LOGGER.warning("L'actualisation de tous les stocks a rencontré des problèmes");
-            }
-            return resultat;
+            BilanRecalculStock bilan = stockDAO.recalculerTousLesStocks(0);
+            LOGGER.info("Actualisation de tous les stocks effectuée avec succès : "
+                    + bilan.getLignesModifiees() + " produit(s) modifié(s) en " + bilan.getDureeMs() + " ms");
+            return true;
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Erreur lors de l'actualisation de tous les stocks", e);
             return false;
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * Établit le rapport de stock dormant : les lots des produits vendus au plus à une
+     * quantité donnée depuis un nombre de jours
+     *
+     * @param joursSansVente La période, en jours
+     * @param quantiteMaximum La quantité vendue au-delà de laquelle un produit n'est pas dormant
+     * @param tri L'ordre des lots
+     * @return Le rapport (les 500 premiers lots et les totaux de tous), ou null en cas d'erreur
+     */
+    public RapportStockDormant obtenirStockDormant(int joursSansVente, int quantiteMaximum, StockDormantDAO.Tri tri) {
+        try {
+            RapportStockDormant rapport = new RapportStockDormant(joursSansVente, LIGNES_STOCK_DORMANT);
+            stockDormantDAO.parcourir(joursSansVente, quantiteMaximum, tri, rapport);
+            return rapport;
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors du calcul du rapport de stock dormant", e);
+            return null;
+        }
+    }
+
+    /**
+     * Exporte le rapport de stock dormant complet en CSV (séparateur point-virgule, UTF-8),
+     * en écrivant chaque lot dès sa lecture
+     *
+     * @param joursSansVente La période, en jours
+     * @param quantiteMaximum La quantité vendue au-delà de laquelle un produit n'est pas dormant
+     * @param tri L'ordre des lots
+     * @param fichier Le fichier à écrire
+     * @return Le nombre de lots exportés, -1 en cas d'erreur
+     */
+    public int exporterStockDormant(int joursSansVente, int quantiteMaximum, StockDormantDAO.Tri tri, File fichier) {
+        LocalDate aujourdhui = LocalDate.now();
+        try (BufferedWriter writer = Files.newBufferedWriter(fichier.toPath(), StandardCharsets.UTF_8)) {
+            // Marque d'ordre des octets : les tableurs reconnaissent ainsi l'UTF-8
+            writer.write('\uFEFF');
+            writer.write("Produit;Lot;Quantité;Prix d'achat;Valeur immobilisée;Valeur à risque;"
+                    + "Date d'expiration;Jours avant expiration;Dernière vente;Jours sans vente;Vendus sur la période");
+            writer.newLine();
+
+            return stockDormantDAO.parcourir(joursSansVente, quantiteMaximum, tri, lot -> {
+                try {
+                    writer.write(champCsv(lot.getProduitNom()) + ';' + champCsv(lot.getNumeroLot()) + ';'
+                            + lot.getQuantite() + ';' + lot.getPrixAchat().toPlainString() + ';'
+                            + lot.getValeur().toPlainString() + ';' + lot.getValeurARisque().toPlainString() + ';'
+                            + lot.getDateExpiration() + ';' + lot.getJoursAvantExpiration(aujourdhui) + ';'
+                            + (lot.getDerniereVente() != null ? lot.getDerniereVente().toLocalDate() : "") + ';'
+                            + (lot.getDerniereVente() != null ? lot.getJoursSansVente(aujourdhui) : "") + ';'
+                            + lot.getVendusPeriode());
+                    writer.newLine();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors de l'export du rapport de stock dormant vers " + fichier, e);
+            return -1;
+        }
+    }
+
+    private static String champCsv(String valeur) {
+        if (valeur == null) {
+            return "";
+        }
+        if (valeur.indexOf(';') < 0 && valeur.indexOf('"') < 0 && valeur.indexOf('\n') < 0) {
+            return valeur;
+        }
+        return '"' + valeur.replace("\"", "\"\"") + '"';
+    }
+}
@@ -1,13 +1,17 @@
 package com.pharmajava.controller;
 
+import com.pharmajava.dao.CatalogueProduits;
 import com.pharmajava.dao.ProduitDAO;
 import com.pharmajava.dao.VenteDAO;
+import com.pharmajava.dao.UniteDeTravail;
 import com.pharmajava.model.Produit;
 import com.pharmajava.model.Vente;
 import com.pharmajava.utils.PrintUtils;
 import com.pharmajava.model.Pharmacien;
 import com.pharmajava.model.ProduitVendu;
 import com.pharmajava.model.Client;
+import com.pharmajava.service.ReservationStock;
+import com.pharmajava.service.ReservationsStock;
 import com.pharmajava.dao.ClientDAO;
 
 import java.math.BigDecimal;
@@ -37,13 +41,13 @@ public class VenteController {
     }
 
     /**
-     * Récupère tous les produits disponibles
+     * Récupère tous les produits depuis le catalogue partagé, sans aller en base
      * 
-     * @return Liste de tous les produits
+     * @return Liste non modifiable de tous les produits, triés par nom ; ces produits ne doivent pas être modifiés
      */
     public List<Produit> obtenirTousProduits() {
         try {
-            return produitDAO.obtenirTous();
+            return CatalogueProduits.getInstance().produits();
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Erreur lors de la récupération des produits", e);
             return new ArrayList<>();
@@ -94,14 +98,71 @@ public class VenteController {
      */
     public boolean verifierStockSuffisant(int produitId, int quantite) {
         try {
-            Produit produit = produitDAO.obtenirParId(produitId);
-            return produit != null && produit.getQuantiteEnStock() >= quantite;
+            return ReservationsStock.getInstance().quantiteDisponible(produitId) >= quantite;
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Erreur lors de la vérification du stock", e);
             return false;
         }
     }
 
+    /**
+     * Obtient la quantité disponible d'un produit, déduction faite des quantités
+     * réservées dans les paniers de toutes les caisses ; calculée en mémoire,
+     * la réservation de la ligne reste la vérification qui fait foi
+     * 
+     * @param produitId ID du produit
+     * @return La quantité disponible, -1 si elle n'a pas pu être lue
+     */
+    public int obtenirStockDisponible(int produitId) {
+        try {
+            return ReservationsStock.getInstance().quantiteDisponible(produitId);
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors de la lecture du stock disponible", e);
+            return -1;
+        }
+    }
+
+    /**
+     * Réserve une quantité d'un produit pour une ligne du panier
+     * 
+     * @param produitId ID du produit
+     * @param quantite  Quantité à réserver
+     * @return La réservation, ou null si la quantité n'est pas disponible
+     */
+    public ReservationStock reserverStock(int produitId, int quantite) {
+        try {
+            return ReservationsStock.getInstance().reserver(produitId, quantite);
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors de la réservation du stock", e);
+            return null;
+        }
+    }
+
+    /**
+     * Modifie la quantité réservée pour une ligne du panier
+     * 
+     * @param reservation      La réservation de la ligne
+     * @param nouvelleQuantite La nouvelle quantité de la ligne
+     * @return true si la réservation a été modifiée, false sinon
+     */
+    public boolean ajusterReservation(ReservationStock reservation, int nouvelleQuantite) {
+        try {
+            return ReservationsStock.getInstance().ajuster(reservation, nouvelleQuantite);
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors de la modification de la réservation", e);
+            return false;
+        }
+    }
+
+    /**
+     * Libère la réservation d'une ligne retirée du panier
+     * 
+     * @param reservation La réservation à libérer
+     */
+    public void libererReservation(ReservationStock reservation) {
+        ReservationsStock.getInstance().liberer(reservation);
+    }
+
     /**
      * Enregistre une nouvelle vente
      * 
@@ -113,6 +174,22 @@ public class VenteController {
      */
     public Vente enregistrerVente(List<ProduitVendu> produitsVendus, BigDecimal montantPercu,
             Pharmacien pharmacien, Client client) {
+        return enregistrerVente(produitsVendus, montantPercu, pharmacien, client, new ArrayList<>());
+    }
+
+    /**
+     * Enregistre une nouvelle vente et solde les réservations de son panier
+     * une fois les lots réellement décrémentés
+     * 
+     * @param produitsVendus Liste des produits vendus
+     * @param montantPercu   Montant perçu du client
+     * @param pharmacien     Pharmacien qui a effectué la vente
+     * @param client         Client associé à la vente (optionnel, peut être null)
+     * @param reservations   Réservations prises pendant la constitution du panier
+     * @return La vente enregistrée avec son ID, ou null en cas d'erreur
+     */
+    public Vente enregistrerVente(List<ProduitVendu> produitsVendus, BigDecimal montantPercu,
+            Pharmacien pharmacien, Client client, List<ReservationStock> reservations) {
         if (produitsVendus == null || produitsVendus.isEmpty()) {
             LOGGER.log(Level.WARNING, "Tentative d'enregistrement d'une vente sans produits");
             return null;
@@ -138,8 +215,12 @@ public class VenteController {
             // Calculer le montant à rendre
             vente.calculerMontantRendu();
 
-            // Enregistrer la vente
-            return venteDAO.ajouter(vente);
+            // Enregistrer la vente ; en cas d'échec les réservations restent acquises au panier
+            Vente venteEnregistree = venteDAO.ajouter(vente);
+            if (venteEnregistree != null) {
+                ReservationsStock.getInstance().consommer(reservations);
+            }
+            return venteEnregistree;
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Erreur lors de l'enregistrement d'une vente", e);
             return null;
@@ -153,7 +234,7 @@ public class VenteController {
      * @return true si l'impression a réussi, false sinon
      */
     public boolean imprimerTicketVente(int venteId) {
-        try {
+        try (UniteDeTravail ignored = UniteDeTravail.ouvrir()) {
             Vente vente = venteDAO.obtenirParId(venteId);
             if (vente == null) {
                 LOGGER.warning("Impossible d'imprimer le ticket: Vente non trouvée (ID=" + venteId + ")");
@@ -174,7 +255,7 @@ public class VenteController {
      * @return Le contenu du ticket au format texte ou null en cas d'erreur
      */
     public String genererTicketTexte(int venteId) {
-        try {
+        try (UniteDeTravail ignored = UniteDeTravail.ouvrir()) {
             Vente vente = venteDAO.obtenirParId(venteId);
             if (vente == null) {
                 LOGGER.warning("Impossible de générer le ticket texte: Vente non trouvée (ID=" + venteId + ")");
@@ -194,7 +275,7 @@ public class VenteController {
      * @return Liste de toutes les ventes
      */
     public List<Vente> obtenirToutesVentes() {
-        try {
+        try (UniteDeTravail ignored = UniteDeTravail.ouvrir()) {
             return venteDAO.obtenirToutes();
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Erreur lors de la récupération des ventes", e);
@@ -209,7 +290,7 @@ public class VenteController {
      * @return La vente avec tous ses détails, ou null si non trouvée
      */
     public Vente obtenirVenteParId(int id) {
-        try {
+        try (UniteDeTravail ignored = UniteDeTravail.ouvrir()) {
             return venteDAO.obtenirParId(id);
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Erreur lors de la récupération de la vente ID=" + id, e);
@@ -223,7 +304,7 @@ public class VenteController {
      * @return Liste des ventes du jour
      */
     public List<Vente> obtenirVentesAujourdhui() {
-        try {
+        try (UniteDeTravail ignored = UniteDeTravail.ouvrir()) {
             java.time.LocalDateTime debut = java.time.LocalDateTime.now().withHour(0).withMinute(0).withSecond(0);
             java.time.LocalDateTime fin = java.time.LocalDateTime.now().withHour(23).withMinute(59).withSecond(59);
 
@@ -242,7 +323,7 @@ public class VenteController {
      * @return Liste des ventes de la période
      */
     public List<Vente> obtenirVentesParPeriode(java.time.LocalDateTime debut, java.time.LocalDateTime fin) {
-        try {
+        try (UniteDeTravail ignored = UniteDeTravail.ouvrir()) {
             return venteDAO.obtenirParPeriode(debut, fin);
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Erreur lors de la récupération des ventes par période", e);
@@ -291,7 +372,7 @@ public class VenteController {
      * @return Liste des ventes du client
      */
     public List<Vente> obtenirVentesParClient(Integer clientId) {
-        try {
+        try (UniteDeTravail ignored = UniteDeTravail.ouvrir()) {
             return venteDAO.obtenirParClient(clientId);
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Erreur lors de la récupération des ventes du client ID=" + clientId, e);
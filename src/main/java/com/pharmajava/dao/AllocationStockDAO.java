@@ -0,0 +1,104 @@
+package com.pharmajava.dao;
+
+import com.pharmajava.model.AllocationLot;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Moteur d'allocation des sorties de stock par lot, premier expiré premier sorti
+ *
+ * Les lots candidats sont verrouillés ({@code SELECT ... FOR UPDATE}) dans l'ordre
+ * des dates d'expiration, la répartition est calculée en mémoire puis appliquée
+ * par une seule instruction UPDATE. Deux caisses vendant le même produit sont
+ * ainsi sérialisées sur ses lots : la seconde voit les quantités déjà prélevées
+ * par la première et ne peut pas survendre.
+ */
+public class AllocationStockDAO {
+    private static final Logger LOGGER = Logger.getLogger(AllocationStockDAO.class.getName());
+
+    private static final String SELECT_LOTS_VERROUILLES =
+            "SELECT id, lot_numero, quantite_disponible, date_expiration FROM stock " +
+            "WHERE produit_id = ? AND quantite_disponible > 0 AND expire = FALSE " +
+            "ORDER BY date_expiration ASC, id ASC FOR UPDATE";
+
+    /**
+     * Alloue une quantité d'un produit sur ses lots non expirés et décrémente ces lots,
+     * dans la transaction de l'appelant (la connexion doit être en autoCommit=false
+     * pour que les verrous soient conservés jusqu'au commit)
+     *
+     * @param conn La connexion portant la transaction en cours
+     * @param produitId L'ID du produit
+     * @param quantite La quantité à prélever
+     * @return Une allocation par lot entamé, dans l'ordre de prélèvement
+     * @throws SQLException si le stock est insuffisant ou si une erreur SQL survient
+     */
+    public List<AllocationLot> allouer(Connection conn, int produitId, int quantite) throws SQLException {
+        List<AllocationLot> allocations = new ArrayList<>();
+        if (quantite <= 0) {
+            return allocations;
+        }
+
+        // 1. Verrouiller les lots candidats et calculer la répartition
+        int quantiteRestante = quantite;
+        int quantiteDisponible = 0;
+
+        try (PreparedStatement pstmt = conn.prepareStatement(SELECT_LOTS_VERROUILLES)) {
+            pstmt.setInt(1, produitId);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    int quantiteLot = rs.getInt("quantite_disponible");
+                    quantiteDisponible += quantiteLot;
+
+                    if (quantiteRestante > 0) {
+                        int prelevee = Math.min(quantiteRestante, quantiteLot);
+                        allocations.add(new AllocationLot(
+                                rs.getInt("id"),
+                                produitId,
+                                rs.getString("lot_numero"),
+                                rs.getDate("date_expiration").toLocalDate(),
+                                prelevee,
+                                quantiteLot - prelevee));
+                        quantiteRestante -= prelevee;
+                    }
+                }
+            }
+        }
+
+        if (quantiteRestante > 0) {
+            throw new SQLException("Stock insuffisant pour le produit ID=" + produitId +
+                                   ". Demandé: " + quantite +
+                                   ", Disponible: " + quantiteDisponible);
+        }
+
+        // 2. Appliquer toute la répartition en une seule instruction
+        StringBuilder sql = new StringBuilder("UPDATE stock SET quantite_disponible = quantite_disponible - CASE id");
+        for (int i = 0; i < allocations.size(); i++) {
+            sql.append(" WHEN ? THEN ?");
+        }
+        sql.append(" END, version = version + 1 WHERE id IN (").append(RequetesParLots.marqueurs(allocations.size())).append(")");
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+            int index = 1;
+            for (AllocationLot allocation : allocations) {
+                pstmt.setInt(index++, allocation.getStockId());
+                pstmt.setInt(index++, allocation.getQuantitePrelevee());
+            }
+            for (AllocationLot allocation : allocations) {
+                pstmt.setInt(index++, allocation.getStockId());
+            }
+
+            int lignes = pstmt.executeUpdate();
+            if (lignes != allocations.size()) {
+                throw new SQLException("Allocation incohérente pour le produit ID=" + produitId +
+                                       ": " + lignes + " lots modifiés sur " + allocations.size());
+            }
+        }
+
+        LOGGER.info("Produit " + produitId + ": " + quantite + " unités allouées sur " + allocations.size() + " lot(s)");
+        return allocations;
+    }
+}
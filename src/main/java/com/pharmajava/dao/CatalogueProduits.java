@@ -0,0 +1,402 @@
+package com.pharmajava.dao;
+
+import com.pharmajava.model.Produit;
+import com.pharmajava.utils.DatabaseConfig;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Catalogue des produits en mémoire, partagé par toutes les vues.
+ *
+ * Le catalogue est chargé une fois au démarrage et publié sous forme d'instantanés
+ * immuables : une vue lit toujours une liste cohérente, sans aller en base, même pendant
+ * une mise à jour. Les écritures de ProduitDAO relisent aussitôt les produits qu'elles
+ * ont modifiés. Les autres changements (quantités modifiées par les ventes et les lots,
+ * autres postes) sont rattrapés par écart : quand une vue lit un instantané vieux de
+ * plus de quelques secondes, une tâche de fond compare le nombre de produits et la
+ * dernière date de modification du catalogue, et ne relit que les produits modifiés
+ * depuis l'instantané.
+ *
+ * Les produits du catalogue sont partagés : ils ne doivent pas être modifiés.
+ */
+public final class CatalogueProduits {
+    private static final Logger LOGGER = Logger.getLogger(CatalogueProduits.class.getName());
+
+    // Âge d'un instantané au-delà duquel une lecture déclenche une vérification en tâche de fond
+    private static final long FRAICHEUR_MS = 2000;
+
+    // Recouvrement de la relecture par écart : une transaction validée tardivement porte
+    // une date de modification antérieure à sa validation
+    private static final long MARGE_MS = 5 * 60 * 1000;
+
+    private static final String SELECT_ETAT =
+            "SELECT COUNT(*) AS nombre, MAX(derniere_modification) AS derniere, CURRENT_TIMESTAMP AS maintenant " +
+            "FROM produits";
+
+    private static CatalogueProduits instance;
+
+    private volatile Instantane instantane;
+    private volatile long derniereVerification;
+    private final AtomicBoolean verificationPlanifiee = new AtomicBoolean();
+    private ScheduledExecutorService planificateur;
+
+    private CatalogueProduits() {
+    }
+
+    /**
+     * Obtient l'instance unique du catalogue
+     *
+     * @return L'instance du catalogue
+     */
+    public static synchronized CatalogueProduits getInstance() {
+        if (instance == null) {
+            instance = new CatalogueProduits();
+        }
+        return instance;
+    }
+
+    /**
+     * Charge tout le catalogue en une seule requête
+     *
+     * @throws SQLException si une erreur SQL survient
+     */
+    public synchronized void charger() throws SQLException {
+        long debut = System.nanoTime();
+        Map<Integer, Produit> produits = new HashMap<>();
+        Etat etat;
+
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            etat = lireEtat(conn);
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT * FROM produits")) {
+                while (rs.next()) {
+                    Produit produit = ProduitDAO.lireLigne(rs);
+                    produits.put(produit.getId(), produit);
+                }
+            }
+        }
+
+        Instantane precedent = instantane;
+        publier(new Instantane(produits, etat.derniere, precedent != null ? precedent.version + 1 : 1, null));
+        LOGGER.info("Catalogue chargé : " + produits.size() + " produit(s) en "
+                + (System.nanoTime() - debut) / 1_000_000 + " ms");
+    }
+
+    /**
+     * Obtient tous les produits, triés par nom
+     *
+     * @return La liste non modifiable de l'instantané courant
+     */
+    public List<Produit> produits() {
+        return instantaneCourant().parNom;
+    }
+
+    /**
+     * Obtient un produit du catalogue par son ID
+     *
+     * @param id L'ID du produit
+     * @return Le produit, ou null s'il n'est pas au catalogue
+     */
+    public Produit produit(int id) {
+        return instantaneCourant().parId.get(id);
+    }
+
+    /**
+     * Obtient le nombre de produits du catalogue
+     *
+     * @return Le nombre de produits
+     */
+    public int nombreProduits() {
+        return instantaneCourant().parNom.size();
+    }
+
+    /**
+     * Obtient le numéro de l'instantané courant, incrémenté à chaque changement du catalogue
+     *
+     * @return Le numéro de version du catalogue
+     */
+    public long version() {
+        return instantaneCourant().version;
+    }
+
+    /**
+     * Rattrape immédiatement les changements faits en base depuis le dernier instantané,
+     * en ne relisant que les produits modifiés
+     *
+     * @throws SQLException si une erreur SQL survient
+     */
+    public synchronized void rafraichir() throws SQLException {
+        Instantane courant = instantane;
+        if (courant == null) {
+            charger();
+            return;
+        }
+
+        derniereVerification = System.currentTimeMillis();
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            Etat etat = lireEtat(conn);
+            boolean recent = etat.derniere != null
+                    && etat.derniere.getTime() > etat.maintenant.getTime() - MARGE_MS;
+            if (!recent && etat.nombre == courant.parId.size() && egales(etat.derniere, courant.derniere)) {
+                return;
+            }
+
+            Map<Integer, Produit> produits = new HashMap<>(courant.parId);
+            boolean modifie = false;
+            String sql = "SELECT * FROM produits WHERE derniere_modification >= ?";
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                long depuis = courant.derniere != null ? courant.derniere.getTime() - MARGE_MS : 0;
+                pstmt.setTimestamp(1, new Timestamp(depuis));
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        Produit produit = ProduitDAO.lireLigne(rs);
+                        modifie |= !identiques(produits.put(produit.getId(), produit), produit);
+                    }
+                }
+            }
+
+            // Suppressions faites sur un autre poste
+            if (produits.size() != etat.nombre) {
+                Set<Integer> ids = new HashSet<>();
+                try (Statement stmt = conn.createStatement();
+                     ResultSet rs = stmt.executeQuery("SELECT id FROM produits")) {
+                    while (rs.next()) {
+                        ids.add(rs.getInt("id"));
+                    }
+                }
+                modifie |= produits.keySet().retainAll(ids);
+                if (produits.size() != ids.size()) {
+                    // Produits créés avec une date antérieure à l'instantané : relecture complète
+                    charger();
+                    return;
+                }
+            }
+
+            Timestamp derniere = etat.derniere != null ? etat.derniere : courant.derniere;
+            if (modifie || !egales(derniere, courant.derniere)) {
+                publier(new Instantane(produits, derniere, modifie ? courant.version + 1 : courant.version,
+                        courant.parNom));
+            }
+        }
+    }
+
+    /**
+     * Arrête les vérifications en tâche de fond
+     */
+    public synchronized void arreter() {
+        if (planificateur != null) {
+            planificateur.shutdownNow();
+            planificateur = null;
+        }
+    }
+
+    /**
+     * Relit des produits que ProduitDAO vient de modifier, après validation de l'écriture
+     *
+     * @param produitIds Les IDs des produits modifiés
+     */
+    synchronized void produitsModifies(Collection<Integer> produitIds) {
+        Instantane courant = instantane;
+        if (courant == null || produitIds.isEmpty()) {
+            return;
+        }
+
+        Map<Integer, Produit> produits = new HashMap<>(courant.parId);
+        List<Integer> ids = new ArrayList<>(produitIds);
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            for (List<Integer> lot : RequetesParLots.decouper(ids)) {
+                String sql = "SELECT * FROM produits WHERE id IN (" + RequetesParLots.marqueurs(lot.size()) + ")";
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < lot.size(); i++) {
+                        pstmt.setInt(i + 1, lot.get(i));
+                    }
+                    lot.forEach(produits::remove);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            Produit produit = ProduitDAO.lireLigne(rs);
+                            produits.put(produit.getId(), produit);
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            // La prochaine vérification par écart rattrapera ces produits
+            LOGGER.log(Level.WARNING, "Relecture des produits modifiés reportée", e);
+            derniereVerification = 0;
+            return;
+        }
+        publier(new Instantane(produits, courant.derniere, courant.version + 1, courant.parNom));
+    }
+
+    /**
+     * Signale un produit modifié par ProduitDAO
+     *
+     * @param produitId L'ID du produit modifié
+     */
+    void produitModifie(int produitId) {
+        produitsModifies(Collections.singletonList(produitId));
+    }
+
+    /**
+     * Retire un produit supprimé du catalogue
+     *
+     * @param produitId L'ID du produit supprimé
+     */
+    synchronized void produitSupprime(int produitId) {
+        Instantane courant = instantane;
+        if (courant == null || !courant.parId.containsKey(produitId)) {
+            return;
+        }
+        Map<Integer, Produit> produits = new HashMap<>(courant.parId);
+        produits.remove(produitId);
+        publier(new Instantane(produits, courant.derniere, courant.version + 1, courant.parNom));
+    }
+
+    private Instantane instantaneCourant() {
+        Instantane courant = instantane;
+        if (courant == null) {
+            // Chargement du démarrage manqué : la première lecture charge le catalogue
+            try {
+                charger();
+            } catch (SQLException e) {
+                LOGGER.log(Level.SEVERE, "Erreur lors du chargement du catalogue des produits", e);
+                return new Instantane(new HashMap<>(), null, 0, null);
+            }
+            return instantane;
+        }
+
+        if (System.currentTimeMillis() - derniereVerification > FRAICHEUR_MS
+                && verificationPlanifiee.compareAndSet(false, true)) {
+            planificateur().execute(this::verifierEnFond);
+        }
+        return courant;
+    }
+
+    private void verifierEnFond() {
+        verificationPlanifiee.set(false);
+        try {
+            rafraichir();
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Vérification du catalogue des produits reportée", e);
+        }
+    }
+
+    private void publier(Instantane nouveau) {
+        instantane = nouveau;
+        derniereVerification = System.currentTimeMillis();
+    }
+
+    private synchronized ScheduledExecutorService planificateur() {
+        if (planificateur == null) {
+            planificateur = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "catalogue-produits");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return planificateur;
+    }
+
+    private static Etat lireEtat(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(SELECT_ETAT)) {
+            rs.next();
+            return new Etat(rs.getInt("nombre"), rs.getTimestamp("derniere"), rs.getTimestamp("maintenant"));
+        }
+    }
+
+    private static boolean egales(Timestamp a, Timestamp b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    // Une relecture sans changement ne doit pas faire avancer la version
+    private static boolean identiques(Produit avant, Produit apres) {
+        return avant != null
+                && avant.getVersion() == apres.getVersion()
+                && avant.getQuantiteEnStock() == apres.getQuantiteEnStock()
+                && avant.getDerniereModification() != null
+                && avant.getDerniereModification().equals(apres.getDerniereModification());
+    }
+
+    /**
+     * Nombre de produits et dernière modification du catalogue en base
+     */
+    private static final class Etat {
+        final int nombre;
+        final Timestamp derniere;
+        final Timestamp maintenant;
+
+        Etat(int nombre, Timestamp derniere, Timestamp maintenant) {
+            this.nombre = nombre;
+            this.derniere = derniere;
+            this.maintenant = maintenant;
+        }
+    }
+
+    /**
+     * État immuable du catalogue à un instant donné
+     */
+    private static final class Instantane {
+        final Map<Integer, Produit> parId;
+        final List<Produit> parNom;
+        final Timestamp derniere;
+        final long version;
+
+        /**
+         * @param ordrePrecedent La liste triée de l'instantané précédent, réutilisée sans nouveau
+         *                       tri si aucun produit n'a été ajouté, retiré ou renommé ; null sinon
+         */
+        Instantane(Map<Integer, Produit> produits, Timestamp derniere, long version, List<Produit> ordrePrecedent) {
+            this.parId = Collections.unmodifiableMap(produits);
+            this.parNom = Collections.unmodifiableList(trier(produits, ordrePrecedent));
+            this.derniere = derniere;
+            this.version = version;
+        }
+
+        private static List<Produit> trier(Map<Integer, Produit> produits, List<Produit> ordrePrecedent) {
+            if (ordrePrecedent != null && ordrePrecedent.size() == produits.size()) {
+                List<Produit> tries = new ArrayList<>(ordrePrecedent.size());
+                for (Produit ancien : ordrePrecedent) {
+                    Produit produit = produits.get(ancien.getId());
+                    if (produit == null || !Objects.equals(produit.getNom(), ancien.getNom())) {
+                        tries = null;
+                        break;
+                    }
+                    tries.add(produit);
+                }
+                if (tries != null) {
+                    return tries;
+                }
+            }
+
+            List<Produit> tries = new ArrayList<>(produits.values());
+            Collator collator = Collator.getInstance(Locale.FRENCH);
+            collator.setStrength(Collator.SECONDARY);
+            tries.sort(Comparator.comparing((Produit p) -> p.getNom() != null ? p.getNom() : "", collator)
+                    .thenComparing(Produit::getId));
+            return tries;
+        }
+    }
+}
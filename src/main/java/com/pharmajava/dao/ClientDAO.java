@@ -1,12 +1,17 @@
 package com.pharmajava.dao;
 
 import com.pharmajava.model.Client;
+import com.pharmajava.utils.CacheReference;
 import com.pharmajava.utils.DatabaseConfig;
 
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -16,6 +21,19 @@ import java.util.logging.Logger;
 public class ClientDAO {
     private static final Logger LOGGER = Logger.getLogger(ClientDAO.class.getName());
 
+    // Les clients réguliers, relus par chaque vente chargée
+    private static final CacheReference<Client> CACHE =
+            new CacheReference<>("clients", 5000, 10, TimeUnit.MINUTES);
+
+    /**
+     * Obtient le cache des clients par ID, partagé par toutes les instances du DAO
+     *
+     * @return Le cache, pour ses statistiques
+     */
+    public static CacheReference<Client> getCache() {
+        return CACHE;
+    }
+
     /**
      * Ajoute un nouveau client
      * 
@@ -74,6 +92,8 @@ public class ClientDAO {
             pstmt.setInt(6, client.getId());
 
             int affectedRows = pstmt.executeUpdate();
+            UniteDeTravail.oublier(Client.class, client.getId());
+            CACHE.invalider(client.getId());
             return affectedRows > 0;
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Erreur lors de la mise à jour d'un client", e);
@@ -96,6 +116,8 @@ public class ClientDAO {
             pstmt.setInt(1, id);
 
             int affectedRows = pstmt.executeUpdate();
+            UniteDeTravail.oublier(Client.class, id);
+            CACHE.invalider(id);
             return affectedRows > 0;
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Erreur lors de la suppression d'un client", e);
@@ -110,6 +132,16 @@ public class ClientDAO {
      * @return Le client, ou null si non trouvé
      */
     public Client obtenirParId(int id) {
+        Client connu = UniteDeTravail.chercher(Client.class, id);
+        if (connu != null) {
+            return connu;
+        }
+        Client enCache = CACHE.chercher(id);
+        if (enCache != null) {
+            return UniteDeTravail.canonique(Client.class, id, enCache);
+        }
+        long lecture = CACHE.debutLecture();
+
         String sql = "SELECT * FROM clients WHERE id = ?";
 
         try (Connection conn = DatabaseConfig.getConnection();
@@ -119,7 +151,9 @@ public class ClientDAO {
 
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
-                    return convertirResultSet(rs);
+                    Client client = convertirResultSet(rs);
+                    CACHE.ajouter(id, client, lecture);
+                    return client;
                 }
             }
         } catch (SQLException e) {
@@ -129,6 +163,51 @@ public class ClientDAO {
         return null;
     }
 
+    /**
+     * Récupère en une seule passe les clients correspondant à un ensemble d'IDs,
+     * par lots de requêtes {@code IN (...)} sur la connexion fournie
+     * 
+     * @param conn La connexion à utiliser
+     * @param ids Les IDs des clients à récupérer
+     * @return Les clients trouvés, indexés par ID
+     * @throws SQLException En cas d'erreur SQL
+     */
+    public Map<Integer, Client> obtenirParIds(Connection conn, Collection<Integer> ids) throws SQLException {
+        Map<Integer, Client> resultat = new HashMap<>();
+        List<Integer> manquants = new ArrayList<>();
+        for (Integer id : ids) {
+            Client connu = UniteDeTravail.chercher(Client.class, id);
+            if (connu == null) {
+                Client enCache = CACHE.chercher(id);
+                connu = enCache != null ? UniteDeTravail.canonique(Client.class, id, enCache) : null;
+            }
+            if (connu != null) {
+                resultat.put(id, connu);
+            } else {
+                manquants.add(id);
+            }
+        }
+        
+        long lecture = CACHE.debutLecture();
+
+        for (List<Integer> lot : RequetesParLots.decouper(manquants)) {
+            String sql = "SELECT * FROM clients WHERE id IN (" + RequetesParLots.marqueurs(lot.size()) + ")";
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                for (int i = 0; i < lot.size(); i++) {
+                    pstmt.setInt(i + 1, lot.get(i));
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        Client client = convertirResultSet(rs);
+                        resultat.put(client.getId(), client);
+                        CACHE.ajouter(client.getId(), client, lecture);
+                    }
+                }
+            }
+        }
+        return resultat;
+    }
+    
     /**
      * Récupère tous les clients
      * 
@@ -223,7 +302,7 @@ public class ClientDAO {
      * @throws SQLException Si une erreur survient lors de l'accès aux données
      */
     private Client convertirResultSet(ResultSet rs) throws SQLException {
-        return new Client(
+        Client client = new Client(
                 rs.getInt("id"),
                 rs.getString("nom"),
                 rs.getString("prenom"),
@@ -234,5 +313,7 @@ public class ClientDAO {
                 rs.getTimestamp("derniere_modification") != null
                         ? rs.getTimestamp("derniere_modification").toLocalDateTime()
                         : null);
+
+        return UniteDeTravail.canonique(Client.class, client.getId(), client);
     }
 }
\ No newline at end of file
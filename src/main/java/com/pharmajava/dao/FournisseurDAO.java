@@ -0,0 +1,216 @@
+package com.pharmajava.dao;
+
+import com.pharmajava.model.Fournisseur;
+import com.pharmajava.utils.DatabaseConfig;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Classe d'accès aux données pour les fournisseurs
+ */
+public class FournisseurDAO {
+    private static final Logger LOGGER = Logger.getLogger(FournisseurDAO.class.getName());
+
+    /**
+     * Ajoute un nouveau fournisseur
+     *
+     * @param fournisseur Le fournisseur à ajouter
+     * @return Le fournisseur avec son ID généré, ou null en cas d'erreur
+     */
+    public Fournisseur ajouter(Fournisseur fournisseur) {
+        String sql = "INSERT INTO fournisseurs (nom, adresse, telephone, email) VALUES (?, ?, ?, ?)";
+
+        try (Connection conn = DatabaseConfig.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+
+            pstmt.setString(1, fournisseur.getNom());
+            pstmt.setString(2, fournisseur.getAdresse());
+            pstmt.setString(3, fournisseur.getTelephone());
+            pstmt.setString(4, fournisseur.getEmail());
+
+            int affectedRows = pstmt.executeUpdate();
+
+            if (affectedRows == 0) {
+                throw new SQLException("La création du fournisseur a échoué, aucune ligne affectée.");
+            }
+
+            try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                if (generatedKeys.next()) {
+                    fournisseur.setId(generatedKeys.getInt(1));
+                    return fournisseur;
+                } else {
+                    throw new SQLException("La création du fournisseur a échoué, aucun ID obtenu.");
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors de l'ajout d'un fournisseur", e);
+            return null;
+        }
+    }
+
+    /**
+     * Met à jour un fournisseur existant
+     *
+     * @param fournisseur Le fournisseur à mettre à jour
+     * @return true si la mise à jour a réussi, false sinon
+     */
+    public boolean mettreAJour(Fournisseur fournisseur) {
+        String sql = "UPDATE fournisseurs SET nom = ?, adresse = ?, telephone = ?, email = ? WHERE id = ?";
+
+        try (Connection conn = DatabaseConfig.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, fournisseur.getNom());
+            pstmt.setString(2, fournisseur.getAdresse());
+            pstmt.setString(3, fournisseur.getTelephone());
+            pstmt.setString(4, fournisseur.getEmail());
+            pstmt.setInt(5, fournisseur.getId());
+
+            int affectedRows = pstmt.executeUpdate();
+            UniteDeTravail.oublier(Fournisseur.class, fournisseur.getId());
+            return affectedRows > 0;
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors de la mise à jour d'un fournisseur", e);
+            return false;
+        }
+    }
+
+    /**
+     * Supprime un fournisseur par son ID ; ses ravitaillements sont conservés
+     * sans fournisseur
+     *
+     * @param id L'ID du fournisseur à supprimer
+     * @return true si la suppression a réussi, false sinon
+     */
+    public boolean supprimer(int id) {
+        String sql = "DELETE FROM fournisseurs WHERE id = ?";
+
+        try (Connection conn = DatabaseConfig.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, id);
+
+            int affectedRows = pstmt.executeUpdate();
+            UniteDeTravail.oublier(Fournisseur.class, id);
+            return affectedRows > 0;
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors de la suppression d'un fournisseur", e);
+            return false;
+        }
+    }
+
+    /**
+     * Récupère un fournisseur par son ID
+     *
+     * @param id L'ID du fournisseur
+     * @return Le fournisseur, ou null si non trouvé
+     */
+    public Fournisseur obtenirParId(int id) {
+        Fournisseur connu = UniteDeTravail.chercher(Fournisseur.class, id);
+        if (connu != null) {
+            return connu;
+        }
+
+        String sql = "SELECT * FROM fournisseurs WHERE id = ?";
+
+        try (Connection conn = DatabaseConfig.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, id);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return convertirResultSet(rs);
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors de la récupération d'un fournisseur par ID", e);
+        }
+
+        return null;
+    }
+
+    /**
+     * Récupère tous les fournisseurs, triés par nom
+     *
+     * @return Liste de tous les fournisseurs
+     */
+    public List<Fournisseur> obtenirTous() {
+        List<Fournisseur> fournisseurs = new ArrayList<>();
+        String sql = "SELECT * FROM fournisseurs ORDER BY nom";
+
+        try (Connection conn = DatabaseConfig.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql);
+                ResultSet rs = pstmt.executeQuery()) {
+
+            while (rs.next()) {
+                fournisseurs.add(convertirResultSet(rs));
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors de la récupération de tous les fournisseurs", e);
+        }
+
+        return fournisseurs;
+    }
+
+    /**
+     * Recherche les fournisseurs dont le nom commence par un préfixe
+     * (recherche par préfixe pour utiliser l'index sur le nom)
+     *
+     * @param prefixe Le début du nom recherché
+     * @return Liste des fournisseurs correspondants, 20 au plus
+     */
+    public List<Fournisseur> rechercher(String prefixe) {
+        List<Fournisseur> fournisseurs = new ArrayList<>();
+        if (prefixe == null || prefixe.trim().isEmpty()) {
+            return fournisseurs;
+        }
+
+        String sql = "SELECT * FROM fournisseurs WHERE nom LIKE ? ORDER BY nom LIMIT 20";
+
+        try (Connection conn = DatabaseConfig.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            // Échapper les jokers saisis : seul le joker final est voulu
+            String echappe = prefixe.trim().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+            pstmt.setString(1, echappe + "%");
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    fournisseurs.add(convertirResultSet(rs));
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors de la recherche de fournisseurs", e);
+        }
+
+        return fournisseurs;
+    }
+
+    /**
+     * Convertit un ResultSet en objet Fournisseur
+     *
+     * @param rs Le ResultSet à convertir
+     * @return Un objet Fournisseur
+     * @throws SQLException Si une erreur survient lors de l'accès aux données
+     */
+    private Fournisseur convertirResultSet(ResultSet rs) throws SQLException {
+        Fournisseur fournisseur = new Fournisseur();
+        fournisseur.setId(rs.getInt("id"));
+        fournisseur.setNom(rs.getString("nom"));
+        fournisseur.setAdresse(rs.getString("adresse"));
+        fournisseur.setTelephone(rs.getString("telephone"));
+        fournisseur.setEmail(rs.getString("email"));
+
+        Timestamp dateCreation = rs.getTimestamp("date_creation");
+        if (dateCreation != null) {
+            fournisseur.setDateCreation(dateCreation.toLocalDateTime());
+        }
+
+        return UniteDeTravail.canonique(Fournisseur.class, fournisseur.getId(), fournisseur);
+    }
+}
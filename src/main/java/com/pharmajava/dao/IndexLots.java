@@ -0,0 +1,396 @@
+package com.pharmajava.dao;
+
+import com.pharmajava.model.AllocationLot;
+import com.pharmajava.model.Stock;
+import com.pharmajava.utils.DatabaseConfig;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Index en mémoire des lots de chaque produit, triés premier expiré premier sorti.
+ *
+ * Répond sans aller en base aux questions de disponibilité et d'expiration posées
+ * à chaque saisie de quantité en caisse. Un produit est chargé à la première
+ * question le concernant, puis tenu à jour par les écritures de StockDAO et
+ * VenteDAO de ce poste après validation de leur transaction. {@link #verifier()} le
+ * compare périodiquement à la base pour rattraper les écritures des autres caisses.
+ *
+ * L'index est indicatif : entre deux vérifications, il ignore les ventes et les
+ * réceptions faites sur les autres postes et peut surestimer le stock. Il sert
+ * à l'affichage ; le prélèvement, lui, relit et verrouille les lots en base
+ * (voir StockDAO.preleverParLot) et refuse une vente que le stock réel ne couvre pas.
+ *
+ * Chaque lecture en base et chaque écriture reportée est datée par une horloge
+ * logique. Une écriture validée avant le début d'une lecture y est déjà comptée
+ * et n'est pas réappliquée ; une écriture validée pendant la lecture ne peut pas
+ * être départagée, et le produit est alors retiré pour être relu.
+ */
+public final class IndexLots {
+    private static final Logger LOGGER = Logger.getLogger(IndexLots.class.getName());
+
+    private static final String SELECT_LOTS =
+            "SELECT id, produit_id, quantite_disponible, date_expiration FROM stock WHERE quantite_disponible > 0";
+
+    private static final Comparator<Lot> ORDRE_FEFO =
+            Comparator.comparing((Lot lot) -> lot.dateExpiration).thenComparingInt(lot -> lot.stockId);
+
+    private static IndexLots instance;
+
+    private final Map<Integer, LotsProduit> produits = new ConcurrentHashMap<>();
+
+    // Horloge logique des lectures et des écritures reportées
+    private final AtomicLong horloge = new AtomicLong();
+
+    // Date logique de la dernière écriture reportée, par produit
+    private final Map<Integer, Long> dernieresEcritures = new ConcurrentHashMap<>();
+
+    private IndexLots() {
+    }
+
+    /**
+     * Obtient l'instance unique de l'index
+     *
+     * @return L'instance de l'index
+     */
+    public static synchronized IndexLots getInstance() {
+        if (instance == null) {
+            instance = new IndexLots();
+        }
+        return instance;
+    }
+
+    /**
+     * Obtient la quantité disponible d'un produit (somme de ses lots non expirés)
+     *
+     * @param produitId L'ID du produit
+     * @return La quantité disponible
+     * @throws SQLException si le produit doit être chargé et que la lecture échoue
+     */
+    public int quantiteDisponible(int produitId) throws SQLException {
+        return lots(produitId).quantiteDisponible(LocalDate.now());
+    }
+
+    /**
+     * Obtient la date d'expiration du prochain lot non expiré d'un produit,
+     * c'est-à-dire le lot qui sera prélevé en premier
+     *
+     * @param produitId L'ID du produit
+     * @return La date d'expiration ou null si le produit n'a aucun lot disponible
+     * @throws SQLException si le produit doit être chargé et que la lecture échoue
+     */
+    public LocalDate prochaineExpiration(int produitId) throws SQLException {
+        return lots(produitId).prochaineExpiration(LocalDate.now());
+    }
+
+    /**
+     * Obtient la quantité d'un produit encore vendable mais qui expire avant une date
+     *
+     * @param produitId L'ID du produit
+     * @param limite La date limite (exclue)
+     * @return La quantité concernée
+     * @throws SQLException si le produit doit être chargé et que la lecture échoue
+     */
+    public int quantiteExpirantAvant(int produitId, LocalDate limite) throws SQLException {
+        return lots(produitId).quantiteEntre(LocalDate.now(), limite);
+    }
+
+    /**
+     * Rapproche les produits chargés de la base, par lots de requêtes
+     *
+     * @return Le nombre de produits dont l'index était décalé
+     * @throws SQLException si une erreur SQL survient
+     */
+    public int verifier() throws SQLException {
+        List<Integer> ids = new ArrayList<>(produits.keySet());
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        long debutLecture = horloge.incrementAndGet();
+        Map<Integer, LotsProduit> relus = new HashMap<>();
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            for (List<Integer> lot : RequetesParLots.decouper(ids)) {
+                String sql = SELECT_LOTS + " AND produit_id IN (" + RequetesParLots.marqueurs(lot.size()) + ")";
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < lot.size(); i++) {
+                        pstmt.setInt(i + 1, lot.get(i));
+                    }
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            relus.computeIfAbsent(rs.getInt("produit_id"), id -> new LotsProduit()).ajouter(lireLot(rs));
+                        }
+                    }
+                }
+            }
+        }
+        long finLecture = horloge.incrementAndGet();
+
+        int decales = 0;
+        for (Integer produitId : ids) {
+            LotsProduit lots = produits.get(produitId);
+            if (lots == null) {
+                continue;
+            }
+            LotsProduit relu = relus.getOrDefault(produitId, new LotsProduit());
+            if (lots.remplacerSiDifferent(relu, debutLecture, finLecture)) {
+                decales++;
+            }
+            retirerSiEcritPendant(produitId, lots, debutLecture);
+        }
+
+        if (decales > 0) {
+            LOGGER.warning("Index des lots décalé pour " + decales + " produit(s), rechargé depuis la base");
+        }
+        return decales;
+    }
+
+    /**
+     * Vide l'index ; chaque produit sera rechargé à sa prochaine consultation
+     */
+    public void vider() {
+        produits.clear();
+    }
+
+    /**
+     * Retire un produit de l'index ; il sera rechargé à sa prochaine consultation
+     *
+     * @param produitId L'ID du produit
+     */
+    void invalider(int produitId) {
+        dater(produitId);
+        produits.remove(produitId);
+    }
+
+    /**
+     * Date une transaction qui reportera des prélèvements, juste avant sa validation
+     *
+     * @return La date à passer à {@link #prelevementsValides(Collection, long)}
+     */
+    long avantValidation() {
+        return horloge.incrementAndGet();
+    }
+
+    /**
+     * Reporte un lot qui vient d'être enregistré
+     *
+     * @param stock Le lot enregistré, avec son ID
+     */
+    void lotAjoute(Stock stock) {
+        int produitId = stock.getProduit().getId();
+        dater(produitId);
+        LotsProduit lots = produits.get(produitId);
+        // Un lot déjà lu en base n'est pas ajouté deux fois : il est reconnu par son ID
+        if (lots != null && stock.getQuantite() > 0) {
+            lots.ajouter(new Lot(stock.getId(), stock.getDateExpiration(), stock.getQuantite()));
+        }
+    }
+
+    /**
+     * Reporte des prélèvements validés ; appliqués par écart pour rester justes
+     * quel que soit l'ordre dans lequel les transactions les reportent
+     *
+     * @param allocations Les prélèvements par lot
+     * @param avantValidation La date obtenue par {@link #avantValidation()} avant la validation
+     */
+    void prelevementsValides(Collection<AllocationLot> allocations, long avantValidation) {
+        long apresValidation = horloge.incrementAndGet();
+        for (AllocationLot allocation : allocations) {
+            int produitId = allocation.getProduitId();
+            dernieresEcritures.merge(produitId, apresValidation, Math::max);
+            LotsProduit lots = produits.get(produitId);
+            if (lots != null && !lots.prelever(allocation.getStockId(), allocation.getQuantitePrelevee(),
+                    avantValidation, apresValidation)) {
+                produits.remove(produitId, lots);
+            }
+        }
+    }
+
+    private LotsProduit lots(int produitId) throws SQLException {
+        LotsProduit lots = produits.get(produitId);
+        if (lots != null) {
+            return lots;
+        }
+
+        long debutLecture = horloge.incrementAndGet();
+        lots = new LotsProduit();
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SELECT_LOTS + " AND produit_id = ?")) {
+            pstmt.setInt(1, produitId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    lots.ajouter(lireLot(rs));
+                }
+            }
+        }
+
+        lots.dater(debutLecture, horloge.incrementAndGet());
+
+        LotsProduit existant = produits.putIfAbsent(produitId, lots);
+        if (existant != null) {
+            return existant;
+        }
+        // Une écriture reportée pendant la lecture a pu être manquée
+        retirerSiEcritPendant(produitId, lots, debutLecture);
+        return lots;
+    }
+
+    private void dater(int produitId) {
+        dernieresEcritures.merge(produitId, horloge.incrementAndGet(), Math::max);
+    }
+
+    private void retirerSiEcritPendant(int produitId, LotsProduit lots, long debutLecture) {
+        Long derniere = dernieresEcritures.get(produitId);
+        if (derniere != null && derniere > debutLecture) {
+            produits.remove(produitId, lots);
+        }
+    }
+
+    private static Lot lireLot(ResultSet rs) throws SQLException {
+        return new Lot(rs.getInt("id"), rs.getDate("date_expiration").toLocalDate(),
+                rs.getInt("quantite_disponible"));
+    }
+
+    /**
+     * Lot indexé ; seule la quantité est modifiable, la clé de tri ne change pas
+     */
+    private static final class Lot {
+        private final int stockId;
+        private final LocalDate dateExpiration;
+        private int quantite;
+
+        private Lot(int stockId, LocalDate dateExpiration, int quantite) {
+            this.stockId = stockId;
+            this.dateExpiration = dateExpiration;
+            this.quantite = quantite;
+        }
+    }
+
+    /**
+     * Lots d'un produit par ordre d'expiration, avec le cumul de leurs quantités
+     */
+    private static final class LotsProduit {
+        private final TreeSet<Lot> parExpiration = new TreeSet<>(ORDRE_FEFO);
+        private final Map<Integer, Lot> parId = new HashMap<>();
+        private int quantiteTotale;
+
+        // Dates logiques de la lecture en base dont viennent les lots
+        private long debutLecture;
+        private long finLecture;
+
+        synchronized void dater(long debut, long fin) {
+            debutLecture = debut;
+            finLecture = fin;
+        }
+
+        synchronized void ajouter(Lot lot) {
+            if (parId.putIfAbsent(lot.stockId, lot) == null) {
+                parExpiration.add(lot);
+                quantiteTotale += lot.quantite;
+            }
+        }
+
+        /**
+         * @return false si la transaction a été validée pendant la lecture des lots,
+         *         qui peut ou non l'avoir vue : le produit doit être relu
+         */
+        synchronized boolean prelever(int stockId, int quantite, long avantValidation, long apresValidation) {
+            if (apresValidation < debutLecture) {
+                // Déjà comptée par la lecture
+                return true;
+            }
+            if (avantValidation < finLecture) {
+                return false;
+            }
+
+            Lot lot = parId.get(stockId);
+            if (lot == null) {
+                return true;
+            }
+
+            int prelevee = Math.min(quantite, lot.quantite);
+            lot.quantite -= prelevee;
+            quantiteTotale -= prelevee;
+            if (lot.quantite == 0) {
+                parId.remove(stockId);
+                parExpiration.remove(lot);
+            }
+            return true;
+        }
+
+        // Les lots expirés sont en tête : seuls eux sont parcourus
+        synchronized int quantiteDisponible(LocalDate aujourdhui) {
+            int disponible = quantiteTotale;
+            for (Lot lot : parExpiration) {
+                if (!lot.dateExpiration.isBefore(aujourdhui)) {
+                    break;
+                }
+                disponible -= lot.quantite;
+            }
+            return disponible;
+        }
+
+        synchronized LocalDate prochaineExpiration(LocalDate aujourdhui) {
+            for (Lot lot : parExpiration) {
+                if (!lot.dateExpiration.isBefore(aujourdhui)) {
+                    return lot.dateExpiration;
+                }
+            }
+            return null;
+        }
+
+        synchronized int quantiteEntre(LocalDate debut, LocalDate fin) {
+            int quantite = 0;
+            for (Lot lot : parExpiration) {
+                if (!lot.dateExpiration.isBefore(fin)) {
+                    break;
+                }
+                if (!lot.dateExpiration.isBefore(debut)) {
+                    quantite += lot.quantite;
+                }
+            }
+            return quantite;
+        }
+
+        synchronized boolean remplacerSiDifferent(LotsProduit relu, long debut, long fin) {
+            dater(debut, fin);
+            List<Lot> actuels = new ArrayList<>(parExpiration);
+            List<Lot> attendus;
+            synchronized (relu) {
+                attendus = new ArrayList<>(relu.parExpiration);
+            }
+
+            boolean identique = actuels.size() == attendus.size();
+            for (int i = 0; identique && i < actuels.size(); i++) {
+                Lot a = actuels.get(i);
+                Lot b = attendus.get(i);
+                identique = a.stockId == b.stockId && a.quantite == b.quantite
+                        && a.dateExpiration.equals(b.dateExpiration);
+            }
+            if (identique) {
+                return false;
+            }
+
+            parExpiration.clear();
+            parId.clear();
+            quantiteTotale = 0;
+            for (Lot lot : attendus) {
+                ajouter(new Lot(lot.stockId, lot.dateExpiration, lot.quantite));
+            }
+            return true;
+        }
+    }
+}
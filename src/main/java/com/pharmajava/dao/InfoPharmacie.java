@@ -0,0 +1,69 @@
+package com.pharmajava.dao;
+
+import com.pharmajava.model.PharmacieInfo;
+
+/**
+ * Informations de la pharmacie gardées en mémoire pour l'impression des tickets.
+ *
+ * Le nom, l'adresse et les téléphones ne changent presque jamais : ils sont lus une
+ * fois à la première demande, puis relus seulement après que les paramètres ont été
+ * enregistrés (voir ParametresController). Les valeurs par défaut renvoyées par
+ * PharmacieInfoDAO quand la lecture échoue ne sont pas gardées, pour que la
+ * prochaine demande retente la lecture.
+ */
+public final class InfoPharmacie {
+    private static InfoPharmacie instance;
+
+    private final PharmacieInfoDAO pharmacieInfoDAO = new PharmacieInfoDAO();
+    private volatile PharmacieInfo info;
+
+    private InfoPharmacie() {
+    }
+
+    /**
+     * Obtient l'instance unique du cache
+     *
+     * @return L'instance du cache
+     */
+    public static synchronized InfoPharmacie getInstance() {
+        if (instance == null) {
+            instance = new InfoPharmacie();
+        }
+        return instance;
+    }
+
+    /**
+     * Obtient les informations de la pharmacie, lues en base à la première demande
+     * après le démarrage ou une invalidation. L'objet renvoyé est partagé et ne doit
+     * pas être modifié ; il est remplacé par un nouvel objet à chaque relecture.
+     *
+     * @return Les informations de la pharmacie
+     */
+    public PharmacieInfo obtenir() {
+        PharmacieInfo courante = info;
+        if (courante != null) {
+            return courante;
+        }
+
+        synchronized (this) {
+            if (info == null) {
+                PharmacieInfo lue = pharmacieInfoDAO.obtenirInfoPharmacieActuelle();
+                if (lue.getId() == null) {
+                    // Valeurs par défaut : base indisponible ou paramètres jamais saisis
+                    return lue;
+                }
+                info = lue;
+            }
+            return info;
+        }
+    }
+
+    /**
+     * Oublie les informations gardées ; la prochaine demande les relit en base.
+     * Synchronisé avec la lecture, pour qu'une lecture commencée avant
+     * l'enregistrement ne puisse pas être gardée après l'invalidation.
+     */
+    public synchronized void invalider() {
+        info = null;
+    }
+}
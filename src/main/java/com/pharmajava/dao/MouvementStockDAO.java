@@ -0,0 +1,243 @@
+package com.pharmajava.dao;
+
+import com.pharmajava.model.MouvementStock;
+import com.pharmajava.utils.DatabaseConfig;
+import com.pharmajava.utils.VerrouNomme;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Classe d'accès aux données du journal des mouvements de stock et de ses instantanés
+ *
+ * Le journal est en ajout seul : chaque écriture de stock y ajoute, dans sa propre
+ * transaction, la variation de la quantité vendable des lots concernés. Un instantané
+ * fige périodiquement la quantité de chaque lot ; l'état à une date se reconstruit
+ * depuis le dernier instantané antérieur et les seuls mouvements qui le suivent.
+ */
+public class MouvementStockDAO {
+    private static final Logger LOGGER = Logger.getLogger(MouvementStockDAO.class.getName());
+
+    /**
+     * Délai laissé aux transactions en cours avant de figer leurs mouvements : un mouvement
+     * dont l'ID est alloué mais pas encore validé ne doit pas passer sous la borne d'un instantané
+     */
+    private static final long MARGE_INSTANTANE_MINUTES = 10;
+
+    private static final String VERROU_INSTANTANE = "pharmajava_instantanes_stock";
+
+    /**
+     * Ajoute des mouvements au journal dans la transaction de l'appelant
+     *
+     * @param conn La connexion portant la transaction en cours
+     * @param mouvements Les mouvements à ajouter
+     * @throws SQLException si une erreur SQL survient
+     */
+    public void enregistrer(Connection conn, List<MouvementStock> mouvements) throws SQLException {
+        if (mouvements.isEmpty()) {
+            return;
+        }
+
+        String sql = "INSERT INTO mouvements_stock (stock_id, produit_id, type_mouvement, quantite, vente_id) "
+                + "VALUES (?, ?, ?, ?, ?)";
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (MouvementStock mouvement : mouvements) {
+                pstmt.setInt(1, mouvement.getStockId());
+                pstmt.setInt(2, mouvement.getProduitId());
+                pstmt.setString(3, mouvement.getType());
+                pstmt.setInt(4, mouvement.getQuantite());
+                if (mouvement.getVenteId() != null) {
+                    pstmt.setInt(5, mouvement.getVenteId());
+                } else {
+                    pstmt.setNull(5, Types.INTEGER);
+                }
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    /**
+     * Récupère l'historique des mouvements d'un lot
+     *
+     * @param stockId L'ID du lot
+     * @return Les mouvements du lot dans l'ordre chronologique
+     */
+    public List<MouvementStock> obtenirParLot(int stockId) {
+        List<MouvementStock> mouvements = new ArrayList<>();
+        String sql = "SELECT * FROM mouvements_stock WHERE stock_id = ? ORDER BY date_mouvement, id";
+
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, stockId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    mouvements.add(convertirResultSet(rs));
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors de la récupération des mouvements du lot " + stockId, e);
+        }
+
+        return mouvements;
+    }
+
+    /**
+     * Reconstruit la quantité vendable de chaque lot à une date donnée
+     *
+     * @param date La date de l'état recherché
+     * @return La quantité par ID de lot (lots vides exclus)
+     * @throws SQLException si une erreur SQL survient
+     */
+    public Map<Integer, Integer> quantitesParLotAu(LocalDateTime date) throws SQLException {
+        Map<Integer, Integer> quantites = new HashMap<>();
+
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            Timestamp dateInstantane = null;
+            long dernierMouvementId = 0;
+
+            String sqlInstantane = "SELECT date_instantane, MAX(dernier_mouvement_id) AS dernier_mouvement_id "
+                    + "FROM instantanes_stock WHERE date_instantane = "
+                    + "(SELECT MAX(date_instantane) FROM instantanes_stock WHERE date_instantane <= ?) "
+                    + "GROUP BY date_instantane";
+            try (PreparedStatement pstmt = conn.prepareStatement(sqlInstantane)) {
+                pstmt.setTimestamp(1, Timestamp.valueOf(date));
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) {
+                        dateInstantane = rs.getTimestamp("date_instantane");
+                        dernierMouvementId = rs.getLong("dernier_mouvement_id");
+                    }
+                }
+            }
+
+            // État de l'instantané, puis les seuls mouvements qui le suivent
+            String sql = "SELECT stock_id, SUM(quantite) AS quantite FROM ("
+                    + "SELECT stock_id, quantite FROM instantanes_stock WHERE date_instantane = ? "
+                    + "UNION ALL "
+                    + "SELECT stock_id, quantite FROM mouvements_stock WHERE id > ? AND date_mouvement <= ?"
+                    + ") etat GROUP BY stock_id HAVING SUM(quantite) <> 0";
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                if (dateInstantane != null) {
+                    pstmt.setTimestamp(1, dateInstantane);
+                } else {
+                    pstmt.setNull(1, Types.TIMESTAMP);
+                }
+                pstmt.setLong(2, dernierMouvementId);
+                pstmt.setTimestamp(3, Timestamp.valueOf(date));
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        quantites.put(rs.getInt("stock_id"), rs.getInt("quantite"));
+                    }
+                }
+            }
+        }
+
+        return quantites;
+    }
+
+    /**
+     * Fige la quantité vendable de chaque lot dans un nouvel instantané, calculé à partir
+     * de l'instantané précédent et des mouvements enregistrés depuis.
+     *
+     * Chaque poste planifie l'instantané : un verrou nommé en base sérialise les postes,
+     * et celui qui passe en second relit l'instantané écrit par le premier et n'a plus
+     * de nouveau mouvement à figer.
+     *
+     * @return Le nombre de lots de l'instantané, 0 s'il n'y avait aucun nouveau mouvement
+     *         ou si un autre poste écrit déjà un instantané
+     * @throws SQLException si une erreur SQL survient
+     */
+    public int creerInstantane() throws SQLException {
+        try (VerrouNomme verrou = VerrouNomme.essayer(VERROU_INSTANTANE)) {
+            if (verrou == null) {
+                LOGGER.info("Instantané du stock en cours d'écriture sur un autre poste");
+                return 0;
+            }
+            return creerInstantaneSousVerrou();
+        }
+    }
+
+    private int creerInstantaneSousVerrou() throws SQLException {
+        LocalDateTime borne = LocalDateTime.now().minusMinutes(MARGE_INSTANTANE_MINUTES);
+
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            Timestamp datePrecedent = null;
+            long dernierIdPrecedent = 0;
+            String sqlPrecedent = "SELECT date_instantane, MAX(dernier_mouvement_id) AS dernier_mouvement_id "
+                    + "FROM instantanes_stock GROUP BY date_instantane ORDER BY date_instantane DESC LIMIT 1";
+            try (PreparedStatement pstmt = conn.prepareStatement(sqlPrecedent);
+                 ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    datePrecedent = rs.getTimestamp("date_instantane");
+                    dernierIdPrecedent = rs.getLong("dernier_mouvement_id");
+                }
+            }
+
+            // Parcours de la clé primaire depuis la fin : seuls les derniers mouvements sont lus
+            long dernierId = 0;
+            String sqlDernier = "SELECT id FROM mouvements_stock WHERE date_mouvement < ? ORDER BY id DESC LIMIT 1";
+            try (PreparedStatement pstmt = conn.prepareStatement(sqlDernier)) {
+                pstmt.setTimestamp(1, Timestamp.valueOf(borne));
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) {
+                        dernierId = rs.getLong(1);
+                    }
+                }
+            }
+
+            if (dernierId <= dernierIdPrecedent) {
+                return 0;
+            }
+
+            String sql = "INSERT INTO instantanes_stock "
+                    + "(date_instantane, stock_id, produit_id, quantite, dernier_mouvement_id) "
+                    + "SELECT ?, stock_id, produit_id, SUM(quantite), ? FROM ("
+                    + "SELECT stock_id, produit_id, quantite FROM instantanes_stock WHERE date_instantane = ? "
+                    + "UNION ALL "
+                    + "SELECT stock_id, produit_id, quantite FROM mouvements_stock WHERE id > ? AND id <= ?"
+                    + ") etat GROUP BY stock_id, produit_id HAVING SUM(quantite) <> 0";
+            int lots;
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setTimestamp(1, Timestamp.valueOf(borne));
+                pstmt.setLong(2, dernierId);
+                if (datePrecedent != null) {
+                    pstmt.setTimestamp(3, datePrecedent);
+                } else {
+                    pstmt.setNull(3, Types.TIMESTAMP);
+                }
+                pstmt.setLong(4, dernierIdPrecedent);
+                pstmt.setLong(5, dernierId);
+                lots = pstmt.executeUpdate();
+            }
+
+            LOGGER.info("Instantané du stock au " + borne + " : " + lots + " lot(s), mouvements jusqu'à l'ID " + dernierId);
+            return lots;
+        }
+    }
+
+    private MouvementStock convertirResultSet(ResultSet rs) throws SQLException {
+        int venteId = rs.getInt("vente_id");
+        Integer venteIdOuNull = rs.wasNull() ? null : venteId;
+        Timestamp dateMouvement = rs.getTimestamp("date_mouvement");
+        return new MouvementStock(
+                rs.getLong("id"),
+                rs.getInt("stock_id"),
+                rs.getInt("produit_id"),
+                rs.getString("type_mouvement"),
+                rs.getInt("quantite"),
+                venteIdOuNull,
+                dateMouvement != null ? dateMouvement.toLocalDateTime() : null);
+    }
+}
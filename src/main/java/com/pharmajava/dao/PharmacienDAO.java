@@ -1,13 +1,18 @@
 package com.pharmajava.dao;
 
 import com.pharmajava.model.Pharmacien;
+import com.pharmajava.utils.CacheReference;
 import com.pharmajava.utils.DatabaseConfig;
 import com.pharmajava.utils.PasswordUtils;
 
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -17,6 +22,19 @@ import java.util.logging.Logger;
 public class PharmacienDAO {
     private static final Logger LOGGER = Logger.getLogger(PharmacienDAO.class.getName());
 
+    // Quelques pharmaciens par officine, relus par chaque vente chargée
+    private static final CacheReference<Pharmacien> CACHE =
+            new CacheReference<>("pharmaciens", 64, 30, TimeUnit.MINUTES);
+
+    /**
+     * Obtient le cache des pharmaciens par ID, partagé par toutes les instances du DAO
+     *
+     * @return Le cache, pour ses statistiques
+     */
+    public static CacheReference<Pharmacien> getCache() {
+        return CACHE;
+    }
+
     /**
      * Ajoute un nouveau pharmacien à la base de données
      * 
@@ -83,6 +101,8 @@ public class PharmacienDAO {
             pstmt.setInt(7, pharmacien.getId());
             
             int affectedRows = pstmt.executeUpdate();
+            UniteDeTravail.oublier(Pharmacien.class, pharmacien.getId());
+            CACHE.invalider(pharmacien.getId());
             return affectedRows > 0;
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Erreur lors de la mise à jour d'un pharmacien", e);
@@ -108,6 +128,8 @@ public class PharmacienDAO {
             pstmt.setInt(2, id);
             
             int affectedRows = pstmt.executeUpdate();
+            UniteDeTravail.oublier(Pharmacien.class, id);
+            CACHE.invalider(id);
             return affectedRows > 0;
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Erreur lors de la mise à jour du mot de passe", e);
@@ -130,6 +152,8 @@ public class PharmacienDAO {
             pstmt.setInt(1, id);
             
             int affectedRows = pstmt.executeUpdate();
+            UniteDeTravail.oublier(Pharmacien.class, id);
+            CACHE.invalider(id);
             return affectedRows > 0;
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Erreur lors de la suppression d'un pharmacien", e);
@@ -144,6 +168,16 @@ public class PharmacienDAO {
      * @return Le pharmacien correspondant ou null s'il n'existe pas
      */
     public Pharmacien obtenirParId(int id) {
+        Pharmacien connu = UniteDeTravail.chercher(Pharmacien.class, id);
+        if (connu != null) {
+            return connu;
+        }
+        Pharmacien enCache = CACHE.chercher(id);
+        if (enCache != null) {
+            return UniteDeTravail.canonique(Pharmacien.class, id, enCache);
+        }
+        long lecture = CACHE.debutLecture();
+        
         String sql = "SELECT * FROM pharmaciens WHERE id = ?";
         
         try (Connection conn = DatabaseConfig.getConnection();
@@ -153,7 +187,9 @@ public class PharmacienDAO {
             
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
-                    return convertirResultSet(rs);
+                    Pharmacien pharmacien = convertirResultSet(rs);
+                    CACHE.ajouter(id, pharmacien, lecture);
+                    return pharmacien;
                 }
             }
         } catch (SQLException e) {
@@ -163,6 +199,51 @@ public class PharmacienDAO {
         return null;
     }
     
+    /**
+     * Récupère en une seule passe les pharmaciens correspondant à un ensemble d'IDs,
+     * par lots de requêtes {@code IN (...)} sur la connexion fournie
+     * 
+     * @param conn La connexion à utiliser
+     * @param ids Les IDs des pharmaciens à récupérer
+     * @return Les pharmaciens trouvés, indexés par ID
+     * @throws SQLException En cas d'erreur SQL
+     */
+    public Map<Integer, Pharmacien> obtenirParIds(Connection conn, Collection<Integer> ids) throws SQLException {
+        Map<Integer, Pharmacien> resultat = new HashMap<>();
+        List<Integer> manquants = new ArrayList<>();
+        for (Integer id : ids) {
+            Pharmacien connu = UniteDeTravail.chercher(Pharmacien.class, id);
+            if (connu == null) {
+                Pharmacien enCache = CACHE.chercher(id);
+                connu = enCache != null ? UniteDeTravail.canonique(Pharmacien.class, id, enCache) : null;
+            }
+            if (connu != null) {
+                resultat.put(id, connu);
+            } else {
+                manquants.add(id);
+            }
+        }
+        
+        long lecture = CACHE.debutLecture();
+
+        for (List<Integer> lot : RequetesParLots.decouper(manquants)) {
+            String sql = "SELECT * FROM pharmaciens WHERE id IN (" + RequetesParLots.marqueurs(lot.size()) + ")";
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                for (int i = 0; i < lot.size(); i++) {
+                    pstmt.setInt(i + 1, lot.get(i));
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        Pharmacien pharmacien = convertirResultSet(rs);
+                        resultat.put(pharmacien.getId(), pharmacien);
+                        CACHE.ajouter(pharmacien.getId(), pharmacien, lecture);
+                    }
+                }
+            }
+        }
+        return resultat;
+    }
+    
     /**
      * Récupère un pharmacien par son identifiant de connexion
      * 
@@ -275,6 +356,6 @@ public class PharmacienDAO {
             pharmacien.setDerniereModification(derniereModification.toLocalDateTime());
         }
         
-        return pharmacien;
+        return UniteDeTravail.canonique(Pharmacien.class, pharmacien.getId(), pharmacien);
     }
 } 
\ No newline at end of file
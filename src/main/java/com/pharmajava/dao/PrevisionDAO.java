@@ -0,0 +1,233 @@
+package com.pharmajava.dao;
+
+import com.pharmajava.model.CommandeSuggeree;
+import com.pharmajava.model.PrevisionVente;
+import com.pharmajava.utils.DatabaseConfig;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ObjIntConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Classe d'accès aux données pour les prévisions de demande et les commandes suggérées
+ *
+ * Les séries de ventes journalières sont lues en flux, triées par produit, pour que
+ * l'appelant puisse ajuster chaque produit dès que sa série est complète sans garder
+ * tout l'historique en mémoire. Les prévisions d'un calcul remplacent les précédentes
+ * dans une seule transaction.
+ */
+public class PrevisionDAO {
+    private static final Logger LOGGER = Logger.getLogger(PrevisionDAO.class.getName());
+
+    private static final int TAILLE_FETCH = 1000;
+    private static final int TAILLE_LOT = 1000;
+
+    private static final String SELECT_SERIES =
+            "SELECT pv.produit_id, CAST(v.date_vente AS DATE) AS jour, SUM(pv.quantite) AS quantite " +
+            "FROM ventes v JOIN produits_vendus pv ON pv.vente_id = v.id " +
+            "WHERE v.date_vente >= ? AND v.date_vente < ? " +
+            "GROUP BY pv.produit_id, CAST(v.date_vente AS DATE) ORDER BY pv.produit_id";
+
+    // Dernier fournisseur connu de chaque produit : son ravitaillement le plus récent
+    private static final String SELECT_DERNIERS_FOURNISSEURS =
+            "SELECT r.produit_id, r.fournisseur_id FROM ravitaillements r " +
+            "JOIN (SELECT produit_id, MAX(id) AS id FROM ravitaillements " +
+            "WHERE fournisseur_id IS NOT NULL GROUP BY produit_id) d ON d.id = r.id";
+
+    private static final String INSERT_PREVISION =
+            "INSERT INTO previsions_ventes (produit_id, fournisseur_id, niveau, tendance, prevision_7_jours, " +
+            "prevision_28_jours, erreur_quadratique, date_calcul) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String SELECT_COMMANDES_SUGGEREES =
+            "SELECT pr.produit_id, pr.fournisseur_id, f.nom AS fournisseur_nom, p.nom, p.quantite_en_stock, " +
+            "p.seuil_alerte, pr.prevision_28_jours " +
+            "FROM previsions_ventes pr JOIN produits p ON p.id = pr.produit_id " +
+            "LEFT JOIN fournisseurs f ON f.id = pr.fournisseur_id " +
+            "WHERE p.quantite_en_stock < pr.prevision_28_jours + p.seuil_alerte " +
+            "ORDER BY f.nom, pr.fournisseur_id, p.nom";
+
+    /**
+     * Lit en flux les ventes journalières de chaque produit vendu sur une période
+     *
+     * @param debut Le premier jour de la période
+     * @param jours La longueur de la période, en jours ; le dernier jour est exclu s'il est en cours
+     * @param consommateur Reçoit, produit par produit, la série des quantités vendues
+     *                     (indice 0 = premier jour, zéro les jours sans vente) et l'ID du produit
+     * @return Le nombre de produits lus
+     * @throws SQLException si une erreur SQL survient
+     */
+    public int parcourirSeries(LocalDate debut, int jours, ObjIntConsumer<int[]> consommateur) throws SQLException {
+        long premierJour = debut.toEpochDay();
+        int produits = 0;
+
+        try (Connection conn = DatabaseConfig.getConnectionLectureEnFlux();
+             PreparedStatement pstmt = conn.prepareStatement(SELECT_SERIES)) {
+            pstmt.setFetchSize(TAILLE_FETCH);
+            pstmt.setTimestamp(1, Timestamp.valueOf(debut.atStartOfDay()));
+            pstmt.setTimestamp(2, Timestamp.valueOf(debut.plusDays(jours).atStartOfDay()));
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                int produitCourant = -1;
+                int[] serie = null;
+                while (rs.next()) {
+                    int produitId = rs.getInt("produit_id");
+                    if (produitId != produitCourant) {
+                        if (serie != null) {
+                            consommateur.accept(serie, produitCourant);
+                            produits++;
+                        }
+                        produitCourant = produitId;
+                        serie = new int[jours];
+                    }
+                    int indice = (int) (rs.getDate("jour").toLocalDate().toEpochDay() - premierJour);
+                    if (indice >= 0 && indice < jours) {
+                        serie[indice] = rs.getInt("quantite");
+                    }
+                }
+                if (serie != null) {
+                    consommateur.accept(serie, produitCourant);
+                    produits++;
+                }
+            }
+        }
+        return produits;
+    }
+
+    /**
+     * Obtient le dernier fournisseur ayant livré chaque produit
+     *
+     * @return Les IDs de fournisseur par ID de produit
+     * @throws SQLException si une erreur SQL survient
+     */
+    public Map<Integer, Integer> obtenirDerniersFournisseurs() throws SQLException {
+        Map<Integer, Integer> fournisseurs = new HashMap<>();
+        try (Connection conn = DatabaseConfig.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(SELECT_DERNIERS_FOURNISSEURS)) {
+            while (rs.next()) {
+                fournisseurs.put(rs.getInt("produit_id"), rs.getInt("fournisseur_id"));
+            }
+        }
+        return fournisseurs;
+    }
+
+    /**
+     * Remplace toutes les prévisions par celles d'un nouveau calcul, par lots d'instructions
+     *
+     * @param previsions Les prévisions du calcul
+     * @param dateCalcul La date du calcul
+     * @throws SQLException si une erreur SQL survient ; les prévisions précédentes sont alors conservées
+     */
+    public void remplacer(List<PrevisionVente> previsions, LocalDateTime dateCalcul) throws SQLException {
+        Timestamp date = Timestamp.valueOf(dateCalcul);
+
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement();
+                 PreparedStatement pstmt = conn.prepareStatement(INSERT_PREVISION)) {
+                stmt.executeUpdate("DELETE FROM previsions_ventes");
+
+                int enAttente = 0;
+                for (PrevisionVente prevision : previsions) {
+                    pstmt.setInt(1, prevision.getProduitId());
+                    if (prevision.getFournisseurId() != null) {
+                        pstmt.setInt(2, prevision.getFournisseurId());
+                    } else {
+                        pstmt.setNull(2, Types.INTEGER);
+                    }
+                    pstmt.setDouble(3, prevision.getNiveau());
+                    pstmt.setDouble(4, prevision.getTendance());
+                    pstmt.setDouble(5, prevision.getPrevision7Jours());
+                    pstmt.setDouble(6, prevision.getPrevision28Jours());
+                    pstmt.setDouble(7, prevision.getErreurQuadratique());
+                    pstmt.setTimestamp(8, date);
+                    pstmt.addBatch();
+                    prevision.setDateCalcul(dateCalcul);
+
+                    if (++enAttente == TAILLE_LOT) {
+                        pstmt.executeBatch();
+                        enAttente = 0;
+                    }
+                }
+                if (enAttente > 0) {
+                    pstmt.executeBatch();
+                }
+
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Obtient la date du dernier calcul des prévisions
+     *
+     * @return La date du calcul, ou null si aucune prévision n'est enregistrée ou en cas d'erreur
+     */
+    public LocalDateTime obtenirDateDernierCalcul() {
+        try (Connection conn = DatabaseConfig.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MAX(date_calcul) AS date_calcul FROM previsions_ventes")) {
+            if (rs.next()) {
+                Timestamp date = rs.getTimestamp("date_calcul");
+                return date != null ? date.toLocalDateTime() : null;
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors de la lecture de la date des prévisions", e);
+        }
+        return null;
+    }
+
+    /**
+     * Obtient les bons de commande suggérés, un par fournisseur : chaque produit dont le
+     * stock ne couvre pas la demande prévue sur 28 jours plus son seuil d'alerte est
+     * proposé au dernier fournisseur qui l'a livré
+     *
+     * @return Les bons, triés par nom de fournisseur ; celui des produits sans fournisseur connu en dernier
+     */
+    public List<CommandeSuggeree> obtenirCommandesSuggerees() {
+        Map<Integer, CommandeSuggeree> commandes = new LinkedHashMap<>();
+
+        try (Connection conn = DatabaseConfig.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(SELECT_COMMANDES_SUGGEREES)) {
+            while (rs.next()) {
+                int id = rs.getInt("fournisseur_id");
+                Integer fournisseurId = rs.wasNull() ? null : id;
+                String fournisseurNom = rs.getString("fournisseur_nom");
+
+                int quantiteEnStock = rs.getInt("quantite_en_stock");
+                int seuilAlerte = rs.getInt("seuil_alerte");
+                double prevision = rs.getDouble("prevision_28_jours");
+                int quantite = (int) Math.ceil(prevision + seuilAlerte - quantiteEnStock);
+                if (quantite <= 0) {
+                    continue;
+                }
+
+                commandes.computeIfAbsent(fournisseurId, cle -> new CommandeSuggeree(cle, fournisseurNom))
+                        .ajouterLigne(new CommandeSuggeree.Ligne(rs.getInt("produit_id"), rs.getString("nom"),
+                                quantiteEnStock, seuilAlerte, prevision, quantite));
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors de la lecture des commandes suggérées", e);
+            return new ArrayList<>();
+        }
+
+        List<CommandeSuggeree> resultat = new ArrayList<>(commandes.values());
+        // Le tri SQL place les NULL en tête sous MySQL : les produits sans fournisseur vont à la fin
+        resultat.sort((a, b) -> Boolean.compare(a.getFournisseurId() == null, b.getFournisseurId() == null));
+        return resultat;
+    }
+}
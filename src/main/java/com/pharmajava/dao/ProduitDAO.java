@@ -1,13 +1,17 @@
 package com.pharmajava.dao;
 
 import com.pharmajava.model.Produit;
+import com.pharmajava.model.ResultatMiseAJour;
 import com.pharmajava.utils.DatabaseConfig;
 
 import java.math.BigDecimal;
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -60,6 +64,8 @@ public class ProduitDAO {
                 }
             }
             
+            SeuilsAlerte.getInstance().produitModifie(produit.getId());
+            CatalogueProduits.getInstance().produitModifie(produit.getId());
             return produit;
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Erreur lors de l'ajout d'un produit", e);
@@ -68,41 +74,71 @@ public class ProduitDAO {
     }
     
     /**
-     * Met à jour un produit existant
+     * Met à jour la fiche d'un produit si elle n'a pas été modifiée depuis sa lecture
      * 
-     * @param produit Le produit à mettre à jour
-     * @return true si la mise à jour a réussi, false sinon
+     * La quantité en stock n'est pas réécrite : elle est tenue par écarts par les lots
+     * et les ventes, qui n'incrémentent pas la version de la fiche. Un conflit signale
+     * donc une modification concurrente de la fiche elle-même.
+     * 
+     * @param produit Le produit à mettre à jour, avec la version lue
+     * @return Le résultat de la mise à jour ; en cas de succès, la version du produit est avancée
      */
-    public boolean metreAJour(Produit produit) {
-        String sql = "UPDATE produits SET nom = ?, description = ?, quantite_en_stock = ?, " +
+    public ResultatMiseAJour metreAJour(Produit produit) {
+        String sql = "UPDATE produits SET nom = ?, description = ?, " +
                      "prix_unitaire = ?, sur_ordonnance = ?, prix_achat = ?, prix_vente = ?, " +
-                     "seuil_alerte = ? WHERE id = ?";
+                     "seuil_alerte = ?, version = version + 1 WHERE id = ? AND version = ?";
         
-        try (Connection conn = DatabaseConfig.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setString(1, produit.getNom());
-            pstmt.setString(2, produit.getDescription());
-            pstmt.setInt(3, produit.getQuantiteEnStock());
-            
-            // Utiliser le prix de vente comme prix unitaire par défaut
-            BigDecimal prixUnitaire = produit.getPrixVente() != null ? produit.getPrixVente() : BigDecimal.ZERO;
-            pstmt.setBigDecimal(4, prixUnitaire);
-            
-            pstmt.setBoolean(5, produit.isSurOrdonnance());
-            
-            // Nouveaux champs
-            pstmt.setBigDecimal(6, produit.getPrixAchat() != null ? produit.getPrixAchat() : BigDecimal.ZERO);
-            pstmt.setBigDecimal(7, produit.getPrixVente() != null ? produit.getPrixVente() : BigDecimal.ZERO);
-            pstmt.setInt(8, produit.getSeuilAlerte());
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            int affectedRows;
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setString(1, produit.getNom());
+                pstmt.setString(2, produit.getDescription());
+                
+                // Utiliser le prix de vente comme prix unitaire par défaut
+                BigDecimal prixUnitaire = produit.getPrixVente() != null ? produit.getPrixVente() : BigDecimal.ZERO;
+                pstmt.setBigDecimal(3, prixUnitaire);
+                
+                pstmt.setBoolean(4, produit.isSurOrdonnance());
+                
+                // Nouveaux champs
+                pstmt.setBigDecimal(5, produit.getPrixAchat() != null ? produit.getPrixAchat() : BigDecimal.ZERO);
+                pstmt.setBigDecimal(6, produit.getPrixVente() != null ? produit.getPrixVente() : BigDecimal.ZERO);
+                pstmt.setInt(7, produit.getSeuilAlerte());
+                
+                pstmt.setInt(8, produit.getId());
+                pstmt.setInt(9, produit.getVersion());
+                
+                affectedRows = pstmt.executeUpdate();
+            }
+            UniteDeTravail.oublier(Produit.class, produit.getId());
             
-            pstmt.setInt(9, produit.getId());
+            if (affectedRows > 0) {
+                produit.setVersion(produit.getVersion() + 1);
+                SeuilsAlerte.getInstance().produitModifie(produit.getId());
+                CatalogueProduits.getInstance().produitModifie(produit.getId());
+                return new ResultatMiseAJour(ResultatMiseAJour.Statut.APPLIQUEE, produit.getVersion(), 1);
+            }
             
-            int affectedRows = pstmt.executeUpdate();
-            return affectedRows > 0;
+            // Aucune ligne modifiée : produit supprimé ou fiche modifiée entre-temps
+            Integer versionActuelle = lireVersion(conn, produit.getId());
+            if (versionActuelle == null) {
+                return new ResultatMiseAJour(ResultatMiseAJour.Statut.INTROUVABLE, 0, 1);
+            }
+            LOGGER.warning("Conflit de version sur le produit " + produit.getId() + ": version lue "
+                    + produit.getVersion() + ", version actuelle " + versionActuelle);
+            return new ResultatMiseAJour(ResultatMiseAJour.Statut.CONFLIT, versionActuelle, 1);
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Erreur lors de la mise à jour d'un produit", e);
-            return false;
+            return null;
+        }
+    }
+    
+    private Integer lireVersion(Connection conn, int id) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT version FROM produits WHERE id = ?")) {
+            pstmt.setInt(1, id);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt("version") : null;
+            }
         }
     }
     
@@ -121,6 +157,9 @@ public class ProduitDAO {
             pstmt.setInt(1, id);
             
             int affectedRows = pstmt.executeUpdate();
+            UniteDeTravail.oublier(Produit.class, id);
+            SeuilsAlerte.getInstance().produitSupprime(id);
+            CatalogueProduits.getInstance().produitSupprime(id);
             return affectedRows > 0;
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Erreur lors de la suppression d'un produit", e);
@@ -135,6 +174,11 @@ public class ProduitDAO {
      * @return Le produit correspondant ou null s'il n'existe pas
      */
     public Produit obtenirParId(int id) {
+        Produit connu = UniteDeTravail.chercher(Produit.class, id);
+        if (connu != null) {
+            return connu;
+        }
+        
         String sql = "SELECT * FROM produits WHERE id = ?";
         
         try (Connection conn = DatabaseConfig.getConnection();
@@ -167,6 +211,44 @@ public class ProduitDAO {
         return obtenirParId(id.intValue());
     }
     
+    /**
+     * Récupère en une seule passe les produits correspondant à un ensemble d'IDs,
+     * par lots de requêtes {@code IN (...)} sur la connexion fournie
+     * 
+     * @param conn La connexion à utiliser
+     * @param ids Les IDs des produits à récupérer
+     * @return Les produits trouvés, indexés par ID
+     * @throws SQLException En cas d'erreur SQL
+     */
+    public Map<Integer, Produit> obtenirParIds(Connection conn, Collection<Integer> ids) throws SQLException {
+        Map<Integer, Produit> resultat = new HashMap<>();
+        List<Integer> manquants = new ArrayList<>();
+        for (Integer id : ids) {
+            Produit connu = UniteDeTravail.chercher(Produit.class, id);
+            if (connu != null) {
+                resultat.put(id, connu);
+            } else {
+                manquants.add(id);
+            }
+        }
+        
+        for (List<Integer> lot : RequetesParLots.decouper(manquants)) {
+            String sql = "SELECT * FROM produits WHERE id IN (" + RequetesParLots.marqueurs(lot.size()) + ")";
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                for (int i = 0; i < lot.size(); i++) {
+                    pstmt.setInt(i + 1, lot.get(i));
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        Produit produit = convertirResultSet(rs);
+                        resultat.put(produit.getId(), produit);
+                    }
+                }
+            }
+        }
+        return resultat;
+    }
+    
     /**
      * Récupère un produit par son nom
      * 
@@ -253,30 +335,85 @@ public class ProduitDAO {
      * @return true si la mise à jour a réussi, false sinon
      */
     public boolean mettreAJourStock(int id, int nouvelleQuantite) {
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            boolean misAJour = mettreAJourStock(conn, id, nouvelleQuantite);
+            SeuilsAlerte.getInstance().produitModifie(id);
+            CatalogueProduits.getInstance().produitModifie(id);
+            return misAJour;
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors de la mise à jour du stock d'un produit", e);
+            return false;
+        }
+    }
+    
+    /**
+     * Met à jour la quantité en stock d'un produit sur la connexion fournie,
+     * sans valider ni fermer la transaction de l'appelant
+     * 
+     * @param conn La connexion à utiliser
+     * @param id L'ID du produit
+     * @param nouvelleQuantite La nouvelle quantité en stock
+     * @return true si la mise à jour a réussi, false sinon
+     * @throws SQLException En cas d'erreur SQL
+     */
+    public boolean mettreAJourStock(Connection conn, int id, int nouvelleQuantite) throws SQLException {
         String sql = "UPDATE produits SET quantite_en_stock = ? WHERE id = ?";
         
-        try (Connection conn = DatabaseConfig.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, nouvelleQuantite);
             pstmt.setInt(2, id);
             
             int affectedRows = pstmt.executeUpdate();
+            UniteDeTravail.oublier(Produit.class, id);
+            return affectedRows > 0;
+        }
+    }
+    
+    /**
+     * Ajoute un écart (positif ou négatif) à la quantité en stock d'un produit
+     * sur la connexion fournie, dans la transaction de l'appelant
+     * 
+     * @param conn La connexion à utiliser
+     * @param id L'ID du produit
+     * @param delta La quantité à ajouter (négative pour un retrait)
+     * @return true si le produit a été mis à jour, false s'il n'existe pas
+     * @throws SQLException En cas d'erreur SQL
+     */
+    public boolean ajusterStock(Connection conn, int id, int delta) throws SQLException {
+        String sql = "UPDATE produits SET quantite_en_stock = quantite_en_stock + ? WHERE id = ?";
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, delta);
+            pstmt.setInt(2, id);
+            
+            int affectedRows = pstmt.executeUpdate();
+            UniteDeTravail.oublier(Produit.class, id);
             return affectedRows > 0;
-        } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Erreur lors de la mise à jour du stock d'un produit", e);
-            return false;
         }
     }
     
     /**
      * Convertit un ResultSet en objet Produit
+     * (également utilisé par StockDAO pour les requêtes jointes stock/produits)
      * 
      * @param rs Le ResultSet à convertir
      * @return L'objet Produit créé
      * @throws SQLException En cas d'erreur SQL
      */
-    private Produit convertirResultSet(ResultSet rs) throws SQLException {
+    Produit convertirResultSet(ResultSet rs) throws SQLException {
+        Produit produit = lireLigne(rs);
+        return UniteDeTravail.canonique(Produit.class, produit.getId(), produit);
+    }
+    
+    /**
+     * Construit un Produit depuis la ligne courante, sans passer par l'unité de travail
+     * (utilisé par le catalogue partagé, dont les instances ne doivent pas être modifiées)
+     * 
+     * @param rs Le ResultSet positionné sur la ligne
+     * @return L'objet Produit créé
+     * @throws SQLException En cas d'erreur SQL
+     */
+    static Produit lireLigne(ResultSet rs) throws SQLException {
         Produit produit = new Produit();
         
         produit.setId(rs.getInt("id"));
@@ -302,6 +439,8 @@ public class ProduitDAO {
             if (!rs.wasNull()) {
                 produit.setSeuilAlerte(seuilAlerte);
             }
+            
+            produit.setVersion(rs.getInt("version"));
         } catch (SQLException e) {
             // Les colonnes n'existent peut-être pas dans la BD, on utilise les valeurs par défaut
             LOGGER.log(Level.WARNING, "Certaines colonnes de prix ou seuil n'existent pas dans la BD", e);
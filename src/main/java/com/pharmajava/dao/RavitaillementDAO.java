@@ -0,0 +1,205 @@
+package com.pharmajava.dao;
+
+import com.pharmajava.model.BilanReception;
+import com.pharmajava.model.Ravitaillement;
+import com.pharmajava.model.Stock;
+import com.pharmajava.utils.DatabaseConfig;
+
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Classe d'accès aux données pour les ravitaillements (réceptions de lots auprès des fournisseurs)
+ *
+ * Une livraison enregistre ses lots de stock et les ravitaillements correspondants dans
+ * la même transaction : chaque lot reçu garde ainsi sa provenance. Les historiques par
+ * fournisseur et par produit sont lus par pages, du plus récent au plus ancien, en
+ * reprenant après la dernière ligne de la page précédente plutôt qu'avec un décalage
+ * (OFFSET), pour que chaque page soit un parcours court de l'index.
+ */
+public class RavitaillementDAO {
+    private static final Logger LOGGER = Logger.getLogger(RavitaillementDAO.class.getName());
+
+    private final StockDAO stockDAO;
+
+    /**
+     * Constructeur de RavitaillementDAO
+     */
+    public RavitaillementDAO() {
+        this.stockDAO = new StockDAO();
+    }
+
+    /**
+     * Reçoit une livraison d'un fournisseur : les lots et leurs ravitaillements sont
+     * enregistrés ensemble par lots d'instructions, dans une seule transaction
+     *
+     * @param fournisseurId L'ID du fournisseur, ou null si inconnu
+     * @param lots Les lots reçus, dans l'ordre du bon de livraison
+     * @return L'issue de chaque ligne de la livraison
+     * @throws SQLException si une erreur SQL survient ; rien n'est alors enregistré
+     */
+    public BilanReception recevoir(Integer fournisseurId, List<Stock> lots) throws SQLException {
+        String sql = "INSERT INTO ravitaillements (fournisseur_id, produit_id, stock_id, lot_numero, "
+                + "quantite_ravitailler, date_ravitaillement, date_expiration) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                BilanReception bilan = stockDAO.recevoirLivraison(conn, lots);
+
+                // Une seule date pour toute la livraison
+                Timestamp dateReception = Timestamp.valueOf(LocalDateTime.now());
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    for (BilanReception.Ligne ligne : bilan.getLignes()) {
+                        if (!ligne.isEnregistree()) {
+                            continue;
+                        }
+                        Stock stock = ligne.getStock();
+                        if (fournisseurId != null) {
+                            pstmt.setInt(1, fournisseurId);
+                        } else {
+                            pstmt.setNull(1, Types.INTEGER);
+                        }
+                        pstmt.setInt(2, stock.getProduit().getId());
+                        pstmt.setInt(3, ligne.getStockId());
+                        pstmt.setString(4, stock.getNumeroLot());
+                        pstmt.setInt(5, stock.getQuantite());
+                        pstmt.setTimestamp(6, dateReception);
+                        pstmt.setDate(7, Date.valueOf(stock.getDateExpiration()));
+                        pstmt.addBatch();
+                    }
+                    pstmt.executeBatch();
+                }
+
+                conn.commit();
+                stockDAO.reporterReception(bilan);
+                return bilan;
+            } catch (SQLException e) {
+                conn.rollback();
+                LOGGER.log(Level.SEVERE, "Erreur SQL lors de la réception d'une livraison fournisseur: " + e.getMessage(), e);
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Récupère une page de l'historique des ravitaillements d'un fournisseur
+     *
+     * @param fournisseurId L'ID du fournisseur
+     * @param apres La dernière ligne de la page précédente, null pour la première page
+     * @param taille Le nombre de lignes de la page
+     * @return Les ravitaillements, du plus récent au plus ancien
+     */
+    public List<Ravitaillement> obtenirParFournisseur(int fournisseurId, Ravitaillement apres, int taille) {
+        return page("fournisseur_id", fournisseurId, apres, taille);
+    }
+
+    /**
+     * Récupère une page de l'historique des ravitaillements d'un produit
+     *
+     * @param produitId L'ID du produit
+     * @param apres La dernière ligne de la page précédente, null pour la première page
+     * @param taille Le nombre de lignes de la page
+     * @return Les ravitaillements, du plus récent au plus ancien
+     */
+    public List<Ravitaillement> obtenirParProduit(int produitId, Ravitaillement apres, int taille) {
+        return page("produit_id", produitId, apres, taille);
+    }
+
+    /**
+     * Récupère le ravitaillement dont provient un lot
+     *
+     * @param stockId L'ID du lot
+     * @return Le ravitaillement, ou null si le lot a été saisi sans livraison
+     */
+    public Ravitaillement obtenirParStock(int stockId) {
+        String sql = "SELECT * FROM ravitaillements WHERE stock_id = ?";
+
+        try (Connection conn = DatabaseConfig.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, stockId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return convertirResultSet(rs);
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors de la récupération de la provenance du lot " + stockId, e);
+        }
+
+        return null;
+    }
+
+    /**
+     * Lit une page d'historique sur l'index (colonne, date_ravitaillement, id)
+     *
+     * @param colonne La colonne filtrée : fournisseur_id ou produit_id
+     * @param valeur La valeur recherchée
+     * @param apres La dernière ligne de la page précédente, null pour la première page
+     * @param taille Le nombre de lignes de la page
+     * @return Les ravitaillements de la page
+     */
+    private List<Ravitaillement> page(String colonne, int valeur, Ravitaillement apres, int taille) {
+        List<Ravitaillement> ravitaillements = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT * FROM ravitaillements WHERE ").append(colonne).append(" = ?");
+        if (apres != null) {
+            sql.append(" AND (date_ravitaillement < ? OR (date_ravitaillement = ? AND id < ?))");
+        }
+        sql.append(" ORDER BY date_ravitaillement DESC, id DESC LIMIT ?");
+
+        try (Connection conn = DatabaseConfig.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+            int index = 1;
+            pstmt.setInt(index++, valeur);
+            if (apres != null) {
+                Timestamp date = Timestamp.valueOf(apres.getDateRavitaillement());
+                pstmt.setTimestamp(index++, date);
+                pstmt.setTimestamp(index++, date);
+                pstmt.setInt(index++, apres.getId());
+            }
+            pstmt.setInt(index, taille);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    ravitaillements.add(convertirResultSet(rs));
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors de la lecture de l'historique des ravitaillements ("
+                    + colonne + " = " + valeur + ")", e);
+        }
+
+        return ravitaillements;
+    }
+
+    private Ravitaillement convertirResultSet(ResultSet rs) throws SQLException {
+        Ravitaillement ravitaillement = new Ravitaillement();
+        ravitaillement.setId(rs.getInt("id"));
+
+        int fournisseurId = rs.getInt("fournisseur_id");
+        ravitaillement.setFournisseurId(rs.wasNull() ? null : fournisseurId);
+        ravitaillement.setProduitId(rs.getInt("produit_id"));
+        int stockId = rs.getInt("stock_id");
+        ravitaillement.setStockId(rs.wasNull() ? null : stockId);
+
+        ravitaillement.setNumeroLot(rs.getString("lot_numero"));
+        ravitaillement.setQuantite(rs.getInt("quantite_ravitailler"));
+
+        Timestamp dateRavitaillement = rs.getTimestamp("date_ravitaillement");
+        if (dateRavitaillement != null) {
+            ravitaillement.setDateRavitaillement(dateRavitaillement.toLocalDateTime());
+        }
+        Date dateExpiration = rs.getDate("date_expiration");
+        if (dateExpiration != null) {
+            ravitaillement.setDateExpiration(dateExpiration.toLocalDate());
+        }
+
+        return ravitaillement;
+    }
+}
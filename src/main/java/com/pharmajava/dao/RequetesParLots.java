@@ -0,0 +1,58 @@
+package com.pharmajava.dao;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Outils pour les requêtes ensemblistes de type {@code WHERE id IN (...)}
+ * découpées en lots de taille bornée
+ */
+final class RequetesParLots {
+    /**
+     * Nombre maximal d'identifiants par clause IN
+     */
+    static final int TAILLE_LOT = 500;
+
+    private RequetesParLots() {
+    }
+
+    /**
+     * Génère la liste de marqueurs "?, ?, ..." pour une clause IN
+     *
+     * @param nombre Le nombre de marqueurs
+     * @return La chaîne des marqueurs séparés par des virgules
+     */
+    static String marqueurs(int nombre) {
+        StringBuilder sb = new StringBuilder(nombre * 3);
+        for (int i = 0; i < nombre; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append('?');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Découpe une collection d'identifiants en lots de {@link #TAILLE_LOT} éléments
+     *
+     * @param ids Les identifiants à découper
+     * @return La liste des lots
+     */
+    static List<List<Integer>> decouper(Collection<Integer> ids) {
+        List<List<Integer>> lots = new ArrayList<>();
+        List<Integer> courant = new ArrayList<>(Math.min(ids.size(), TAILLE_LOT));
+        for (Integer id : ids) {
+            courant.add(id);
+            if (courant.size() == TAILLE_LOT) {
+                lots.add(courant);
+                courant = new ArrayList<>(TAILLE_LOT);
+            }
+        }
+        if (!courant.isEmpty()) {
+            lots.add(courant);
+        }
+        return lots;
+    }
+}
@@ -0,0 +1,263 @@
+package com.pharmajava.dao;
+
+import com.pharmajava.utils.DatabaseConfig;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Classe d'accès aux données des réservations de stock des paniers en cours
+ *
+ * Les réservations sont partagées par toutes les caisses : une réservation ou une
+ * augmentation de réservation verrouille la ligne du produit ({@code SELECT ... FOR UPDATE})
+ * le temps de vérifier que les lots vendables couvrent la quantité, réservations non échues
+ * de toutes les caisses déduites, et de l'enregistrer : deux caisses ne peuvent pas réserver
+ * la même unité. Chaque opération renvoie aussi la quantité du produit réservée par les
+ * autres postes, que la caisse garde en mémoire pour répondre sans aller en base.
+ */
+public class ReservationStockDAO {
+
+    private static final String SELECT_DISPONIBLE =
+            "SELECT (SELECT COALESCE(SUM(quantite_disponible), 0) FROM stock " +
+            "        WHERE produit_id = ? AND quantite_disponible > 0 AND expire = FALSE " +
+            "          AND date_expiration >= CURRENT_DATE) " +
+            "     - (SELECT COALESCE(SUM(quantite), 0) FROM reservations_stock " +
+            "        WHERE produit_id = ? AND expire_le > CURRENT_TIMESTAMP) AS disponible";
+
+    private static final String SELECT_RESERVEE_AILLEURS =
+            "SELECT COALESCE(SUM(quantite), 0) AS reservee FROM reservations_stock " +
+            "WHERE produit_id = ? AND poste <> ? AND expire_le > CURRENT_TIMESTAMP";
+
+    private static final String VERROUILLER_PRODUIT = "SELECT id FROM produits WHERE id = ? FOR UPDATE";
+
+    /**
+     * Issue d'une opération sur une réservation
+     */
+    public static final class Resultat {
+        private final boolean acceptee;
+        private final long id;
+        private final int reserveeAilleurs;
+
+        Resultat(boolean acceptee, long id, int reserveeAilleurs) {
+            this.acceptee = acceptee;
+            this.id = id;
+            this.reserveeAilleurs = reserveeAilleurs;
+        }
+
+        /**
+         * @return true si la réservation a été enregistrée ou modifiée
+         */
+        public boolean isAcceptee() {
+            return acceptee;
+        }
+
+        /**
+         * @return L'ID de la réservation créée, 0 si elle a été refusée
+         */
+        public long getId() {
+            return id;
+        }
+
+        /**
+         * @return La quantité du produit réservée par les autres postes, lue pendant l'opération
+         */
+        public int getReserveeAilleurs() {
+            return reserveeAilleurs;
+        }
+    }
+
+    /**
+     * Réserve une quantité d'un produit si elle est disponible
+     *
+     * @param produitId L'ID du produit
+     * @param quantite La quantité à réserver
+     * @param dureeMinutes Le délai avant l'échéance de la réservation
+     * @param poste L'identifiant du poste qui réserve
+     * @return L'issue de la réservation
+     * @throws SQLException si une erreur SQL survient
+     */
+    public Resultat reserver(int produitId, int quantite, long dureeMinutes, String poste) throws SQLException {
+        String sql = "INSERT INTO reservations_stock (produit_id, quantite, expire_le, poste) " +
+                "VALUES (?, ?, TIMESTAMPADD(MINUTE, ?, CURRENT_TIMESTAMP), ?)";
+
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                if (!verrouillerProduit(conn, produitId)) {
+                    conn.rollback();
+                    return new Resultat(false, 0, 0);
+                }
+                int reserveeAilleurs = reserveeAilleurs(conn, produitId, poste);
+                if (quantiteDisponible(conn, produitId) < quantite) {
+                    conn.rollback();
+                    return new Resultat(false, 0, reserveeAilleurs);
+                }
+
+                Long id = null;
+                try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                    pstmt.setInt(1, produitId);
+                    pstmt.setInt(2, quantite);
+                    pstmt.setLong(3, dureeMinutes);
+                    pstmt.setString(4, poste);
+                    pstmt.executeUpdate();
+                    try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                        if (generatedKeys.next()) {
+                            id = generatedKeys.getLong(1);
+                        }
+                    }
+                }
+                if (id == null) {
+                    throw new SQLException("La création de la réservation a échoué, aucun ID obtenu.");
+                }
+
+                conn.commit();
+                return new Resultat(true, id, reserveeAilleurs);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Modifie la quantité d'une réservation non échue et repousse son échéance
+     *
+     * @param id L'ID de la réservation
+     * @param produitId L'ID du produit réservé
+     * @param ecart La variation de la quantité réservée
+     * @param dureeMinutes Le nouveau délai avant l'échéance
+     * @param poste L'identifiant du poste qui a pris la réservation
+     * @return L'issue de la modification, refusée si l'augmentation n'est pas disponible
+     *         ou si la réservation est échue
+     * @throws SQLException si une erreur SQL survient
+     */
+    public Resultat ajuster(long id, int produitId, int ecart, long dureeMinutes, String poste)
+            throws SQLException {
+        String sql = "UPDATE reservations_stock SET quantite = quantite + ?, " +
+                "expire_le = TIMESTAMPADD(MINUTE, ?, CURRENT_TIMESTAMP) " +
+                "WHERE id = ? AND expire_le > CURRENT_TIMESTAMP";
+
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                // Seule une augmentation doit être couverte par le stock encore libre
+                if (ecart > 0 && (!verrouillerProduit(conn, produitId)
+                        || quantiteDisponible(conn, produitId) < ecart)) {
+                    int reserveeAilleurs = reserveeAilleurs(conn, produitId, poste);
+                    conn.rollback();
+                    return new Resultat(false, id, reserveeAilleurs);
+                }
+
+                int modifiees;
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setInt(1, ecart);
+                    pstmt.setLong(2, dureeMinutes);
+                    pstmt.setLong(3, id);
+                    modifiees = pstmt.executeUpdate();
+                }
+                int reserveeAilleurs = reserveeAilleurs(conn, produitId, poste);
+
+                conn.commit();
+                return new Resultat(modifiees > 0, id, reserveeAilleurs);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Supprime une réservation
+     *
+     * @param id L'ID de la réservation
+     * @param produitId L'ID du produit réservé
+     * @param poste L'identifiant du poste qui a pris la réservation
+     * @return La quantité du produit réservée par les autres postes
+     * @throws SQLException si une erreur SQL survient
+     */
+    public int supprimer(long id, int produitId, String poste) throws SQLException {
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            try (PreparedStatement pstmt = conn.prepareStatement("DELETE FROM reservations_stock WHERE id = ?")) {
+                pstmt.setLong(1, id);
+                pstmt.executeUpdate();
+            }
+            return reserveeAilleurs(conn, produitId, poste);
+        }
+    }
+
+    /**
+     * Purge les réservations échues, dont celles des caisses arrêtées sans les libérer
+     *
+     * @return Le nombre de réservations supprimées
+     * @throws SQLException si une erreur SQL survient
+     */
+    public int supprimerEchues() throws SQLException {
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(
+                     "DELETE FROM reservations_stock WHERE expire_le <= CURRENT_TIMESTAMP")) {
+            return pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Lit les quantités réservées par les autres postes, réservations non échues seulement
+     *
+     * @param poste L'identifiant du poste dont les réservations sont exclues
+     * @return La quantité réservée ailleurs, par ID de produit
+     * @throws SQLException si une erreur SQL survient
+     */
+    public Map<Integer, Integer> reserveesAilleurs(String poste) throws SQLException {
+        String sql = "SELECT produit_id, SUM(quantite) AS reservee FROM reservations_stock " +
+                "WHERE poste <> ? AND expire_le > CURRENT_TIMESTAMP GROUP BY produit_id";
+
+        Map<Integer, Integer> reservees = new HashMap<>();
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, poste);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    reservees.put(rs.getInt("produit_id"), rs.getInt("reservee"));
+                }
+            }
+        }
+        return reservees;
+    }
+
+    private int quantiteDisponible(Connection conn, int produitId) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(SELECT_DISPONIBLE)) {
+            pstmt.setInt(1, produitId);
+            pstmt.setInt(2, produitId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt("disponible") : 0;
+            }
+        }
+    }
+
+    private int reserveeAilleurs(Connection conn, int produitId, String poste) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(SELECT_RESERVEE_AILLEURS)) {
+            pstmt.setInt(1, produitId);
+            pstmt.setString(2, poste);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt("reservee") : 0;
+            }
+        }
+    }
+
+    private boolean verrouillerProduit(Connection conn, int produitId) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(VERROUILLER_PRODUIT)) {
+            pstmt.setInt(1, produitId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+}
@@ -0,0 +1,348 @@
+package com.pharmajava.dao;
+
+import com.pharmajava.model.AllocationLot;
+import com.pharmajava.model.ProduitSousSeuil;
+import com.pharmajava.utils.DatabaseConfig;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Ensemble en mémoire des produits dont la quantité en stock a atteint le seuil d'alerte,
+ * base des propositions de réapprovisionnement.
+ *
+ * Chargé au démarrage par une seule requête sur le catalogue, l'ensemble est ensuite
+ * tenu à jour produit par produit : les écritures de StockDAO, ProduitDAO et VenteDAO
+ * signalent après validation les produits qu'elles ont modifiés, et ces seuls produits
+ * sont relus, regroupés en une requête par IDs après un court délai pour que les caisses
+ * n'attendent pas cette relecture. Les lectures du tableau de bord ne vont pas en base.
+ * Les ventes et réceptions des autres caisses sont rattrapées par
+ * {@link #resynchroniser()}, qui relit les produits modifiés depuis le passage précédent.
+ *
+ * La liste triée servie au tableau de bord est reconstruite à chaque chargement ou
+ * relecture, puis publiée telle quelle : un rafraîchissement de la vue ne trie rien.
+ */
+public final class SeuilsAlerte {
+    private static final Logger LOGGER = Logger.getLogger(SeuilsAlerte.class.getName());
+    private static final long DELAI_REGROUPEMENT_MS = 500;
+
+    // Recouvrement de la relecture par écart : une transaction validée tardivement porte
+    // une date de modification antérieure à sa validation
+    private static final long MARGE_MS = 5 * 60 * 1000;
+
+    private static final String SELECT_SOUS_SEUIL =
+            "SELECT id, nom, quantite_en_stock, seuil_alerte FROM produits WHERE quantite_en_stock <= seuil_alerte";
+
+    private static SeuilsAlerte instance;
+
+    // Les plus gros déficits d'abord, puis par nom
+    private static final Comparator<ProduitSousSeuil> ORDRE =
+            Comparator.comparingInt(ProduitSousSeuil::getDeficit).reversed()
+                    .thenComparing(ProduitSousSeuil::getNom, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private final Map<Integer, ProduitSousSeuil> sousSeuil = new ConcurrentHashMap<>();
+    private volatile List<ProduitSousSeuil> tries = Collections.emptyList();
+    private final Set<Integer> aRelire = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean relecturePlanifiee = new AtomicBoolean();
+    private volatile boolean charge;
+    private volatile Timestamp derniereSynchronisation;
+    private ScheduledExecutorService planificateur;
+
+    private SeuilsAlerte() {
+    }
+
+    /**
+     * Obtient l'instance unique de l'ensemble
+     *
+     * @return L'instance de l'ensemble
+     */
+    public static synchronized SeuilsAlerte getInstance() {
+        if (instance == null) {
+            instance = new SeuilsAlerte();
+        }
+        return instance;
+    }
+
+    /**
+     * Charge l'ensemble des produits sous le seuil d'alerte en une seule requête ;
+     * appelé au démarrage, et après un recalcul global des quantités
+     *
+     * @throws SQLException si une erreur SQL survient
+     */
+    public void charger() throws SQLException {
+        Map<Integer, ProduitSousSeuil> lus = new ConcurrentHashMap<>();
+        Timestamp debut;
+        try (Connection conn = DatabaseConfig.getConnection();
+             Statement stmt = conn.createStatement()) {
+            debut = maintenant(stmt);
+            try (ResultSet rs = stmt.executeQuery(SELECT_SOUS_SEUIL)) {
+                while (rs.next()) {
+                    ProduitSousSeuil produit = lireProduit(rs);
+                    lus.put(produit.getProduitId(), produit);
+                }
+            }
+        }
+
+        sousSeuil.keySet().retainAll(lus.keySet());
+        sousSeuil.putAll(lus);
+        publier();
+        derniereSynchronisation = debut;
+        charge = true;
+        LOGGER.info(lus.size() + " produit(s) sous le seuil d'alerte");
+    }
+
+    /**
+     * Obtient le nombre de produits sous le seuil d'alerte
+     *
+     * @return Le nombre de produits
+     */
+    public int nombreSousSeuil() {
+        return sousSeuil.size();
+    }
+
+    /**
+     * Obtient les produits sous le seuil d'alerte, les plus gros déficits d'abord
+     *
+     * @return La liste non modifiable publiée à la dernière relecture
+     */
+    public List<ProduitSousSeuil> produitsSousSeuil() {
+        return tries;
+    }
+
+    /**
+     * Obtient la quantité manquante d'un produit pour revenir à son seuil d'alerte
+     *
+     * @param produitId L'ID du produit
+     * @return Le déficit, 0 si le produit n'est pas sous le seuil
+     */
+    public int deficit(int produitId) {
+        ProduitSousSeuil produit = sousSeuil.get(produitId);
+        return produit != null ? produit.getDeficit() : 0;
+    }
+
+    /**
+     * Indique si un produit a atteint son seuil d'alerte
+     *
+     * @param produitId L'ID du produit
+     * @return true si la quantité en stock est inférieure ou égale au seuil
+     */
+    public boolean estSousSeuil(int produitId) {
+        return sousSeuil.containsKey(produitId);
+    }
+
+    /**
+     * Relit immédiatement les produits signalés depuis la dernière relecture
+     *
+     * @throws SQLException si une erreur SQL survient ; les produits restent à relire
+     */
+    public void rafraichir() throws SQLException {
+        relecturePlanifiee.set(false);
+
+        List<Integer> ids = new ArrayList<>();
+        for (Iterator<Integer> it = aRelire.iterator(); it.hasNext(); ) {
+            ids.add(it.next());
+            it.remove();
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            for (List<Integer> lot : RequetesParLots.decouper(ids)) {
+                Set<Integer> trouves = new HashSet<>();
+                String sql = "SELECT id, nom, quantite_en_stock, seuil_alerte FROM produits WHERE id IN ("
+                        + RequetesParLots.marqueurs(lot.size()) + ")";
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < lot.size(); i++) {
+                        pstmt.setInt(i + 1, lot.get(i));
+                    }
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            ProduitSousSeuil produit = lireProduit(rs);
+                            trouves.add(produit.getProduitId());
+                            if (produit.getQuantiteEnStock() <= produit.getSeuilAlerte()) {
+                                sousSeuil.put(produit.getProduitId(), produit);
+                            } else {
+                                sousSeuil.remove(produit.getProduitId());
+                            }
+                        }
+                    }
+                }
+                // Produits supprimés entre-temps
+                for (Integer id : lot) {
+                    if (!trouves.contains(id)) {
+                        sousSeuil.remove(id);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            aRelire.addAll(ids);
+            throw e;
+        } finally {
+            publier();
+        }
+    }
+
+    /**
+     * Relit les produits modifiés en base depuis le passage précédent, y compris par
+     * les autres caisses, ainsi que ceux déjà sous le seuil (supprimés entre-temps)
+     *
+     * @return Le nombre de produits relus
+     * @throws SQLException si une erreur SQL survient
+     */
+    public int resynchroniser() throws SQLException {
+        if (!charge) {
+            charger();
+            return sousSeuil.size();
+        }
+
+        Set<Integer> ids = new HashSet<>(sousSeuil.keySet());
+        Timestamp debut;
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            try (Statement stmt = conn.createStatement()) {
+                debut = maintenant(stmt);
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "SELECT id FROM produits WHERE derniere_modification >= ?")) {
+                pstmt.setTimestamp(1, new Timestamp(derniereSynchronisation.getTime() - MARGE_MS));
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        ids.add(rs.getInt("id"));
+                    }
+                }
+            }
+        }
+
+        aRelire.addAll(ids);
+        rafraichir();
+        derniereSynchronisation = debut;
+        return ids.size();
+    }
+
+    /**
+     * Arrête la relecture différée des produits signalés
+     */
+    public synchronized void arreter() {
+        if (planificateur != null) {
+            planificateur.shutdownNow();
+            planificateur = null;
+        }
+    }
+
+    /**
+     * Signale des produits dont la quantité ou le seuil a changé, après validation
+     * de la transaction qui les a modifiés
+     *
+     * @param produitIds Les IDs des produits modifiés
+     */
+    void produitsModifies(Collection<Integer> produitIds) {
+        if (!charge || produitIds.isEmpty()) {
+            return;
+        }
+        aRelire.addAll(produitIds);
+        if (relecturePlanifiee.compareAndSet(false, true)) {
+            planificateur().schedule(this::relireEnDiffere, DELAI_REGROUPEMENT_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Signale un produit dont la quantité ou le seuil a changé
+     *
+     * @param produitId L'ID du produit modifié
+     */
+    void produitModifie(int produitId) {
+        produitsModifies(Collections.singletonList(produitId));
+    }
+
+    /**
+     * Signale les produits de prélèvements validés
+     *
+     * @param allocations Les prélèvements par lot
+     */
+    void prelevementsValides(Collection<AllocationLot> allocations) {
+        Set<Integer> produitIds = new HashSet<>();
+        for (AllocationLot allocation : allocations) {
+            produitIds.add(allocation.getProduitId());
+        }
+        produitsModifies(produitIds);
+    }
+
+    /**
+     * Retire un produit supprimé de l'ensemble
+     *
+     * @param produitId L'ID du produit supprimé
+     */
+    void produitSupprime(int produitId) {
+        aRelire.remove(produitId);
+        if (sousSeuil.remove(produitId) != null) {
+            publier();
+        }
+    }
+
+    /**
+     * Reconstruit la liste triée à partir de l'ensemble courant ; synchronisé pour que
+     * la dernière liste publiée reflète toujours la dernière modification
+     */
+    private synchronized void publier() {
+        List<ProduitSousSeuil> liste = new ArrayList<>(sousSeuil.values());
+        liste.sort(ORDRE);
+        tries = Collections.unmodifiableList(liste);
+    }
+
+    private void relireEnDiffere() {
+        try {
+            rafraichir();
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Relecture des seuils d'alerte reportée", e);
+            if (relecturePlanifiee.compareAndSet(false, true)) {
+                planificateur().schedule(this::relireEnDiffere, DELAI_REGROUPEMENT_MS * 10, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private synchronized ScheduledExecutorService planificateur() {
+        if (planificateur == null) {
+            planificateur = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "seuils-alerte");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return planificateur;
+    }
+
+    private static Timestamp maintenant(Statement stmt) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("SELECT CURRENT_TIMESTAMP AS maintenant")) {
+            rs.next();
+            return rs.getTimestamp("maintenant");
+        }
+    }
+
+    private static ProduitSousSeuil lireProduit(ResultSet rs) throws SQLException {
+        return new ProduitSousSeuil(
+                rs.getInt("id"),
+                rs.getString("nom"),
+                rs.getInt("quantite_en_stock"),
+                rs.getInt("seuil_alerte"));
+    }
+}
@@ -1,6 +1,11 @@
 package com.pharmajava.dao;
 
+import com.pharmajava.model.AllocationLot;
+import com.pharmajava.model.BilanRecalculStock;
+import com.pharmajava.model.BilanReception;
+import com.pharmajava.model.MouvementStock;
 import com.pharmajava.model.Produit;
+import com.pharmajava.model.ResultatMiseAJour;
 import com.pharmajava.model.Stock;
 import com.pharmajava.utils.DatabaseConfig;
 
@@ -8,7 +13,14 @@ import java.sql.*;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -17,13 +29,32 @@ import java.util.logging.Logger;
  */
 public class StockDAO {
     private static final Logger LOGGER = Logger.getLogger(StockDAO.class.getName());
+
+    /**
+     * Sélection des lots avec leur produit en une seule requête (les colonnes du
+     * produit sont lues par ProduitDAO, l'ID du lot est renommé stock_id)
+     */
+    private static final String SELECT_STOCK_PRODUIT =
+            "SELECT s.id AS stock_id, s.produit_id, s.lot_numero, s.quantite_disponible, s.date_expiration, " +
+            "s.version AS stock_version, p.* " +
+            "FROM stock s JOIN produits p ON p.id = s.produit_id";
+
+    /**
+     * Nombre d'essais d'une écriture commutative avant d'abandonner sur conflit de version
+     */
+    private static final int TENTATIVES_MAX = 5;
+
     private final ProduitDAO produitDAO;
+    private final AllocationStockDAO allocationStockDAO;
+    private final MouvementStockDAO mouvementStockDAO;
 
     /**
      * Constructeur de StockDAO
      */
     public StockDAO() {
         this.produitDAO = new ProduitDAO();
+        this.allocationStockDAO = new AllocationStockDAO();
+        this.mouvementStockDAO = new MouvementStockDAO();
     }
 
     /**
@@ -33,19 +64,12 @@ public class StockDAO {
      * @throws SQLException si une erreur SQL survient
      */
     public List<Stock> findAll() throws SQLException {
-        List<Stock> stocks = new ArrayList<>();
-        String query = "SELECT * FROM stock";
-        
         try (Connection conn = DatabaseConfig.getConnection();
              Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(query)) {
+             ResultSet rs = stmt.executeQuery(SELECT_STOCK_PRODUIT)) {
             
-            while (rs.next()) {
-                stocks.add(extractStockFromResultSet(rs));
-            }
+            return extractStocksFromResultSet(rs);
         }
-        
-        return stocks;
     }
 
     /**
@@ -56,7 +80,7 @@ public class StockDAO {
      * @throws SQLException si une erreur SQL survient
      */
     public Stock findById(Integer id) throws SQLException {
-        String query = "SELECT * FROM stock WHERE id = ?";
+        String query = SELECT_STOCK_PRODUIT + " WHERE s.id = ?";
         
         try (Connection conn = DatabaseConfig.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(query)) {
@@ -64,7 +88,7 @@ public class StockDAO {
             
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
-                    return extractStockFromResultSet(rs);
+                    return extractStockFromResultSet(rs, new HashMap<>());
                 }
             }
         }
@@ -80,21 +104,16 @@ public class StockDAO {
      * @throws SQLException si une erreur SQL survient
      */
     public List<Stock> findByProduitId(Integer produitId) throws SQLException {
-        List<Stock> stocks = new ArrayList<>();
-        String query = "SELECT * FROM stock WHERE produit_id = ?";
+        String query = SELECT_STOCK_PRODUIT + " WHERE s.produit_id = ?";
         
         try (Connection conn = DatabaseConfig.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setInt(1, produitId);
             
             try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    stocks.add(extractStockFromResultSet(rs));
-                }
+                return extractStocksFromResultSet(rs);
             }
         }
-        
-        return stocks;
     }
 
     /**
@@ -105,10 +124,46 @@ public class StockDAO {
      * @throws SQLException si une erreur SQL survient
      */
     public boolean save(Stock stock) throws SQLException {
-        String query = "INSERT INTO stock (produit_id, lot_numero, quantite_disponible, date_expiration) VALUES (?, ?, ?, ?)";
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                boolean enregistre = save(conn, stock);
+                if (enregistre) {
+                    conn.commit();
+                    IndexLots.getInstance().lotAjoute(stock);
+                    SeuilsAlerte.getInstance().produitModifie(stock.getProduit().getId());
+                } else {
+                    conn.rollback();
+                }
+                return enregistre;
+            } catch (SQLException e) {
+                conn.rollback();
+                LOGGER.log(Level.SEVERE, "Erreur SQL lors de l'insertion de stock: " + e.getMessage(), e);
+                throw e;
+            } catch (Exception e) {
+                conn.rollback();
+                LOGGER.log(Level.SEVERE, "Erreur inattendue lors de l'insertion de stock: " + e.getMessage(), e);
+                throw new SQLException("Erreur lors de l'insertion de stock", e);
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Enregistre un nouveau stock dans la transaction de l'appelant et ajoute sa quantité
+     * à celle du produit si le lot n'est pas expiré. L'appelant reporte le lot dans
+     * {@link IndexLots} une fois sa transaction validée.
+     *
+     * @param conn la connexion portant la transaction en cours
+     * @param stock le stock à enregistrer
+     * @return true si l'opération a réussi, false sinon
+     * @throws SQLException si une erreur SQL survient
+     */
+    public boolean save(Connection conn, Stock stock) throws SQLException {
+        String query = "INSERT INTO stock (produit_id, lot_numero, quantite_disponible, date_expiration, expire) VALUES (?, ?, ?, ?, ?)";
         
-        try (Connection conn = DatabaseConfig.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+        try (PreparedStatement pstmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
             
             // Log des valeurs avant insertion
             LOGGER.info("Tentative d'insertion de stock: " +
@@ -121,6 +176,7 @@ public class StockDAO {
             pstmt.setString(2, stock.getNumeroLot());
             pstmt.setInt(3, stock.getQuantite());
             pstmt.setDate(4, Date.valueOf(stock.getDateExpiration()));
+            pstmt.setBoolean(5, !estVendable(stock.getDateExpiration()));
             
             int affectedRows = pstmt.executeUpdate();
             if (affectedRows == 0) {
@@ -129,89 +185,501 @@ public class StockDAO {
             }
             
             try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
-                if (generatedKeys.next()) {
-                    stock.setId(generatedKeys.getInt(1));
-                    // Mise à jour de la quantité du produit après l'ajout d'un nouveau stock
-                    mettreAJourQuantiteProduit(stock.getProduit().getId());
-                    LOGGER.info("Stock ajouté avec succès, ID=" + stock.getId());
-                    return true;
-                } else {
+                if (!generatedKeys.next()) {
                     LOGGER.warning("Échec de l'insertion de stock: aucune clé générée");
                     return false;
                 }
+                stock.setId(generatedKeys.getInt(1));
             }
-        } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Erreur SQL lors de l'insertion de stock: " + e.getMessage(), e);
-            throw e;
-        } catch (Exception e) {
-            LOGGER.log(Level.SEVERE, "Erreur inattendue lors de l'insertion de stock: " + e.getMessage(), e);
-            throw new SQLException("Erreur lors de l'insertion de stock", e);
         }
+        
+        // Ajout de la quantité du lot à celle du produit et au journal, dans la même transaction
+        if (estVendable(stock.getDateExpiration()) && stock.getQuantite() != 0) {
+            produitDAO.ajusterStock(conn, stock.getProduit().getId(), stock.getQuantite());
+            mouvementStockDAO.enregistrer(conn, List.of(new MouvementStock(stock.getId(),
+                    stock.getProduit().getId(), MouvementStock.RECEPTION, stock.getQuantite(), null)));
+        }
+        
+        LOGGER.info("Stock ajouté avec succès, ID=" + stock.getId());
+        return true;
     }
 
     /**
-     * Met à jour un stock existant
+     * Enregistre les lots d'une livraison en une seule transaction : lignes invalides
+     * écartées, insertion des lots par lot d'instructions, puis un seul ajustement de
+     * quantité par produit concerné et l'écriture groupée des mouvements au journal.
+     * 
+     * Si l'insertion échoue, aucun lot de la livraison n'est enregistré.
      *
-     * @param stock le stock à mettre à jour
-     * @return true si l'opération a réussi, false sinon
+     * @param lots les lots reçus, dans l'ordre du bon de livraison
+     * @return l'issue de chaque ligne et le nombre de produits ajustés
      * @throws SQLException si une erreur SQL survient
      */
-    public boolean update(Stock stock) throws SQLException {
-        String query = "UPDATE stock SET produit_id = ?, lot_numero = ?, quantite_disponible = ?, date_expiration = ? WHERE id = ?";
+    public BilanReception recevoirLivraison(List<Stock> lots) throws SQLException {
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                BilanReception bilan = recevoirLivraison(conn, lots);
+                conn.commit();
+                reporterReception(bilan);
+                return bilan;
+            } catch (SQLException e) {
+                conn.rollback();
+                LOGGER.log(Level.SEVERE, "Erreur SQL lors de la réception d'une livraison: " + e.getMessage(), e);
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Enregistre les lots d'une livraison dans la transaction de l'appelant. L'appelant
+     * reporte les lots enregistrés avec {@link #reporterReception} une fois sa
+     * transaction validée ; les IDs générés, portés par les lignes du bilan, ne sont
+     * copiés dans les lots qu'à ce moment, pour qu'une livraison annulée puisse être
+     * représentée telle quelle.
+     *
+     * @param conn la connexion portant la transaction en cours
+     * @param lots les lots reçus, dans l'ordre du bon de livraison
+     * @return l'issue de chaque ligne et le nombre de produits ajustés
+     * @throws SQLException si une erreur SQL survient
+     */
+    public BilanReception recevoirLivraison(Connection conn, List<Stock> lots) throws SQLException {
+        String query = "INSERT INTO stock (produit_id, lot_numero, quantite_disponible, date_expiration, expire) VALUES (?, ?, ?, ?, ?)";
+        long debut = System.nanoTime();
         
-        try (Connection conn = DatabaseConfig.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(query)) {
-            pstmt.setInt(1, stock.getProduit().getId());
-            pstmt.setString(2, stock.getNumeroLot());
-            pstmt.setInt(3, stock.getQuantite());
-            pstmt.setDate(4, Date.valueOf(stock.getDateExpiration()));
-            pstmt.setInt(5, stock.getId());
-            
-            int affectedRows = pstmt.executeUpdate();
+        // Produits de la livraison, lus en une passe
+        List<Integer> produitIds = new ArrayList<>();
+        for (Stock stock : lots) {
+            if (stock != null && stock.getProduit() != null && stock.getProduit().getId() != null) {
+                produitIds.add(stock.getProduit().getId());
+            }
+        }
+        Map<Integer, Produit> produits = produitDAO.obtenirParIds(conn, produitIds);
+        
+        BilanReception.Ligne[] issues = new BilanReception.Ligne[lots.size()];
+        List<Integer> retenues = new ArrayList<>();
+        Set<String> lotsVus = new HashSet<>();
+        for (int i = 0; i < lots.size(); i++) {
+            String motif = motifRejet(lots.get(i), produits, lotsVus);
+            if (motif != null) {
+                issues[i] = new BilanReception.Ligne(i + 1, lots.get(i), false, motif);
+            } else {
+                retenues.add(i);
+            }
+        }
+        
+        // Produits ajustés par ID croissant, l'ordre dans lequel les caisses les verrouillent
+        Map<Integer, Integer> ecartsParProduit = new TreeMap<>();
+        int[] idsGeneres = new int[lots.size()];
+        if (!retenues.isEmpty()) {
+            try (PreparedStatement pstmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+                for (int i : retenues) {
+                    Stock stock = lots.get(i);
+                    pstmt.setInt(1, stock.getProduit().getId());
+                    pstmt.setString(2, stock.getNumeroLot());
+                    pstmt.setInt(3, stock.getQuantite());
+                    pstmt.setDate(4, Date.valueOf(stock.getDateExpiration()));
+                    pstmt.setBoolean(5, !estVendable(stock.getDateExpiration()));
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+                
+                // Clés générées dans l'ordre des instructions du lot
+                try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                    for (int i : retenues) {
+                        if (!generatedKeys.next()) {
+                            throw new SQLException("Réception de livraison: clés générées incomplètes");
+                        }
+                        idsGeneres[i] = generatedKeys.getInt(1);
+                    }
+                }
+            }
             
-            // Mise à jour de la quantité du produit après la mise à jour d'un stock
-            if (affectedRows > 0) {
-                mettreAJourQuantiteProduit(stock.getProduit().getId());
+            List<MouvementStock> mouvements = new ArrayList<>();
+            for (int i : retenues) {
+                Stock stock = lots.get(i);
+                if (estVendable(stock.getDateExpiration()) && stock.getQuantite() != 0) {
+                    ecartsParProduit.merge(stock.getProduit().getId(), stock.getQuantite(), Integer::sum);
+                    mouvements.add(new MouvementStock(idsGeneres[i], stock.getProduit().getId(),
+                            MouvementStock.RECEPTION, stock.getQuantite(), null));
+                }
+                issues[i] = new BilanReception.Ligne(i + 1, stock, true, null, idsGeneres[i]);
             }
             
-            return affectedRows > 0;
+            String sqlProduit = "UPDATE produits SET quantite_en_stock = quantite_en_stock + ? WHERE id = ?";
+            try (PreparedStatement pstmt = conn.prepareStatement(sqlProduit)) {
+                for (Map.Entry<Integer, Integer> ecart : ecartsParProduit.entrySet()) {
+                    pstmt.setInt(1, ecart.getValue());
+                    pstmt.setInt(2, ecart.getKey());
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+            }
+            mouvementStockDAO.enregistrer(conn, mouvements);
+        }
+        
+        long dureeMs = (System.nanoTime() - debut) / 1_000_000;
+        BilanReception bilan = new BilanReception(Arrays.asList(issues), ecartsParProduit.size(), dureeMs);
+        LOGGER.info("Livraison reçue : " + bilan.getNombreEnregistrees() + "/" + lots.size()
+                + " lot(s) enregistré(s), " + ecartsParProduit.size() + " produit(s) ajusté(s) en " + dureeMs + " ms");
+        return bilan;
+    }
+
+    /**
+     * Renseigne l'ID des lots d'une livraison validée, puis les reporte dans
+     * {@link IndexLots} et {@link SeuilsAlerte}
+     *
+     * @param bilan le bilan de la réception validée
+     */
+    void reporterReception(BilanReception bilan) {
+        Set<Integer> produitIds = new HashSet<>();
+        for (BilanReception.Ligne ligne : bilan.getLignes()) {
+            if (!ligne.isEnregistree()) {
+                continue;
+            }
+            Stock stock = ligne.getStock();
+            stock.setId(ligne.getStockId());
+            UniteDeTravail.oublier(Produit.class, stock.getProduit().getId());
+            if (estVendable(stock.getDateExpiration())) {
+                IndexLots.getInstance().lotAjoute(stock);
+                produitIds.add(stock.getProduit().getId());
+            }
         }
+        SeuilsAlerte.getInstance().produitsModifies(produitIds);
+    }
+
+    /**
+     * Contrôle une ligne de livraison avant insertion
+     *
+     * @param stock le lot de la ligne
+     * @param produits les produits existants de la livraison, par ID
+     * @param lotsVus les couples produit/numéro de lot déjà retenus dans la livraison
+     * @return la raison du rejet, ou null si la ligne peut être enregistrée
+     */
+    private static String motifRejet(Stock stock, Map<Integer, Produit> produits, Set<String> lotsVus) {
+        if (stock == null) {
+            return "Ligne vide";
+        }
+        if (stock.getProduit() == null || stock.getProduit().getId() == null) {
+            return "Produit non renseigné";
+        }
+        if (!produits.containsKey(stock.getProduit().getId())) {
+            return "Produit inconnu (ID=" + stock.getProduit().getId() + ")";
+        }
+        if (stock.getNumeroLot() == null || stock.getNumeroLot().trim().isEmpty()) {
+            return "Numéro de lot vide";
+        }
+        if (stock.getQuantite() == null || stock.getQuantite() <= 0) {
+            return "Quantité invalide";
+        }
+        if (stock.getDateExpiration() == null) {
+            return "Date d'expiration manquante";
+        }
+        if (!lotsVus.add(stock.getProduit().getId() + "/" + stock.getNumeroLot())) {
+            return "Lot en double dans la livraison";
+        }
+        return null;
+    }
+
+    /**
+     * Met à jour un stock existant s'il n'a pas été modifié depuis sa lecture
+     * 
+     * Aucun verrou n'est posé à la lecture : l'écriture n'aboutit que si la version du lot
+     * est toujours celle du stock fourni. Une vente ou une autre modification intervenue
+     * entre-temps produit un conflit plutôt que d'écraser la quantité prélevée.
+     *
+     * @param stock le stock à mettre à jour, avec la version lue
+     * @return le résultat de la mise à jour ; en cas de succès, la version du stock est avancée
+     * @throws SQLException si une erreur SQL survient
+     */
+    public ResultatMiseAJour update(Stock stock) throws SQLException {
+        String selectActuel = "SELECT produit_id, quantite_disponible, expire, version FROM stock WHERE id = ?";
+        String query = "UPDATE stock SET produit_id = ?, lot_numero = ?, quantite_disponible = ?, date_expiration = ?, expire = ?, " +
+                "version = version + 1 WHERE id = ? AND version = ?";
+        
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                int ancienProduitId;
+                int ancienneContribution;
+                try (PreparedStatement pstmt = conn.prepareStatement(selectActuel)) {
+                    pstmt.setInt(1, stock.getId());
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        if (!rs.next()) {
+                            conn.rollback();
+                            return new ResultatMiseAJour(ResultatMiseAJour.Statut.INTROUVABLE, 0, 1);
+                        }
+                        if (rs.getInt("version") != stock.getVersion()) {
+                            conn.rollback();
+                            return conflit(stock, rs.getInt("version"));
+                        }
+                        ancienProduitId = rs.getInt("produit_id");
+                        ancienneContribution = rs.getBoolean("expire") ? 0 : rs.getInt("quantite_disponible");
+                    }
+                }
+                
+                try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+                    pstmt.setInt(1, stock.getProduit().getId());
+                    pstmt.setString(2, stock.getNumeroLot());
+                    pstmt.setInt(3, stock.getQuantite());
+                    pstmt.setDate(4, Date.valueOf(stock.getDateExpiration()));
+                    pstmt.setBoolean(5, !estVendable(stock.getDateExpiration()));
+                    pstmt.setInt(6, stock.getId());
+                    pstmt.setInt(7, stock.getVersion());
+                    if (pstmt.executeUpdate() == 0) {
+                        // Lot modifié entre la lecture et l'écriture
+                        conn.rollback();
+                        return conflit(stock, stock.getVersion() + 1);
+                    }
+                }
+                
+                // Report de l'écart sur la quantité du ou des produits concernés
+                int nouveauProduitId = stock.getProduit().getId();
+                int nouvelleContribution = estVendable(stock.getDateExpiration()) ? stock.getQuantite() : 0;
+                
+                List<MouvementStock> mouvements = new ArrayList<>();
+                if (ancienProduitId == nouveauProduitId) {
+                    if (nouvelleContribution != ancienneContribution) {
+                        produitDAO.ajusterStock(conn, nouveauProduitId, nouvelleContribution - ancienneContribution);
+                        mouvements.add(new MouvementStock(stock.getId(), nouveauProduitId,
+                                MouvementStock.AJUSTEMENT, nouvelleContribution - ancienneContribution, null));
+                    }
+                } else {
+                    if (ancienneContribution != 0) {
+                        produitDAO.ajusterStock(conn, ancienProduitId, -ancienneContribution);
+                        mouvements.add(new MouvementStock(stock.getId(), ancienProduitId,
+                                MouvementStock.AJUSTEMENT, -ancienneContribution, null));
+                    }
+                    if (nouvelleContribution != 0) {
+                        produitDAO.ajusterStock(conn, nouveauProduitId, nouvelleContribution);
+                        mouvements.add(new MouvementStock(stock.getId(), nouveauProduitId,
+                                MouvementStock.AJUSTEMENT, nouvelleContribution, null));
+                    }
+                }
+                mouvementStockDAO.enregistrer(conn, mouvements);
+                
+                conn.commit();
+                stock.setVersion(stock.getVersion() + 1);
+                IndexLots.getInstance().invalider(ancienProduitId);
+                IndexLots.getInstance().invalider(nouveauProduitId);
+                SeuilsAlerte.getInstance().produitsModifies(Arrays.asList(ancienProduitId, nouveauProduitId));
+                return new ResultatMiseAJour(ResultatMiseAJour.Statut.APPLIQUEE, stock.getVersion(), 1);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Ajoute un écart (positif ou négatif) à la quantité d'un lot, quelle que soit sa version
+     * 
+     * Un écart commute avec les ventes et les autres écarts : en cas de conflit de version,
+     * le lot est relu et l'écart réappliqué sur sa nouvelle quantité, dans une nouvelle
+     * transaction, jusqu'à {@link #TENTATIVES_MAX} essais.
+     *
+     * @param stockId l'ID du lot
+     * @param delta la quantité à ajouter (négative pour un retrait)
+     * @return le résultat de la mise à jour
+     * @throws SQLException si une erreur SQL survient
+     */
+    public ResultatMiseAJour ajusterQuantite(int stockId, int delta) throws SQLException {
+        String selectActuel = "SELECT produit_id, quantite_disponible, expire, version FROM stock WHERE id = ?";
+        String query = "UPDATE stock SET quantite_disponible = ?, version = version + 1 WHERE id = ? AND version = ?";
+        
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                int version = 0;
+                for (int tentative = 1; tentative <= TENTATIVES_MAX; tentative++) {
+                    int produitId;
+                    int quantite;
+                    boolean expire;
+                    try (PreparedStatement pstmt = conn.prepareStatement(selectActuel)) {
+                        pstmt.setInt(1, stockId);
+                        try (ResultSet rs = pstmt.executeQuery()) {
+                            if (!rs.next()) {
+                                conn.rollback();
+                                return new ResultatMiseAJour(ResultatMiseAJour.Statut.INTROUVABLE, 0, tentative);
+                            }
+                            produitId = rs.getInt("produit_id");
+                            quantite = rs.getInt("quantite_disponible");
+                            expire = rs.getBoolean("expire");
+                            version = rs.getInt("version");
+                        }
+                    }
+                    
+                    if (quantite + delta < 0) {
+                        conn.rollback();
+                        return new ResultatMiseAJour(ResultatMiseAJour.Statut.QUANTITE_INSUFFISANTE, version, tentative);
+                    }
+                    
+                    int lignes;
+                    try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+                        pstmt.setInt(1, quantite + delta);
+                        pstmt.setInt(2, stockId);
+                        pstmt.setInt(3, version);
+                        lignes = pstmt.executeUpdate();
+                    }
+                    if (lignes == 0) {
+                        // La relecture doit voir la nouvelle version : nouvelle transaction
+                        conn.rollback();
+                        continue;
+                    }
+                    
+                    if (!expire && delta != 0) {
+                        produitDAO.ajusterStock(conn, produitId, delta);
+                        mouvementStockDAO.enregistrer(conn, List.of(new MouvementStock(stockId, produitId,
+                                MouvementStock.AJUSTEMENT, delta, null)));
+                    }
+                    
+                    conn.commit();
+                    IndexLots.getInstance().invalider(produitId);
+                    SeuilsAlerte.getInstance().produitModifie(produitId);
+                    return new ResultatMiseAJour(ResultatMiseAJour.Statut.APPLIQUEE, version + 1, tentative);
+                }
+                
+                LOGGER.warning("Écart de " + delta + " sur le lot " + stockId + " abandonné après "
+                        + TENTATIVES_MAX + " conflits de version");
+                return new ResultatMiseAJour(ResultatMiseAJour.Statut.CONFLIT, version, TENTATIVES_MAX);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    private ResultatMiseAJour conflit(Stock stock, int versionActuelle) {
+        LOGGER.warning("Conflit de version sur le lot " + stock.getId() + ": version lue "
+                + stock.getVersion() + ", version actuelle " + versionActuelle);
+        return new ResultatMiseAJour(ResultatMiseAJour.Statut.CONFLIT, versionActuelle, 1);
     }
 
     /**
      * Supprime un stock par son ID
+     * 
+     * La suppression ne dépend pas des valeurs du lot : si une vente le modifie entre la
+     * lecture de sa quantité et la suppression, il est relu et la suppression rejouée.
      *
      * @param id l'ID du stock à supprimer
      * @return true si l'opération a réussi, false sinon
      * @throws SQLException si une erreur SQL survient
      */
     public boolean delete(Integer id) throws SQLException {
-        String query = "DELETE FROM stock WHERE id = ?";
+        String selectActuel = "SELECT produit_id, quantite_disponible, expire, version FROM stock WHERE id = ?";
+        String query = "DELETE FROM stock WHERE id = ? AND version = ?";
         
-        try (Connection conn = DatabaseConfig.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(query)) {
-            pstmt.setInt(1, id);
-            
-            int affectedRows = pstmt.executeUpdate();
-            return affectedRows > 0;
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                for (int tentative = 1; tentative <= TENTATIVES_MAX; tentative++) {
+                    int produitId;
+                    int contribution;
+                    int version;
+                    try (PreparedStatement pstmt = conn.prepareStatement(selectActuel)) {
+                        pstmt.setInt(1, id);
+                        try (ResultSet rs = pstmt.executeQuery()) {
+                            if (!rs.next()) {
+                                conn.rollback();
+                                return false;
+                            }
+                            produitId = rs.getInt("produit_id");
+                            contribution = rs.getBoolean("expire") ? 0 : rs.getInt("quantite_disponible");
+                            version = rs.getInt("version");
+                        }
+                    }
+                    
+                    int lignes;
+                    try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+                        pstmt.setInt(1, id);
+                        pstmt.setInt(2, version);
+                        lignes = pstmt.executeUpdate();
+                    }
+                    if (lignes == 0) {
+                        conn.rollback();
+                        continue;
+                    }
+                    
+                    // Retrait de la quantité du lot de celle du produit, consigné au journal
+                    if (contribution != 0) {
+                        produitDAO.ajusterStock(conn, produitId, -contribution);
+                        mouvementStockDAO.enregistrer(conn, List.of(new MouvementStock(id, produitId,
+                                MouvementStock.AJUSTEMENT, -contribution, null)));
+                    }
+                    
+                    conn.commit();
+                    IndexLots.getInstance().invalider(produitId);
+                    SeuilsAlerte.getInstance().produitModifie(produitId);
+                    return true;
+                }
+                
+                LOGGER.warning("Suppression du lot " + id + " abandonnée après " + TENTATIVES_MAX + " conflits de version");
+                return false;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
         }
     }
 
     /**
-     * Extrait un objet Stock à partir d'un ResultSet
+     * Indique si un lot enregistré avec cette date d'expiration est encore vendable ;
+     * détermine la valeur initiale de la colonne expire
+     *
+     * @param dateExpiration la date d'expiration du lot
+     * @return true si le lot n'est pas expiré
+     */
+    private static boolean estVendable(LocalDate dateExpiration) {
+        return dateExpiration != null && !dateExpiration.isBefore(LocalDate.now());
+    }
+
+    /**
+     * Extrait tous les stocks d'un ResultSet issu de {@link #SELECT_STOCK_PRODUIT},
+     * chaque produit n'étant construit qu'une fois et partagé par tous ses lots
      *
-     * @param rs le ResultSet contenant les données du stock
+     * @param rs le ResultSet contenant les lots joints à leur produit
+     * @return la liste des stocks
+     * @throws SQLException si une erreur SQL survient
+     */
+    private List<Stock> extractStocksFromResultSet(ResultSet rs) throws SQLException {
+        List<Stock> stocks = new ArrayList<>();
+        Map<Integer, Produit> produits = new HashMap<>();
+        
+        while (rs.next()) {
+            stocks.add(extractStockFromResultSet(rs, produits));
+        }
+        
+        return stocks;
+    }
+
+    /**
+     * Extrait un objet Stock à partir d'un ResultSet issu de {@link #SELECT_STOCK_PRODUIT}
+     *
+     * @param rs le ResultSet contenant les données du stock et de son produit
+     * @param produits les produits déjà construits pour cette requête, par ID
      * @return l'objet Stock créé
      * @throws SQLException si une erreur SQL survient
      */
-    private Stock extractStockFromResultSet(ResultSet rs) throws SQLException {
-        Integer id = rs.getInt("id");
+    private Stock extractStockFromResultSet(ResultSet rs, Map<Integer, Produit> produits) throws SQLException {
+        Integer id = rs.getInt("stock_id");
         Integer produitId = rs.getInt("produit_id");
         String numeroLot = rs.getString("lot_numero");
         Integer quantite = rs.getInt("quantite_disponible");
         LocalDate dateExpiration = rs.getDate("date_expiration").toLocalDate();
         
-        Produit produit = produitDAO.findById(produitId);
+        Produit produit = produits.get(produitId);
+        if (produit == null) {
+            produit = produitDAO.convertirResultSet(rs);
+            produits.put(produitId, produit);
+        }
         
         Stock stock = new Stock();
         stock.setId(id);
@@ -219,6 +687,7 @@ public class StockDAO {
         stock.setNumeroLot(numeroLot);
         stock.setQuantite(quantite);
         stock.setDateExpiration(dateExpiration);
+        stock.setVersion(rs.getInt("stock_version"));
         
         return stock;
     }
@@ -238,78 +707,17 @@ public class StockDAO {
         }
         
         Connection conn = null;
-        boolean lotsMisAJour = false;
         
         try {
             conn = DatabaseConfig.getConnection();
             conn.setAutoCommit(false); // Démarrer une transaction
             
-            // Récupérer tous les lots non expirés triés par date d'expiration croissante
-            String sql = "SELECT * FROM stock WHERE produit_id = ? AND quantite_disponible > 0 AND date_expiration >= CURRENT_DATE ORDER BY date_expiration ASC";
-            
-            List<Stock> lots = new ArrayList<>();
-            
-            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-                pstmt.setInt(1, produitId);
-                
-                try (ResultSet rs = pstmt.executeQuery()) {
-                    while (rs.next()) {
-                        lots.add(extractStockFromResultSet(rs));
-                    }
-                }
-            }
-            
-            // Vérifier si la quantité totale disponible est suffisante
-            int quantiteTotaleDisponible = 0;
-            for (Stock lot : lots) {
-                quantiteTotaleDisponible += lot.getQuantite();
-            }
-            
-            LOGGER.info("Vérification du stock pour le produit ID=" + produitId + 
-                      ". Demandé: " + quantiteARetirer + 
-                      ", Disponible: " + quantiteTotaleDisponible);
-            
-            if (quantiteTotaleDisponible < quantiteARetirer) {
-                throw new SQLException("Stock insuffisant pour le produit ID=" + produitId + 
-                                      ". Demandé: " + quantiteARetirer + 
-                                      ", Disponible: " + quantiteTotaleDisponible);
-            }
-            
-            // Mise à jour des lots un par un, en commençant par ceux qui expirent le plus tôt
-            int quantiteRestante = quantiteARetirer;
-            String updateSql = "UPDATE stock SET quantite_disponible = ? WHERE id = ?";
-            
-            for (Stock lot : lots) {
-                if (quantiteRestante <= 0) {
-                    break;
-                }
-                
-                int quantiteLot = lot.getQuantite();
-                int quantiteARetirerDuLot = Math.min(quantiteRestante, quantiteLot);
-                int nouvelleQuantiteLot = quantiteLot - quantiteARetirerDuLot;
-                
-                try (PreparedStatement pstmt = conn.prepareStatement(updateSql)) {
-                    pstmt.setInt(1, nouvelleQuantiteLot);
-                    pstmt.setInt(2, lot.getId());
-                    pstmt.executeUpdate();
-                }
-                
-                quantiteRestante -= quantiteARetirerDuLot;
-                LOGGER.info("Lot " + lot.getNumeroLot() + " : Retiré " + quantiteARetirerDuLot + 
-                           " unités. Nouvelle quantité : " + nouvelleQuantiteLot);
-            }
-            
-            lotsMisAJour = true;
-            
-            // Mettre à jour la quantité totale du produit
-            boolean majReussie = mettreAJourQuantiteProduit(produitId);
-            
-            if (!majReussie) {
-                LOGGER.warning("Mise à jour de la quantité totale du produit " + produitId + " échouée après modification des lots");
-                throw new SQLException("Échec de la mise à jour de la quantité totale du produit");
-            }
+            List<AllocationLot> allocations = preleverParLot(conn, produitId, quantiteARetirer);
             
+            long avantValidation = IndexLots.getInstance().avantValidation();
             conn.commit();
+            IndexLots.getInstance().prelevementsValides(allocations, avantValidation);
+            SeuilsAlerte.getInstance().prelevementsValides(allocations);
             LOGGER.info("Stock du produit " + produitId + " mis à jour avec succès. Retiré: " + quantiteARetirer);
             return true;
         } catch (SQLException e) {
@@ -324,21 +732,6 @@ public class StockDAO {
             LOGGER.log(Level.SEVERE, "Erreur lors de la diminution du stock par lot: " + e.getMessage(), e);
             throw e;
         } finally {
-            // Si les lots ont été mis à jour mais qu'une erreur est survenue avant le commit,
-            // on s'assure quand même de mettre à jour la quantité totale du produit
-            if (lotsMisAJour && conn != null) {
-                try {
-                    boolean majReussie = mettreAJourQuantiteProduit(produitId);
-                    if (!majReussie) {
-                        LOGGER.warning("Tentative de mise à jour de secours de la quantité totale du produit " + produitId + " échouée");
-                    } else {
-                        LOGGER.info("Mise à jour de secours de la quantité totale du produit " + produitId + " réussie");
-                    }
-                } catch (Exception ex) {
-                    LOGGER.log(Level.WARNING, "Erreur lors de la mise à jour de secours de la quantité du produit", ex);
-                }
-            }
-            
             if (conn != null) {
                 try {
                     conn.setAutoCommit(true);
@@ -351,43 +744,60 @@ public class StockDAO {
     }
 
     /**
-     * Met à jour la quantité totale en stock d'un produit
-     * en calculant la somme des quantités de tous ses lots non expirés
+     * Prélève une quantité sur les lots d'un produit, premier expiré premier sorti, dans la
+     * transaction de l'appelant, et renvoie le détail des prélèvements. L'appelant les reporte
+     * dans {@link IndexLots} une fois sa transaction validée.
      * 
-     * @param produitId L'ID du produit à mettre à jour
-     * @return true si la mise à jour a réussi, false sinon
+     * @param conn La connexion portant la transaction en cours
+     * @param produitId L'ID du produit
+     * @param quantiteARetirer La quantité totale à retirer du stock
+     * @return Les prélèvements effectués, lot par lot
+     * @throws SQLException si le stock est insuffisant ou si une erreur SQL survient
+     */
+    public List<AllocationLot> preleverParLot(Connection conn, Integer produitId, int quantiteARetirer)
+            throws SQLException {
+        return preleverParLot(conn, produitId, quantiteARetirer, null);
+    }
+
+    /**
+     * Prélève une quantité sur les lots d'un produit pour une vente, premier expiré premier sorti,
+     * dans la transaction de l'appelant ; les prélèvements sont consignés au journal des mouvements
+     * avec l'ID de la vente
+     * 
+     * @param conn La connexion portant la transaction en cours
+     * @param produitId L'ID du produit
+     * @param quantiteARetirer La quantité totale à retirer du stock
+     * @param venteId L'ID de la vente à l'origine du prélèvement (peut être null)
+     * @return Les prélèvements effectués, lot par lot
+     * @throws SQLException si le stock est insuffisant ou si une erreur SQL survient
      */
-    private boolean mettreAJourQuantiteProduit(int produitId) {
-        // Modifier la requête pour exclure les lots expirés
-        String sql = "SELECT SUM(quantite_disponible) as total FROM stock WHERE produit_id = ? AND date_expiration >= CURRENT_DATE";
+    public List<AllocationLot> preleverParLot(Connection conn, Integer produitId, int quantiteARetirer,
+                                              Integer venteId) throws SQLException {
+        if (quantiteARetirer <= 0) {
+            return new ArrayList<>();
+        }
         
-        try (Connection conn = DatabaseConfig.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setInt(1, produitId);
-            
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    int nouvelleQuantite = rs.getInt("total");
-                    // Si le résultat est NULL (pas de lots non expirés), on met 0
-                    if (rs.wasNull()) {
-                        nouvelleQuantite = 0;
-                    }
-                    LOGGER.info("Mise à jour de la quantité du produit " + produitId + ": nouvelle quantité = " + nouvelleQuantite);
-                    boolean success = produitDAO.mettreAJourStock(produitId, nouvelleQuantite);
-                    if (!success) {
-                        LOGGER.warning("Échec de la mise à jour de la quantité du produit " + produitId);
-                    }
-                    return success;
-                }
-            }
-            
-            LOGGER.warning("Aucun résultat trouvé lors du calcul de la quantité du produit " + produitId);
-            return false;
-        } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Erreur lors de la mise à jour de la quantité du produit: " + e.getMessage(), e);
-            return false;
+        // Verrouiller les lots non expirés et les décrémenter, premier expiré premier sorti
+        List<AllocationLot> allocations = allocationStockDAO.allouer(conn, produitId, quantiteARetirer);
+        
+        List<MouvementStock> mouvements = new ArrayList<>(allocations.size());
+        for (AllocationLot allocation : allocations) {
+            LOGGER.info("Lot " + allocation.getNumeroLot() + " : Retiré " + allocation.getQuantitePrelevee() + 
+                       " unités. Nouvelle quantité : " + allocation.getQuantiteRestante());
+            mouvements.add(new MouvementStock(allocation.getStockId(), produitId,
+                    MouvementStock.VENTE, -allocation.getQuantitePrelevee(), venteId));
         }
+        mouvementStockDAO.enregistrer(conn, mouvements);
+        
+        // Retirer la quantité vendue du total du produit, dans la même transaction
+        if (!produitDAO.ajusterStock(conn, produitId, -quantiteARetirer)) {
+            LOGGER.warning("Mise à jour de la quantité totale du produit " + produitId + " échouée après modification des lots");
+            throw new SQLException("Échec de la mise à jour de la quantité totale du produit");
+        }
+        
+        return allocations;
     }
+
     
     /**
      * Récupère tous les stocks expirés
@@ -396,15 +806,13 @@ public class StockDAO {
      */
     public List<Stock> obtenirStocksExpires() {
         List<Stock> stocksExpires = new ArrayList<>();
-        String sql = "SELECT * FROM stock WHERE date_expiration < CURRENT_DATE";
+        String sql = SELECT_STOCK_PRODUIT + " WHERE s.expire = TRUE";
         
         try (Connection conn = DatabaseConfig.getConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
             
-            while (rs.next()) {
-                stocksExpires.add(extractStockFromResultSet(rs));
-            }
+            stocksExpires = extractStocksFromResultSet(rs);
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Erreur lors de la récupération des stocks expirés", e);
         }
@@ -421,7 +829,7 @@ public class StockDAO {
     public List<Stock> obtenirStocksExpirantBientot(int jours) {
         List<Stock> stocksExpirantBientot = new ArrayList<>();
         // Requête pour sélectionner les stocks dont la date d'expiration est entre aujourd'hui et X jours
-        String sql = "SELECT * FROM stock WHERE date_expiration >= CURRENT_DATE AND date_expiration <= DATE_ADD(CURRENT_DATE, INTERVAL ? DAY)";
+        String sql = SELECT_STOCK_PRODUIT + " WHERE s.expire = FALSE AND s.date_expiration <= DATE_ADD(CURRENT_DATE, INTERVAL ? DAY)";
         
         try (Connection conn = DatabaseConfig.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
@@ -429,9 +837,7 @@ public class StockDAO {
             pstmt.setInt(1, jours);
             
             try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    stocksExpirantBientot.add(extractStockFromResultSet(rs));
-                }
+                stocksExpirantBientot = extractStocksFromResultSet(rs);
             }
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Erreur lors de la récupération des stocks expirant bientôt", e);
@@ -441,72 +847,251 @@ public class StockDAO {
     }
 
     /**
-     * Met à jour les quantités en stock de tous les produits
-     * en recalculant les sommes des quantités de leurs lots non expirés
+     * Compte les lots marqués expirés
      * 
-     * @return true si l'opération a réussi, false sinon
+     * @return Le nombre de lots expirés, 0 en cas d'erreur
      */
-    public boolean actualiserTousLesStocks() {
-        boolean success = true;
-        Connection conn = null;
+    public int compterLotsExpires() {
+        String sql = "SELECT COUNT(*) FROM stock WHERE expire = TRUE";
         
-        try {
-            conn = DatabaseConfig.getConnection();
+        try (Connection conn = DatabaseConfig.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors du comptage des lots expirés", e);
+            return 0;
+        }
+    }
+
+    /**
+     * Marque expirés les lots dont la date d'expiration est passée et retire leurs quantités
+     * de celles des produits, en une seule transaction. Appelé au changement de jour
+     * (et au démarrage pour rattraper les jours où l'application était arrêtée).
+     * 
+     * @return Le nombre de lots marqués expirés
+     * @throws SQLException si une erreur SQL survient
+     */
+    public int marquerLotsEchus() throws SQLException {
+        String sqlEchus = "SELECT id, produit_id, quantite_disponible FROM stock " +
+                "WHERE expire = FALSE AND date_expiration < CURRENT_DATE ORDER BY produit_id, id FOR UPDATE";
+        String sqlProduit = "UPDATE produits SET quantite_en_stock = quantite_en_stock - ? WHERE id = ?";
+        
+        try (Connection conn = DatabaseConfig.getConnection()) {
             conn.setAutoCommit(false);
-            
-            // 1. D'abord, récupérer tous les produits existants
-            List<Integer> produitIds = new ArrayList<>();
-            try (Statement stmt = conn.createStatement();
-                 ResultSet rs = stmt.executeQuery("SELECT id FROM produits")) {
+            try {
+                // Lots échus, verrouillés jusqu'au commit, et quantités à retirer par produit
+                List<Integer> lotIds = new ArrayList<>();
+                Map<Integer, Integer> quantitesParProduit = new LinkedHashMap<>();
+                List<MouvementStock> mouvements = new ArrayList<>();
+                try (Statement stmt = conn.createStatement();
+                     ResultSet rs = stmt.executeQuery(sqlEchus)) {
+                    while (rs.next()) {
+                        int lotId = rs.getInt("id");
+                        int produitId = rs.getInt("produit_id");
+                        int quantite = rs.getInt("quantite_disponible");
+                        lotIds.add(lotId);
+                        quantitesParProduit.merge(produitId, quantite, Integer::sum);
+                        if (quantite != 0) {
+                            mouvements.add(new MouvementStock(lotId, produitId, MouvementStock.EXPIRATION, -quantite, null));
+                        }
+                    }
+                }
+                
+                if (lotIds.isEmpty()) {
+                    conn.commit();
+                    return 0;
+                }
+                
+                try (PreparedStatement pstmt = conn.prepareStatement(sqlProduit)) {
+                    for (Map.Entry<Integer, Integer> entree : quantitesParProduit.entrySet()) {
+                        if (entree.getValue() == 0) {
+                            continue;
+                        }
+                        pstmt.setInt(1, entree.getValue());
+                        pstmt.setInt(2, entree.getKey());
+                        pstmt.addBatch();
+                    }
+                    pstmt.executeBatch();
+                }
                 
+                for (List<Integer> lot : RequetesParLots.decouper(lotIds)) {
+                    String sqlMarquage = "UPDATE stock SET expire = TRUE, version = version + 1 WHERE id IN ("
+                            + RequetesParLots.marqueurs(lot.size()) + ")";
+                    try (PreparedStatement pstmt = conn.prepareStatement(sqlMarquage)) {
+                        for (int i = 0; i < lot.size(); i++) {
+                            pstmt.setInt(i + 1, lot.get(i));
+                        }
+                        pstmt.executeUpdate();
+                    }
+                }
+                
+                mouvementStockDAO.enregistrer(conn, mouvements);
+                
+                conn.commit();
+                for (Integer produitId : quantitesParProduit.keySet()) {
+                    UniteDeTravail.oublier(Produit.class, produitId);
+                }
+                SeuilsAlerte.getInstance().produitsModifies(quantitesParProduit.keySet());
+                
+                LOGGER.info(lotIds.size() + " lot(s) expiré(s) pour " + quantitesParProduit.size() + " produit(s)");
+                return lotIds.size();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Corrige les produits dont la quantité en stock s'écarte de la somme de leurs lots non expirés
+     * (écriture faite hors application). Chaque correction recalcule la somme
+     * dans l'instruction UPDATE elle-même pour ne pas écraser une vente concurrente.
+     *
+     * @return les IDs des produits corrigés
+     * @throws SQLException si une erreur SQL survient
+     */
+    public List<Integer> reconcilierQuantitesProduits() throws SQLException {
+        String sqlEcarts = "SELECT p.id FROM produits p " +
+                "LEFT JOIN stock s ON s.produit_id = p.id AND s.expire = FALSE " +
+                "GROUP BY p.id, p.quantite_en_stock " +
+                "HAVING p.quantite_en_stock <> COALESCE(SUM(s.quantite_disponible), 0)";
+        String sqlCorrection = "UPDATE produits SET quantite_en_stock = " +
+                "(SELECT COALESCE(SUM(quantite_disponible), 0) FROM stock " +
+                "WHERE produit_id = ? AND expire = FALSE) WHERE id = ?";
+        
+        List<Integer> produitIds = new ArrayList<>();
+        
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery(sqlEcarts)) {
                 while (rs.next()) {
                     produitIds.add(rs.getInt("id"));
                 }
             }
             
-            // 2. Ensuite, mettre à jour chaque produit individuellement
-            for (Integer produitId : produitIds) {
-                try {
-                    boolean updated = mettreAJourQuantiteProduit(produitId);
-                    if (!updated) {
-                        LOGGER.warning("Échec de la mise à jour du stock pour le produit " + produitId);
-                        success = false;
-                    }
-                } catch (Exception e) {
-                    LOGGER.log(Level.WARNING, "Erreur lors de la mise à jour du stock pour le produit " + produitId, e);
-                    success = false;
-                }
+            if (produitIds.isEmpty()) {
+                return produitIds;
             }
             
-            // 3. Journaliser le résultat
-            if (success) {
-                LOGGER.info("Actualisation de tous les stocks terminée avec succès - " + produitIds.size() + " produits traités");
-                conn.commit();
-            } else {
-                LOGGER.warning("Actualisation de tous les stocks terminée avec des erreurs");
-                conn.rollback();
+            try (PreparedStatement pstmt = conn.prepareStatement(sqlCorrection)) {
+                for (Integer produitId : produitIds) {
+                    pstmt.setInt(1, produitId);
+                    pstmt.setInt(2, produitId);
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
             }
-            
-            return success;
+        }
+        
+        LOGGER.warning("Quantités en stock corrigées pour " + produitIds.size() + " produit(s): " + produitIds);
+        SeuilsAlerte.getInstance().produitsModifies(produitIds);
+        return produitIds;
+    }
+
+    /**
+     * Met à jour les quantités en stock de tous les produits
+     * en recalculant la somme des lots non expirés, en une seule transaction
+     * 
+     * @return true si l'opération a réussi, false sinon
+     */
+    public boolean actualiserTousLesStocks() {
+        try {
+            recalculerTousLesStocks(0);
+            return true;
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Erreur SQL lors de l'actualisation de tous les stocks: " + e.getMessage(), e);
-            if (conn != null) {
-                try {
-                    conn.rollback();
-                } catch (SQLException ex) {
-                    LOGGER.log(Level.SEVERE, "Erreur lors du rollback de la transaction", ex);
+            return false;
+        }
+    }
+
+    /**
+     * Recalcule ensemblistement la quantité en stock de tous les produits :
+     * un UPDATE joint à la somme des lots non expirés groupée par produit,
+     * puis la remise à zéro des produits sans lot non expiré.
+     * 
+     * Sans découpage, tout le catalogue est traité dans une seule transaction.
+     * Avec un découpage, chaque tranche d'IDs produits est validée séparément
+     * pour ne pas verrouiller tout le catalogue d'un coup.
+     * 
+     * @param tailleTranche Le nombre d'IDs produits par tranche, 0 pour ne pas découper
+     * @return Le nombre de produits modifiés et la durée du recalcul
+     * @throws SQLException si une erreur SQL survient
+     */
+    public BilanRecalculStock recalculerTousLesStocks(int tailleTranche) throws SQLException {
+        String sqlSommes = "UPDATE produits p JOIN (" +
+                "SELECT produit_id, SUM(quantite_disponible) AS total FROM stock " +
+                "WHERE expire = FALSE AND produit_id BETWEEN ? AND ? " +
+                "GROUP BY produit_id) s ON s.produit_id = p.id " +
+                "SET p.quantite_en_stock = s.total " +
+                "WHERE p.quantite_en_stock <> s.total";
+        String sqlZeros = "UPDATE produits p SET p.quantite_en_stock = 0 " +
+                "WHERE p.id BETWEEN ? AND ? AND p.quantite_en_stock <> 0 " +
+                "AND NOT EXISTS (SELECT 1 FROM stock s WHERE s.produit_id = p.id " +
+                "AND s.expire = FALSE)";
+        
+        long debut = System.nanoTime();
+        int lignesModifiees = 0;
+        int tranches = 0;
+        
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            int idMin;
+            int idMax;
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT MIN(id), MAX(id) FROM produits")) {
+                rs.next();
+                idMin = rs.getInt(1);
+                idMax = rs.getInt(2);
+                if (rs.wasNull()) {
+                    return new BilanRecalculStock(0, 0, 0);
                 }
             }
-            return false;
-        } finally {
-            if (conn != null) {
-                try {
-                    conn.setAutoCommit(true);
-                    conn.close();
-                } catch (SQLException e) {
-                    LOGGER.log(Level.SEVERE, "Erreur lors de la fermeture de la connexion", e);
+            
+            int pas = tailleTranche > 0 ? tailleTranche : idMax - idMin + 1;
+            
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmtSommes = conn.prepareStatement(sqlSommes);
+                 PreparedStatement pstmtZeros = conn.prepareStatement(sqlZeros)) {
+                for (long borne = idMin; borne <= idMax; borne += pas) {
+                    int de = (int) borne;
+                    int a = (int) Math.min(borne + pas - 1, idMax);
+                    
+                    pstmtSommes.setInt(1, de);
+                    pstmtSommes.setInt(2, a);
+                    lignesModifiees += pstmtSommes.executeUpdate();
+                    
+                    pstmtZeros.setInt(1, de);
+                    pstmtZeros.setInt(2, a);
+                    lignesModifiees += pstmtZeros.executeUpdate();
+                    
+                    tranches++;
+                    if (tailleTranche > 0) {
+                        conn.commit();
+                    }
                 }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
             }
         }
+        
+        // Tout le catalogue a pu changer : l'ensemble des seuils est rechargé en une requête
+        if (lignesModifiees > 0) {
+            try {
+                SeuilsAlerte.getInstance().charger();
+            } catch (SQLException e) {
+                LOGGER.log(Level.WARNING, "Rechargement des seuils d'alerte impossible après le recalcul", e);
+            }
+        }
+        
+        long dureeMs = (System.nanoTime() - debut) / 1_000_000;
+        LOGGER.info("Actualisation de tous les stocks terminée : " + lignesModifiees + " produit(s) modifié(s) en "
+                + tranches + " tranche(s), " + dureeMs + " ms");
+        return new BilanRecalculStock(lignesModifiees, tranches, dureeMs);
     }
 } 
\ No newline at end of file
@@ -0,0 +1,114 @@
+package com.pharmajava.dao;
+
+import com.pharmajava.model.LotDormant;
+import com.pharmajava.utils.DatabaseConfig;
+
+import java.math.BigDecimal;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.function.Consumer;
+
+/**
+ * Classe d'accès aux données pour le rapport de stock dormant : les lots vendables
+ * des produits qui ne se sont pas vendus (ou presque) depuis un nombre de jours donné.
+ *
+ * Le rapport est calculé par une seule requête : les ventes sont agrégées par produit
+ * dans un seul parcours de produits_vendus, joint aux lots en stock, et le tri est fait
+ * par le serveur. Le résultat est lu en flux par curseur et remis lot par lot à
+ * l'appelant, qui l'affiche ou l'exporte sans charger l'historique des ventes.
+ */
+public class StockDormantDAO {
+    private static final int TAILLE_FETCH = 500;
+
+    // Coefficients appliqués à la valeur immobilisée selon la proximité de l'expiration
+    private static final int EXPIRATION_PROCHE_JOURS = 90;
+    private static final int EXPIRATION_MOYENNE_JOURS = 180;
+
+    private static final String SELECT_LOTS_DORMANTS =
+            "SELECT s.id AS stock_id, s.produit_id, p.nom, s.lot_numero, s.quantite_disponible, s.date_expiration, " +
+            "COALESCE(p.prix_achat, 0) AS prix_achat, dv.derniere_vente, COALESCE(dv.vendus, 0) AS vendus, " +
+            "COALESCE(p.prix_achat, 0) * s.quantite_disponible AS valeur, " +
+            "COALESCE(p.prix_achat, 0) * s.quantite_disponible * " +
+            "CASE WHEN s.date_expiration < ? THEN 3 WHEN s.date_expiration < ? THEN 2 ELSE 1 END AS valeur_a_risque " +
+            "FROM stock s JOIN produits p ON p.id = s.produit_id " +
+            "LEFT JOIN (SELECT pv.produit_id, MAX(v.date_vente) AS derniere_vente, " +
+            "SUM(CASE WHEN v.date_vente >= ? THEN pv.quantite ELSE 0 END) AS vendus " +
+            "FROM produits_vendus pv JOIN ventes v ON v.id = pv.vente_id GROUP BY pv.produit_id) dv " +
+            "ON dv.produit_id = s.produit_id " +
+            "WHERE s.expire = FALSE AND s.quantite_disponible > 0 AND COALESCE(dv.vendus, 0) <= ? " +
+            "ORDER BY ";
+
+    /**
+     * Ordres de tri du rapport
+     */
+    public enum Tri {
+        VALEUR_A_RISQUE("Valeur à risque", "valeur_a_risque DESC, s.id"),
+        VALEUR("Valeur immobilisée", "valeur DESC, s.id"),
+        EXPIRATION("Expiration la plus proche", "s.date_expiration, s.id"),
+        DERNIERE_VENTE("Dernière vente la plus ancienne", "dv.derniere_vente, s.id"),
+        PRODUIT("Produit", "p.nom, s.lot_numero, s.id");
+
+        private final String libelle;
+        private final String ordre;
+
+        Tri(String libelle, String ordre) {
+            this.libelle = libelle;
+            this.ordre = ordre;
+        }
+
+        @Override
+        public String toString() {
+            return libelle;
+        }
+    }
+
+    /**
+     * Lit en flux les lots vendables dont le produit s'est vendu au plus à une quantité
+     * donnée sur la période
+     *
+     * @param joursSansVente La période, en jours jusqu'à aujourd'hui
+     * @param quantiteMaximum La quantité vendue au-delà de laquelle le produit n'est pas dormant ;
+     *                        0 pour ne garder que les produits sans aucune vente
+     * @param tri L'ordre dans lequel les lots sont remis
+     * @param consommateur Reçoit chaque lot du rapport
+     * @return Le nombre de lots lus
+     * @throws SQLException si une erreur SQL survient
+     */
+    public int parcourir(int joursSansVente, int quantiteMaximum, Tri tri, Consumer<LotDormant> consommateur)
+            throws SQLException {
+        LocalDate aujourdhui = LocalDate.now();
+        int lots = 0;
+
+        try (Connection conn = DatabaseConfig.getConnectionLectureEnFlux();
+             PreparedStatement pstmt = conn.prepareStatement(SELECT_LOTS_DORMANTS + tri.ordre,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            pstmt.setFetchSize(TAILLE_FETCH);
+            pstmt.setDate(1, Date.valueOf(aujourdhui.plusDays(EXPIRATION_PROCHE_JOURS)));
+            pstmt.setDate(2, Date.valueOf(aujourdhui.plusDays(EXPIRATION_MOYENNE_JOURS)));
+            pstmt.setTimestamp(3, Timestamp.valueOf(aujourdhui.minusDays(joursSansVente).atStartOfDay()));
+            pstmt.setInt(4, quantiteMaximum);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Timestamp derniereVente = rs.getTimestamp("derniere_vente");
+                    BigDecimal valeur = rs.getBigDecimal("valeur");
+                    BigDecimal valeurARisque = rs.getBigDecimal("valeur_a_risque");
+                    consommateur.accept(new LotDormant(
+                            rs.getInt("stock_id"),
+                            rs.getInt("produit_id"),
+                            rs.getString("nom"),
+                            rs.getString("lot_numero"),
+                            rs.getInt("quantite_disponible"),
+                            rs.getDate("date_expiration").toLocalDate(),
+                            rs.getBigDecimal("prix_achat"),
+                            derniereVente != null ? derniereVente.toLocalDateTime() : null,
+                            rs.getInt("vendus"),
+                            valeur != null ? valeur : BigDecimal.ZERO,
+                            valeurARisque != null ? valeurARisque : BigDecimal.ZERO));
+                    lots++;
+                }
+            }
+        }
+        return lots;
+    }
+}
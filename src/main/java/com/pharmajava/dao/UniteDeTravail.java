@@ -0,0 +1,170 @@
+package com.pharmajava.dao;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Unité de travail portant une carte d'identité des entités chargées
+ * (Produit, Pharmacien, Client) pour le thread courant.
+ *
+ * Ouverte par les contrôleurs le temps d'une opération, elle garantit une seule
+ * instance par clé primaire : les DAO la consultent avant d'aller en base et y
+ * enregistrent ce qu'ils chargent. Les écritures des DAO en retirent l'entité
+ * modifiée. Les unités imbriquées partagent l'unité englobante, libérée à la
+ * fermeture la plus externe.
+ *
+ * <pre>
+ * try (UniteDeTravail ignored = UniteDeTravail.ouvrir()) {
+ *     return venteDAO.obtenirParPeriode(debut, fin);
+ * }
+ * </pre>
+ */
+public final class UniteDeTravail implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(UniteDeTravail.class.getName());
+    private static final ThreadLocal<UniteDeTravail> COURANTE = new ThreadLocal<>();
+
+    // Compteurs cumulés de toutes les unités depuis le démarrage
+    private static final AtomicLong TOTAL_SUCCES = new AtomicLong();
+    private static final AtomicLong TOTAL_ECHECS = new AtomicLong();
+
+    private final Map<Class<?>, Map<Integer, Object>> entites = new HashMap<>();
+    private int profondeur;
+    private long succes;
+    private long echecs;
+
+    private UniteDeTravail() {
+    }
+
+    /**
+     * Ouvre une unité de travail sur le thread courant, ou rejoint celle qui est
+     * déjà ouverte
+     *
+     * @return L'unité de travail à fermer en fin d'opération
+     */
+    public static UniteDeTravail ouvrir() {
+        UniteDeTravail unite = COURANTE.get();
+        if (unite == null) {
+            unite = new UniteDeTravail();
+            COURANTE.set(unite);
+        }
+        unite.profondeur++;
+        return unite;
+    }
+
+    /**
+     * Obtient l'unité de travail ouverte sur le thread courant
+     *
+     * @return L'unité courante ou null si aucune n'est ouverte
+     */
+    public static UniteDeTravail courante() {
+        return COURANTE.get();
+    }
+
+    /**
+     * Cherche une entité déjà chargée dans l'unité courante
+     *
+     * @param type Le type de l'entité
+     * @param id La clé primaire
+     * @return L'instance connue ou null (absente, ou aucune unité ouverte)
+     */
+    static <T> T chercher(Class<T> type, Integer id) {
+        UniteDeTravail unite = COURANTE.get();
+        if (unite == null || id == null) {
+            return null;
+        }
+
+        Map<Integer, Object> parId = unite.entites.get(type);
+        Object instance = parId != null ? parId.get(id) : null;
+        if (instance != null) {
+            unite.succes++;
+            TOTAL_SUCCES.incrementAndGet();
+            return type.cast(instance);
+        }
+
+        unite.echecs++;
+        TOTAL_ECHECS.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Enregistre une entité chargée depuis la base et renvoie l'instance de
+     * référence de l'unité courante pour cette clé
+     *
+     * @param type Le type de l'entité
+     * @param id La clé primaire
+     * @param instance L'instance qui vient d'être chargée
+     * @return L'instance déjà connue pour cette clé, sinon celle fournie
+     */
+    static <T> T canonique(Class<T> type, Integer id, T instance) {
+        UniteDeTravail unite = COURANTE.get();
+        if (unite == null || id == null || instance == null) {
+            return instance;
+        }
+
+        Map<Integer, Object> parId = unite.entites.computeIfAbsent(type, t -> new HashMap<>());
+        Object existante = parId.putIfAbsent(id, instance);
+        return existante != null ? type.cast(existante) : instance;
+    }
+
+    /**
+     * Retire une entité de l'unité courante après une écriture en base
+     *
+     * @param type Le type de l'entité
+     * @param id La clé primaire
+     */
+    static void oublier(Class<?> type, Integer id) {
+        UniteDeTravail unite = COURANTE.get();
+        if (unite == null || id == null) {
+            return;
+        }
+
+        Map<Integer, Object> parId = unite.entites.get(type);
+        if (parId != null) {
+            parId.remove(id);
+        }
+    }
+
+    /**
+     * @return Le nombre de recherches servies par l'unité sans aller en base
+     */
+    public long getSucces() {
+        return succes;
+    }
+
+    /**
+     * @return Le nombre de recherches qui ont dû aller en base
+     */
+    public long getEchecs() {
+        return echecs;
+    }
+
+    /**
+     * @return Le nombre cumulé d'allers-retours évités depuis le démarrage
+     */
+    public static long getTotalSucces() {
+        return TOTAL_SUCCES.get();
+    }
+
+    /**
+     * @return Le nombre cumulé de recherches parties en base depuis le démarrage
+     */
+    public static long getTotalEchecs() {
+        return TOTAL_ECHECS.get();
+    }
+
+    /**
+     * Ferme l'unité ; elle n'est libérée qu'à la fermeture la plus externe
+     */
+    @Override
+    public void close() {
+        if (--profondeur > 0) {
+            return;
+        }
+
+        COURANTE.remove();
+        entites.clear();
+        LOGGER.fine("Unité de travail fermée: " + succes + " succès, " + echecs + " échecs");
+    }
+}
@@ -1,6 +1,6 @@
 package com.pharmajava.dao;
 
-import com.pharmajava.dao.StockDAO;
+import com.pharmajava.model.AllocationLot;
 import com.pharmajava.model.Pharmacien;
 import com.pharmajava.model.Produit;
 import com.pharmajava.model.ProduitVendu;
@@ -12,7 +12,12 @@ import java.math.BigDecimal;
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -24,6 +29,8 @@ public class VenteDAO {
     private final PharmacienDAO pharmacienDAO = new PharmacienDAO();
     private final ProduitDAO produitDAO = new ProduitDAO();
     private final ClientDAO clientDAO = new ClientDAO();
+    private final StockDAO stockDAO = new StockDAO();
+    private boolean chargementGraphe = true;
 
     /**
      * Ajoute une nouvelle vente avec ses produits vendus
@@ -33,6 +40,7 @@ public class VenteDAO {
      */
     public Vente ajouter(Vente vente) {
         Connection conn = null;
+        List<AllocationLot> prelevements = new ArrayList<>();
         try {
             conn = DatabaseConfig.getConnection();
             conn.setAutoCommit(false); // Démarrer une transaction
@@ -83,51 +91,57 @@ public class VenteDAO {
                 String sqlProduitVendu = "INSERT INTO produits_vendus (vente_id, produit_id, quantite, " +
                         "prix_unitaire, prix_total) VALUES (?, ?, ?, ?, ?)";
 
-                // Créer une instance de StockDAO pour diminuer les stocks par lot
-                StockDAO stockDAO = new StockDAO();
+                for (ProduitVendu produitVendu : vente.getProduitsVendus()) {
+                    if (produitVendu.getProduit() == null || produitVendu.getProduit().getId() == null) {
+                        throw new SQLException("Produit non défini dans la vente");
+                    }
+                }
+
+                // Diminuer le stock par lot dans la transaction de la vente. Les lots sont
+                // verrouillés par ordre d'ID produit pour que deux caisses ne s'interbloquent pas.
+                List<ProduitVendu> parProduit = new ArrayList<>(vente.getProduitsVendus());
+                parProduit.sort(Comparator.comparing(pv -> pv.getProduit().getId()));
+
+                for (ProduitVendu produitVendu : parProduit) {
+                    Produit produit = produitVendu.getProduit();
+                    prelevements.addAll(stockDAO.preleverParLot(conn, produit.getId(),
+                            produitVendu.getQuantite(), vente.getId()));
+                }
 
                 try (PreparedStatement pstmt = conn.prepareStatement(sqlProduitVendu,
                         Statement.RETURN_GENERATED_KEYS)) {
                     for (ProduitVendu produitVendu : vente.getProduitsVendus()) {
                         pstmt.setInt(1, vente.getId());
-
-                        // Si le produit est défini, utiliser son ID
-                        if (produitVendu.getProduit() != null && produitVendu.getProduit().getId() != null) {
-                            Produit produit = produitVendu.getProduit();
-                            int produitId = produit.getId();
-                            int quantite = produitVendu.getQuantite();
-
-                            pstmt.setInt(2, produitId);
-
-                            // Diminuer le stock par lot (utilisant la nouvelle méthode)
-                            boolean stockMisAJour = stockDAO.diminuerStockParLot(produitId, quantite);
-                            if (!stockMisAJour) {
-                                throw new SQLException(
-                                        "Erreur lors de la mise à jour du stock pour le produit: " + produit.getNom());
-                            }
-                        } else {
-                            throw new SQLException("Produit non défini dans la vente");
-                        }
-
+                        pstmt.setInt(2, produitVendu.getProduit().getId());
                         pstmt.setInt(3, produitVendu.getQuantite());
                         pstmt.setBigDecimal(4, produitVendu.getPrixUnitaire());
                         pstmt.setBigDecimal(5, produitVendu.getPrixTotal());
 
-                        pstmt.executeUpdate();
+                        pstmt.addBatch();
+                    }
 
-                        // Récupérer l'ID généré pour le produit vendu
-                        try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
-                            if (generatedKeys.next()) {
-                                produitVendu.setId(generatedKeys.getInt(1));
-                                produitVendu.setVenteId(vente.getId());
+                    // Toutes les lignes en un seul envoi (réécrit en INSERT multi-lignes par le pilote)
+                    pstmt.executeBatch();
+
+                    // Les IDs générés sont renvoyés dans l'ordre des lignes du lot
+                    try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                        for (ProduitVendu produitVendu : vente.getProduitsVendus()) {
+                            if (!generatedKeys.next()) {
+                                throw new SQLException("La création des produits vendus a échoué, IDs manquants.");
                             }
+                            produitVendu.setId(generatedKeys.getInt(1));
+                            produitVendu.setVenteId(vente.getId());
                         }
                     }
                 }
             }
 
-            // Valider la transaction
+            // Valider la transaction, puis reporter les prélèvements dans l'index des lots
+            long avantValidation = IndexLots.getInstance().avantValidation();
             conn.commit();
+            IndexLots.getInstance().prelevementsValides(prelevements, avantValidation);
+            SeuilsAlerte.getInstance().prelevementsValides(prelevements);
+            VitessesVente.getInstance().venteValidee(vente);
             return vente;
 
         } catch (SQLException e) {
@@ -189,26 +203,17 @@ public class VenteDAO {
      * @return Une liste de toutes les ventes
      */
     public List<Vente> obtenirToutes() {
-        List<Vente> ventes = new ArrayList<>();
         String sql = "SELECT * FROM ventes ORDER BY date_vente DESC";
 
         try (Connection conn = DatabaseConfig.getConnection();
-                PreparedStatement pstmt = conn.prepareStatement(sql);
-                ResultSet rs = pstmt.executeQuery()) {
-
-            while (rs.next()) {
-                Vente vente = convertirResultSet(rs);
-
-                // Récupérer les produits vendus pour cette vente
-                vente.setProduitsVendus(obtenirProduitsVendus(vente.getId()));
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
-                ventes.add(vente);
-            }
+            return chargerVentes(conn, pstmt);
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Erreur lors de la récupération de toutes les ventes", e);
         }
 
-        return ventes;
+        return new ArrayList<>();
     }
 
     /**
@@ -219,7 +224,6 @@ public class VenteDAO {
      * @return Liste des ventes dans la période
      */
     public List<Vente> obtenirParPeriode(LocalDateTime debut, LocalDateTime fin) {
-        List<Vente> ventes = new ArrayList<>();
         String sql = "SELECT * FROM ventes WHERE date_vente BETWEEN ? AND ? ORDER BY date_vente DESC";
 
         try (Connection conn = DatabaseConfig.getConnection();
@@ -228,21 +232,12 @@ public class VenteDAO {
             pstmt.setTimestamp(1, Timestamp.valueOf(debut));
             pstmt.setTimestamp(2, Timestamp.valueOf(fin));
 
-            try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    Vente vente = convertirResultSet(rs);
-
-                    // Récupérer les produits vendus pour cette vente
-                    vente.setProduitsVendus(obtenirProduitsVendus(vente.getId()));
-
-                    ventes.add(vente);
-                }
-            }
+            return chargerVentes(conn, pstmt);
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Erreur lors de la récupération des ventes par période", e);
         }
 
-        return ventes;
+        return new ArrayList<>();
     }
 
     /**
@@ -253,7 +248,6 @@ public class VenteDAO {
      *         trouvée
      */
     public List<Vente> obtenirParClient(int clientId) {
-        List<Vente> ventes = new ArrayList<>();
         String sql = "SELECT * FROM ventes WHERE client_id = ? ORDER BY date_vente DESC";
 
         try (Connection conn = DatabaseConfig.getConnection();
@@ -261,6 +255,47 @@ public class VenteDAO {
 
             pstmt.setInt(1, clientId);
 
+            return chargerVentes(conn, pstmt);
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors de la récupération des ventes par client", e);
+        }
+
+        return new ArrayList<>();
+    }
+
+    /**
+     * Indique si les listes de ventes sont chargées par requêtes ensemblistes
+     * 
+     * @return true si le chargement du graphe est actif
+     */
+    public boolean isChargementGraphe() {
+        return chargementGraphe;
+    }
+
+    /**
+     * Active ou désactive le chargement du graphe des ventes par requêtes
+     * ensemblistes. Désactivé, chaque vente est complétée par des requêtes
+     * unitaires (pharmacien, client, produits vendus puis produit de chaque ligne).
+     * 
+     * @param chargementGraphe true pour activer le chargement du graphe
+     */
+    public void setChargementGraphe(boolean chargementGraphe) {
+        this.chargementGraphe = chargementGraphe;
+    }
+
+    /**
+     * Exécute une requête sur la table ventes et construit les ventes avec leurs
+     * références (pharmacien, client, produits vendus et produits)
+     * 
+     * @param conn  La connexion sur laquelle la requête a été préparée
+     * @param pstmt La requête paramétrée sur la table ventes
+     * @return La liste des ventes dans l'ordre de la requête
+     * @throws SQLException Si une erreur survient lors de l'accès aux données
+     */
+    private List<Vente> chargerVentes(Connection conn, PreparedStatement pstmt) throws SQLException {
+        List<Vente> ventes = new ArrayList<>();
+
+        if (!chargementGraphe) {
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
                     Vente vente = convertirResultSet(rs);
@@ -271,13 +306,95 @@ public class VenteDAO {
                     ventes.add(vente);
                 }
             }
-        } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Erreur lors de la récupération des ventes par client", e);
+            return ventes;
+        }
+
+        // 1. Les ventes, en gardant les IDs des références à résoudre
+        List<Integer> pharmacienIdsParVente = new ArrayList<>();
+        List<Integer> clientIdsParVente = new ArrayList<>();
+        Map<Integer, Vente> ventesParId = new HashMap<>();
+
+        try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                Vente vente = lireVente(rs);
+
+                int pharmacienId = rs.getInt("pharmacien_id");
+                pharmacienIdsParVente.add(rs.wasNull() ? null : pharmacienId);
+
+                int clientId = rs.getInt("client_id");
+                clientIdsParVente.add(rs.wasNull() ? null : clientId);
+
+                ventes.add(vente);
+                ventesParId.put(vente.getId(), vente);
+            }
+        }
+
+        if (ventes.isEmpty()) {
+            return ventes;
+        }
+
+        // 2. Les pharmaciens et clients référencés, une requête par lot d'IDs
+        Map<Integer, Pharmacien> pharmaciens = pharmacienDAO.obtenirParIds(conn,
+                sansDoublons(pharmacienIdsParVente));
+        Map<Integer, Client> clients = clientDAO.obtenirParIds(conn, sansDoublons(clientIdsParVente));
+
+        for (int i = 0; i < ventes.size(); i++) {
+            Vente vente = ventes.get(i);
+            Integer pharmacienId = pharmacienIdsParVente.get(i);
+            Integer clientId = clientIdsParVente.get(i);
+            vente.setPharmacien(pharmacienId != null ? pharmaciens.get(pharmacienId) : null);
+            vente.setClient(clientId != null ? clients.get(clientId) : null);
+        }
+
+        // 3. Les lignes de toutes les ventes, puis les produits référencés
+        List<ProduitVendu> lignes = new ArrayList<>();
+        List<Integer> produitIdsParLigne = new ArrayList<>();
+
+        for (List<Integer> lot : RequetesParLots.decouper(ventesParId.keySet())) {
+            String sql = "SELECT * FROM produits_vendus WHERE vente_id IN ("
+                    + RequetesParLots.marqueurs(lot.size()) + ") ORDER BY id";
+
+            try (PreparedStatement pstmtLignes = conn.prepareStatement(sql)) {
+                for (int i = 0; i < lot.size(); i++) {
+                    pstmtLignes.setInt(i + 1, lot.get(i));
+                }
+
+                try (ResultSet rs = pstmtLignes.executeQuery()) {
+                    while (rs.next()) {
+                        lignes.add(lireProduitVendu(rs));
+                        produitIdsParLigne.add(rs.getInt("produit_id"));
+                    }
+                }
+            }
+        }
+
+        Map<Integer, Produit> produits = produitDAO.obtenirParIds(conn, sansDoublons(produitIdsParLigne));
+
+        for (int i = 0; i < lignes.size(); i++) {
+            ProduitVendu produitVendu = lignes.get(i);
+            produitVendu.setProduit(produits.get(produitIdsParLigne.get(i)));
+            ventesParId.get(produitVendu.getVenteId()).getProduitsVendus().add(produitVendu);
         }
 
         return ventes;
     }
 
+    /**
+     * Extrait les IDs distincts et non nuls d'une liste
+     * 
+     * @param ids La liste d'IDs, éventuellement avec des doublons ou des null
+     * @return L'ensemble des IDs distincts
+     */
+    private static Set<Integer> sansDoublons(List<Integer> ids) {
+        Set<Integer> distincts = new LinkedHashSet<>();
+        for (Integer id : ids) {
+            if (id != null) {
+                distincts.add(id);
+            }
+        }
+        return distincts;
+    }
+
     /**
      * Récupère les produits vendus pour une vente donnée
      * 
@@ -295,19 +412,12 @@ public class VenteDAO {
 
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
-                    ProduitVendu produitVendu = new ProduitVendu();
-
-                    produitVendu.setId(rs.getInt("id"));
-                    produitVendu.setVenteId(rs.getInt("vente_id"));
+                    ProduitVendu produitVendu = lireProduitVendu(rs);
 
                     int produitId = rs.getInt("produit_id");
                     Produit produit = produitDAO.obtenirParId(produitId);
                     produitVendu.setProduit(produit);
 
-                    produitVendu.setQuantite(rs.getInt("quantite"));
-                    produitVendu.setPrixUnitaire(rs.getBigDecimal("prix_unitaire"));
-                    produitVendu.setPrixTotal(rs.getBigDecimal("prix_total"));
-
                     produitsVendus.add(produitVendu);
                 }
             }
@@ -319,33 +429,63 @@ public class VenteDAO {
     }
 
     /**
-     * Convertit un ResultSet en objet Vente
+     * Convertit une ligne de produits_vendus en objet ProduitVendu, sans son produit
      * 
-     * @param rs Le ResultSet à convertir
-     * @return Un objet Vente
+     * @param rs Le ResultSet positionné sur la ligne
+     * @return Un objet ProduitVendu dont le produit reste à renseigner
      * @throws SQLException Si une erreur survient lors de l'accès aux données
      */
-    private Vente convertirResultSet(ResultSet rs) throws SQLException {
+    private ProduitVendu lireProduitVendu(ResultSet rs) throws SQLException {
+        ProduitVendu produitVendu = new ProduitVendu();
+
+        produitVendu.setId(rs.getInt("id"));
+        produitVendu.setVenteId(rs.getInt("vente_id"));
+        produitVendu.setQuantite(rs.getInt("quantite"));
+        produitVendu.setPrixUnitaire(rs.getBigDecimal("prix_unitaire"));
+        produitVendu.setPrixTotal(rs.getBigDecimal("prix_total"));
+
+        return produitVendu;
+    }
+
+    /**
+     * Convertit une ligne de ventes en objet Vente, sans pharmacien ni client
+     * 
+     * @param rs Le ResultSet positionné sur la ligne
+     * @return Un objet Vente dont les références restent à renseigner
+     * @throws SQLException Si une erreur survient lors de l'accès aux données
+     */
+    private Vente lireVente(ResultSet rs) throws SQLException {
         Integer id = rs.getInt("id");
         LocalDateTime dateVente = rs.getTimestamp("date_vente").toLocalDateTime();
         BigDecimal montantTotal = rs.getBigDecimal("montant_total");
         BigDecimal montantPercu = rs.getBigDecimal("montant_percu");
         BigDecimal montantRendu = rs.getBigDecimal("montant_rendu");
 
+        return new Vente(id, dateVente, montantTotal, montantPercu, montantRendu, null, null);
+    }
+
+    /**
+     * Convertit un ResultSet en objet Vente
+     * 
+     * @param rs Le ResultSet à convertir
+     * @return Un objet Vente
+     * @throws SQLException Si une erreur survient lors de l'accès aux données
+     */
+    private Vente convertirResultSet(ResultSet rs) throws SQLException {
+        Vente vente = lireVente(rs);
+
         // Récupérer le pharmacien
         Integer pharmacienId = rs.getInt("pharmacien_id");
-        Pharmacien pharmacien = null;
         if (!rs.wasNull()) {
-            pharmacien = pharmacienDAO.obtenirParId(pharmacienId);
+            vente.setPharmacien(pharmacienDAO.obtenirParId(pharmacienId));
         }
 
         // Récupérer le client (s'il existe)
         Integer clientId = rs.getInt("client_id");
-        Client client = null;
         if (!rs.wasNull()) {
-            client = clientDAO.obtenirParId(clientId);
+            vente.setClient(clientDAO.obtenirParId(clientId));
         }
 
-        return new Vente(id, dateVente, montantTotal, montantPercu, montantRendu, pharmacien, client);
+        return vente;
     }
 }
\ No newline at end of file
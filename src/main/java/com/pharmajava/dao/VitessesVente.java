@@ -0,0 +1,242 @@
+package com.pharmajava.dao;
+
+import com.pharmajava.model.ProduitVendu;
+import com.pharmajava.model.Vente;
+import com.pharmajava.model.VitesseVente;
+import com.pharmajava.utils.DatabaseConfig;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Compteurs en mémoire des quantités vendues par produit et par jour, sur les 90 derniers jours.
+ *
+ * Chaque produit a un tampon circulaire de 90 totaux journaliers (un tableau d'entiers
+ * indexé par le numéro du jour modulo 90) et les sommes glissantes sur 7, 30 et 90 jours.
+ * Une vente validée ajoute ses quantités au jour courant en temps constant ; le passage
+ * d'un jour à l'autre retire des sommes les jours sortis des fenêtres et remet leur case
+ * à zéro. Les compteurs sont reconstruits au démarrage en une seule lecture, groupée par
+ * produit et par jour, de l'historique des 90 derniers jours ;
+ * {@link #resynchroniserJour()} y reporte périodiquement les ventes des autres caisses.
+ */
+public final class VitessesVente {
+    private static final Logger LOGGER = Logger.getLogger(VitessesVente.class.getName());
+
+    /** Profondeur de l'historique conservé, en jours */
+    public static final int JOURS = 90;
+
+    private static final int TAILLE_FETCH = 1000;
+
+    private static final String SELECT_TOTAUX_JOURNALIERS =
+            "SELECT pv.produit_id, CAST(v.date_vente AS DATE) AS jour, SUM(pv.quantite) AS quantite " +
+            "FROM ventes v JOIN produits_vendus pv ON pv.vente_id = v.id " +
+            "WHERE v.date_vente >= ? GROUP BY pv.produit_id, CAST(v.date_vente AS DATE)";
+
+    private static VitessesVente instance;
+
+    private final Map<Integer, Compteur> compteurs = new ConcurrentHashMap<>();
+
+    private VitessesVente() {
+    }
+
+    /**
+     * Obtient l'instance unique des compteurs
+     *
+     * @return L'instance des compteurs
+     */
+    public static synchronized VitessesVente getInstance() {
+        if (instance == null) {
+            instance = new VitessesVente();
+        }
+        return instance;
+    }
+
+    /**
+     * Reconstruit les compteurs depuis l'historique des ventes des 90 derniers jours,
+     * lu en flux (une ligne par produit et par jour)
+     *
+     * @throws SQLException si une erreur SQL survient
+     */
+    public void charger() throws SQLException {
+        long debut = System.nanoTime();
+        long aujourdhui = LocalDate.now().toEpochDay();
+        Map<Integer, Compteur> lus = new HashMap<>();
+        int lignes = 0;
+
+        try (Connection conn = DatabaseConfig.getConnectionLectureEnFlux();
+             PreparedStatement pstmt = conn.prepareStatement(SELECT_TOTAUX_JOURNALIERS)) {
+            pstmt.setFetchSize(TAILLE_FETCH);
+            pstmt.setTimestamp(1, Timestamp.valueOf(LocalDate.now().minusDays(JOURS - 1).atStartOfDay()));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Compteur compteur = lus.computeIfAbsent(rs.getInt("produit_id"), id -> new Compteur(aujourdhui));
+                    compteur.ajouter(rs.getDate("jour").toLocalDate().toEpochDay(), rs.getInt("quantite"), aujourdhui);
+                    lignes++;
+                }
+            }
+        }
+
+        compteurs.keySet().retainAll(lus.keySet());
+        compteurs.putAll(lus);
+        LOGGER.info("Vitesses de vente reconstruites pour " + lus.size() + " produit(s) (" + lignes
+                + " totaux journaliers) en " + (System.nanoTime() - debut) / 1_000_000 + " ms");
+    }
+
+    /**
+     * Obtient les ventes d'un produit sur 7, 30 et 90 jours
+     *
+     * @param produitId L'ID du produit
+     * @return Les quantités vendues et moyennes journalières ; zéro si le produit n'a pas été vendu
+     */
+    public VitesseVente vitesse(int produitId) {
+        Compteur compteur = compteurs.get(produitId);
+        if (compteur == null) {
+            return new VitesseVente(produitId, 0, 0, 0);
+        }
+        return compteur.lire(produitId, LocalDate.now().toEpochDay());
+    }
+
+    /**
+     * Remplace les totaux du jour par ceux de la base, pour y inclure les ventes
+     * validées par les autres caisses
+     *
+     * @return Le nombre de produits dont le total du jour a changé
+     * @throws SQLException si une erreur SQL survient
+     */
+    public int resynchroniserJour() throws SQLException {
+        LocalDate date = LocalDate.now();
+        long aujourdhui = date.toEpochDay();
+        Map<Integer, Integer> totaux = new HashMap<>();
+
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SELECT_TOTAUX_JOURNALIERS)) {
+            pstmt.setTimestamp(1, Timestamp.valueOf(date.atStartOfDay()));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    if (rs.getDate("jour").toLocalDate().equals(date)) {
+                        totaux.put(rs.getInt("produit_id"), rs.getInt("quantite"));
+                    }
+                }
+            }
+        }
+
+        int modifies = 0;
+        for (Map.Entry<Integer, Integer> total : totaux.entrySet()) {
+            Compteur compteur = compteurs.computeIfAbsent(total.getKey(), id -> new Compteur(aujourdhui));
+            if (compteur.remplacerJour(aujourdhui, total.getValue())) {
+                modifies++;
+            }
+        }
+        for (Map.Entry<Integer, Compteur> entree : compteurs.entrySet()) {
+            if (!totaux.containsKey(entree.getKey()) && entree.getValue().remplacerJour(aujourdhui, 0)) {
+                modifies++;
+            }
+        }
+        return modifies;
+    }
+
+    /**
+     * Ajoute les quantités d'une vente validée
+     *
+     * @param vente La vente dont la transaction vient d'être validée
+     */
+    void venteValidee(Vente vente) {
+        long aujourdhui = LocalDate.now().toEpochDay();
+        long jour = vente.getDateVente() != null ? vente.getDateVente().toLocalDate().toEpochDay() : aujourdhui;
+        for (ProduitVendu produitVendu : vente.getProduitsVendus()) {
+            if (produitVendu.getProduit() == null || produitVendu.getProduit().getId() == null) {
+                continue;
+            }
+            compteurs.computeIfAbsent(produitVendu.getProduit().getId(), id -> new Compteur(aujourdhui))
+                    .ajouter(jour, produitVendu.getQuantite(), aujourdhui);
+        }
+    }
+
+    /**
+     * Tampon circulaire des totaux journaliers d'un produit ; accès sous son propre verrou
+     * Les jours sont des numéros de jour (LocalDate.toEpochDay()).
+     */
+    static final class Compteur {
+        private final int[] jours = new int[JOURS];
+        private long dernierJour;
+        private int somme7;
+        private int somme30;
+        private int somme90;
+
+        Compteur(long aujourdhui) {
+            this.dernierJour = aujourdhui;
+        }
+
+        synchronized void ajouter(long jour, int quantite, long aujourdhui) {
+            avancer(aujourdhui);
+            long age = dernierJour - jour;
+            if (age < 0 || age >= JOURS) {
+                return;
+            }
+            jours[indice(jour)] += quantite;
+            if (age < 7) {
+                somme7 += quantite;
+            }
+            if (age < 30) {
+                somme30 += quantite;
+            }
+            somme90 += quantite;
+        }
+
+        synchronized boolean remplacerJour(long aujourdhui, int total) {
+            avancer(aujourdhui);
+            int ecart = total - jours[indice(aujourdhui)];
+            if (ecart == 0) {
+                return false;
+            }
+            jours[indice(aujourdhui)] = total;
+            somme7 += ecart;
+            somme30 += ecart;
+            somme90 += ecart;
+            return true;
+        }
+
+        synchronized VitesseVente lire(int produitId, long aujourdhui) {
+            avancer(aujourdhui);
+            return new VitesseVente(produitId, somme7, somme30, somme90);
+        }
+
+        /**
+         * Fait glisser les fenêtres jusqu'à aujourd'hui : chaque nouveau jour retire
+         * des sommes les jours qui sortent de leur fenêtre, puis vide sa case
+         */
+        private void avancer(long aujourdhui) {
+            if (aujourdhui <= dernierJour) {
+                return;
+            }
+            if (aujourdhui - dernierJour >= JOURS) {
+                Arrays.fill(jours, 0);
+                somme7 = 0;
+                somme30 = 0;
+                somme90 = 0;
+                dernierJour = aujourdhui;
+                return;
+            }
+            for (long jour = dernierJour + 1; jour <= aujourdhui; jour++) {
+                somme7 -= jours[indice(jour - 7)];
+                somme30 -= jours[indice(jour - 30)];
+                somme90 -= jours[indice(jour)];
+                jours[indice(jour)] = 0;
+            }
+            dernierJour = aujourdhui;
+        }
+
+        private static int indice(long jour) {
+            return (int) Math.floorMod(jour, (long) JOURS);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.pharmajava.model;
+
+import java.time.LocalDate;
+
+/**
+ * Classe représentant la part d'une sortie de stock prélevée sur un lot
+ * (allocation premier expiré, premier sorti)
+ */
+public class AllocationLot {
+    private final Integer stockId;
+    private final Integer produitId;
+    private final String numeroLot;
+    private final LocalDate dateExpiration;
+    private final int quantitePrelevee;
+    private final int quantiteRestante;
+
+    /**
+     * Constructeur complet
+     * 
+     * @param stockId L'ID du lot
+     * @param produitId L'ID du produit
+     * @param numeroLot Le numéro du lot
+     * @param dateExpiration La date d'expiration du lot
+     * @param quantitePrelevee La quantité prélevée sur le lot
+     * @param quantiteRestante La quantité restant dans le lot après prélèvement
+     */
+    public AllocationLot(Integer stockId, Integer produitId, String numeroLot, LocalDate dateExpiration,
+                         int quantitePrelevee, int quantiteRestante) {
+        this.stockId = stockId;
+        this.produitId = produitId;
+        this.numeroLot = numeroLot;
+        this.dateExpiration = dateExpiration;
+        this.quantitePrelevee = quantitePrelevee;
+        this.quantiteRestante = quantiteRestante;
+    }
+
+    // Getters
+    public Integer getStockId() {
+        return stockId;
+    }
+
+    public Integer getProduitId() {
+        return produitId;
+    }
+
+    public String getNumeroLot() {
+        return numeroLot;
+    }
+
+    public LocalDate getDateExpiration() {
+        return dateExpiration;
+    }
+
+    public int getQuantitePrelevee() {
+        return quantitePrelevee;
+    }
+
+    public int getQuantiteRestante() {
+        return quantiteRestante;
+    }
+
+    @Override
+    public String toString() {
+        return "AllocationLot{" +
+                "stockId=" + stockId +
+                ", numeroLot='" + numeroLot + '\'' +
+                ", quantitePrelevee=" + quantitePrelevee +
+                ", quantiteRestante=" + quantiteRestante +
+                '}';
+    }
+}
@@ -0,0 +1,45 @@
+package com.pharmajava.model;
+
+/**
+ * Classe représentant le résultat d'un recalcul global des quantités en stock des produits
+ */
+public class BilanRecalculStock {
+    private final int lignesModifiees;
+    private final int tranches;
+    private final long dureeMs;
+
+    /**
+     * Constructeur complet
+     * 
+     * @param lignesModifiees Le nombre de produits dont la quantité a changé
+     * @param tranches Le nombre de tranches d'IDs traitées
+     * @param dureeMs La durée totale du recalcul en millisecondes
+     */
+    public BilanRecalculStock(int lignesModifiees, int tranches, long dureeMs) {
+        this.lignesModifiees = lignesModifiees;
+        this.tranches = tranches;
+        this.dureeMs = dureeMs;
+    }
+
+    // Getters
+    public int getLignesModifiees() {
+        return lignesModifiees;
+    }
+
+    public int getTranches() {
+        return tranches;
+    }
+
+    public long getDureeMs() {
+        return dureeMs;
+    }
+
+    @Override
+    public String toString() {
+        return "BilanRecalculStock{" +
+                "lignesModifiees=" + lignesModifiees +
+                ", tranches=" + tranches +
+                ", dureeMs=" + dureeMs +
+                '}';
+    }
+}
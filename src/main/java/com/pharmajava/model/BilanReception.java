@@ -0,0 +1,152 @@
+package com.pharmajava.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Classe représentant le résultat de la réception d'une livraison, ligne par ligne
+ */
+public class BilanReception {
+
+    /**
+     * Issue de l'enregistrement d'une ligne de la livraison
+     */
+    public static class Ligne {
+        private final int numero;
+        private final Stock stock;
+        private final boolean enregistree;
+        private final String motif;
+        private final Integer stockId;
+
+        /**
+         * Constructeur d'une ligne rejetée
+         *
+         * @param numero La position de la ligne dans la livraison, à partir de 1
+         * @param stock Le lot de la ligne
+         * @param enregistree true si le lot a été enregistré
+         * @param motif La raison du rejet, null si la ligne a été enregistrée
+         */
+        public Ligne(int numero, Stock stock, boolean enregistree, String motif) {
+            this(numero, stock, enregistree, motif, null);
+        }
+
+        /**
+         * Constructeur complet
+         *
+         * @param numero La position de la ligne dans la livraison, à partir de 1
+         * @param stock Le lot de la ligne ; son ID n'est renseigné qu'après la validation de la transaction
+         * @param enregistree true si le lot a été enregistré
+         * @param motif La raison du rejet, null si la ligne a été enregistrée
+         * @param stockId L'ID généré pour le lot dans la transaction, null si la ligne a été rejetée
+         */
+        public Ligne(int numero, Stock stock, boolean enregistree, String motif, Integer stockId) {
+            this.numero = numero;
+            this.stock = stock;
+            this.enregistree = enregistree;
+            this.motif = motif;
+            this.stockId = stockId;
+        }
+
+        // Getters
+        public int getNumero() {
+            return numero;
+        }
+
+        public Stock getStock() {
+            return stock;
+        }
+
+        public boolean isEnregistree() {
+            return enregistree;
+        }
+
+        public String getMotif() {
+            return motif;
+        }
+
+        public Integer getStockId() {
+            return stockId;
+        }
+
+        @Override
+        public String toString() {
+            return "Ligne{" +
+                    "numero=" + numero +
+                    ", lot='" + (stock != null ? stock.getNumeroLot() : null) + '\'' +
+                    ", enregistree=" + enregistree +
+                    (motif != null ? ", motif='" + motif + '\'' : "") +
+                    '}';
+        }
+    }
+
+    private final List<Ligne> lignes;
+    private final int produitsMisAJour;
+    private final long dureeMs;
+
+    /**
+     * Constructeur complet
+     *
+     * @param lignes Les issues des lignes, dans l'ordre de la livraison
+     * @param produitsMisAJour Le nombre de produits dont la quantité en stock a été ajustée
+     * @param dureeMs La durée de la réception en millisecondes
+     */
+    public BilanReception(List<Ligne> lignes, int produitsMisAJour, long dureeMs) {
+        this.lignes = Collections.unmodifiableList(new ArrayList<>(lignes));
+        this.produitsMisAJour = produitsMisAJour;
+        this.dureeMs = dureeMs;
+    }
+
+    /**
+     * Compte les lignes enregistrées
+     *
+     * @return Le nombre de lots enregistrés
+     */
+    public int getNombreEnregistrees() {
+        int nombre = 0;
+        for (Ligne ligne : lignes) {
+            if (ligne.isEnregistree()) {
+                nombre++;
+            }
+        }
+        return nombre;
+    }
+
+    /**
+     * Récupère les lignes rejetées
+     *
+     * @return Les lignes non enregistrées, avec leur motif
+     */
+    public List<Ligne> getLignesRejetees() {
+        List<Ligne> rejetees = new ArrayList<>();
+        for (Ligne ligne : lignes) {
+            if (!ligne.isEnregistree()) {
+                rejetees.add(ligne);
+            }
+        }
+        return rejetees;
+    }
+
+    // Getters
+    public List<Ligne> getLignes() {
+        return lignes;
+    }
+
+    public int getProduitsMisAJour() {
+        return produitsMisAJour;
+    }
+
+    public long getDureeMs() {
+        return dureeMs;
+    }
+
+    @Override
+    public String toString() {
+        return "BilanReception{" +
+                "lignes=" + lignes.size() +
+                ", enregistrees=" + getNombreEnregistrees() +
+                ", produitsMisAJour=" + produitsMisAJour +
+                ", dureeMs=" + dureeMs +
+                '}';
+    }
+}
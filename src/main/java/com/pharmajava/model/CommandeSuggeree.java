@@ -0,0 +1,137 @@
+package com.pharmajava.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Classe représentant un bon de commande suggéré pour un fournisseur, à partir
+ * des prévisions de demande de ses produits
+ */
+public class CommandeSuggeree {
+
+    /**
+     * Produit à commander et quantité suggérée
+     */
+    public static class Ligne {
+        private final int produitId;
+        private final String nom;
+        private final int quantiteEnStock;
+        private final int seuilAlerte;
+        private final double prevision;
+        private final int quantiteSuggeree;
+
+        /**
+         * Constructeur complet
+         *
+         * @param produitId L'ID du produit
+         * @param nom Le nom du produit
+         * @param quantiteEnStock La quantité en stock
+         * @param seuilAlerte Le seuil d'alerte du produit
+         * @param prevision La demande prévue sur la période couverte par la commande
+         * @param quantiteSuggeree La quantité à commander
+         */
+        public Ligne(int produitId, String nom, int quantiteEnStock, int seuilAlerte,
+                     double prevision, int quantiteSuggeree) {
+            this.produitId = produitId;
+            this.nom = nom;
+            this.quantiteEnStock = quantiteEnStock;
+            this.seuilAlerte = seuilAlerte;
+            this.prevision = prevision;
+            this.quantiteSuggeree = quantiteSuggeree;
+        }
+
+        // Getters
+        public int getProduitId() {
+            return produitId;
+        }
+
+        public String getNom() {
+            return nom;
+        }
+
+        public int getQuantiteEnStock() {
+            return quantiteEnStock;
+        }
+
+        public int getSeuilAlerte() {
+            return seuilAlerte;
+        }
+
+        public double getPrevision() {
+            return prevision;
+        }
+
+        public int getQuantiteSuggeree() {
+            return quantiteSuggeree;
+        }
+
+        @Override
+        public String toString() {
+            return "Ligne{" +
+                    "produitId=" + produitId +
+                    ", nom='" + nom + '\'' +
+                    ", quantiteSuggeree=" + quantiteSuggeree +
+                    '}';
+        }
+    }
+
+    private final Integer fournisseurId;
+    private final String fournisseurNom;
+    private final List<Ligne> lignes = new ArrayList<>();
+
+    /**
+     * Constructeur d'un bon vide
+     *
+     * @param fournisseurId L'ID du fournisseur, null si aucun fournisseur n'a encore livré ces produits
+     * @param fournisseurNom Le nom du fournisseur, null si inconnu
+     */
+    public CommandeSuggeree(Integer fournisseurId, String fournisseurNom) {
+        this.fournisseurId = fournisseurId;
+        this.fournisseurNom = fournisseurNom;
+    }
+
+    /**
+     * Ajoute une ligne au bon
+     *
+     * @param ligne La ligne à ajouter
+     */
+    public void ajouterLigne(Ligne ligne) {
+        lignes.add(ligne);
+    }
+
+    /**
+     * Calcule la quantité totale du bon
+     *
+     * @return La somme des quantités suggérées
+     */
+    public int getQuantiteTotale() {
+        int total = 0;
+        for (Ligne ligne : lignes) {
+            total += ligne.getQuantiteSuggeree();
+        }
+        return total;
+    }
+
+    // Getters
+    public Integer getFournisseurId() {
+        return fournisseurId;
+    }
+
+    public String getFournisseurNom() {
+        return fournisseurNom;
+    }
+
+    public List<Ligne> getLignes() {
+        return Collections.unmodifiableList(lignes);
+    }
+
+    @Override
+    public String toString() {
+        return "CommandeSuggeree{" +
+                "fournisseurId=" + fournisseurId +
+                ", fournisseurNom='" + fournisseurNom + '\'' +
+                ", lignes=" + lignes.size() +
+                '}';
+    }
+}
@@ -0,0 +1,86 @@
+package com.pharmajava.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Classe représentant un fournisseur (grossiste) de la pharmacie
+ */
+public class Fournisseur {
+    private Integer id;
+    private String nom;
+    private String adresse;
+    private String telephone;
+    private String email;
+    private LocalDateTime dateCreation;
+
+    /**
+     * Constructeur par défaut
+     */
+    public Fournisseur() {
+    }
+
+    /**
+     * Constructeur avec les champs essentiels
+     *
+     * @param nom       Nom du fournisseur
+     * @param telephone Numéro de téléphone du fournisseur
+     */
+    public Fournisseur(String nom, String telephone) {
+        this.nom = nom;
+        this.telephone = telephone;
+    }
+
+    // Getters et Setters
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public String getNom() {
+        return nom;
+    }
+
+    public void setNom(String nom) {
+        this.nom = nom;
+    }
+
+    public String getAdresse() {
+        return adresse;
+    }
+
+    public void setAdresse(String adresse) {
+        this.adresse = adresse;
+    }
+
+    public String getTelephone() {
+        return telephone;
+    }
+
+    public void setTelephone(String telephone) {
+        this.telephone = telephone;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public LocalDateTime getDateCreation() {
+        return dateCreation;
+    }
+
+    public void setDateCreation(LocalDateTime dateCreation) {
+        this.dateCreation = dateCreation;
+    }
+
+    @Override
+    public String toString() {
+        return nom;
+    }
+}
@@ -0,0 +1,131 @@
+package com.pharmajava.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Classe représentant un lot en stock dont le produit ne s'est pas (ou presque pas)
+ * vendu sur la période du rapport de stock dormant
+ */
+public final class LotDormant {
+    private final int stockId;
+    private final int produitId;
+    private final String produitNom;
+    private final String numeroLot;
+    private final int quantite;
+    private final LocalDate dateExpiration;
+    private final BigDecimal prixAchat;
+    private final LocalDateTime derniereVente;
+    private final int vendusPeriode;
+    private final BigDecimal valeur;
+    private final BigDecimal valeurARisque;
+
+    /**
+     * Constructeur complet
+     *
+     * @param stockId L'ID du lot
+     * @param produitId L'ID du produit
+     * @param produitNom Le nom du produit
+     * @param numeroLot Le numéro du lot
+     * @param quantite La quantité disponible du lot
+     * @param dateExpiration La date d'expiration du lot
+     * @param prixAchat Le prix d'achat unitaire du produit
+     * @param derniereVente La date de la dernière vente du produit, null s'il n'a jamais été vendu
+     * @param vendusPeriode La quantité du produit vendue sur la période
+     * @param valeur La valeur immobilisée : prix d'achat fois quantité
+     * @param valeurARisque La valeur immobilisée pondérée par la proximité de l'expiration
+     */
+    public LotDormant(int stockId, int produitId, String produitNom, String numeroLot, int quantite,
+                      LocalDate dateExpiration, BigDecimal prixAchat, LocalDateTime derniereVente,
+                      int vendusPeriode, BigDecimal valeur, BigDecimal valeurARisque) {
+        this.stockId = stockId;
+        this.produitId = produitId;
+        this.produitNom = produitNom;
+        this.numeroLot = numeroLot;
+        this.quantite = quantite;
+        this.dateExpiration = dateExpiration;
+        this.prixAchat = prixAchat;
+        this.derniereVente = derniereVente;
+        this.vendusPeriode = vendusPeriode;
+        this.valeur = valeur;
+        this.valeurARisque = valeurARisque;
+    }
+
+    /**
+     * Calcule le nombre de jours depuis la dernière vente du produit
+     *
+     * @param aujourdhui La date de référence
+     * @return Le nombre de jours, -1 si le produit n'a jamais été vendu
+     */
+    public long getJoursSansVente(LocalDate aujourdhui) {
+        return derniereVente != null ? ChronoUnit.DAYS.between(derniereVente.toLocalDate(), aujourdhui) : -1;
+    }
+
+    /**
+     * Calcule le nombre de jours avant l'expiration du lot
+     *
+     * @param aujourdhui La date de référence
+     * @return Le nombre de jours, négatif si le lot est échu
+     */
+    public long getJoursAvantExpiration(LocalDate aujourdhui) {
+        return ChronoUnit.DAYS.between(aujourdhui, dateExpiration);
+    }
+
+    // Getters
+    public int getStockId() {
+        return stockId;
+    }
+
+    public int getProduitId() {
+        return produitId;
+    }
+
+    public String getProduitNom() {
+        return produitNom;
+    }
+
+    public String getNumeroLot() {
+        return numeroLot;
+    }
+
+    public int getQuantite() {
+        return quantite;
+    }
+
+    public LocalDate getDateExpiration() {
+        return dateExpiration;
+    }
+
+    public BigDecimal getPrixAchat() {
+        return prixAchat;
+    }
+
+    public LocalDateTime getDerniereVente() {
+        return derniereVente;
+    }
+
+    public int getVendusPeriode() {
+        return vendusPeriode;
+    }
+
+    public BigDecimal getValeur() {
+        return valeur;
+    }
+
+    public BigDecimal getValeurARisque() {
+        return valeurARisque;
+    }
+
+    @Override
+    public String toString() {
+        return "LotDormant{" +
+                "stockId=" + stockId +
+                ", produitNom='" + produitNom + '\'' +
+                ", numeroLot='" + numeroLot + '\'' +
+                ", quantite=" + quantite +
+                ", valeur=" + valeur +
+                '}';
+    }
+}
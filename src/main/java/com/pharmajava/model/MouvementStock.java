@@ -0,0 +1,96 @@
+package com.pharmajava.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Classe représentant une entrée du journal des mouvements de stock :
+ * la variation de la quantité vendable d'un lot
+ */
+public class MouvementStock {
+    public static final String RECEPTION = "RECEPTION";
+    public static final String VENTE = "VENTE";
+    public static final String AJUSTEMENT = "AJUSTEMENT";
+    public static final String EXPIRATION = "EXPIRATION";
+
+    private final Long id;
+    private final Integer stockId;
+    private final Integer produitId;
+    private final String type;
+    private final int quantite;
+    private final Integer venteId;
+    private final LocalDateTime dateMouvement;
+
+    /**
+     * Constructeur d'un mouvement à enregistrer
+     * 
+     * @param stockId L'ID du lot
+     * @param produitId L'ID du produit du lot
+     * @param type Le type de mouvement (RECEPTION, VENTE, AJUSTEMENT, EXPIRATION)
+     * @param quantite La variation de quantité, négative pour une sortie
+     * @param venteId L'ID de la vente à l'origine du mouvement (optionnel, peut être null)
+     */
+    public MouvementStock(Integer stockId, Integer produitId, String type, int quantite, Integer venteId) {
+        this(null, stockId, produitId, type, quantite, venteId, null);
+    }
+
+    /**
+     * Constructeur complet
+     * 
+     * @param id L'ID du mouvement
+     * @param stockId L'ID du lot
+     * @param produitId L'ID du produit du lot
+     * @param type Le type de mouvement
+     * @param quantite La variation de quantité, négative pour une sortie
+     * @param venteId L'ID de la vente à l'origine du mouvement (peut être null)
+     * @param dateMouvement La date d'enregistrement du mouvement
+     */
+    public MouvementStock(Long id, Integer stockId, Integer produitId, String type, int quantite,
+                          Integer venteId, LocalDateTime dateMouvement) {
+        this.id = id;
+        this.stockId = stockId;
+        this.produitId = produitId;
+        this.type = type;
+        this.quantite = quantite;
+        this.venteId = venteId;
+        this.dateMouvement = dateMouvement;
+    }
+
+    // Getters
+    public Long getId() {
+        return id;
+    }
+
+    public Integer getStockId() {
+        return stockId;
+    }
+
+    public Integer getProduitId() {
+        return produitId;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public int getQuantite() {
+        return quantite;
+    }
+
+    public Integer getVenteId() {
+        return venteId;
+    }
+
+    public LocalDateTime getDateMouvement() {
+        return dateMouvement;
+    }
+
+    @Override
+    public String toString() {
+        return "MouvementStock{" +
+                "stockId=" + stockId +
+                ", type='" + type + '\'' +
+                ", quantite=" + quantite +
+                ", venteId=" + venteId +
+                '}';
+    }
+}
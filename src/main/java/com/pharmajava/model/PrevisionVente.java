@@ -0,0 +1,122 @@
+package com.pharmajava.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Classe représentant la prévision de demande d'un produit, issue d'un lissage
+ * exponentiel à saisonnalité hebdomadaire de ses ventes journalières
+ */
+public class PrevisionVente {
+    private int produitId;
+    private Integer fournisseurId;
+    private double niveau;
+    private double tendance;
+    private double prevision7Jours;
+    private double prevision28Jours;
+    private double erreurQuadratique;
+    private LocalDateTime dateCalcul;
+
+    /**
+     * Constructeur par défaut
+     */
+    public PrevisionVente() {
+    }
+
+    /**
+     * Constructeur avec le résultat de l'ajustement
+     *
+     * @param produitId L'ID du produit
+     * @param niveau La demande journalière désaisonnalisée en fin d'historique
+     * @param tendance La variation journalière de ce niveau
+     * @param prevision7Jours La demande prévue sur les 7 prochains jours
+     * @param prevision28Jours La demande prévue sur les 28 prochains jours
+     * @param erreurQuadratique L'erreur quadratique moyenne des prévisions à un jour sur l'historique
+     */
+    public PrevisionVente(int produitId, double niveau, double tendance, double prevision7Jours,
+                          double prevision28Jours, double erreurQuadratique) {
+        this.produitId = produitId;
+        this.niveau = niveau;
+        this.tendance = tendance;
+        this.prevision7Jours = prevision7Jours;
+        this.prevision28Jours = prevision28Jours;
+        this.erreurQuadratique = erreurQuadratique;
+    }
+
+    // Getters et Setters
+    public int getProduitId() {
+        return produitId;
+    }
+
+    public void setProduitId(int produitId) {
+        this.produitId = produitId;
+    }
+
+    public Integer getFournisseurId() {
+        return fournisseurId;
+    }
+
+    public void setFournisseurId(Integer fournisseurId) {
+        this.fournisseurId = fournisseurId;
+    }
+
+    public double getNiveau() {
+        return niveau;
+    }
+
+    public void setNiveau(double niveau) {
+        this.niveau = niveau;
+    }
+
+    public double getTendance() {
+        return tendance;
+    }
+
+    public void setTendance(double tendance) {
+        this.tendance = tendance;
+    }
+
+    public double getPrevision7Jours() {
+        return prevision7Jours;
+    }
+
+    public void setPrevision7Jours(double prevision7Jours) {
+        this.prevision7Jours = prevision7Jours;
+    }
+
+    public double getPrevision28Jours() {
+        return prevision28Jours;
+    }
+
+    public void setPrevision28Jours(double prevision28Jours) {
+        this.prevision28Jours = prevision28Jours;
+    }
+
+    public double getErreurQuadratique() {
+        return erreurQuadratique;
+    }
+
+    public void setErreurQuadratique(double erreurQuadratique) {
+        this.erreurQuadratique = erreurQuadratique;
+    }
+
+    public LocalDateTime getDateCalcul() {
+        return dateCalcul;
+    }
+
+    public void setDateCalcul(LocalDateTime dateCalcul) {
+        this.dateCalcul = dateCalcul;
+    }
+
+    @Override
+    public String toString() {
+        return "PrevisionVente{" +
+                "produitId=" + produitId +
+                ", fournisseurId=" + fournisseurId +
+                ", niveau=" + niveau +
+                ", tendance=" + tendance +
+                ", prevision7Jours=" + prevision7Jours +
+                ", prevision28Jours=" + prevision28Jours +
+                ", erreurQuadratique=" + erreurQuadratique +
+                '}';
+    }
+}
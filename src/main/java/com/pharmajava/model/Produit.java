@@ -20,6 +20,9 @@ public class Produit {
     private BigDecimal prixAchat;
     private BigDecimal prixVente;
     private int seuilAlerte;
+    
+    // Version de la fiche pour le contrôle de concurrence optimiste
+    private int version;
 
     /**
      * Constructeur par défaut
@@ -176,6 +179,14 @@ public class Produit {
         this.seuilAlerte = seuilAlerte;
     }
     
+    public int getVersion() {
+        return version;
+    }
+    
+    public void setVersion(int version) {
+        this.version = version;
+    }
+    
     /**
      * Calcule la marge bénéficiaire du produit
      * 
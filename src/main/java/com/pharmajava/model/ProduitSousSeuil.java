@@ -0,0 +1,62 @@
+package com.pharmajava.model;
+
+/**
+ * Classe représentant un produit dont la quantité en stock a atteint son seuil d'alerte
+ */
+public final class ProduitSousSeuil {
+    private final int produitId;
+    private final String nom;
+    private final int quantiteEnStock;
+    private final int seuilAlerte;
+
+    /**
+     * Constructeur complet
+     *
+     * @param produitId L'ID du produit
+     * @param nom Le nom du produit
+     * @param quantiteEnStock La quantité en stock
+     * @param seuilAlerte Le seuil d'alerte du produit
+     */
+    public ProduitSousSeuil(int produitId, String nom, int quantiteEnStock, int seuilAlerte) {
+        this.produitId = produitId;
+        this.nom = nom;
+        this.quantiteEnStock = quantiteEnStock;
+        this.seuilAlerte = seuilAlerte;
+    }
+
+    /**
+     * Calcule la quantité manquante pour revenir au seuil d'alerte
+     *
+     * @return Le déficit, 0 si le stock est exactement au seuil
+     */
+    public int getDeficit() {
+        return Math.max(0, seuilAlerte - quantiteEnStock);
+    }
+
+    // Getters
+    public int getProduitId() {
+        return produitId;
+    }
+
+    public String getNom() {
+        return nom;
+    }
+
+    public int getQuantiteEnStock() {
+        return quantiteEnStock;
+    }
+
+    public int getSeuilAlerte() {
+        return seuilAlerte;
+    }
+
+    @Override
+    public String toString() {
+        return "ProduitSousSeuil{" +
+                "produitId=" + produitId +
+                ", nom='" + nom + '\'' +
+                ", quantiteEnStock=" + quantiteEnStock +
+                ", seuilAlerte=" + seuilAlerte +
+                '}';
+    }
+}
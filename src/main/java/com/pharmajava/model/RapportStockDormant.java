@@ -0,0 +1,89 @@
+package com.pharmajava.model;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Classe représentant le rapport de stock dormant : les premiers lots dans l'ordre
+ * demandé et les totaux de tous les lots du rapport.
+ *
+ * Le rapport reçoit les lots un à un pendant la lecture en flux ; seuls les
+ * premiers sont conservés, les autres ne font qu'alimenter les totaux.
+ */
+public class RapportStockDormant implements Consumer<LotDormant> {
+    private final int joursSansVente;
+    private final int lignesMaximum;
+    private final List<LotDormant> lignes = new ArrayList<>();
+    private int nombreLots;
+    private BigDecimal valeurTotale = BigDecimal.ZERO;
+    private BigDecimal valeurARisqueTotale = BigDecimal.ZERO;
+
+    /**
+     * Constructeur d'un rapport vide
+     *
+     * @param joursSansVente La période sans vente du rapport, en jours
+     * @param lignesMaximum Le nombre de lots conservés pour l'affichage
+     */
+    public RapportStockDormant(int joursSansVente, int lignesMaximum) {
+        this.joursSansVente = joursSansVente;
+        this.lignesMaximum = lignesMaximum;
+    }
+
+    /**
+     * Ajoute un lot aux totaux, et aux lignes tant que le maximum n'est pas atteint
+     *
+     * @param lot Le lot lu
+     */
+    @Override
+    public void accept(LotDormant lot) {
+        nombreLots++;
+        valeurTotale = valeurTotale.add(lot.getValeur());
+        valeurARisqueTotale = valeurARisqueTotale.add(lot.getValeurARisque());
+        if (lignes.size() < lignesMaximum) {
+            lignes.add(lot);
+        }
+    }
+
+    /**
+     * Indique si des lots du rapport ne figurent pas dans les lignes
+     *
+     * @return true si le rapport est tronqué
+     */
+    public boolean estTronque() {
+        return nombreLots > lignes.size();
+    }
+
+    // Getters
+    public int getJoursSansVente() {
+        return joursSansVente;
+    }
+
+    public List<LotDormant> getLignes() {
+        return Collections.unmodifiableList(lignes);
+    }
+
+    public int getNombreLots() {
+        return nombreLots;
+    }
+
+    public BigDecimal getValeurTotale() {
+        return valeurTotale;
+    }
+
+    public BigDecimal getValeurARisqueTotale() {
+        return valeurARisqueTotale;
+    }
+
+    @Override
+    public String toString() {
+        return "RapportStockDormant{" +
+                "joursSansVente=" + joursSansVente +
+                ", nombreLots=" + nombreLots +
+                ", valeurTotale=" + valeurTotale +
+                ", valeurARisqueTotale=" + valeurARisqueTotale +
+                '}';
+    }
+}
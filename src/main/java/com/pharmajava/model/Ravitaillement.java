@@ -0,0 +1,104 @@
+package com.pharmajava.model;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Classe représentant la réception d'un lot auprès d'un fournisseur
+ * (provenance d'un lot de la table stock)
+ */
+public class Ravitaillement {
+    private Integer id;
+    private Integer fournisseurId;
+    private Integer produitId;
+    private Integer stockId;
+    private String numeroLot;
+    private int quantite;
+    private LocalDateTime dateRavitaillement;
+    private LocalDate dateExpiration;
+
+    /**
+     * Constructeur par défaut
+     */
+    public Ravitaillement() {
+    }
+
+    // Getters et Setters
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public Integer getFournisseurId() {
+        return fournisseurId;
+    }
+
+    public void setFournisseurId(Integer fournisseurId) {
+        this.fournisseurId = fournisseurId;
+    }
+
+    public Integer getProduitId() {
+        return produitId;
+    }
+
+    public void setProduitId(Integer produitId) {
+        this.produitId = produitId;
+    }
+
+    public Integer getStockId() {
+        return stockId;
+    }
+
+    public void setStockId(Integer stockId) {
+        this.stockId = stockId;
+    }
+
+    public String getNumeroLot() {
+        return numeroLot;
+    }
+
+    public void setNumeroLot(String numeroLot) {
+        this.numeroLot = numeroLot;
+    }
+
+    public int getQuantite() {
+        return quantite;
+    }
+
+    public void setQuantite(int quantite) {
+        this.quantite = quantite;
+    }
+
+    public LocalDateTime getDateRavitaillement() {
+        return dateRavitaillement;
+    }
+
+    public void setDateRavitaillement(LocalDateTime dateRavitaillement) {
+        this.dateRavitaillement = dateRavitaillement;
+    }
+
+    public LocalDate getDateExpiration() {
+        return dateExpiration;
+    }
+
+    public void setDateExpiration(LocalDate dateExpiration) {
+        this.dateExpiration = dateExpiration;
+    }
+
+    @Override
+    public String toString() {
+        return "Ravitaillement{" +
+                "id=" + id +
+                ", fournisseurId=" + fournisseurId +
+                ", produitId=" + produitId +
+                ", stockId=" + stockId +
+                ", numeroLot='" + numeroLot + '\'' +
+                ", quantite=" + quantite +
+                ", dateRavitaillement=" + dateRavitaillement +
+                ", dateExpiration=" + dateExpiration +
+                '}';
+    }
+}
@@ -0,0 +1,69 @@
+package com.pharmajava.model;
+
+/**
+ * Classe représentant le résultat d'une mise à jour soumise au contrôle de version optimiste
+ */
+public class ResultatMiseAJour {
+
+    /**
+     * Issue de la mise à jour
+     */
+    public enum Statut {
+        /** La ligne a été modifiée */
+        APPLIQUEE,
+        /** La ligne a été modifiée par un autre poste depuis sa lecture */
+        CONFLIT,
+        /** La ligne n'existe plus */
+        INTROUVABLE,
+        /** L'écart demandé rendrait la quantité négative */
+        QUANTITE_INSUFFISANTE
+    }
+
+    private final Statut statut;
+    private final int version;
+    private final int tentatives;
+
+    /**
+     * Constructeur complet
+     *
+     * @param statut L'issue de la mise à jour
+     * @param version La version de la ligne après la mise à jour, ou sa version actuelle en cas de conflit
+     * @param tentatives Le nombre d'essais effectués
+     */
+    public ResultatMiseAJour(Statut statut, int version, int tentatives) {
+        this.statut = statut;
+        this.version = version;
+        this.tentatives = tentatives;
+    }
+
+    /**
+     * Indique si la mise à jour a été appliquée
+     *
+     * @return true si la ligne a été modifiée
+     */
+    public boolean estAppliquee() {
+        return statut == Statut.APPLIQUEE;
+    }
+
+    // Getters
+    public Statut getStatut() {
+        return statut;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public int getTentatives() {
+        return tentatives;
+    }
+
+    @Override
+    public String toString() {
+        return "ResultatMiseAJour{" +
+                "statut=" + statut +
+                ", version=" + version +
+                ", tentatives=" + tentatives +
+                '}';
+    }
+}
@@ -13,6 +13,7 @@ public class Stock {
     private Integer quantite;
     private LocalDate dateExpiration;
     private LocalDateTime dateCreation;
+    private int version;
 
     /**
      * Constructeur par défaut
@@ -150,6 +151,14 @@ public class Stock {
         this.dateCreation = dateCreation;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     /**
      * Calcule le nombre de jours avant expiration
      * 
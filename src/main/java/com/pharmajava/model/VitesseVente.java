@@ -0,0 +1,65 @@
+package com.pharmajava.model;
+
+/**
+ * Classe représentant les ventes moyennes par jour d'un produit sur 7, 30 et 90 jours
+ */
+public final class VitesseVente {
+    private final int produitId;
+    private final int vendus7Jours;
+    private final int vendus30Jours;
+    private final int vendus90Jours;
+
+    /**
+     * Constructeur complet
+     *
+     * @param produitId L'ID du produit
+     * @param vendus7Jours La quantité vendue sur les 7 derniers jours, aujourd'hui compris
+     * @param vendus30Jours La quantité vendue sur les 30 derniers jours, aujourd'hui compris
+     * @param vendus90Jours La quantité vendue sur les 90 derniers jours, aujourd'hui compris
+     */
+    public VitesseVente(int produitId, int vendus7Jours, int vendus30Jours, int vendus90Jours) {
+        this.produitId = produitId;
+        this.vendus7Jours = vendus7Jours;
+        this.vendus30Jours = vendus30Jours;
+        this.vendus90Jours = vendus90Jours;
+    }
+
+    public double getMoyenne7Jours() {
+        return vendus7Jours / 7.0;
+    }
+
+    public double getMoyenne30Jours() {
+        return vendus30Jours / 30.0;
+    }
+
+    public double getMoyenne90Jours() {
+        return vendus90Jours / 90.0;
+    }
+
+    // Getters
+    public int getProduitId() {
+        return produitId;
+    }
+
+    public int getVendus7Jours() {
+        return vendus7Jours;
+    }
+
+    public int getVendus30Jours() {
+        return vendus30Jours;
+    }
+
+    public int getVendus90Jours() {
+        return vendus90Jours;
+    }
+
+    @Override
+    public String toString() {
+        return "VitesseVente{" +
+                "produitId=" + produitId +
+                ", vendus7Jours=" + vendus7Jours +
+                ", vendus30Jours=" + vendus30Jours +
+                ", vendus90Jours=" + vendus90Jours +
+                '}';
+    }
+}
@@ -0,0 +1,124 @@
+package com.pharmajava.service;
+
+import com.pharmajava.dao.MouvementStockDAO;
+import com.pharmajava.dao.StockDAO;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Tâche de fond qui, à chaque changement de jour, marque expirés les lots arrivés
+ * à échéance et retire leurs quantités des produits (voir {@link StockDAO#marquerLotsEchus()}),
+ * puis compacte le journal des mouvements de stock dans un nouvel instantané.
+ *
+ * Les requêtes de vente et de disponibilité s'appuient sur la colonne stock.expire au lieu
+ * de comparer chaque date à CURRENT_DATE. Un passage est fait dès le démarrage pour
+ * rattraper les jours où l'application était arrêtée, puis à chaque minuit.
+ */
+public class PlanificateurExpiration {
+    private static final Logger LOGGER = Logger.getLogger(PlanificateurExpiration.class.getName());
+
+    // Marge après minuit pour laisser l'horloge du serveur de base de données changer de jour
+    private static final long MARGE_SECONDES = 5;
+
+    private static PlanificateurExpiration instance;
+
+    private final StockDAO stockDAO;
+    private final MouvementStockDAO mouvementStockDAO;
+    private ScheduledExecutorService planificateur;
+
+    private PlanificateurExpiration() {
+        this.stockDAO = new StockDAO();
+        this.mouvementStockDAO = new MouvementStockDAO();
+    }
+
+    /**
+     * Obtient l'instance unique du planificateur
+     *
+     * @return L'instance du planificateur
+     */
+    public static synchronized PlanificateurExpiration getInstance() {
+        if (instance == null) {
+            instance = new PlanificateurExpiration();
+        }
+        return instance;
+    }
+
+    /**
+     * Lance le rattrapage immédiat puis planifie le passage de minuit
+     */
+    public synchronized void demarrer() {
+        if (planificateur != null) {
+            return;
+        }
+
+        planificateur = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "planificateur-expiration");
+            thread.setDaemon(true);
+            return thread;
+        });
+        planificateur.execute(this::passerAuJourSuivant);
+    }
+
+    /**
+     * Arrête le planificateur
+     */
+    public synchronized void arreter() {
+        if (planificateur != null) {
+            planificateur.shutdownNow();
+            planificateur = null;
+        }
+    }
+
+    /**
+     * Marque immédiatement les lots échus
+     *
+     * @return Le nombre de lots marqués expirés, -1 en cas d'erreur
+     */
+    public int expirerLotsEchus() {
+        try {
+            return stockDAO.marquerLotsEchus();
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors du marquage des lots expirés", e);
+            return -1;
+        }
+    }
+
+    /**
+     * Fige immédiatement un instantané du journal des mouvements de stock
+     *
+     * @return Le nombre de lots de l'instantané, -1 en cas d'erreur
+     */
+    public int creerInstantane() {
+        try {
+            return mouvementStockDAO.creerInstantane();
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors de la création de l'instantané du stock", e);
+            return -1;
+        }
+    }
+
+    private void passerAuJourSuivant() {
+        expirerLotsEchus();
+        creerInstantane();
+        planifierProchainMinuit();
+    }
+
+    // Replanifié à chaque passage : la durée d'une journée varie aux changements d'heure
+    private synchronized void planifierProchainMinuit() {
+        if (planificateur == null) {
+            return;
+        }
+
+        LocalDateTime prochainPassage = LocalDate.now().plusDays(1).atStartOfDay().plusSeconds(MARGE_SECONDES);
+        long delai = Duration.between(LocalDateTime.now(), prochainPassage).toMillis();
+        planificateur.schedule(this::passerAuJourSuivant, delai, TimeUnit.MILLISECONDS);
+        LOGGER.fine("Prochain passage d'expiration des lots : " + prochainPassage);
+    }
+}
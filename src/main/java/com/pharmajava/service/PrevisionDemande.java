@@ -0,0 +1,401 @@
+package com.pharmajava.service;
+
+import com.pharmajava.dao.PrevisionDAO;
+import com.pharmajava.model.PrevisionVente;
+import com.pharmajava.utils.VerrouNomme;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ObjIntConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Calcul des prévisions de demande de tout le catalogue, base des commandes suggérées
+ * par fournisseur.
+ *
+ * Chaque produit vendu sur les 26 dernières semaines est ajusté par un lissage
+ * exponentiel de Holt-Winters additif à saisonnalité hebdomadaire et tendance amortie ;
+ * les coefficients de lissage sont choisis sur une grille, par produit, en minimisant
+ * l'erreur des prévisions à un jour sur l'historique.
+ *
+ * Les séries journalières sont lues en flux depuis produits_vendus et confiées par blocs
+ * à un ForkJoinPool pendant que la lecture continue : l'ajustement des produits, qui
+ * domine le calcul, se répartit sur la moitié des cœurs, en fils de basse priorité pour
+ * ne pas ralentir l'interface de la caisse. Les prévisions remplacent ensuite les
+ * précédentes en une seule transaction. Le calcul est relancé une fois par jour, au
+ * premier passage horaire qui trouve des prévisions d'un jour antérieur ; tous les postes
+ * le planifient, mais un verrou nommé en base le réserve à un seul poste à la fois.
+ */
+public class PrevisionDemande {
+    private static final Logger LOGGER = Logger.getLogger(PrevisionDemande.class.getName());
+
+    /** Profondeur de l'historique ajusté, en jours complets (26 semaines) */
+    public static final int HISTORIQUE_JOURS = 182;
+
+    private static final int SAISON = 7;
+    private static final double AMORTISSEMENT = 0.98;
+
+    // Grille des coefficients de lissage : niveau, tendance, saisonnalité
+    private static final double[] ALPHAS = {0.05, 0.1, 0.2, 0.3, 0.5};
+    private static final double[] BETAS = {0.0, 0.02, 0.1};
+    private static final double[] GAMMAS = {0.05, 0.15, 0.3};
+
+    // Produits lus avant d'être confiés au pool, et produits ajustés par une tâche sans la diviser
+    private static final int TAILLE_BLOC = 1024;
+    private static final int SEUIL_DECOUPAGE = 32;
+
+    private static final long DELAI_INITIAL_MINUTES = 5;
+    private static final long PERIODE_MINUTES = 60;
+
+    private static final String VERROU = "pharmajava_previsions";
+
+    private static PrevisionDemande instance;
+
+    private final PrevisionDAO previsionDAO;
+    private ScheduledExecutorService planificateur;
+
+    private PrevisionDemande() {
+        this.previsionDAO = new PrevisionDAO();
+    }
+
+    /**
+     * Obtient l'instance unique du calcul des prévisions
+     *
+     * @return L'instance du calcul
+     */
+    public static synchronized PrevisionDemande getInstance() {
+        if (instance == null) {
+            instance = new PrevisionDemande();
+        }
+        return instance;
+    }
+
+    /**
+     * Planifie la vérification horaire de la fraîcheur des prévisions
+     */
+    public synchronized void demarrer() {
+        if (planificateur != null) {
+            return;
+        }
+
+        planificateur = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "prevision-demande");
+            thread.setDaemon(true);
+            return thread;
+        });
+        planificateur.scheduleWithFixedDelay(this::recalculerSiPerime,
+                DELAI_INITIAL_MINUTES, PERIODE_MINUTES, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Arrête la vérification horaire
+     */
+    public synchronized void arreter() {
+        if (planificateur != null) {
+            planificateur.shutdownNow();
+            planificateur = null;
+        }
+    }
+
+    /**
+     * Recalcule immédiatement les prévisions, sauf si un autre poste les calcule déjà
+     *
+     * @return Le nombre de produits prévus, -1 en cas d'erreur ou de calcul en cours ailleurs
+     */
+    public int recalculer() {
+        return recalculerSousVerrou(false);
+    }
+
+    /**
+     * Recalcule les prévisions de tous les produits vendus sur la période d'historique,
+     * sans prendre le verrou partagé entre les postes
+     *
+     * @param parallelisme Le nombre de fils d'ajustement
+     * @return Le nombre de produits prévus
+     * @throws SQLException si une erreur SQL survient ; les prévisions précédentes sont alors conservées
+     */
+    public int recalculer(int parallelisme) throws SQLException {
+        long debut = System.nanoTime();
+        LocalDateTime dateCalcul = LocalDateTime.now();
+        // Le jour en cours est incomplet : l'historique s'arrête la veille
+        LocalDate premierJour = dateCalcul.toLocalDate().minusDays(HISTORIQUE_JOURS);
+
+        ForkJoinPool pool = new ForkJoinPool(parallelisme, PrevisionDemande::creerFil, null, false);
+        try {
+            Lecteur lecteur = new Lecteur(pool);
+            previsionDAO.parcourirSeries(premierJour, HISTORIQUE_JOURS, lecteur);
+            lecteur.soumettreBloc();
+
+            Map<Integer, Integer> fournisseurs = previsionDAO.obtenirDerniersFournisseurs();
+            List<PrevisionVente> previsions = new ArrayList<>();
+            for (int i = 0; i < lecteur.blocs.size(); i++) {
+                lecteur.taches.get(i).join();
+                for (PrevisionVente prevision : lecteur.blocs.get(i).resultats) {
+                    if (prevision != null) {
+                        prevision.setFournisseurId(fournisseurs.get(prevision.getProduitId()));
+                        previsions.add(prevision);
+                    }
+                }
+            }
+
+            previsionDAO.remplacer(previsions, dateCalcul);
+            LOGGER.info("Prévisions de demande calculées pour " + previsions.size() + " produit(s) en "
+                    + (System.nanoTime() - debut) / 1_000_000 + " ms (" + parallelisme + " fil(s))");
+            return previsions.size();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Ajuste en parallèle une série de ventes journalières par produit
+     *
+     * @param pool Le pool qui exécute les ajustements
+     * @param produitIds Les IDs des produits
+     * @param series Les ventes journalières de chaque produit, dans le même ordre
+     * @return La prévision de chaque produit, dans le même ordre
+     */
+    public static PrevisionVente[] ajuster(ForkJoinPool pool, int[] produitIds, int[][] series) {
+        Bloc bloc = new Bloc(produitIds, series, produitIds.length);
+        pool.invoke(new Ajustement(bloc, 0, bloc.taille));
+        return bloc.resultats;
+    }
+
+    /**
+     * Ajuste le modèle de Holt-Winters aux ventes journalières d'un produit
+     * et en déduit la demande des 7 et 28 prochains jours
+     *
+     * @param produitId L'ID du produit
+     * @param ventes Les quantités vendues par jour, du plus ancien au plus récent
+     * @return La prévision du produit
+     */
+    public static PrevisionVente ajuster(int produitId, int[] ventes) {
+        int n = ventes.length;
+
+        // Les jours antérieurs à la première vente précèdent la mise en rayon du produit
+        int premier = 0;
+        while (premier < n && ventes[premier] == 0) {
+            premier++;
+        }
+
+        if (n - premier < 2 * SAISON) {
+            return ajusterMoyenne(produitId, ventes, premier);
+        }
+
+        // Initialisation sur les deux premières semaines
+        double moyenne1 = moyenne(ventes, premier, premier + SAISON);
+        double moyenne2 = moyenne(ventes, premier + SAISON, premier + 2 * SAISON);
+
+        double[] saison = new double[SAISON];
+        double[] meilleureSaison = new double[SAISON];
+        double meilleurNiveau = 0;
+        double meilleureTendance = 0;
+        double meilleureErreur = Double.POSITIVE_INFINITY;
+
+        for (double alpha : ALPHAS) {
+            for (double beta : BETAS) {
+                for (double gamma : GAMMAS) {
+                    double niveau = moyenne1;
+                    double tendance = beta > 0 ? (moyenne2 - moyenne1) / SAISON : 0;
+                    for (int i = premier; i < premier + SAISON; i++) {
+                        saison[i % SAISON] = ventes[i] - moyenne1;
+                    }
+
+                    double erreur = 0;
+                    for (int j = premier + SAISON; j < n && erreur < meilleureErreur; j++) {
+                        int k = j % SAISON;
+                        double saisonnier = saison[k];
+                        double ecart = ventes[j] - (niveau + AMORTISSEMENT * tendance + saisonnier);
+                        erreur += ecart * ecart;
+
+                        double niveauPrecedent = niveau;
+                        niveau = alpha * (ventes[j] - saisonnier) + (1 - alpha) * (niveau + AMORTISSEMENT * tendance);
+                        tendance = beta * (niveau - niveauPrecedent) + (1 - beta) * AMORTISSEMENT * tendance;
+                        saison[k] = gamma * (ventes[j] - niveau) + (1 - gamma) * saisonnier;
+                    }
+
+                    // Les combinaisons déjà moins bonnes sont abandonnées en cours de parcours
+                    if (erreur < meilleureErreur) {
+                        meilleureErreur = erreur;
+                        meilleurNiveau = niveau;
+                        meilleureTendance = tendance;
+                        System.arraycopy(saison, 0, meilleureSaison, 0, SAISON);
+                    }
+                }
+            }
+        }
+
+        double prevision7 = 0;
+        double prevision28 = 0;
+        double facteur = 0;
+        double puissance = 1;
+        for (int h = 1; h <= 28; h++) {
+            puissance *= AMORTISSEMENT;
+            facteur += puissance;
+            double jour = Math.max(0, meilleurNiveau + facteur * meilleureTendance
+                    + meilleureSaison[(n - 1 + h) % SAISON]);
+            if (h <= 7) {
+                prevision7 += jour;
+            }
+            prevision28 += jour;
+        }
+
+        return new PrevisionVente(produitId, meilleurNiveau, meilleureTendance, prevision7, prevision28,
+                Math.sqrt(meilleureErreur / (n - premier - SAISON)));
+    }
+
+    /**
+     * Historique trop court pour estimer la saisonnalité : demande constante
+     * égale à la moyenne des jours depuis la première vente
+     */
+    private static PrevisionVente ajusterMoyenne(int produitId, int[] ventes, int premier) {
+        if (premier >= ventes.length) {
+            return new PrevisionVente(produitId, 0, 0, 0, 0, 0);
+        }
+
+        double moyenne = moyenne(ventes, premier, ventes.length);
+        double erreur = 0;
+        for (int j = premier; j < ventes.length; j++) {
+            erreur += (ventes[j] - moyenne) * (ventes[j] - moyenne);
+        }
+        return new PrevisionVente(produitId, moyenne, 0, 7 * moyenne, 28 * moyenne,
+                Math.sqrt(erreur / (ventes.length - premier)));
+    }
+
+    private static double moyenne(int[] ventes, int debut, int fin) {
+        long somme = 0;
+        for (int i = debut; i < fin; i++) {
+            somme += ventes[i];
+        }
+        return (double) somme / (fin - debut);
+    }
+
+    private void recalculerSiPerime() {
+        if (estAJour()) {
+            return;
+        }
+        recalculerSousVerrou(true);
+    }
+
+    private boolean estAJour() {
+        LocalDateTime dernierCalcul = previsionDAO.obtenirDateDernierCalcul();
+        return dernierCalcul != null && !dernierCalcul.toLocalDate().isBefore(LocalDate.now());
+    }
+
+    private int recalculerSousVerrou(boolean siPerime) {
+        try (VerrouNomme verrou = VerrouNomme.essayer(VERROU)) {
+            if (verrou == null) {
+                LOGGER.info("Prévisions de demande en cours de calcul sur un autre poste");
+                return -1;
+            }
+            // Un autre poste a pu terminer le calcul entre la vérification et la prise du verrou
+            if (siPerime && estAJour()) {
+                return 0;
+            }
+            return recalculer(Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors du calcul des prévisions de demande", e);
+            return -1;
+        }
+    }
+
+    private static ForkJoinWorkerThread creerFil(ForkJoinPool pool) {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("prevision-demande-" + thread.getPoolIndex());
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    }
+
+    /**
+     * Séries lues et prévisions d'un bloc de produits
+     */
+    private static final class Bloc {
+        final int[] produitIds;
+        final int[][] series;
+        final PrevisionVente[] resultats;
+        int taille;
+
+        Bloc(int capacite) {
+            this(new int[capacite], new int[capacite][], 0);
+        }
+
+        Bloc(int[] produitIds, int[][] series, int taille) {
+            this.produitIds = produitIds;
+            this.series = series;
+            this.resultats = new PrevisionVente[produitIds.length];
+            this.taille = taille;
+        }
+    }
+
+    /**
+     * Ajustement des produits [debut, fin) d'un bloc, divisé en deux tant qu'il dépasse le seuil
+     */
+    private static final class Ajustement extends RecursiveAction {
+        private final Bloc bloc;
+        private final int debut;
+        private final int fin;
+
+        Ajustement(Bloc bloc, int debut, int fin) {
+            this.bloc = bloc;
+            this.debut = debut;
+            this.fin = fin;
+        }
+
+        @Override
+        protected void compute() {
+            if (fin - debut <= SEUIL_DECOUPAGE) {
+                for (int i = debut; i < fin; i++) {
+                    bloc.resultats[i] = ajuster(bloc.produitIds[i], bloc.series[i]);
+                }
+                return;
+            }
+            int milieu = (debut + fin) >>> 1;
+            invokeAll(new Ajustement(bloc, debut, milieu), new Ajustement(bloc, milieu, fin));
+        }
+    }
+
+    /**
+     * Regroupe les séries lues en blocs et soumet chaque bloc plein au pool
+     */
+    private static final class Lecteur implements ObjIntConsumer<int[]> {
+        private final ForkJoinPool pool;
+        private final List<Bloc> blocs = new ArrayList<>();
+        private final List<ForkJoinTask<Void>> taches = new ArrayList<>();
+        private Bloc courant = new Bloc(TAILLE_BLOC);
+
+        Lecteur(ForkJoinPool pool) {
+            this.pool = pool;
+        }
+
+        @Override
+        public void accept(int[] serie, int produitId) {
+            courant.produitIds[courant.taille] = produitId;
+            courant.series[courant.taille] = serie;
+            if (++courant.taille == TAILLE_BLOC) {
+                soumettreBloc();
+                courant = new Bloc(TAILLE_BLOC);
+            }
+        }
+
+        void soumettreBloc() {
+            if (courant.taille == 0) {
+                return;
+            }
+            blocs.add(courant);
+            taches.add(pool.submit(new Ajustement(courant, 0, courant.taille)));
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.pharmajava.service;
+
+import com.pharmajava.dao.IndexLots;
+import com.pharmajava.dao.SeuilsAlerte;
+import com.pharmajava.dao.StockDAO;
+import com.pharmajava.dao.VitessesVente;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Tâche de fond qui rapproche périodiquement produits.quantite_en_stock
+ * de la somme des lots non expirés.
+ *
+ * Les écritures de stock maintiennent la quantité du produit par écart dans leur
+ * propre transaction, et {@link PlanificateurExpiration} retire les lots échus ; le
+ * réconciliateur rattrape ce qui leur échappe (modifications faites directement en base).
+ * Il vérifie au passage l'index des lots en mémoire, purge les réservations de stock
+ * échues et relit celles des autres caisses, resynchronise les ventes du jour des compteurs de vitesse de vente et
+ * relit les produits modifiés pour l'ensemble des produits sous le seuil d'alerte.
+ */
+public class ReconciliateurStock {
+    private static final Logger LOGGER = Logger.getLogger(ReconciliateurStock.class.getName());
+    private static final long DELAI_INITIAL_MINUTES = 1;
+    private static final long PERIODE_MINUTES = 15;
+
+    private static ReconciliateurStock instance;
+
+    private final StockDAO stockDAO;
+    private ScheduledExecutorService planificateur;
+
+    private ReconciliateurStock() {
+        this.stockDAO = new StockDAO();
+    }
+
+    /**
+     * Obtient l'instance unique du réconciliateur
+     *
+     * @return L'instance du réconciliateur
+     */
+    public static synchronized ReconciliateurStock getInstance() {
+        if (instance == null) {
+            instance = new ReconciliateurStock();
+        }
+        return instance;
+    }
+
+    /**
+     * Démarre la réconciliation périodique si elle ne tourne pas déjà
+     */
+    public synchronized void demarrer() {
+        if (planificateur != null) {
+            return;
+        }
+
+        planificateur = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "reconciliateur-stock");
+            thread.setDaemon(true);
+            return thread;
+        });
+        planificateur.scheduleWithFixedDelay(this::reconcilier,
+                DELAI_INITIAL_MINUTES, PERIODE_MINUTES, TimeUnit.MINUTES);
+        LOGGER.info("Réconciliation des quantités en stock planifiée toutes les " + PERIODE_MINUTES + " minutes");
+    }
+
+    /**
+     * Arrête la réconciliation périodique
+     */
+    public synchronized void arreter() {
+        if (planificateur != null) {
+            planificateur.shutdownNow();
+            planificateur = null;
+        }
+    }
+
+    /**
+     * Lance immédiatement une réconciliation
+     *
+     * @return Le nombre de produits corrigés, -1 en cas d'erreur
+     */
+    public int reconcilier() {
+        try {
+            List<Integer> corriges = stockDAO.reconcilierQuantitesProduits();
+            if (corriges.isEmpty()) {
+                LOGGER.fine("Réconciliation des stocks : aucun écart");
+            }
+            
+            // Vérifier aussi l'index des lots en mémoire
+            IndexLots.getInstance().verifier();
+            
+            // Purger les réservations échues, dont celles des caisses arrêtées,
+            // et relire celles des autres caisses
+            ReservationsStock.getInstance().resynchroniser();
+            
+            // Reporter dans les vitesses de vente les ventes des autres caisses
+            VitessesVente.getInstance().resynchroniserJour();
+            
+            // Et dans les seuils d'alerte les produits modifiés par les autres caisses
+            SeuilsAlerte.getInstance().resynchroniser();
+            return corriges.size();
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors de la réconciliation des quantités en stock", e);
+            return -1;
+        }
+    }
+}
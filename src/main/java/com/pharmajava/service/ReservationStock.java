@@ -0,0 +1,49 @@
+package com.pharmajava.service;
+
+import com.pharmajava.utils.RoueTemporelle;
+
+/**
+ * Réservation provisoire d'une quantité d'un produit, prise à l'ajout d'une ligne au panier
+ * (voir {@link ReservationsStock})
+ */
+public final class ReservationStock {
+    private final long id;
+    private final int produitId;
+
+    // Modifiés sous le verrou de la bande du produit
+    volatile int quantite;
+    volatile boolean active = true;
+    RoueTemporelle.Echeance<ReservationStock> echeance;
+
+    ReservationStock(long id, int produitId, int quantite) {
+        this.id = id;
+        this.produitId = produitId;
+        this.quantite = quantite;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public int getProduitId() {
+        return produitId;
+    }
+
+    public int getQuantite() {
+        return quantite;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    @Override
+    public String toString() {
+        return "ReservationStock{" +
+                "id=" + id +
+                ", produitId=" + produitId +
+                ", quantite=" + quantite +
+                ", active=" + active +
+                '}';
+    }
+}
@@ -0,0 +1,255 @@
+package com.pharmajava.service;
+
+import com.pharmajava.dao.IndexLots;
+import com.pharmajava.dao.ReservationStockDAO;
+import com.pharmajava.utils.RoueTemporelle;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Réservations provisoires de stock prises par les caisses pendant la constitution du panier.
+ *
+ * Une ligne ajoutée au panier réserve sa quantité dans la table reservations_stock
+ * (voir {@link ReservationStockDAO}) : toutes les caisses la voient comme indisponible
+ * jusqu'à ce qu'elle soit retirée du panier, que la vente soit validée (la réservation
+ * laisse alors place au prélèvement réel) ou que son échéance passe. Une caisse arrêtée
+ * sans libérer ses réservations ne bloque donc le stock que jusqu'à leur échéance.
+ *
+ * Seules la prise et l'augmentation d'une réservation vérifient le stock en base. La
+ * quantité disponible affichée pendant la saisie est calculée en mémoire : l'index des
+ * lots, moins les réservations de ce poste, comptées par produit dans des bandes
+ * verrouillées séparément, moins celles des autres postes, relues par
+ * {@link #resynchroniser()} et à chaque opération de ce poste sur le produit. Les
+ * échanges avec la base se font hors des verrous des bandes ; ceux-ci ne protègent que
+ * les compteurs et les échéances locales, confiées à une {@link RoueTemporelle}.
+ */
+public class ReservationsStock {
+    private static final Logger LOGGER = Logger.getLogger(ReservationsStock.class.getName());
+    private static final int NOMBRE_BANDES = 64;
+    private static final long DUREE_RESERVATION_MINUTES = 15;
+
+    private static ReservationsStock instance;
+
+    private final Bande[] bandes = new Bande[NOMBRE_BANDES];
+    private final ReservationStockDAO reservationStockDAO;
+    private final RoueTemporelle<ReservationStock> roue;
+
+    // Identifiant de ce poste dans reservations_stock, propre à chaque lancement
+    private final String poste = UUID.randomUUID().toString();
+
+    // Quantités réservées par les autres postes, par produit
+    private final Map<Integer, Integer> reserveesAilleurs = new ConcurrentHashMap<>();
+
+    private ReservationsStock() {
+        this.reservationStockDAO = new ReservationStockDAO();
+        for (int i = 0; i < NOMBRE_BANDES; i++) {
+            bandes[i] = new Bande();
+        }
+        // Pas d'une seconde, un tour de roue toutes les 512 secondes
+        roue = new RoueTemporelle<>("reservations-stock", 1, TimeUnit.SECONDS, 512, this::expirer);
+    }
+
+    /**
+     * Obtient l'instance unique du gestionnaire de réservations
+     *
+     * @return L'instance du gestionnaire
+     */
+    public static synchronized ReservationsStock getInstance() {
+        if (instance == null) {
+            instance = new ReservationsStock();
+        }
+        return instance;
+    }
+
+    /**
+     * Réserve une quantité d'un produit si elle est disponible, réservations de toutes
+     * les caisses déduites
+     *
+     * @param produitId L'ID du produit
+     * @param quantite La quantité à réserver
+     * @return La réservation, ou null si la quantité n'est pas disponible
+     * @throws SQLException si une erreur SQL survient
+     */
+    public ReservationStock reserver(int produitId, int quantite) throws SQLException {
+        ReservationStockDAO.Resultat resultat =
+                reservationStockDAO.reserver(produitId, quantite, DUREE_RESERVATION_MINUTES, poste);
+        noterReserveeAilleurs(produitId, resultat.getReserveeAilleurs());
+        if (!resultat.isAcceptee()) {
+            return null;
+        }
+
+        ReservationStock reservation = new ReservationStock(resultat.getId(), produitId, quantite);
+        Bande bande = bande(produitId);
+        synchronized (bande) {
+            bande.ajouter(produitId, quantite);
+            reservation.echeance = roue.planifier(reservation, DUREE_RESERVATION_MINUTES, TimeUnit.MINUTES);
+        }
+        return reservation;
+    }
+
+    /**
+     * Modifie la quantité d'une réservation active et repart pour un délai complet
+     *
+     * @param reservation La réservation à modifier
+     * @param nouvelleQuantite La nouvelle quantité réservée
+     * @return true si la réservation a été modifiée, false si la quantité supplémentaire
+     *         n'est pas disponible ou si la réservation n'est plus active
+     * @throws SQLException si une erreur SQL survient
+     */
+    public boolean ajuster(ReservationStock reservation, int nouvelleQuantite) throws SQLException {
+        int produitId = reservation.getProduitId();
+        if (!reservation.active) {
+            return false;
+        }
+
+        int ecart = nouvelleQuantite - reservation.quantite;
+        ReservationStockDAO.Resultat resultat = reservationStockDAO.ajuster(reservation.getId(), produitId, ecart,
+                DUREE_RESERVATION_MINUTES, poste);
+        noterReserveeAilleurs(produitId, resultat.getReserveeAilleurs());
+        if (!resultat.isAcceptee()) {
+            return false;
+        }
+
+        Bande bande = bande(produitId);
+        synchronized (bande) {
+            // Libérée pendant la modification : sa ligne en base a été supprimée
+            if (!reservation.active) {
+                return false;
+            }
+            bande.ajouter(produitId, ecart);
+            reservation.quantite += ecart;
+            reservation.echeance.annuler();
+            reservation.echeance = roue.planifier(reservation, DUREE_RESERVATION_MINUTES, TimeUnit.MINUTES);
+            return true;
+        }
+    }
+
+    /**
+     * Libère une réservation (ligne retirée du panier, vente abandonnée)
+     *
+     * @param reservation La réservation à libérer ; sans effet si elle n'est plus active
+     */
+    public void liberer(ReservationStock reservation) {
+        int produitId = reservation.getProduitId();
+        Bande bande = bande(produitId);
+        synchronized (bande) {
+            if (!reservation.active) {
+                return;
+            }
+            reservation.active = false;
+            reservation.echeance.annuler();
+            bande.ajouter(produitId, -reservation.quantite);
+        }
+
+        try {
+            noterReserveeAilleurs(produitId, reservationStockDAO.supprimer(reservation.getId(), produitId, poste));
+        } catch (SQLException e) {
+            // La réservation reste comptée par les autres caisses jusqu'à son échéance
+            LOGGER.log(Level.WARNING, "Libération en base de la réservation " + reservation.getId()
+                    + " échouée", e);
+        }
+    }
+
+    /**
+     * Solde les réservations d'une vente validée : les lots ont été réellement
+     * décrémentés, les quantités ne doivent plus être comptées deux fois
+     *
+     * @param reservations Les réservations du panier validé
+     */
+    public void consommer(Collection<ReservationStock> reservations) {
+        for (ReservationStock reservation : reservations) {
+            liberer(reservation);
+        }
+    }
+
+    /**
+     * Obtient la quantité d'un produit réservée par les paniers de ce poste
+     *
+     * @param produitId L'ID du produit
+     * @return La quantité réservée par ce poste
+     */
+    public int quantiteReserveeLocale(int produitId) {
+        Bande bande = bande(produitId);
+        synchronized (bande) {
+            return bande.reservee(produitId);
+        }
+    }
+
+    /**
+     * Obtient la quantité d'un produit encore disponible pour un nouveau panier, sans
+     * aller en base une fois le produit chargé dans l'index des lots ; indicative, la
+     * réservation la vérifie en base
+     *
+     * @param produitId L'ID du produit
+     * @return La quantité en stock non expirée moins les réservations de toutes les caisses
+     * @throws SQLException si les lots du produit doivent être chargés et que la lecture échoue
+     */
+    public int quantiteDisponible(int produitId) throws SQLException {
+        int enStock = IndexLots.getInstance().quantiteDisponible(produitId);
+        return Math.max(0, enStock - quantiteReserveeLocale(produitId)
+                - reserveesAilleurs.getOrDefault(produitId, 0));
+    }
+
+    /**
+     * Purge les réservations échues de toutes les caisses et relit les quantités
+     * réservées par les autres postes
+     *
+     * @return Le nombre de produits réservés par les autres postes
+     * @throws SQLException si une erreur SQL survient
+     */
+    public int resynchroniser() throws SQLException {
+        reservationStockDAO.supprimerEchues();
+        Map<Integer, Integer> lues = reservationStockDAO.reserveesAilleurs(poste);
+        reserveesAilleurs.keySet().retainAll(lues.keySet());
+        reserveesAilleurs.putAll(lues);
+        return lues.size();
+    }
+
+    private void noterReserveeAilleurs(int produitId, int quantite) {
+        if (quantite > 0) {
+            reserveesAilleurs.put(produitId, quantite);
+        } else {
+            reserveesAilleurs.remove(produitId);
+        }
+    }
+
+    private void expirer(ReservationStock reservation) {
+        if (reservation.isActive()) {
+            liberer(reservation);
+            LOGGER.info("Réservation expirée: " + reservation);
+        }
+    }
+
+    private Bande bande(int produitId) {
+        int h = Integer.hashCode(produitId);
+        return bandes[(h ^ (h >>> 16)) & (NOMBRE_BANDES - 1)];
+    }
+
+    /**
+     * Quantités réservées des produits d'une bande ; accès sous le verrou de la bande
+     */
+    private static final class Bande {
+        private final Map<Integer, int[]> reservees = new HashMap<>();
+
+        int reservee(int produitId) {
+            int[] compteur = reservees.get(produitId);
+            return compteur != null ? compteur[0] : 0;
+        }
+
+        void ajouter(int produitId, int quantite) {
+            int[] compteur = reservees.computeIfAbsent(produitId, id -> new int[1]);
+            compteur[0] += quantite;
+            if (compteur[0] <= 0) {
+                reservees.remove(produitId);
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.pharmajava.tools;
+
+import com.pharmajava.utils.RapportsJasper;
+import net.sf.jasperreports.engine.JasperCompileManager;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+/**
+ * Compile les modèles de rapports .jrxml en .jasper pendant la construction
+ * Lancé par Maven à la phase process-classes (voir pom.xml) ; écrit aussi
+ * l'empreinte de chaque modèle dans le fichier lu par RapportsJasper, qui
+ * reconnaît ainsi un rapport compilé à partir d'une ancienne version du modèle.
+ *
+ * Usage : CompilateurRapports dossierDesModeles dossierDeSortie
+ */
+public class CompilateurRapports {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 2) {
+            System.err.println("Usage : CompilateurRapports dossierDesModeles dossierDeSortie");
+            System.exit(2);
+        }
+        Path sources = Paths.get(args[0]);
+        Path sortie = Paths.get(args[1]);
+        Files.createDirectories(sortie);
+
+        Properties empreintes = new Properties();
+        int compiles = 0;
+        try (DirectoryStream<Path> modeles = Files.newDirectoryStream(sources, "*.jrxml")) {
+            for (Path modele : modeles) {
+                String fichier = modele.getFileName().toString();
+                String nom = fichier.substring(0, fichier.length() - ".jrxml".length());
+                Path compile = sortie.resolve(nom + ".jasper");
+
+                long t0 = System.nanoTime();
+                JasperCompileManager.compileReportToFile(modele.toString(), compile.toString());
+                empreintes.setProperty(nom, RapportsJasper.empreinte(Files.readAllBytes(modele)));
+                compiles++;
+
+                System.out.printf("Rapport compilé : %s (%.0f ms)%n", compile, (System.nanoTime() - t0) / 1e6);
+            }
+        }
+
+        ecrireEmpreintes(sortie.resolve(RapportsJasper.FICHIER_EMPREINTES), empreintes);
+        System.out.println(compiles + " rapport(s) compilé(s) dans " + sortie);
+    }
+
+    private static void ecrireEmpreintes(Path fichier, Properties empreintes) throws IOException {
+        try (OutputStream out = Files.newOutputStream(fichier)) {
+            empreintes.store(out, "Empreintes SHA-256 des modèles compilés");
+        }
+    }
+}
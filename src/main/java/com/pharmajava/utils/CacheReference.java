@@ -0,0 +1,168 @@
+package com.pharmajava.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache borné de données de référence par clé primaire (pharmaciens, clients)
+ *
+ * Les entrées sont évincées dans l'ordre du moins récemment utilisé (LRU) au-delà
+ * de la taille maximale, et expirent après une durée de vie fixe, pour qu'une
+ * modification faite depuis un autre poste finisse par être vue. Les écritures du DAO
+ * invalident l'entrée modifiée ; une lecture en base commencée avant une invalidation
+ * n'est pas mise en cache, pour ne pas y réinstaller l'ancienne valeur.
+ *
+ * Les instances servies sont partagées : elles ne doivent pas être modifiées sans
+ * être enregistrées par le DAO.
+ *
+ * @param <T> Le type des entités gardées
+ */
+public final class CacheReference<T> {
+    private final String nom;
+    private final int tailleMaximum;
+    private final long dureeVieNanos;
+    private final LinkedHashMap<Integer, Entree<T>> entrees;
+
+    // Protégés par le verrou du cache
+    private long invalidations;
+    private long succes;
+    private long echecs;
+    private long expirations;
+    private long evictions;
+
+    private static final class Entree<T> {
+        private final T valeur;
+        private final long expireA;
+
+        Entree(T valeur, long expireA) {
+            this.valeur = valeur;
+            this.expireA = expireA;
+        }
+    }
+
+    /**
+     * Crée un cache vide
+     *
+     * @param nom Le nom du cache, repris par les statistiques
+     * @param tailleMaximum Le nombre maximum d'entrées
+     * @param dureeVie La durée de vie d'une entrée
+     * @param unite L'unité de la durée de vie
+     */
+    public CacheReference(String nom, int tailleMaximum, long dureeVie, TimeUnit unite) {
+        this.nom = nom;
+        this.tailleMaximum = tailleMaximum;
+        this.dureeVieNanos = unite.toNanos(dureeVie);
+        this.entrees = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entree<T>> plusAncienne) {
+                if (size() > CacheReference.this.tailleMaximum) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Cherche une entité dans le cache
+     *
+     * @param id La clé primaire
+     * @return L'entité, ou null si elle est absente ou expirée
+     */
+    public synchronized T chercher(Integer id) {
+        Entree<T> entree = id != null ? entrees.get(id) : null;
+        if (entree == null) {
+            echecs++;
+            return null;
+        }
+        if (System.nanoTime() - entree.expireA >= 0) {
+            entrees.remove(id);
+            expirations++;
+            echecs++;
+            return null;
+        }
+        succes++;
+        return entree.valeur;
+    }
+
+    /**
+     * Marque le début d'une lecture en base destinée au cache
+     *
+     * @return Le jeton à passer à {@link #ajouter(Integer, Object, long)}
+     */
+    public synchronized long debutLecture() {
+        return invalidations;
+    }
+
+    /**
+     * Ajoute une entité lue en base, sauf si une invalidation a eu lieu depuis le début
+     * de la lecture
+     *
+     * @param id La clé primaire
+     * @param valeur L'entité lue
+     * @param lecture Le jeton obtenu par {@link #debutLecture()} avant la lecture
+     */
+    public synchronized void ajouter(Integer id, T valeur, long lecture) {
+        if (id == null || valeur == null || lecture != invalidations) {
+            return;
+        }
+        entrees.put(id, new Entree<>(valeur, System.nanoTime() + dureeVieNanos));
+    }
+
+    /**
+     * Retire une entité après une écriture en base
+     *
+     * @param id La clé primaire
+     */
+    public synchronized void invalider(Integer id) {
+        invalidations++;
+        if (id != null) {
+            entrees.remove(id);
+        }
+    }
+
+    /**
+     * Vide le cache
+     */
+    public synchronized void vider() {
+        invalidations++;
+        entrees.clear();
+    }
+
+    public synchronized int getTaille() {
+        return entrees.size();
+    }
+
+    public synchronized long getSucces() {
+        return succes;
+    }
+
+    public synchronized long getEchecs() {
+        return echecs;
+    }
+
+    public synchronized long getExpirations() {
+        return expirations;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return La part des recherches servies par le cache, entre 0 et 1
+     */
+    public synchronized double getTauxSucces() {
+        long total = succes + echecs;
+        return total == 0 ? 0 : (double) succes / total;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("CacheReference{%s: %d/%d entrées, %d succès, %d échecs (%.1f %%), "
+                        + "%d expirations, %d évictions}",
+                nom, entrees.size(), tailleMaximum, succes, echecs, getTauxSucces() * 100, expirations, evictions);
+    }
+}
@@ -10,7 +10,12 @@ import java.sql.SQLException;
  * Configuration et gestion des connexions à la base de données
  */
 public class DatabaseConfig {
+    private static final String URL_PAR_DEFAUT = "jdbc:mysql://mysql-kapelo.alwaysdata.net:3306/kapelo_pharmacie_db?useSSL=false&allowPublicKeyRetrieval=true&serverTimezone=UTC";
+    private static final String UTILISATEUR_PAR_DEFAUT = "kapelo";
+    private static final String MOT_DE_PASSE_PAR_DEFAUT = "Juwela99237614";
+
     private static HikariDataSource dataSource;
+    private static HikariDataSource dataSourceFlux;
 
     static {
         try {
@@ -22,27 +27,63 @@ public class DatabaseConfig {
 
     /**
      * Initialise le pool de connexions HikariCP
+     * La base cible peut être remplacée par les propriétés système pharmajava.db.url,
+     * pharmajava.db.utilisateur et pharmajava.db.motDePasse (bancs d'essai sur base embarquée)
      */
     private static void initDataSource() {
-        HikariConfig config = new HikariConfig();
-        config.setJdbcUrl("jdbc:mysql://mysql-kapelo.alwaysdata.net:3306/kapelo_pharmacie_db?useSSL=false&allowPublicKeyRetrieval=true&serverTimezone=UTC");
-        config.setUsername("kapelo");
-        config.setPassword("Juwela99237614");
-        config.setDriverClassName("com.mysql.cj.jdbc.Driver");
+        String url = urlBase();
         
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(url);
+        config.setUsername(System.getProperty("pharmajava.db.utilisateur", UTILISATEUR_PAR_DEFAUT));
+        config.setPassword(System.getProperty("pharmajava.db.motDePasse", MOT_DE_PASSE_PAR_DEFAUT));
         
         // Configuration du pool
         config.setMaximumPoolSize(10);
         config.setMinimumIdle(2);
         config.setIdleTimeout(30000);
         config.setConnectionTimeout(30000);
-        config.addDataSourceProperty("cachePrepStmts", "true");
-        config.addDataSourceProperty("prepStmtCacheSize", "250");
-        config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+        
+        // Propriétés propres au pilote MySQL (refusées par les autres pilotes)
+        if (url.startsWith("jdbc:mysql:")) {
+            config.setDriverClassName("com.mysql.cj.jdbc.Driver");
+            config.addDataSourceProperty("cachePrepStmts", "true");
+            config.addDataSourceProperty("prepStmtCacheSize", "250");
+            config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+            // Les lots JDBC (addBatch) partent en une seule requête multi-lignes
+            config.addDataSourceProperty("rewriteBatchedStatements", "true");
+        }
 
         dataSource = new HikariDataSource(config);
     }
 
+    /**
+     * Initialise le petit pool réservé aux lectures en flux des rapports, dont les
+     * connexions lisent par curseur serveur les requêtes qui fixent une taille de paquet.
+     * Ce mode passe aussi les requêtes préparées côté serveur : il est gardé hors du
+     * pool principal pour ne pas changer le coût des requêtes des caisses.
+     */
+    private static void initDataSourceFlux() {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(urlBase());
+        config.setUsername(System.getProperty("pharmajava.db.utilisateur", UTILISATEUR_PAR_DEFAUT));
+        config.setPassword(System.getProperty("pharmajava.db.motDePasse", MOT_DE_PASSE_PAR_DEFAUT));
+        config.setPoolName("pharmajava-flux");
+        config.setMaximumPoolSize(2);
+        config.setMinimumIdle(0);
+        config.setIdleTimeout(30000);
+        config.setConnectionTimeout(30000);
+        config.setDriverClassName("com.mysql.cj.jdbc.Driver");
+        // Une requête avec setFetchSize est lue par paquets au lieu d'être chargée en entier
+        config.addDataSourceProperty("useCursorFetch", "true");
+
+        dataSourceFlux = new HikariDataSource(config);
+    }
+
+    private static String urlBase() {
+        return System.getProperty("pharmajava.db.url", URL_PAR_DEFAUT);
+    }
+
     /**
      * Obtient une connexion depuis le pool
      * 
@@ -57,9 +98,34 @@ public class DatabaseConfig {
     }
 
     /**
-     * Ferme le pool de connexions
+     * Obtient une connexion pour lire en flux une requête volumineuse (rapports, calculs
+     * de fond) : la requête doit fixer sa taille de paquet avec setFetchSize. Hors MySQL,
+     * c'est une connexion du pool principal.
+     * 
+     * @return une connexion à la base de données
+     * @throws SQLException si une erreur de connexion survient
+     */
+    public static Connection getConnectionLectureEnFlux() throws SQLException {
+        if (!urlBase().startsWith("jdbc:mysql:")) {
+            return getConnection();
+        }
+        synchronized (DatabaseConfig.class) {
+            if (dataSourceFlux == null) {
+                initDataSourceFlux();
+            }
+        }
+        return dataSourceFlux.getConnection();
+    }
+
+    /**
+     * Ferme les pools de connexions
      */
     public static void closeDataSource() {
+        synchronized (DatabaseConfig.class) {
+            if (dataSourceFlux != null && !dataSourceFlux.isClosed()) {
+                dataSourceFlux.close();
+            }
+        }
         if (dataSource != null && !dataSource.isClosed()) {
             dataSource.close();
         }
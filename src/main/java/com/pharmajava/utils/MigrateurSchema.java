@@ -0,0 +1,166 @@
+package com.pharmajava.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * Applique au démarrage les migrations de schéma qui ne l'ont pas encore été
+ *
+ * database/scripts/schema.sql reste le schéma de base ; chaque évolution ultérieure
+ * est un script versionné de src/main/resources/db/migrations, déclaré dans
+ * {@link #MIGRATIONS} et appliqué une seule fois, dans l'ordre. Les versions
+ * appliquées sont enregistrées dans la table schema_version.
+ *
+ * MySQL valide implicitement chaque instruction DDL : une migration interrompue est
+ * rejouée en entier au démarrage suivant. Les colonnes, index et tables qui existent
+ * déjà sont donc ignorés plutôt que de faire échouer la migration.
+ */
+public final class MigrateurSchema {
+    private static final Logger LOGGER = Logger.getLogger(MigrateurSchema.class.getName());
+
+    private static final String DOSSIER_MIGRATIONS = "/db/migrations/";
+
+    /**
+     * Migrations dans leur ordre d'application : version, puis nom du script
+     */
+    private static final String[][] MIGRATIONS = {
+            {"1", "V001__expiration_des_lots.sql"},
+            {"2", "V002__index_performances.sql"},
+            {"3", "V003__mouvements_stock.sql"},
+            {"4", "V004__versions_optimistes.sql"},
+            {"5", "V005__ravitaillements.sql"},
+            {"6", "V006__previsions_ventes.sql"},
+            {"7", "V007__catalogue_produits.sql"},
+            {"8", "V008__reservations_stock.sql"},
+            {"9", "V009__reservations_stock_poste.sql"},
+    };
+
+    // Codes d'erreur « existe déjà » : MySQL (table, colonne, index), puis H2
+    private static final Set<Integer> ERREURS_DEJA_APPLIQUE = Set.of(1050, 1060, 1061, 42101, 42121, 42111);
+
+    private MigrateurSchema() {
+    }
+
+    /**
+     * Applique les migrations en attente sur la base configurée
+     *
+     * @return Le nombre de migrations appliquées
+     * @throws SQLException si une migration échoue
+     * @throws IOException si un script de migration est introuvable ou illisible
+     */
+    public static int migrer() throws SQLException, IOException {
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            return migrer(conn);
+        }
+    }
+
+    /**
+     * Applique les migrations en attente sur la connexion fournie
+     *
+     * @param conn La connexion à utiliser
+     * @return Le nombre de migrations appliquées
+     * @throws SQLException si une migration échoue
+     * @throws IOException si un script de migration est introuvable ou illisible
+     */
+    public static int migrer(Connection conn) throws SQLException, IOException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS schema_version ("
+                    + "version INT PRIMARY KEY, "
+                    + "script VARCHAR(200) NOT NULL, "
+                    + "date_application TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+        }
+
+        Set<Integer> appliquees = new HashSet<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT version FROM schema_version")) {
+            while (rs.next()) {
+                appliquees.add(rs.getInt("version"));
+            }
+        }
+
+        int nombre = 0;
+        for (String[] migration : MIGRATIONS) {
+            int version = Integer.parseInt(migration[0]);
+            if (appliquees.contains(version)) {
+                continue;
+            }
+
+            LOGGER.info("Application de la migration " + migration[1]);
+            for (String instruction : decouperInstructions(lireScript(migration[1]))) {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute(instruction);
+                } catch (SQLException e) {
+                    if (!ERREURS_DEJA_APPLIQUE.contains(e.getErrorCode())) {
+                        throw new SQLException("Échec de la migration " + migration[1] + " : " + e.getMessage(), e);
+                    }
+                    LOGGER.info("Déjà présent, ignoré : " + e.getMessage());
+                }
+            }
+
+            enregistrer(conn, version, migration[1]);
+            nombre++;
+        }
+
+        if (nombre > 0) {
+            LOGGER.info(nombre + " migration(s) de schéma appliquée(s)");
+        }
+        return nombre;
+    }
+
+    /**
+     * Découpe un script SQL en instructions, commentaires "--" retirés
+     *
+     * @param script Le contenu du script
+     * @return Les instructions, sans le point-virgule final
+     */
+    public static List<String> decouperInstructions(String script) {
+        StringBuilder sansCommentaires = new StringBuilder();
+        for (String ligne : script.split("\n")) {
+            int commentaire = ligne.indexOf("--");
+            sansCommentaires.append(commentaire >= 0 ? ligne.substring(0, commentaire) : ligne).append('\n');
+        }
+
+        List<String> instructions = new ArrayList<>();
+        for (String instruction : sansCommentaires.toString().split(";")) {
+            String nettoyee = instruction.replaceAll("\\s+", " ").trim();
+            if (!nettoyee.isEmpty()) {
+                instructions.add(nettoyee);
+            }
+        }
+        return instructions;
+    }
+
+    private static String lireScript(String nom) throws IOException {
+        try (InputStream in = MigrateurSchema.class.getResourceAsStream(DOSSIER_MIGRATIONS + nom)) {
+            if (in == null) {
+                throw new IOException("Script de migration introuvable : " + DOSSIER_MIGRATIONS + nom);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    // Une autre caisse démarrée en même temps a pu enregistrer la version entre-temps
+    private static void enregistrer(Connection conn, int version, String script) throws SQLException {
+        String sql = "INSERT INTO schema_version (version, script) VALUES (?, ?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, version);
+            pstmt.setString(2, script);
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            if (!"23000".equals(e.getSQLState()) && !"23505".equals(e.getSQLState())) {
+                throw e;
+            }
+        }
+    }
+}
@@ -2,15 +2,13 @@ package com.pharmajava.utils;
 
 import com.pharmajava.model.ProduitVendu;
 import com.pharmajava.model.Vente;
-import com.pharmajava.dao.PharmacieInfoDAO;
+import com.pharmajava.dao.InfoPharmacie;
 import com.pharmajava.model.PharmacieInfo;
 
 import net.sf.jasperreports.engine.*;
 import net.sf.jasperreports.engine.data.JRBeanCollectionDataSource;
 import net.sf.jasperreports.view.JasperViewer;
 
-import java.io.File;
-import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -19,6 +17,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -28,6 +27,34 @@ import java.util.logging.Logger;
 public class PrintUtils {
     private static final Logger LOGGER = Logger.getLogger(PrintUtils.class.getName());
     private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
+    private static final int LARGEUR_TICKET = 42;
+
+    // En-tête des tickets, reconstruit quand les informations de la pharmacie changent
+    private static volatile EnTeteTicket enTete;
+
+    /**
+     * En-tête des tickets construit une fois à partir des informations de la pharmacie :
+     * le bloc de texte des tickets thermiques et les paramètres du rapport Jasper
+     */
+    private static final class EnTeteTicket {
+        private final PharmacieInfo source;
+        private final String texte;
+        private final Map<String, Object> parametres;
+
+        EnTeteTicket(PharmacieInfo pharmacieInfo) {
+            this.source = pharmacieInfo;
+            this.texte = centrerTexte(pharmacieInfo.getNom(), LARGEUR_TICKET) + "\n" +
+                    centrerTexte(pharmacieInfo.getAdresse(), LARGEUR_TICKET) + "\n" +
+                    centrerTexte("Tél: " + pharmacieInfo.getTelephone1(), LARGEUR_TICKET) + "\n" +
+                    separateur() + "\n";
+
+            Map<String, Object> map = new HashMap<>();
+            map.put("nomPharmacie", pharmacieInfo.getNom());
+            map.put("adressePharmacie", pharmacieInfo.getAdresse());
+            map.put("telephonePharmacie", pharmacieInfo.getTelephone1());
+            this.parametres = Collections.unmodifiableMap(map);
+        }
+    }
 
     // Appeler cette méthode au démarrage de l'application pour vérifier les
     // ressources
@@ -74,65 +101,7 @@ public class PrintUtils {
      */
     public static boolean imprimerTicketVente(Vente vente) {
         try {
-            // Récupérer les informations de la pharmacie
-            PharmacieInfoDAO pharmacieInfoDAO = new PharmacieInfoDAO();
-            PharmacieInfo pharmacieInfo = pharmacieInfoDAO.obtenirInfoPharmacieActuelle();
-
-            // Préparer les paramètres du rapport
-            Map<String, Object> parameters = new HashMap<>();
-
-            // Informations sur la pharmacie
-            parameters.put("nomPharmacie", pharmacieInfo.getNom());
-            parameters.put("adressePharmacie", pharmacieInfo.getAdresse());
-            parameters.put("telephonePharmacie", pharmacieInfo.getTelephone1());
-
-            // Informations sur la vente
-            parameters.put("numeroTicket", vente.getId().toString());
-            parameters.put("dateVente", vente.getDateVente().format(DATE_TIME_FORMATTER));
-            parameters.put("pharmacien", vente.getPharmacien().getNomComplet());
-            parameters.put("montantTotal", vente.getMontantTotal().toString() + " FCFA");
-            parameters.put("montantPercu", vente.getMontantPercu().toString() + " FCFA");
-            parameters.put("montantRendu", vente.getMontantRendu().toString() + " FCFA");
-
-            // Préparer les données pour le détail des produits
-            List<Map<String, Object>> produitsData = new ArrayList<>();
-            for (ProduitVendu produit : vente.getProduitsVendus()) {
-                Map<String, Object> item = new HashMap<>();
-                item.put("nom", produit.getProduit().getNom());
-                item.put("quantite", produit.getQuantite());
-                item.put("prixUnitaire", produit.getPrixUnitaire().toString() + " FCFA");
-                item.put("prixTotal", produit.getPrixTotal().toString() + " FCFA");
-                produitsData.add(item);
-            }
-
-            LOGGER.info("Nombre de produits pour le ticket: " + produitsData.size());
-
-            // Vérifier les chemins des ressources
-            File reportsDir = new File("src/main/resources/reports");
-            File templateFile = new File(reportsDir, "ticket_vente.jrxml");
-            LOGGER.info("Recherche du template à: " + templateFile.getAbsolutePath());
-            LOGGER.info("Le template existe: " + templateFile.exists());
-
-            // Charger le template du ticket
-            InputStream ticketTemplate = PrintUtils.class.getResourceAsStream("/reports/ticket_vente.jrxml");
-            if (ticketTemplate == null) {
-                LOGGER.severe("Le template du ticket est introuvable");
-                // Essayer avec un chemin absolu
-                ticketTemplate = Files.newInputStream(templateFile.toPath());
-                if (ticketTemplate == null) {
-                    LOGGER.severe("Impossible de charger le template même avec chemin absolu");
-                    return false;
-                }
-            }
-
-            // Compiler le rapport
-            JasperReport jasperReport = JasperCompileManager.compileReport(ticketTemplate);
-
-            // Créer la source de données pour les produits
-            JRBeanCollectionDataSource produitsDS = new JRBeanCollectionDataSource(produitsData);
-
-            // Remplir le rapport avec les données des produits
-            JasperPrint jasperPrint = JasperFillManager.fillReport(jasperReport, parameters, produitsDS);
+            JasperPrint jasperPrint = preparerTicketVente(vente);
 
             // Afficher l'aperçu du rapport
             JasperViewer.viewReport(jasperPrint, false);
@@ -148,6 +117,45 @@ public class PrintUtils {
         }
     }
 
+    /**
+     * Prépare le ticket de vente à imprimer : le rapport compilé vient du cache
+     * de RapportsJasper et l'en-tête des informations de la pharmacie
+     * 
+     * @param vente La vente pour laquelle préparer le ticket
+     * @return Le ticket rempli, prêt à être affiché ou imprimé
+     * @throws JRException si le rapport ne peut pas être chargé ou rempli
+     */
+    public static JasperPrint preparerTicketVente(Vente vente) throws JRException {
+        // Préparer les paramètres du rapport, à partir de ceux de l'en-tête
+        Map<String, Object> parameters = new HashMap<>(obtenirEnTete().parametres);
+
+        // Informations sur la vente
+        parameters.put("numeroTicket", vente.getId().toString());
+        parameters.put("dateVente", vente.getDateVente().format(DATE_TIME_FORMATTER));
+        parameters.put("pharmacien", vente.getPharmacien().getNomComplet());
+        parameters.put("montantTotal", vente.getMontantTotal().toString() + " FCFA");
+        parameters.put("montantPercu", vente.getMontantPercu().toString() + " FCFA");
+        parameters.put("montantRendu", vente.getMontantRendu().toString() + " FCFA");
+
+        // Préparer les données pour le détail des produits
+        List<Map<String, Object>> produitsData = new ArrayList<>();
+        for (ProduitVendu produit : vente.getProduitsVendus()) {
+            Map<String, Object> item = new HashMap<>();
+            item.put("nom", produit.getProduit().getNom());
+            item.put("quantite", produit.getQuantite());
+            item.put("prixUnitaire", produit.getPrixUnitaire().toString() + " FCFA");
+            item.put("prixTotal", produit.getPrixTotal().toString() + " FCFA");
+            produitsData.add(item);
+        }
+
+        // Rapport compilé à la construction, chargé une fois
+        JasperReport jasperReport = RapportsJasper.obtenir("ticket_vente");
+
+        // Remplir le rapport avec les données des produits
+        JRBeanCollectionDataSource produitsDS = new JRBeanCollectionDataSource(produitsData);
+        return JasperFillManager.fillReport(jasperReport, parameters, produitsDS);
+    }
+
     /**
      * Génère un ticket au format texte simple pour les imprimantes de tickets
      * thermiques
@@ -157,17 +165,10 @@ public class PrintUtils {
      */
     public static String genererTicketTexte(Vente vente) {
         try {
-            // Récupérer les informations de la pharmacie
-            PharmacieInfoDAO pharmacieInfoDAO = new PharmacieInfoDAO();
-            PharmacieInfo pharmacieInfo = pharmacieInfoDAO.obtenirInfoPharmacieActuelle();
-
             StringBuilder ticket = new StringBuilder();
 
             // En-tête du ticket
-            ticket.append(centrerTexte(pharmacieInfo.getNom(), 42)).append("\n");
-            ticket.append(centrerTexte(pharmacieInfo.getAdresse(), 42)).append("\n");
-            ticket.append(centrerTexte("Tél: " + pharmacieInfo.getTelephone1(), 42)).append("\n");
-            ticket.append(separateur()).append("\n");
+            ticket.append(obtenirEnTete().texte);
 
             // Informations sur la vente
             ticket.append("Ticket N°: ").append(vente.getId()).append("\n");
@@ -201,8 +202,8 @@ public class PrintUtils {
             ticket.append(String.format("%33s %7s", "RENDU:", vente.getMontantRendu().toString())).append("\n");
 
             ticket.append(separateur()).append("\n");
-            ticket.append(centrerTexte("Merci de votre achat!", 42)).append("\n");
-            ticket.append(centrerTexte("À bientôt!", 42)).append("\n");
+            ticket.append(centrerTexte("Merci de votre achat!", LARGEUR_TICKET)).append("\n");
+            ticket.append(centrerTexte("À bientôt!", LARGEUR_TICKET)).append("\n");
 
             return ticket.toString();
         } catch (Exception e) {
@@ -211,6 +212,22 @@ public class PrintUtils {
         }
     }
 
+    /**
+     * Obtient l'en-tête des tickets, reconstruit seulement si les informations
+     * de la pharmacie ont été relues depuis sa construction
+     *
+     * @return L'en-tête des tickets
+     */
+    private static EnTeteTicket obtenirEnTete() {
+        PharmacieInfo pharmacieInfo = InfoPharmacie.getInstance().obtenir();
+        EnTeteTicket courant = enTete;
+        if (courant == null || courant.source != pharmacieInfo) {
+            courant = new EnTeteTicket(pharmacieInfo);
+            enTete = courant;
+        }
+        return courant;
+    }
+
     /**
      * Centre un texte dans une largeur donnée
      * 
@@ -233,6 +250,6 @@ public class PrintUtils {
      * @return Une ligne de séparation
      */
     private static String separateur() {
-        return "-".repeat(42);
+        return "-".repeat(LARGEUR_TICKET);
     }
 }
\ No newline at end of file
@@ -0,0 +1,167 @@
+package com.pharmajava.utils;
+
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JasperCompileManager;
+import net.sf.jasperreports.engine.JasperReport;
+import net.sf.jasperreports.engine.util.JRLoader;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Cache des rapports Jasper compilés, par nom de modèle.
+ *
+ * Les modèles .jrxml sont compilés en .jasper pendant la construction Maven
+ * (voir com.pharmajava.tools.CompilateurRapports), qui enregistre aussi l'empreinte
+ * SHA-256 de chaque source dans reports/empreintes.properties. À la première
+ * demande, le rapport compilé est chargé depuis le classpath puis gardé en mémoire :
+ * les impressions suivantes ne relisent ni ne compilent plus rien.
+ *
+ * En développement, quand l'application est lancée depuis le projet et que les
+ * sources des modèles sont présentes dans src/main/resources/reports, l'empreinte de
+ * la source est recalculée à chaque demande : un modèle modifié, ou qui n'a pas encore
+ * été compilé par la construction, est alors recompilé. En production, un rapport
+ * absent du classpath est une erreur, jamais une compilation à la caisse.
+ */
+public final class RapportsJasper {
+    private static final Logger LOGGER = Logger.getLogger(RapportsJasper.class.getName());
+
+    /** Nom du fichier des empreintes des modèles, à côté des rapports compilés */
+    public static final String FICHIER_EMPREINTES = "empreintes.properties";
+
+    private static final String RESSOURCES_RAPPORTS = "/reports/";
+    private static final Path SOURCES_DEVELOPPEMENT = Paths.get("src/main/resources/reports");
+
+    private static final Map<String, RapportCompile> CACHE = new ConcurrentHashMap<>();
+
+    private static final class RapportCompile {
+        private final String empreinte;
+        private final JasperReport rapport;
+
+        RapportCompile(String empreinte, JasperReport rapport) {
+            this.empreinte = empreinte;
+            this.rapport = rapport;
+        }
+    }
+
+    private RapportsJasper() {
+    }
+
+    /**
+     * Obtient un rapport compilé
+     *
+     * @param nom Le nom du modèle, sans extension (par exemple "ticket_vente")
+     * @return Le rapport compilé
+     * @throws JRException si le rapport est introuvable ou ne peut pas être chargé
+     */
+    public static JasperReport obtenir(String nom) throws JRException {
+        Path source = SOURCES_DEVELOPPEMENT.resolve(nom + ".jrxml");
+        RapportCompile enCache = CACHE.get(nom);
+
+        if (!Files.isRegularFile(source)) {
+            return enCache != null ? enCache.rapport : chargerCompile(nom);
+        }
+
+        // Développement : le modèle a pu changer depuis la dernière compilation
+        byte[] jrxml;
+        try {
+            jrxml = Files.readAllBytes(source);
+        } catch (IOException e) {
+            throw new JRException("Modèle illisible: " + source.toAbsolutePath(), e);
+        }
+        String empreinte = empreinte(jrxml);
+        if (enCache != null && enCache.empreinte.equals(empreinte)) {
+            return enCache.rapport;
+        }
+        return compilerEnDeveloppement(nom, empreinte, jrxml);
+    }
+
+    /**
+     * Vide le cache ; les rapports seront rechargés à la prochaine demande
+     */
+    public static void vider() {
+        CACHE.clear();
+    }
+
+    /**
+     * Calcule l'empreinte d'un modèle, enregistrée à la compilation et comparée au chargement
+     *
+     * @param contenu Le contenu du fichier .jrxml
+     * @return L'empreinte SHA-256 en hexadécimal
+     */
+    public static String empreinte(byte[] contenu) {
+        try {
+            byte[] hache = MessageDigest.getInstance("SHA-256").digest(contenu);
+            StringBuilder hex = new StringBuilder(hache.length * 2);
+            for (byte b : hache) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponible", e);
+        }
+    }
+
+    private static synchronized JasperReport chargerCompile(String nom) throws JRException {
+        RapportCompile enCache = CACHE.get(nom);
+        if (enCache != null) {
+            return enCache.rapport;
+        }
+
+        JasperReport rapport = lireCompile(nom);
+        if (rapport == null) {
+            throw new JRException("Rapport compilé introuvable: " + RESSOURCES_RAPPORTS + nom
+                    + ".jasper (les rapports sont compilés par mvn process-classes)");
+        }
+        CACHE.put(nom, new RapportCompile(lireEmpreintes().getProperty(nom, ""), rapport));
+        LOGGER.info("Rapport compilé chargé: " + nom);
+        return rapport;
+    }
+
+    private static synchronized JasperReport compilerEnDeveloppement(String nom, String empreinte, byte[] jrxml)
+            throws JRException {
+        RapportCompile enCache = CACHE.get(nom);
+        if (enCache != null && enCache.empreinte.equals(empreinte)) {
+            return enCache.rapport;
+        }
+
+        // Le rapport compilé par la construction sert tant que son modèle n'a pas changé
+        JasperReport rapport = empreinte.equals(lireEmpreintes().getProperty(nom)) ? lireCompile(nom) : null;
+        if (rapport == null) {
+            LOGGER.info("Compilation du modèle " + nom + " (développement)");
+            rapport = JasperCompileManager.compileReport(new ByteArrayInputStream(jrxml));
+        }
+        CACHE.put(nom, new RapportCompile(empreinte, rapport));
+        return rapport;
+    }
+
+    private static JasperReport lireCompile(String nom) throws JRException {
+        try (InputStream in = RapportsJasper.class.getResourceAsStream(RESSOURCES_RAPPORTS + nom + ".jasper")) {
+            return in != null ? (JasperReport) JRLoader.loadObject(in) : null;
+        } catch (IOException e) {
+            throw new JRException("Rapport compilé illisible: " + nom, e);
+        }
+    }
+
+    private static Properties lireEmpreintes() {
+        Properties empreintes = new Properties();
+        try (InputStream in = RapportsJasper.class.getResourceAsStream(RESSOURCES_RAPPORTS + FICHIER_EMPREINTES)) {
+            if (in != null) {
+                empreintes.load(in);
+            }
+        } catch (IOException e) {
+            LOGGER.warning("Empreintes des rapports illisibles: " + e.getMessage());
+        }
+        return empreintes;
+    }
+}
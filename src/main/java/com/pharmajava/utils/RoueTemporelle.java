@@ -0,0 +1,155 @@
+package com.pharmajava.utils;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Roue temporelle (timer wheel) pour un grand nombre d'échéances peu précises
+ *
+ * Les échéances sont réparties dans des cases parcourues une par une à chaque pas ;
+ * planifier et annuler coûtent O(1) quel que soit le nombre d'échéances en attente.
+ * Une échéance plus lointaine qu'un tour complet attend le nombre de tours nécessaire.
+ * Un seul thread démon fait tourner la roue et appelle l'action d'expiration.
+ *
+ * @param <T> Le type des éléments planifiés
+ */
+public final class RoueTemporelle<T> implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(RoueTemporelle.class.getName());
+
+    private final long dureePasNanos;
+    private final List<List<Echeance<T>>> cases;
+    private final Queue<Echeance<T>> aPlacer = new ConcurrentLinkedQueue<>();
+    private final Consumer<T> expiration;
+    private final Thread thread;
+    private final long debut;
+
+    private volatile boolean active = true;
+
+    /**
+     * Crée et démarre une roue temporelle
+     *
+     * @param nom Le nom du thread de la roue
+     * @param dureePas La durée d'un pas (précision des échéances)
+     * @param unite L'unité de la durée du pas
+     * @param nombreCases Le nombre de cases de la roue
+     * @param expiration L'action appelée, sur le thread de la roue, pour chaque échéance atteinte
+     */
+    public RoueTemporelle(String nom, long dureePas, TimeUnit unite, int nombreCases, Consumer<T> expiration) {
+        this.dureePasNanos = unite.toNanos(dureePas);
+        this.expiration = expiration;
+        this.cases = new ArrayList<>(nombreCases);
+        for (int i = 0; i < nombreCases; i++) {
+            cases.add(new ArrayList<>());
+        }
+
+        this.debut = System.nanoTime();
+        this.thread = new Thread(this::tourner, nom);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Planifie un élément
+     *
+     * @param element L'élément à passer à l'action d'expiration
+     * @param delai Le délai avant expiration
+     * @param unite L'unité du délai
+     * @return L'échéance, à annuler si l'élément n'a plus à expirer
+     */
+    public Echeance<T> planifier(T element, long delai, TimeUnit unite) {
+        Echeance<T> echeance = new Echeance<>(element, System.nanoTime() + unite.toNanos(delai));
+        aPlacer.add(echeance);
+        return echeance;
+    }
+
+    /**
+     * Arrête la roue ; les échéances en attente n'expireront pas
+     */
+    @Override
+    public void close() {
+        active = false;
+        thread.interrupt();
+    }
+
+    private void tourner() {
+        long pas = 0;
+        while (active) {
+            long attente = debut + (pas + 1) * dureePasNanos - System.nanoTime();
+            if (attente > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(attente);
+                } catch (InterruptedException e) {
+                    if (!active) {
+                        return;
+                    }
+                }
+            }
+
+            placerNouvelles(pas);
+            traiterCase(pas);
+            pas++;
+        }
+    }
+
+    private void placerNouvelles(long pas) {
+        Echeance<T> echeance;
+        while ((echeance = aPlacer.poll()) != null) {
+            if (echeance.annulee) {
+                continue;
+            }
+            long pasCible = Math.max((echeance.echeanceNanos - debut) / dureePasNanos, pas);
+            echeance.tours = (pasCible - pas) / cases.size();
+            cases.get((int) (pasCible % cases.size())).add(echeance);
+        }
+    }
+
+    private void traiterCase(long pas) {
+        Iterator<Echeance<T>> iterateur = cases.get((int) (pas % cases.size())).iterator();
+        while (iterateur.hasNext()) {
+            Echeance<T> echeance = iterateur.next();
+            if (echeance.annulee) {
+                iterateur.remove();
+            } else if (echeance.tours > 0) {
+                echeance.tours--;
+            } else {
+                iterateur.remove();
+                try {
+                    expiration.accept(echeance.element);
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.SEVERE, "Erreur lors du traitement d'une échéance", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Échéance planifiée dans la roue
+     *
+     * @param <T> Le type de l'élément planifié
+     */
+    public static final class Echeance<T> {
+        private final T element;
+        private final long echeanceNanos;
+        private volatile boolean annulee;
+        private long tours;
+
+        private Echeance(T element, long echeanceNanos) {
+            this.element = element;
+            this.echeanceNanos = echeanceNanos;
+        }
+
+        /**
+         * Annule l'échéance ; elle sera retirée de la roue à son prochain passage
+         */
+        public void annuler() {
+            annulee = true;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.pharmajava.utils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Verrou nommé MySQL (GET_LOCK) partagé par tous les postes, pour qu'une tâche de fond
+ * lancée par chaque caisse ne s'exécute que sur un poste à la fois.
+ *
+ * Le verrou appartient à la connexion qui l'a pris : il est gardé tant que le verrou
+ * n'est pas fermé, et rendu par le serveur si le poste s'arrête ou perd sa connexion.
+ * Hors MySQL (base embarquée des bancs d'essai, un seul processus), le verrou est
+ * toujours accordé.
+ */
+public final class VerrouNomme implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(VerrouNomme.class.getName());
+
+    private final String nom;
+    private final Connection conn;
+
+    private VerrouNomme(String nom, Connection conn) {
+        this.nom = nom;
+        this.conn = conn;
+    }
+
+    /**
+     * Tente de prendre un verrou nommé sans attendre
+     *
+     * @param nom Le nom du verrou, commun à tous les postes
+     * @return Le verrou pris, à fermer en fin de tâche, ou null s'il est tenu par un autre poste
+     * @throws SQLException si une erreur SQL survient
+     */
+    public static VerrouNomme essayer(String nom) throws SQLException {
+        Connection conn = DatabaseConfig.getConnection();
+        try {
+            if (!"MySQL".equalsIgnoreCase(conn.getMetaData().getDatabaseProductName())) {
+                conn.close();
+                return new VerrouNomme(nom, null);
+            }
+
+            try (PreparedStatement pstmt = conn.prepareStatement("SELECT GET_LOCK(?, 0)")) {
+                pstmt.setString(1, nom);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next() && rs.getInt(1) == 1) {
+                        return new VerrouNomme(nom, conn);
+                    }
+                }
+            }
+            conn.close();
+            return null;
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Rend le verrou
+     */
+    @Override
+    public void close() {
+        if (conn == null) {
+            return;
+        }
+        try (Connection c = conn;
+             PreparedStatement pstmt = c.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            pstmt.setString(1, nom);
+            pstmt.executeQuery().close();
+        } catch (SQLException e) {
+            // Le serveur rend le verrou à la fermeture de la session
+            LOGGER.log(Level.WARNING, "Libération du verrou " + nom + " échouée", e);
+        }
+    }
+}
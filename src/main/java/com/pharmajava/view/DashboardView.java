@@ -1014,8 +1014,16 @@ public class DashboardView extends JFrame {
             alertsPanel.add(createAlertItem(IconUtils.ICON_SUCCESS, "Aucun produit expiré", SUCCESS_COLOR));
         }
 
+        // Produits à réapprovisionner
+        int produitsSousSeuil = controller.getNombreProduitsSousSeuil();
+        if (produitsSousSeuil > 0) {
+            alertsPanel.add(createAlertItem(IconUtils.ICON_WARNING,
+                    produitsSousSeuil + " produits sous le seuil d'alerte", WARNING_COLOR));
+        } else {
+            alertsPanel.add(createAlertItem(IconUtils.ICON_SUCCESS, "Aucun produit sous le seuil d'alerte", SUCCESS_COLOR));
+        }
+
         // Simuler d'autres alertes (à remplacer par des alertes réelles)
-        alertsPanel.add(createAlertItem(IconUtils.ICON_WARNING, "5 produits sous le seuil d'alerte", WARNING_COLOR));
         alertsPanel
                 .add(createAlertItem(IconUtils.ICON_MEDICINE, "Les ordonnances doivent être archivées", ACCENT_COLOR));
 
@@ -0,0 +1,245 @@
+package com.pharmajava.view;
+
+import com.pharmajava.model.Produit;
+import com.pharmajava.model.ProduitVendu;
+import com.pharmajava.service.ReservationStock;
+
+import javax.swing.table.AbstractTableModel;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Modèle du tableau du panier de la vue des ventes.
+ *
+ * Chaque ligne garde le produit, son prix unitaire et sa quantité sous forme typée,
+ * ainsi que la réservation de stock prise pour elle : la validation construit la vente
+ * directement depuis les lignes, sans relire le tableau ni rechercher les produits.
+ * Les lignes sont indexées par ID de produit, chacune connaît sa position dans le
+ * tableau, et le montant total est tenu à jour à chaque modification : ajouter une
+ * ligne ou en changer la quantité se fait en temps constant. Retirer une ligne décale
+ * les lignes suivantes pour garder l'ordre de saisie affiché.
+ */
+public class PanierTableModel extends AbstractTableModel {
+    private static final String[] ENTETES = { "Produit", "P.U", "Qté", "S.Total", "" };
+
+    /** Colonne du bouton de suppression de la ligne */
+    public static final int COLONNE_ACTION = 4;
+
+    private final List<Ligne> lignes = new ArrayList<>();
+    private final Map<Integer, Ligne> parProduit = new HashMap<>();
+    private final Function<BigDecimal, String> formatMontant;
+    private BigDecimal montantTotal = BigDecimal.ZERO;
+
+    /**
+     * Ligne du panier
+     */
+    public static final class Ligne {
+        private final Produit produit;
+        private final BigDecimal prixUnitaire;
+        private int quantite;
+        private BigDecimal sousTotal;
+        private ReservationStock reservation;
+        private int index;
+
+        private Ligne(Produit produit, int quantite, ReservationStock reservation) {
+            this.produit = produit;
+            this.prixUnitaire = produit.getPrixVente();
+            this.quantite = quantite;
+            this.sousTotal = prixUnitaire.multiply(BigDecimal.valueOf(quantite));
+            this.reservation = reservation;
+        }
+
+        public int getProduitId() {
+            return produit.getId();
+        }
+
+        public Produit getProduit() {
+            return produit;
+        }
+
+        public BigDecimal getPrixUnitaire() {
+            return prixUnitaire;
+        }
+
+        public int getQuantite() {
+            return quantite;
+        }
+
+        public BigDecimal getSousTotal() {
+            return sousTotal;
+        }
+
+        public ReservationStock getReservation() {
+            return reservation;
+        }
+    }
+
+    /**
+     * Constructeur
+     *
+     * @param formatMontant Le format d'affichage des montants
+     */
+    public PanierTableModel(Function<BigDecimal, String> formatMontant) {
+        this.formatMontant = formatMontant;
+    }
+
+    /**
+     * Recherche la ligne d'un produit
+     *
+     * @param produitId L'ID du produit
+     * @return La ligne, ou null si le produit n'est pas dans le panier
+     */
+    public Ligne ligne(int produitId) {
+        return parProduit.get(produitId);
+    }
+
+    /**
+     * Ajoute une ligne pour un produit qui n'est pas encore dans le panier,
+     * au prix de vente courant du produit
+     *
+     * @param produit Le produit
+     * @param quantite La quantité
+     * @param reservation La réservation prise pour la ligne
+     * @return L'index de la nouvelle ligne
+     */
+    public int ajouter(Produit produit, int quantite, ReservationStock reservation) {
+        Ligne ligne = new Ligne(produit, quantite, reservation);
+        if (parProduit.putIfAbsent(ligne.getProduitId(), ligne) != null) {
+            throw new IllegalStateException("Produit déjà dans le panier: " + produit.getNom());
+        }
+        ligne.index = lignes.size();
+        lignes.add(ligne);
+        montantTotal = montantTotal.add(ligne.sousTotal);
+
+        fireTableRowsInserted(ligne.index, ligne.index);
+        return ligne.index;
+    }
+
+    /**
+     * Change la quantité d'une ligne et sa réservation
+     *
+     * @param ligne La ligne
+     * @param quantite La nouvelle quantité
+     * @param reservation La réservation couvrant la nouvelle quantité
+     * @return L'index de la ligne
+     */
+    public int modifierQuantite(Ligne ligne, int quantite, ReservationStock reservation) {
+        BigDecimal sousTotal = ligne.prixUnitaire.multiply(BigDecimal.valueOf(quantite));
+        montantTotal = montantTotal.subtract(ligne.sousTotal).add(sousTotal);
+        ligne.quantite = quantite;
+        ligne.sousTotal = sousTotal;
+        ligne.reservation = reservation;
+
+        fireTableRowsUpdated(ligne.index, ligne.index);
+        return ligne.index;
+    }
+
+    /**
+     * Retire une ligne du panier
+     *
+     * @param index L'index de la ligne
+     * @return La ligne retirée
+     */
+    public Ligne retirer(int index) {
+        Ligne ligne = lignes.remove(index);
+        for (int i = index; i < lignes.size(); i++) {
+            lignes.get(i).index = i;
+        }
+        parProduit.remove(ligne.getProduitId());
+        montantTotal = montantTotal.subtract(ligne.sousTotal);
+        fireTableRowsDeleted(index, index);
+        return ligne;
+    }
+
+    /**
+     * Vide le panier
+     */
+    public void vider() {
+        lignes.clear();
+        parProduit.clear();
+        montantTotal = BigDecimal.ZERO;
+        fireTableDataChanged();
+    }
+
+    /**
+     * Construit les produits vendus de la vente à partir des lignes
+     *
+     * @return Les produits vendus, dans l'ordre du panier
+     */
+    public List<ProduitVendu> produitsVendus() {
+        List<ProduitVendu> produitsVendus = new ArrayList<>(lignes.size());
+        for (Ligne ligne : lignes) {
+            produitsVendus.add(new ProduitVendu(ligne.produit, ligne.quantite, ligne.prixUnitaire));
+        }
+        return produitsVendus;
+    }
+
+    /**
+     * Liste les réservations prises pour les lignes du panier
+     *
+     * @return Les réservations
+     */
+    public List<ReservationStock> reservations() {
+        List<ReservationStock> reservations = new ArrayList<>(lignes.size());
+        for (Ligne ligne : lignes) {
+            if (ligne.reservation != null) {
+                reservations.add(ligne.reservation);
+            }
+        }
+        return reservations;
+    }
+
+    public List<Ligne> getLignes() {
+        return Collections.unmodifiableList(lignes);
+    }
+
+    public BigDecimal getMontantTotal() {
+        return montantTotal;
+    }
+
+    public boolean estVide() {
+        return lignes.isEmpty();
+    }
+
+    @Override
+    public int getRowCount() {
+        return lignes.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return ENTETES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return ENTETES[column];
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Ligne ligne = lignes.get(row);
+        switch (column) {
+            case 0:
+                return ligne.produit.getNom();
+            case 1:
+                return formatMontant.apply(ligne.prixUnitaire);
+            case 2:
+                return ligne.quantite;
+            case 3:
+                return formatMontant.apply(ligne.sousTotal);
+            default:
+                return "✕"; // Symbole pour le bouton de suppression
+        }
+    }
+}
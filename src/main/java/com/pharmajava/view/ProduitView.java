@@ -2,6 +2,7 @@ package com.pharmajava.view;
 
 import com.pharmajava.controller.ProduitController;
 import com.pharmajava.model.Produit;
+import com.pharmajava.model.ResultatMiseAJour;
 import com.pharmajava.utils.TableModelUtil;
 import com.pharmajava.utils.DialogUtils;
 
@@ -419,12 +420,22 @@ public class ProduitView extends JPanel {
                 Produit produitModifie = extraireFormulaire();
                 produitModifie.setId(produitSelectionne.getId());
                 produitModifie.setQuantiteEnStock(produitSelectionne.getQuantiteEnStock()); // Préserver le stock
+                produitModifie.setVersion(produitSelectionne.getVersion());
 
-                boolean succes = controller.modifierProduit(produitModifie);
-                if (succes) {
+                ResultatMiseAJour resultat = controller.modifierProduit(produitModifie);
+                if (resultat != null && resultat.estAppliquee()) {
                     showNotification("Produit modifié avec succès", NotificationType.SUCCESS);
                     effacerFormulaire();
                     chargerTableProduits();
+                } else if (resultat != null && resultat.getStatut() == ResultatMiseAJour.Statut.CONFLIT) {
+                    // Recharger la fiche modifiée par un autre poste avant une nouvelle saisie
+                    showNotification("Ce produit a été modifié sur un autre poste, vérifiez la fiche rechargée",
+                            NotificationType.WARNING);
+                    produitSelectionne = controller.obtenirProduitParId(produitSelectionne.getId());
+                    if (produitSelectionne != null) {
+                        remplirFormulaire(produitSelectionne);
+                    }
+                    chargerTableProduits();
                 } else {
                     showNotification("Erreur lors de la modification du produit", NotificationType.ERROR);
                 }
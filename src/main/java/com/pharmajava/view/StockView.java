@@ -2,7 +2,10 @@ package com.pharmajava.view;
 
 import com.pharmajava.controller.ProduitController;
 import com.pharmajava.controller.StockController;
+import com.pharmajava.dao.StockDormantDAO;
+import com.pharmajava.model.LotDormant;
 import com.pharmajava.model.Produit;
+import com.pharmajava.model.RapportStockDormant;
 import com.pharmajava.model.Stock;
 import com.pharmajava.utils.DateUtil;
 import com.pharmajava.utils.DialogUtils;
@@ -20,6 +23,8 @@ import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
 import java.awt.*;
 import java.awt.event.*;
+import java.io.File;
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
@@ -53,6 +58,7 @@ public class StockView extends JPanel {
     private JButton boutonSupprimer;
     private JButton boutonEffacer;
     private JButton boutonRechercher;
+    private JButton boutonStockDormant;
     private JComboBox<String> comboFiltre;
     private boolean popupClicEnCours = false;
 
@@ -138,6 +144,11 @@ public class StockView extends JPanel {
         labelRecherche.setFont(new Font("Arial", Font.PLAIN, 14));
         panneauRecherche.add(labelRecherche);
         panneauRecherche.add(boutonRechercher);
+
+        boutonStockDormant = new JButton("Stock dormant");
+        styleButton(boutonStockDormant, new Color(142, 68, 173));
+        boutonStockDormant.setPreferredSize(new Dimension(150, 36));
+        panneauRecherche.add(boutonStockDormant);
         panneauEntete.add(panneauRecherche, BorderLayout.EAST);
 
         add(panneauEntete, BorderLayout.NORTH);
@@ -402,6 +413,9 @@ public class StockView extends JPanel {
             }
         });
 
+        // Bouton Stock dormant
+        boutonStockDormant.addActionListener((ActionEvent e) -> ouvrirRapportStockDormant());
+
         // Bouton Effacer
         boutonEffacer.addActionListener((ActionEvent e) -> {
             effacerFormulaire();
@@ -524,6 +538,172 @@ public class StockView extends JPanel {
         });
     }
 
+    /**
+     * Ouvre le rapport des lots dont le produit ne s'est pas vendu depuis un nombre de jours,
+     * avec sa valeur immobilisée ; le rapport complet peut être exporté en CSV
+     */
+    private void ouvrirRapportStockDormant() {
+        JDialog dialogRapport = new JDialog();
+        dialogRapport.setTitle("Stock dormant");
+        dialogRapport.setModal(true);
+        dialogRapport.setSize(1000, 600);
+        dialogRapport.setLocationRelativeTo(this);
+
+        JPanel panel = new JPanel(new BorderLayout(10, 10));
+        panel.setBorder(BorderFactory.createEmptyBorder(15, 15, 15, 15));
+
+        // Critères du rapport
+        JSpinner champJours = new JSpinner(new SpinnerNumberModel(90, 1, 3650, 1));
+        JSpinner champVendusMaximum = new JSpinner(new SpinnerNumberModel(0, 0, 100000, 1));
+        JComboBox<StockDormantDAO.Tri> comboTri = new JComboBox<>(StockDormantDAO.Tri.values());
+        JButton boutonCalculer = new JButton("Calculer");
+        styleButton(boutonCalculer, new Color(52, 152, 219));
+        JButton boutonExporter = new JButton("Exporter CSV");
+        styleButton(boutonExporter, new Color(46, 204, 113));
+        boutonExporter.setPreferredSize(new Dimension(140, 36));
+
+        JPanel panneauCriteres = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        panneauCriteres.add(new JLabel("Sans vente depuis (jours):"));
+        panneauCriteres.add(champJours);
+        panneauCriteres.add(new JLabel("Vendus au plus:"));
+        panneauCriteres.add(champVendusMaximum);
+        panneauCriteres.add(new JLabel("Trier par:"));
+        panneauCriteres.add(comboTri);
+        panneauCriteres.add(boutonCalculer);
+        panneauCriteres.add(boutonExporter);
+        panel.add(panneauCriteres, BorderLayout.NORTH);
+
+        // Lots du rapport, triables par colonne
+        String[] entetes = { "Produit", "Lot", "Quantité", "Valeur immobilisée", "Valeur à risque",
+                "Date d'expiration", "Dernière vente", "Vendus" };
+        DefaultTableModel modelRapport = new DefaultTableModel(entetes, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+
+            @Override
+            public Class<?> getColumnClass(int column) {
+                switch (column) {
+                    case 2:
+                    case 7:
+                        return Integer.class;
+                    case 3:
+                    case 4:
+                        return BigDecimal.class;
+                    case 5:
+                        return LocalDate.class;
+                    default:
+                        return String.class;
+                }
+            }
+        };
+        JTable tableRapport = new JTable(modelRapport);
+        tableRapport.setAutoCreateRowSorter(true);
+        tableRapport.setRowHeight(26);
+        tableRapport.getColumnModel().getColumn(0).setPreferredWidth(220);
+        panel.add(new JScrollPane(tableRapport), BorderLayout.CENTER);
+
+        JLabel labelTotaux = new JLabel(" ");
+        labelTotaux.setFont(new Font("Arial", Font.BOLD, 14));
+        panel.add(labelTotaux, BorderLayout.SOUTH);
+
+        boutonCalculer.addActionListener((ActionEvent e) -> {
+            int jours = (Integer) champJours.getValue();
+            int vendusMaximum = (Integer) champVendusMaximum.getValue();
+            StockDormantDAO.Tri tri = (StockDormantDAO.Tri) comboTri.getSelectedItem();
+            boutonCalculer.setEnabled(false);
+            labelTotaux.setText("Calcul en cours...");
+
+            new SwingWorker<RapportStockDormant, Void>() {
+                @Override
+                protected RapportStockDormant doInBackground() {
+                    return stockController.obtenirStockDormant(jours, vendusMaximum, tri);
+                }
+
+                @Override
+                protected void done() {
+                    boutonCalculer.setEnabled(true);
+                    try {
+                        RapportStockDormant rapport = get();
+                        if (rapport == null) {
+                            labelTotaux.setText("Erreur lors du calcul du rapport");
+                            return;
+                        }
+
+                        modelRapport.setRowCount(0);
+                        for (LotDormant lot : rapport.getLignes()) {
+                            modelRapport.addRow(new Object[] {
+                                    lot.getProduitNom(),
+                                    lot.getNumeroLot(),
+                                    lot.getQuantite(),
+                                    lot.getValeur(),
+                                    lot.getValeurARisque(),
+                                    lot.getDateExpiration(),
+                                    lot.getDerniereVente() != null
+                                            ? DateUtil.formaterDate(lot.getDerniereVente().toLocalDate()) : "Jamais",
+                                    lot.getVendusPeriode()
+                            });
+                        }
+                        labelTotaux.setText(rapport.getNombreLots() + " lot(s) dormant(s), valeur immobilisée "
+                                + rapport.getValeurTotale().toPlainString() + ", valeur à risque "
+                                + rapport.getValeurARisqueTotale().toPlainString()
+                                + (rapport.estTronque() ? " (" + rapport.getLignes().size()
+                                        + " premiers affichés, exporter pour le rapport complet)" : ""));
+                    } catch (InterruptedException | ExecutionException ex) {
+                        LOGGER.log(Level.SEVERE, "Erreur lors du calcul du rapport de stock dormant", ex);
+                        labelTotaux.setText("Erreur lors du calcul du rapport");
+                    }
+                }
+            }.execute();
+        });
+
+        boutonExporter.addActionListener((ActionEvent e) -> {
+            JFileChooser selecteur = new JFileChooser();
+            selecteur.setSelectedFile(new File("stock_dormant_" + LocalDate.now() + ".csv"));
+            if (selecteur.showSaveDialog(dialogRapport) != JFileChooser.APPROVE_OPTION) {
+                return;
+            }
+            File fichier = selecteur.getSelectedFile();
+            int jours = (Integer) champJours.getValue();
+            int vendusMaximum = (Integer) champVendusMaximum.getValue();
+            StockDormantDAO.Tri tri = (StockDormantDAO.Tri) comboTri.getSelectedItem();
+            boutonExporter.setEnabled(false);
+
+            new SwingWorker<Integer, Void>() {
+                @Override
+                protected Integer doInBackground() {
+                    return stockController.exporterStockDormant(jours, vendusMaximum, tri, fichier);
+                }
+
+                @Override
+                protected void done() {
+                    boutonExporter.setEnabled(true);
+                    try {
+                        int lots = get();
+                        if (lots < 0) {
+                            JOptionPane.showMessageDialog(dialogRapport,
+                                    "Erreur lors de l'export du rapport",
+                                    "Erreur",
+                                    JOptionPane.ERROR_MESSAGE);
+                        } else {
+                            JOptionPane.showMessageDialog(dialogRapport,
+                                    lots + " lot(s) exporté(s) dans " + fichier.getName(),
+                                    "Succès",
+                                    JOptionPane.INFORMATION_MESSAGE);
+                        }
+                    } catch (InterruptedException | ExecutionException ex) {
+                        LOGGER.log(Level.SEVERE, "Erreur lors de l'export du rapport de stock dormant", ex);
+                    }
+                }
+            }.execute();
+        });
+
+        dialogRapport.add(panel);
+        boutonCalculer.doClick();
+        dialogRapport.setVisible(true);
+    }
+
     /**
      * Charge les données nécessaires pour la vue
      */
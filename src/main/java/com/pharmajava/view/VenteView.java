@@ -7,6 +7,7 @@ import com.pharmajava.model.ProduitSelection;
 import com.pharmajava.model.ProduitVendu;
 import com.pharmajava.model.Vente;
 import com.pharmajava.model.Client;
+import com.pharmajava.service.ReservationStock;
 import com.pharmajava.utils.AutoCompletionTextField;
 import com.pharmajava.utils.IconUtils;
 import com.pharmajava.utils.SessionManager;
@@ -16,7 +17,6 @@ import com.pharmajava.utils.DialogUtils;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import javax.swing.table.DefaultTableCellRenderer;
-import javax.swing.table.DefaultTableModel;
 import javax.swing.table.JTableHeader;
 import java.awt.*;
 import java.awt.event.*;
@@ -58,7 +58,7 @@ public class VenteView extends JPanel {
 
     // Composants de l'interface
     private JTable tablePanier;
-    private DefaultTableModel modelPanier;
+    private PanierTableModel modelPanier;
 
     // Nouveau composant de recherche avec auto-complétion
     private AutoCompletionTextField<Produit> champRechercheProduit;
@@ -192,13 +192,7 @@ public class VenteView extends JPanel {
         rightPanel.setBorder(BorderFactory.createEmptyBorder(15, 10, 0, 0));
 
         // Section panier - simplifiée
-        String[] entetesPanier = { "Produit", "P.U", "Qté", "S.Total", "" };
-        modelPanier = new DefaultTableModel(entetesPanier, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        modelPanier = new PanierTableModel(this::formatCurrency);
 
         tablePanier = new JTable(modelPanier);
         tablePanier.getTableHeader().setReorderingAllowed(false);
@@ -260,7 +254,7 @@ public class VenteView extends JPanel {
                 int column = tablePanier.getColumnModel().getColumnIndexAtX(e.getX());
                 int row = e.getY() / tablePanier.getRowHeight();
 
-                if (row < tablePanier.getRowCount() && row >= 0 && column == 4) {
+                if (row < tablePanier.getRowCount() && row >= 0 && column == PanierTableModel.COLONNE_ACTION) {
                     // Retirer la ligne du panier
                     retirerDuPanierParIndex(row);
                 }
@@ -519,9 +513,9 @@ public class VenteView extends JPanel {
                 champQuantite.setText("1");
             }
 
-            // Vérifier que la quantité ne dépasse pas le stock disponible
-            int stockDisponible = produitSelectionne.getQuantiteEnStock();
-            if (quantite > stockDisponible) {
+            // Vérifier que la quantité ne dépasse pas le stock disponible, s'il a pu être lu
+            int stockDisponible = controller.obtenirStockDisponible(produitSelectionne.getId());
+            if (stockDisponible >= 0 && quantite > stockDisponible) {
                 // Limiter à la quantité disponible en stock
                 quantite = stockDisponible;
                 champQuantite.setText(String.valueOf(quantite));
@@ -624,9 +618,8 @@ public class VenteView extends JPanel {
             return;
         }
 
-        // Récupérer les données du produit sélectionné
-        String produitNom = produitSelectionne.getNom();
-        int stockDisponible = produitSelectionne.getQuantiteEnStock();
+        // Récupérer le stock disponible du produit sélectionné
+        int stockDisponible = controller.obtenirStockDisponible(produitSelectionne.getId());
 
         // Vérifier la quantité
         int quantite;
@@ -647,8 +640,8 @@ public class VenteView extends JPanel {
             return;
         }
 
-        // Vérifier le stock
-        if (quantite > stockDisponible) {
+        // Vérifier le stock ; s'il n'a pas pu être lu, la réservation tranchera
+        if (stockDisponible >= 0 && quantite > stockDisponible) {
             JOptionPane.showMessageDialog(this,
                     "Stock insuffisant. Disponible: " + stockDisponible,
                     "Stock insuffisant",
@@ -657,64 +650,51 @@ public class VenteView extends JPanel {
         }
 
         // Vérifier si le produit est déjà dans le panier
-        boolean produitTrouve = false;
-        for (int i = 0; i < modelPanier.getRowCount(); i++) {
-            String nomProduitPanier = (String) modelPanier.getValueAt(i, 0);
-            if (nomProduitPanier.equals(produitNom)) {
-                // Mettre à jour la quantité et le sous-total
-                int quantiteActuelle = (int) modelPanier.getValueAt(i, 2);
-                int nouvelleQuantite = quantiteActuelle + quantite;
-
-                if (nouvelleQuantite > stockDisponible) {
-                    JOptionPane.showMessageDialog(this,
-                            "Stock insuffisant. Disponible: " + stockDisponible,
-                            "Stock insuffisant",
-                            JOptionPane.WARNING_MESSAGE);
-                    return;
-                }
-
-                BigDecimal prixUnitaire = produitSelectionne.getPrixVente();
-                BigDecimal sousTotal = prixUnitaire.multiply(BigDecimal.valueOf(nouvelleQuantite));
-
-                modelPanier.setValueAt(nouvelleQuantite, i, 2);
-                modelPanier.setValueAt(formatCurrency(sousTotal), i, 3);
-
-                // Mettre à jour le montant total
-                calculerMontantTotal();
-                calculerMontantRendu();
-
-                // Effet visuel pour indiquer la mise à jour
-                highlightTableRow(i);
+        PanierTableModel.Ligne ligne = modelPanier.ligne(produitSelectionne.getId());
+        if (ligne != null) {
+            int nouvelleQuantite = ligne.getQuantite() + quantite;
+
+            // Étendre la réservation de la ligne à la nouvelle quantité
+            ReservationStock reservation = ligne.getReservation();
+            boolean reserve;
+            if (reservation != null && reservation.isActive()) {
+                reserve = controller.ajusterReservation(reservation, nouvelleQuantite);
+            } else {
+                // Réservation expirée : en reprendre une pour toute la ligne
+                reservation = controller.reserverStock(produitSelectionne.getId(), nouvelleQuantite);
+                reserve = reservation != null;
+            }
+            if (!reserve) {
+                JOptionPane.showMessageDialog(this,
+                        "Stock insuffisant. Disponible: " + controller.obtenirStockDisponible(produitSelectionne.getId()),
+                        "Stock insuffisant",
+                        JOptionPane.WARNING_MESSAGE);
+                return;
+            }
 
-                // Réinitialiser après l'ajout
-                resetAfterAdd();
+            // Mettre à jour la quantité, le sous-total et le montant total
+            int index = modelPanier.modifierQuantite(ligne, nouvelleQuantite, reservation);
+            calculerMontantTotal();
 
-                produitTrouve = true;
-                break;
+            // Effet visuel pour indiquer la mise à jour
+            highlightTableRow(index);
+        } else {
+            // Réserver la quantité pour que les autres caisses ne puissent plus la vendre
+            ReservationStock reservation = controller.reserverStock(produitSelectionne.getId(), quantite);
+            if (reservation == null) {
+                JOptionPane.showMessageDialog(this,
+                        "Stock insuffisant. Disponible: " + controller.obtenirStockDisponible(produitSelectionne.getId()),
+                        "Stock insuffisant",
+                        JOptionPane.WARNING_MESSAGE);
+                return;
             }
-        }
 
-        // Si le produit n'est pas encore dans le panier, l'ajouter
-        if (!produitTrouve) {
-            // Ajouter le produit au panier
-            BigDecimal prixUnitaire = produitSelectionne.getPrixVente();
-            BigDecimal sousTotal = prixUnitaire.multiply(BigDecimal.valueOf(quantite));
-
-            Object[] ligne = {
-                    produitNom,
-                    formatCurrency(prixUnitaire),
-                    quantite,
-                    formatCurrency(sousTotal),
-                    "✕" // Symbole pour le bouton de suppression
-            };
-            modelPanier.addRow(ligne);
-
-            // Mettre à jour le montant total
+            // Ajouter le produit au panier et mettre à jour le montant total
+            int index = modelPanier.ajouter(produitSelectionne, quantite, reservation);
             calculerMontantTotal();
-            calculerMontantRendu();
 
             // Effet visuel pour indiquer l'ajout
-            highlightTableRow(modelPanier.getRowCount() - 1);
+            highlightTableRow(index);
         }
 
         // Réinitialiser après l'ajout
@@ -797,36 +777,21 @@ public class VenteView extends JPanel {
             return;
         }
 
-        modelPanier.removeRow(index);
+        // Retirer la ligne et libérer sa réservation
+        PanierTableModel.Ligne ligne = modelPanier.retirer(index);
+        if (ligne.getReservation() != null) {
+            controller.libererReservation(ligne.getReservation());
+        }
 
         // Mettre à jour le montant total
         calculerMontantTotal();
-        calculerMontantRendu();
     }
 
     /**
-     * Calcule le montant total des articles dans le panier
+     * Affiche le montant total des articles dans le panier, tenu à jour par le modèle
      */
     private void calculerMontantTotal() {
-        BigDecimal montantTotal = BigDecimal.ZERO;
-
-        for (int i = 0; i < modelPanier.getRowCount(); i++) {
-            try {
-                String sousTotalStr = ((String) modelPanier.getValueAt(i, 3));
-                // Supprimer toutes les lettres et caractères non numériques, sauf la virgule et
-                // le point
-                sousTotalStr = sousTotalStr.replaceAll("[^0-9.,]", "").trim();
-                // Remplacer la virgule par un point pour le parseur décimal
-                sousTotalStr = sousTotalStr.replace(',', '.');
-
-                BigDecimal sousTotal = new BigDecimal(sousTotalStr);
-                montantTotal = montantTotal.add(sousTotal);
-            } catch (Exception e) {
-                LOGGER.log(Level.WARNING, "Erreur de format dans le calcul du montant total", e);
-            }
-        }
-
-        labelMontantTotal.setText(formatCurrency(montantTotal));
+        labelMontantTotal.setText(formatCurrency(modelPanier.getMontantTotal()));
 
         // Recalculer le montant à rendre si un montant perçu est déjà saisi
         calculerMontantRendu();
@@ -837,12 +802,7 @@ public class VenteView extends JPanel {
      */
     private void calculerMontantRendu() {
         try {
-            // Récupérer le montant total en nettoyant le format monétaire
-            String montantTotalStr = labelMontantTotal.getText();
-            montantTotalStr = montantTotalStr.replaceAll("[^0-9.,]", "").trim();
-            montantTotalStr = montantTotalStr.replace(',', '.');
-
-            BigDecimal montantTotal = new BigDecimal(montantTotalStr);
+            BigDecimal montantTotal = modelPanier.getMontantTotal();
 
             // Récupérer le montant perçu
             String montantPercuStr = champMontantPercu.getText().trim();
@@ -881,7 +841,7 @@ public class VenteView extends JPanel {
      */
     private void validerVente() {
         // Vérifier qu'il y a des produits dans le panier
-        if (modelPanier.getRowCount() == 0) {
+        if (modelPanier.estVide()) {
             JOptionPane.showMessageDialog(this,
                     "Le panier est vide. Veuillez ajouter des produits avant de valider.",
                     "Panier vide",
@@ -901,11 +861,8 @@ public class VenteView extends JPanel {
         }
 
         try {
-            // Calculer le montant total de la vente
-            String montantTotalStr = labelMontantTotal.getText();
-            montantTotalStr = montantTotalStr.replaceAll("[^0-9.,]", "").trim();
-            montantTotalStr = montantTotalStr.replace(',', '.');
-            BigDecimal montantTotal = new BigDecimal(montantTotalStr);
+            // Montant total de la vente, tenu à jour par le panier
+            BigDecimal montantTotal = modelPanier.getMontantTotal();
 
             // Vérifier que le montant perçu est suffisant
             // Nettoyer le format du montant perçu
@@ -945,48 +902,15 @@ public class VenteView extends JPanel {
                 return; // L'utilisateur a annulé la vente
             }
 
-            // Récupérer les produits vendus
-            List<ProduitVendu> produitsVendus = new ArrayList<>();
-
-            for (int i = 0; i < modelPanier.getRowCount(); i++) {
-                String nomProduit = (String) modelPanier.getValueAt(i, 0);
-                String prixUnitaireStr = ((String) modelPanier.getValueAt(i, 1));
-                int quantite = (int) modelPanier.getValueAt(i, 2);
-
-                // Trouver le produit correspondant
-                Produit produit = controller.rechercherProduitParNom(nomProduit);
-                if (produit == null) {
-                    JOptionPane.showMessageDialog(this,
-                            "Produit introuvable: " + nomProduit,
-                            "Erreur",
-                            JOptionPane.ERROR_MESSAGE);
-                    continue;
-                }
-
-                // Nettoyer et extraire le prix unitaire
-                try {
-                    prixUnitaireStr = prixUnitaireStr.replaceAll("[^0-9.,]", "").trim();
-                    prixUnitaireStr = prixUnitaireStr.replace(',', '.');
-                    BigDecimal prixUnitaire = new BigDecimal(prixUnitaireStr);
-
-                    ProduitVendu produitVendu = new ProduitVendu(produit, quantite, prixUnitaire);
-                    produitVendu.calculerPrixTotal();
-                    produitsVendus.add(produitVendu);
-                } catch (NumberFormatException e) {
-                    LOGGER.log(Level.WARNING, "Erreur de format dans le prix unitaire pour " + nomProduit, e);
-                    // Utiliser le prix du produit en cas d'erreur
-                    BigDecimal prixUnitaire = produit.getPrixVente();
-                    ProduitVendu produitVendu = new ProduitVendu(produit, quantite, prixUnitaire);
-                    produitVendu.calculerPrixTotal();
-                    produitsVendus.add(produitVendu);
-                }
-            }
+            // Les produits vendus et leurs prix sont déjà dans les lignes du panier
+            List<ProduitVendu> produitsVendus = modelPanier.produitsVendus();
 
             // Récupérer le pharmacien connecté
             Pharmacien pharmacien = SessionManager.getInstance().getPharmacienConnecte();
 
             // Enregistrer la vente avec la nouvelle méthode qui prend en compte le client
-            Vente vente = controller.enregistrerVente(produitsVendus, montantPercu, pharmacien, client);
+            Vente vente = controller.enregistrerVente(produitsVendus, montantPercu, pharmacien, client,
+                    modelPanier.reservations());
 
             if (vente != null && vente.getId() != null) {
                 // Stocker l'ID de la vente pour permettre la réimpression
@@ -1055,11 +979,14 @@ public class VenteView extends JPanel {
      * Réinitialise la vente courante
      */
     private void reinitialiserVente() {
-        // Vider le panier
-        while (modelPanier.getRowCount() > 0) {
-            modelPanier.removeRow(0);
+        // Libérer les réservations restantes (déjà soldées si la vente a été validée)
+        for (ReservationStock reservation : modelPanier.reservations()) {
+            controller.libererReservation(reservation);
         }
 
+        // Vider le panier
+        modelPanier.vider();
+
         // Réinitialiser les champs
         champRechercheProduit.setText("");
         champQuantite.setText("1");
@@ -1090,7 +1017,7 @@ public class VenteView extends JPanel {
      */
     private void annulerVente() {
         // Vérifier s'il y a des produits dans le panier
-        if (modelPanier.getRowCount() == 0) {
+        if (modelPanier.estVide()) {
             // Si le panier est vide, simplement réinitialiser sans confirmation
             reinitialiserVente();
             return;
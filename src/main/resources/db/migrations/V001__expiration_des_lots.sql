@@ -0,0 +1,14 @@
+-- Statut d'expiration des lots, tenu à jour au changement de jour par l'application
+-- Les lots déjà échus sont marqués expirés et les quantités des produits
+-- recalculées sur les seuls lots non expirés
+
+ALTER TABLE stock ADD COLUMN expire BOOLEAN NOT NULL DEFAULT FALSE;
+
+UPDATE stock SET expire = TRUE WHERE date_expiration < CURRENT_DATE;
+
+UPDATE produits
+SET quantite_en_stock =
+    (SELECT COALESCE(SUM(s.quantite_disponible), 0)
+     FROM stock s
+     WHERE s.produit_id = produits.id
+       AND s.expire = FALSE);
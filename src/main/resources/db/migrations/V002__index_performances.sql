@@ -0,0 +1,16 @@
+-- Index des requêtes les plus fréquentes
+
+-- Historique des ventes par période
+CREATE INDEX idx_ventes_date ON ventes(date_vente);
+
+-- Allocation FEFO des lots d'un produit et lecture des lots par produit (index couvrant)
+CREATE INDEX idx_stock_produit_expiration ON stock(produit_id, expire, date_expiration, quantite_disponible);
+
+-- Passage d'expiration quotidien, lots expirés et expirant bientôt
+CREATE INDEX idx_stock_expire_date ON stock(expire, date_expiration);
+
+-- Lignes des ventes chargées par lots de ventes
+CREATE INDEX idx_produits_vendus_vente_produit ON produits_vendus(vente_id, produit_id);
+
+-- Recherche de clients, triée par nom puis prénom
+CREATE INDEX idx_clients_nom_prenom ON clients(nom, prenom);
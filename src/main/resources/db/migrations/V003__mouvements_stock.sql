@@ -0,0 +1,35 @@
+-- Journal des mouvements de stock, en ajout seul
+-- Chaque ligne est la variation de la quantité vendable d'un lot ; la somme des
+-- mouvements d'un lot donne sa quantité vendable. Pas de clé étrangère vers stock :
+-- l'historique d'un lot survit à sa suppression.
+
+CREATE TABLE IF NOT EXISTS mouvements_stock
+    (id BIGINT AUTO_INCREMENT PRIMARY KEY,
+     stock_id INT NOT NULL,
+     produit_id INT NOT NULL,
+     type_mouvement VARCHAR(20) NOT NULL,
+     quantite INT NOT NULL,
+     vente_id INT NULL,
+     date_mouvement TIMESTAMP DEFAULT CURRENT_TIMESTAMP);
+
+CREATE INDEX idx_mouvements_stock_lot_date ON mouvements_stock(stock_id, date_mouvement);
+
+-- Instantanés périodiques de la quantité vendable par lot : l'état à une date se
+-- reconstruit depuis l'instantané précédent et les mouvements qui le suivent
+
+CREATE TABLE IF NOT EXISTS instantanes_stock
+    (date_instantane TIMESTAMP NOT NULL,
+     stock_id INT NOT NULL,
+     produit_id INT NOT NULL,
+     quantite INT NOT NULL,
+     dernier_mouvement_id BIGINT NOT NULL,
+     PRIMARY KEY (date_instantane, stock_id, produit_id));
+
+-- Ouverture du journal : une réception par lot vendable existant
+
+INSERT INTO mouvements_stock (stock_id, produit_id, type_mouvement, quantite)
+SELECT s.id, s.produit_id, 'RECEPTION', s.quantite_disponible
+FROM stock s
+WHERE s.expire = FALSE
+  AND s.quantite_disponible <> 0
+  AND NOT EXISTS (SELECT 1 FROM mouvements_stock m WHERE m.stock_id = s.id);
@@ -0,0 +1,8 @@
+-- Numéros de version pour le contrôle de concurrence optimiste
+-- produits.version couvre la fiche produit (nom, prix, seuil...) ; la quantité en stock,
+-- tenue par écarts, ne l'incrémente pas. stock.version change à chaque écriture du lot,
+-- ventes comprises.
+
+ALTER TABLE produits ADD COLUMN version INT NOT NULL DEFAULT 0;
+
+ALTER TABLE stock ADD COLUMN version INT NOT NULL DEFAULT 0;
@@ -0,0 +1,15 @@
+-- Provenance des lots et index de l'historique des achats
+
+-- Lot de stock créé par chaque ravitaillement
+ALTER TABLE ravitaillements ADD COLUMN stock_id INT NULL;
+
+-- Historique d'un fournisseur et d'un produit, du plus récent au plus ancien, parcouru par pages
+CREATE INDEX idx_ravitaillements_fournisseur_date ON ravitaillements(fournisseur_id, date_ravitaillement, id);
+
+CREATE INDEX idx_ravitaillements_produit_date ON ravitaillements(produit_id, date_ravitaillement, id);
+
+-- Liste et recherche des fournisseurs par nom
+CREATE INDEX idx_fournisseurs_nom ON fournisseurs(nom);
+
+-- Provenance d'un lot
+CREATE INDEX idx_ravitaillements_stock ON ravitaillements(stock_id);
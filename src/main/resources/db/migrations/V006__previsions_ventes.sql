@@ -0,0 +1,16 @@
+-- Prévisions de demande par produit, recalculées chaque jour par PrevisionDemande
+-- Une ligne par produit vendu sur la période d'historique ; la table est remplacée
+-- en entier à chaque calcul.
+
+CREATE TABLE IF NOT EXISTS previsions_ventes
+    (produit_id INT PRIMARY KEY,
+     fournisseur_id INT NULL,
+     niveau DOUBLE NOT NULL,
+     tendance DOUBLE NOT NULL,
+     prevision_7_jours DOUBLE NOT NULL,
+     prevision_28_jours DOUBLE NOT NULL,
+     erreur_quadratique DOUBLE NOT NULL,
+     date_calcul TIMESTAMP NOT NULL);
+
+-- Bons de commande suggérés, regroupés par fournisseur
+CREATE INDEX idx_previsions_ventes_fournisseur ON previsions_ventes(fournisseur_id);
@@ -0,0 +1,4 @@
+-- Relecture par écart du catalogue des produits partagé par les vues :
+-- dernière modification du catalogue et produits modifiés depuis une date
+
+CREATE INDEX idx_produits_derniere_modification ON produits(derniere_modification);
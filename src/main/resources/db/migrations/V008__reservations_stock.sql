@@ -0,0 +1,16 @@
+-- Réservations de stock des paniers en cours, partagées par toutes les caisses
+-- Une réservation compte tant que son échéance n'est pas passée, même si la caisse
+-- qui l'a prise s'est arrêtée sans la libérer ; les lignes échues sont purgées par
+-- ReconciliateurStock.
+
+CREATE TABLE IF NOT EXISTS reservations_stock
+    (id BIGINT AUTO_INCREMENT PRIMARY KEY,
+     produit_id INT NOT NULL,
+     quantite INT NOT NULL,
+     expire_le TIMESTAMP NOT NULL,
+     FOREIGN KEY (produit_id) REFERENCES produits(id) ON DELETE CASCADE);
+
+-- Quantité réservée d'un produit, réservations échues exclues
+CREATE INDEX idx_reservations_stock_produit ON reservations_stock(produit_id, expire_le);
+
+CREATE INDEX idx_reservations_stock_expire ON reservations_stock(expire_le);
@@ -0,0 +1,4 @@
+-- Poste qui a pris chaque réservation de stock : chaque caisse garde ses propres
+-- réservations en mémoire et ne relit en base que le total des autres postes
+
+ALTER TABLE reservations_stock ADD COLUMN poste VARCHAR(36) NOT NULL DEFAULT '';
@@ -0,0 +1,103 @@
+package com.pharmajava.dao;
+
+import com.pharmajava.model.VitesseVente;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests du tampon circulaire des totaux journaliers de VitessesVente
+ */
+class VitessesVenteTest {
+    private static final long AUJOURDHUI = 20_000;
+
+    @Test
+    void ventesRangeesDansLeursFenetres() {
+        VitessesVente.Compteur compteur = new VitessesVente.Compteur(AUJOURDHUI);
+        compteur.ajouter(AUJOURDHUI, 5, AUJOURDHUI);
+        compteur.ajouter(AUJOURDHUI - 6, 3, AUJOURDHUI);
+        compteur.ajouter(AUJOURDHUI - 7, 2, AUJOURDHUI);
+        compteur.ajouter(AUJOURDHUI - 29, 4, AUJOURDHUI);
+        compteur.ajouter(AUJOURDHUI - 30, 1, AUJOURDHUI);
+        compteur.ajouter(AUJOURDHUI - 89, 9, AUJOURDHUI);
+
+        VitesseVente vitesse = compteur.lire(1, AUJOURDHUI);
+
+        assertEquals(8, vitesse.getVendus7Jours());
+        assertEquals(14, vitesse.getVendus30Jours());
+        assertEquals(24, vitesse.getVendus90Jours());
+    }
+
+    @Test
+    void ventesHorsHistoriqueIgnorees() {
+        VitessesVente.Compteur compteur = new VitessesVente.Compteur(AUJOURDHUI);
+        compteur.ajouter(AUJOURDHUI - VitessesVente.JOURS, 7, AUJOURDHUI);
+        compteur.ajouter(AUJOURDHUI + 1, 7, AUJOURDHUI);
+
+        VitesseVente vitesse = compteur.lire(1, AUJOURDHUI);
+
+        assertEquals(0, vitesse.getVendus90Jours());
+    }
+
+    @Test
+    void passageAuJourSuivantRetireLesJoursSortis() {
+        VitessesVente.Compteur compteur = new VitessesVente.Compteur(AUJOURDHUI);
+        compteur.ajouter(AUJOURDHUI, 5, AUJOURDHUI);
+        compteur.ajouter(AUJOURDHUI - 6, 3, AUJOURDHUI);
+        compteur.ajouter(AUJOURDHUI - 29, 4, AUJOURDHUI);
+        compteur.ajouter(AUJOURDHUI - 89, 9, AUJOURDHUI);
+
+        VitesseVente lendemain = compteur.lire(1, AUJOURDHUI + 1);
+
+        assertEquals(5, lendemain.getVendus7Jours());
+        assertEquals(8, lendemain.getVendus30Jours());
+        assertEquals(12, lendemain.getVendus90Jours());
+    }
+
+    @Test
+    void caseReutiliseeRemiseAZero() {
+        VitessesVente.Compteur compteur = new VitessesVente.Compteur(AUJOURDHUI);
+        compteur.ajouter(AUJOURDHUI, 5, AUJOURDHUI);
+
+        // La case d'aujourd'hui sert de nouveau 90 jours plus tard, un jour à la fois
+        for (long jour = AUJOURDHUI + 1; jour < AUJOURDHUI + VitessesVente.JOURS; jour++) {
+            compteur.lire(1, jour);
+        }
+        long jour = AUJOURDHUI + VitessesVente.JOURS;
+        compteur.ajouter(jour, 2, jour);
+
+        VitesseVente vitesse = compteur.lire(1, jour);
+        assertEquals(2, vitesse.getVendus7Jours());
+        assertEquals(2, vitesse.getVendus90Jours());
+    }
+
+    @Test
+    void longueAbsenceVideLeTampon() {
+        VitessesVente.Compteur compteur = new VitessesVente.Compteur(AUJOURDHUI);
+        compteur.ajouter(AUJOURDHUI, 5, AUJOURDHUI);
+        compteur.ajouter(AUJOURDHUI - 40, 6, AUJOURDHUI);
+
+        VitesseVente vitesse = compteur.lire(1, AUJOURDHUI + 200);
+
+        assertEquals(0, vitesse.getVendus7Jours());
+        assertEquals(0, vitesse.getVendus30Jours());
+        assertEquals(0, vitesse.getVendus90Jours());
+    }
+
+    @Test
+    void remplacementDuJourParLeTotalDeLaBase() {
+        VitessesVente.Compteur compteur = new VitessesVente.Compteur(AUJOURDHUI);
+        compteur.ajouter(AUJOURDHUI, 5, AUJOURDHUI);
+        compteur.ajouter(AUJOURDHUI - 10, 4, AUJOURDHUI);
+
+        assertTrue(compteur.remplacerJour(AUJOURDHUI, 12));
+        assertFalse(compteur.remplacerJour(AUJOURDHUI, 12));
+
+        VitesseVente vitesse = compteur.lire(1, AUJOURDHUI);
+        assertEquals(12, vitesse.getVendus7Jours());
+        assertEquals(16, vitesse.getVendus30Jours());
+        assertEquals(16, vitesse.getVendus90Jours());
+    }
+}
@@ -0,0 +1,107 @@
+package com.pharmajava.service;
+
+import com.pharmajava.model.PrevisionVente;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests de l'ajustement de Holt-Winters de PrevisionDemande
+ */
+class PrevisionDemandeTest {
+
+    @Test
+    void demandeConstanteReconduite() {
+        int[] ventes = new int[60];
+        Arrays.fill(ventes, 10);
+
+        PrevisionVente prevision = PrevisionDemande.ajuster(1, ventes);
+
+        assertEquals(70, prevision.getPrevision7Jours(), 1e-6);
+        assertEquals(280, prevision.getPrevision28Jours(), 1e-6);
+        assertEquals(0, prevision.getErreurQuadratique(), 1e-9);
+    }
+
+    @Test
+    void saisonHebdomadaireRetrouvee() {
+        int[] semaine = {2, 4, 6, 8, 10, 30, 20};
+        int[] ventes = new int[12 * 7];
+        for (int i = 0; i < ventes.length; i++) {
+            ventes[i] = semaine[i % 7];
+        }
+
+        PrevisionVente prevision = PrevisionDemande.ajuster(1, ventes);
+
+        // Une semaine complète se vend toujours 80 unités, quel que soit le jour de départ
+        assertEquals(80, prevision.getPrevision7Jours(), 1);
+        assertEquals(320, prevision.getPrevision28Jours(), 4);
+        assertTrue(prevision.getErreurQuadratique() < 1, "erreur " + prevision.getErreurQuadratique());
+    }
+
+    @Test
+    void joursAvantLaPremiereVenteIgnores() {
+        // Historique trop court après la première vente : moyenne des jours vendus
+        int[] ventes = {0, 0, 0, 0, 0, 4, 6, 5, 5};
+
+        PrevisionVente prevision = PrevisionDemande.ajuster(1, ventes);
+
+        assertEquals(5, prevision.getNiveau(), 1e-9);
+        assertEquals(35, prevision.getPrevision7Jours(), 1e-9);
+        assertEquals(140, prevision.getPrevision28Jours(), 1e-9);
+    }
+
+    @Test
+    void produitJamaisVendu() {
+        PrevisionVente prevision = PrevisionDemande.ajuster(1, new int[PrevisionDemande.HISTORIQUE_JOURS]);
+
+        assertEquals(0, prevision.getPrevision7Jours(), 0);
+        assertEquals(0, prevision.getPrevision28Jours(), 0);
+        assertEquals(0, prevision.getErreurQuadratique(), 0);
+    }
+
+    @Test
+    void previsionJamaisNegative() {
+        // Ventes en forte baisse : la tendance extrapolée ne doit pas donner une demande négative
+        int[] ventes = new int[8 * 7];
+        for (int i = 0; i < ventes.length; i++) {
+            ventes[i] = Math.max(0, 60 - i);
+        }
+
+        PrevisionVente prevision = PrevisionDemande.ajuster(1, ventes);
+
+        assertTrue(prevision.getPrevision7Jours() >= 0);
+        assertTrue(prevision.getPrevision28Jours() >= prevision.getPrevision7Jours());
+    }
+
+    @Test
+    void ajustementParalleleIdentiqueAuSequentiel() {
+        int nombre = 200;
+        int[] produitIds = new int[nombre];
+        int[][] series = new int[nombre][];
+        Random aleatoire = new Random(42);
+        for (int p = 0; p < nombre; p++) {
+            produitIds[p] = p + 1;
+            series[p] = new int[PrevisionDemande.HISTORIQUE_JOURS];
+            for (int j = 0; j < series[p].length; j++) {
+                series[p][j] = aleatoire.nextInt(1 + p % 20);
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            PrevisionVente[] enParallele = PrevisionDemande.ajuster(pool, produitIds, series);
+            for (int p = 0; p < nombre; p++) {
+                PrevisionVente attendue = PrevisionDemande.ajuster(produitIds[p], series[p]);
+                assertEquals(attendue.getProduitId(), enParallele[p].getProduitId());
+                assertEquals(attendue.getPrevision28Jours(), enParallele[p].getPrevision28Jours(), 0);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
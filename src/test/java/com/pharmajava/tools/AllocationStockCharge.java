@@ -0,0 +1,156 @@
+package com.pharmajava.tools;
+
+import com.pharmajava.dao.PharmacienDAO;
+import com.pharmajava.dao.ProduitDAO;
+import com.pharmajava.dao.VenteDAO;
+import com.pharmajava.model.Pharmacien;
+import com.pharmajava.model.Produit;
+import com.pharmajava.model.ProduitVendu;
+import com.pharmajava.model.Vente;
+import com.pharmajava.utils.DatabaseConfig;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Test de charge de l'allocation des lots : plusieurs caisses simulées vendent
+ * les mêmes produits jusqu'à épuisement du stock, sur une base H2 embarquée.
+ *
+ * Vérifie qu'aucun produit n'est survendu (unités vendues = stock initial - stock
+ * restant, aucun lot négatif, quantite_en_stock cohérente avec les lots) et
+ * affiche le débit obtenu.
+ *
+ * Usage : AllocationStockCharge [caisses] [ventesParCaisse]  (8 et 500 par défaut)
+ */
+public class AllocationStockCharge {
+    private static final int NOMBRE_PRODUITS = 20;
+    private static final int LOTS_PAR_PRODUIT = 4;
+    private static final int QUANTITE_PAR_LOT = 150;
+
+    public static void main(String[] args) throws Exception {
+        int caisses = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int ventesParCaisse = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+
+        Logger.getLogger("").setLevel(Level.WARNING);
+
+        System.out.println("=== Test de charge de l'allocation des lots (" + caisses + " caisses) ===");
+        BaseEmbarquee.demarrer("stress_allocation");
+        BaseEmbarquee.genererCatalogue(NOMBRE_PRODUITS, LOTS_PAR_PRODUIT, QUANTITE_PAR_LOT);
+
+        Pharmacien pharmacien = new PharmacienDAO().obtenirParIdentifiant("admin");
+        ProduitDAO produitDAO = new ProduitDAO();
+        List<Produit> produits = new ArrayList<>();
+        for (int i = 1; i <= NOMBRE_PRODUITS; i++) {
+            produits.add(produitDAO.obtenirParId(i));
+        }
+
+        // Unités vendues par produit, telles que constatées par les caisses
+        AtomicLongArray vendues = new AtomicLongArray(NOMBRE_PRODUITS + 1);
+        ExecutorService executor = Executors.newFixedThreadPool(caisses);
+        List<Future<int[]>> resultats = new ArrayList<>();
+
+        long debut = System.nanoTime();
+        for (int c = 0; c < caisses; c++) {
+            final long graine = c;
+            resultats.add(executor.submit(() -> simulerCaisse(produits, pharmacien, ventesParCaisse,
+                    new Random(graine), vendues)));
+        }
+
+        int ventesReussies = 0;
+        int ventesRefusees = 0;
+        for (Future<int[]> resultat : resultats) {
+            ventesReussies += resultat.get()[0];
+            ventesRefusees += resultat.get()[1];
+        }
+        double dureeSecondes = (System.nanoTime() - debut) / 1e9;
+        executor.shutdown();
+
+        System.out.println("Ventes validées : " + ventesReussies + ", refusées (stock insuffisant) : " + ventesRefusees);
+        System.out.printf("Débit          : %.1f ventes/s (%.1f tentatives/s)%n",
+                ventesReussies / dureeSecondes, (ventesReussies + ventesRefusees) / dureeSecondes);
+
+        boolean coherent = verifier(vendues);
+        System.out.println(coherent ? "✅ Aucune survente détectée" : "❌ Incohérences détectées");
+
+        DatabaseConfig.closeDataSource();
+        if (!coherent) {
+            System.exit(1);
+        }
+    }
+
+    private static int[] simulerCaisse(List<Produit> produits, Pharmacien pharmacien, int ventes,
+                                       Random random, AtomicLongArray vendues) {
+        VenteDAO venteDAO = new VenteDAO();
+        int reussies = 0;
+        int refusees = 0;
+
+        for (int i = 0; i < ventes; i++) {
+            Vente vente = new Vente();
+            vente.setDateVente(LocalDateTime.now());
+            vente.setPharmacien(pharmacien);
+
+            int lignes = 1 + random.nextInt(3);
+            for (int l = 0; l < lignes; l++) {
+                Produit produit = produits.get(random.nextInt(produits.size()));
+                vente.ajouterProduitVendu(new ProduitVendu(produit, 1 + random.nextInt(5), produit.getPrixVente()));
+            }
+            vente.setMontantPercu(vente.getMontantTotal());
+            vente.calculerMontantRendu();
+
+            if (venteDAO.ajouter(vente) != null) {
+                reussies++;
+                for (ProduitVendu pv : vente.getProduitsVendus()) {
+                    vendues.addAndGet(pv.getProduit().getId(), pv.getQuantite());
+                }
+            } else {
+                refusees++;
+            }
+        }
+
+        return new int[] {reussies, refusees};
+    }
+
+    private static boolean verifier(AtomicLongArray vendues) throws SQLException {
+        String sql = "SELECT p.id, p.quantite_en_stock, "
+                + "(SELECT COALESCE(SUM(s.quantite_disponible), 0) FROM stock s WHERE s.produit_id = p.id) AS lots, "
+                + "(SELECT COUNT(*) FROM stock s WHERE s.produit_id = p.id AND s.quantite_disponible < 0) AS negatifs, "
+                + "(SELECT COALESCE(SUM(pv.quantite), 0) FROM produits_vendus pv WHERE pv.produit_id = p.id) AS enregistrees "
+                + "FROM produits p ORDER BY p.id";
+
+        int stockInitial = LOTS_PAR_PRODUIT * QUANTITE_PAR_LOT;
+        boolean coherent = true;
+
+        try (Connection conn = DatabaseConfig.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                int id = rs.getInt("id");
+                long lots = rs.getLong("lots");
+                long enregistrees = rs.getLong("enregistrees");
+                boolean ok = rs.getInt("negatifs") == 0
+                        && lots + enregistrees == stockInitial
+                        && enregistrees == vendues.get(id)
+                        && rs.getLong("quantite_en_stock") == lots;
+
+                if (!ok) {
+                    coherent = false;
+                    System.out.println("   Produit " + id + ": lots=" + lots + ", vendues=" + enregistrees
+                            + ", constatées=" + vendues.get(id) + ", quantite_en_stock=" + rs.getLong("quantite_en_stock"));
+                }
+            }
+        }
+        return coherent;
+    }
+}
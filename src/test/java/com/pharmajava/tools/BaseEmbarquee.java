@@ -0,0 +1,145 @@
+package com.pharmajava.tools;
+
+import com.pharmajava.utils.DatabaseConfig;
+import com.pharmajava.utils.MigrateurSchema;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+
+/**
+ * Base H2 embarquée en mode MySQL pour les bancs d'essai
+ * Le schéma est chargé depuis database/scripts/schema.sql et les migrations
+ * de MigrateurSchema lui sont appliquées, puis un catalogue
+ * de test est généré. L'application est redirigée vers cette base par les
+ * propriétés système lues par DatabaseConfig.
+ *
+ * Les bancs et le pilote H2 ne sont que dans le classpath de test, hors du jar
+ * livré : les lancer avec
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=...
+ */
+public final class BaseEmbarquee {
+    private static final Path SCRIPT_SCHEMA = Paths.get("database/scripts/schema.sql");
+
+    private BaseEmbarquee() {
+    }
+
+    /**
+     * Redirige DatabaseConfig vers une base H2 en mémoire et y crée le schéma
+     * Doit être appelé avant tout autre accès à DatabaseConfig.
+     *
+     * @param nom Le nom de la base en mémoire
+     * @throws SQLException si le schéma ne peut pas être créé
+     * @throws IOException si le script de schéma est illisible
+     */
+    public static void demarrer(String nom) throws SQLException, IOException {
+        System.setProperty("pharmajava.db.url",
+                "jdbc:h2:mem:" + nom + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000");
+        System.setProperty("pharmajava.db.utilisateur", "sa");
+        System.setProperty("pharmajava.db.motDePasse", "");
+
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            executerScript(conn, SCRIPT_SCHEMA);
+            MigrateurSchema.migrer(conn);
+        }
+    }
+
+    /**
+     * Génère un catalogue de produits, chacun avec plusieurs lots non expirés
+     *
+     * @param nombreProduits Le nombre de produits à créer
+     * @param lotsParProduit Le nombre de lots par produit
+     * @param quantiteParLot La quantité de chaque lot
+     * @throws SQLException en cas d'erreur SQL
+     */
+    public static void genererCatalogue(int nombreProduits, int lotsParProduit, int quantiteParLot)
+            throws SQLException {
+        String sqlProduit = "INSERT INTO produits (id, nom, description, quantite_en_stock, prix_unitaire, "
+                + "sur_ordonnance, prix_achat, prix_vente, seuil_alerte) VALUES (?, ?, ?, ?, ?, FALSE, ?, ?, 5)";
+        String sqlLot = "INSERT INTO stock (produit_id, lot_numero, quantite_disponible, date_expiration) "
+                + "VALUES (?, ?, ?, ?)";
+
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement pstmtProduit = conn.prepareStatement(sqlProduit);
+             PreparedStatement pstmtLot = conn.prepareStatement(sqlLot)) {
+            conn.setAutoCommit(false);
+
+            for (int p = 1; p <= nombreProduits; p++) {
+                pstmtProduit.setInt(1, p);
+                pstmtProduit.setString(2, "Produit " + p);
+                pstmtProduit.setString(3, "Produit de test " + p);
+                pstmtProduit.setInt(4, lotsParProduit * quantiteParLot);
+                pstmtProduit.setBigDecimal(5, BigDecimal.valueOf(500 + p % 100));
+                pstmtProduit.setBigDecimal(6, BigDecimal.valueOf(300 + p % 100));
+                pstmtProduit.setBigDecimal(7, BigDecimal.valueOf(500 + p % 100));
+                pstmtProduit.addBatch();
+
+                for (int l = 1; l <= lotsParProduit; l++) {
+                    pstmtLot.setInt(1, p);
+                    pstmtLot.setString(2, "LOT-" + p + "-" + l);
+                    pstmtLot.setInt(3, quantiteParLot);
+                    pstmtLot.setDate(4, Date.valueOf(LocalDate.now().plusMonths(l)));
+                    pstmtLot.addBatch();
+                }
+            }
+
+            pstmtProduit.executeBatch();
+            pstmtLot.executeBatch();
+            conn.commit();
+            conn.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Exécute un script SQL MySQL instruction par instruction
+     * Les instructions propres au serveur (CREATE DATABASE, USE) sont ignorées et
+     * un ALTER TABLE à plusieurs clauses ADD est rejoué clause par clause si H2 le refuse.
+     *
+     * @param conn La connexion à utiliser
+     * @param script Le chemin du script
+     * @throws IOException si le script est illisible
+     */
+    public static void executerScript(Connection conn, Path script) throws IOException {
+        for (String instruction : MigrateurSchema.decouperInstructions(Files.readString(script, StandardCharsets.UTF_8))) {
+            String majuscules = instruction.toUpperCase();
+            if (majuscules.startsWith("CREATE DATABASE") || majuscules.startsWith("USE ")) {
+                continue;
+            }
+
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute(instruction);
+            } catch (SQLException e) {
+                if (!majuscules.startsWith("ALTER TABLE") || !rejouerClausesAdd(conn, instruction)) {
+                    System.out.println("⚠ Instruction ignorée (" + e.getMessage().split("\n")[0] + ")");
+                }
+            }
+        }
+    }
+
+    private static boolean rejouerClausesAdd(Connection conn, String instruction) {
+        String[] clauses = instruction.split("(?i),\\s*ADD\\s+");
+        if (clauses.length < 2) {
+            return false;
+        }
+
+        String table = clauses[0].substring(0, clauses[0].toUpperCase().indexOf(" ADD ")).trim();
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(clauses[0]);
+            for (int i = 1; i < clauses.length; i++) {
+                stmt.execute(table + " ADD " + clauses[i]);
+            }
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+}
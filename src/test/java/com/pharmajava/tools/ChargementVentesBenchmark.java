@@ -0,0 +1,101 @@
+package com.pharmajava.tools;
+
+import com.pharmajava.dao.VenteDAO;
+import com.pharmajava.model.Vente;
+import com.pharmajava.utils.DatabaseConfig;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Banc d'essai du chargement de l'historique des ventes
+ * Compare le nombre d'allers-retours vers MySQL et la durée de
+ * VenteDAO.obtenirParPeriode en mode unitaire puis en mode graphe
+ *
+ * Usage : ChargementVentesBenchmark [nombreDeVentes]  (1000 par défaut)
+ *
+ * Le nombre d'allers-retours est lu dans le compteur global "Questions" du
+ * serveur : lancer le banc quand aucune caisse n'est active.
+ */
+public class ChargementVentesBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int nombreVentes = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        System.out.println("=== Banc d'essai du chargement des ventes (" + nombreVentes + " ventes) ===");
+
+        LocalDateTime[] periode = periodeDesDernieresVentes(nombreVentes);
+        if (periode == null) {
+            System.out.println("❌ Aucune vente dans la base, rien à mesurer.");
+            return;
+        }
+        System.out.println("Période : " + periode[0] + " -> " + periode[1]);
+
+        VenteDAO venteDAO = new VenteDAO();
+
+        // Chauffe du pool et du cache de requêtes préparées
+        venteDAO.obtenirParPeriode(periode[0], periode[1]);
+
+        venteDAO.setChargementGraphe(false);
+        mesurer("Avant (requêtes unitaires)", venteDAO, periode);
+
+        venteDAO.setChargementGraphe(true);
+        mesurer("Après (chargement du graphe)", venteDAO, periode);
+
+        DatabaseConfig.closeDataSource();
+    }
+
+    private static void mesurer(String libelle, VenteDAO venteDAO, LocalDateTime[] periode) throws SQLException {
+        long questionsAvant = questionsServeur();
+        long debut = System.nanoTime();
+
+        List<Vente> ventes = venteDAO.obtenirParPeriode(periode[0], periode[1]);
+
+        long dureeMs = (System.nanoTime() - debut) / 1_000_000;
+        // La lecture du compteur compte elle-même pour une question
+        long allersRetours = questionsServeur() - questionsAvant - 1;
+
+        int lignes = 0;
+        for (Vente vente : ventes) {
+            lignes += vente.getProduitsVendus().size();
+        }
+
+        double parMille = ventes.isEmpty() ? 0 : allersRetours * 1000.0 / ventes.size();
+        System.out.println("\n" + libelle + " :");
+        System.out.println("   Ventes chargées       : " + ventes.size() + " (" + lignes + " lignes)");
+        System.out.println("   Allers-retours        : " + allersRetours);
+        System.out.printf("   Allers-retours / 1000 : %.1f%n", parMille);
+        System.out.println("   Durée                 : " + dureeMs + " ms");
+    }
+
+    private static LocalDateTime[] periodeDesDernieresVentes(int nombreVentes) throws SQLException {
+        String sql = "SELECT MIN(date_vente), MAX(date_vente) FROM "
+                + "(SELECT date_vente FROM ventes ORDER BY date_vente DESC LIMIT ?) dernieres";
+
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, nombreVentes);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next() && rs.getTimestamp(1) != null) {
+                    return new LocalDateTime[] {
+                            rs.getTimestamp(1).toLocalDateTime(),
+                            rs.getTimestamp(2).toLocalDateTime()
+                    };
+                }
+            }
+        }
+        return null;
+    }
+
+    private static long questionsServeur() throws SQLException {
+        try (Connection conn = DatabaseConfig.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SHOW GLOBAL STATUS LIKE 'Questions'")) {
+            return rs.next() ? rs.getLong(2) : 0;
+        }
+    }
+}
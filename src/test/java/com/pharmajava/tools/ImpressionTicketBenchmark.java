@@ -0,0 +1,102 @@
+package com.pharmajava.tools;
+
+import com.pharmajava.dao.PharmacienDAO;
+import com.pharmajava.model.Pharmacien;
+import com.pharmajava.model.Produit;
+import com.pharmajava.model.ProduitVendu;
+import com.pharmajava.model.Vente;
+import com.pharmajava.utils.DatabaseConfig;
+import com.pharmajava.utils.PrintUtils;
+import com.pharmajava.utils.RapportsJasper;
+import net.sf.jasperreports.engine.JasperCompileManager;
+
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Banc d'essai de la préparation d'un ticket de vente (PrintUtils.preparerTicketVente),
+ * sans l'aperçu ni l'envoi à l'imprimante, sur une base H2 embarquée en mode MySQL
+ *
+ * Compare la compilation du modèle à chaque ticket, comme le faisait l'impression
+ * avant le cache des rapports, au rapport compilé chargé une fois par RapportsJasper.
+ * Lancé depuis le projet, le premier ticket charge le .jasper produit par
+ * mvn process-classes, ou compile le modèle s'il n'a pas encore été compilé.
+ *
+ * Usage : ImpressionTicketBenchmark [nombreDeTickets] [lignesParTicket]  (50 et 10 par défaut)
+ */
+public class ImpressionTicketBenchmark {
+    private static final String MODELE = "/reports/ticket_vente.jrxml";
+
+    public static void main(String[] args) throws Exception {
+        int nombreTickets = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        int lignesParTicket = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        // Les journaux INFO fausseraient la mesure
+        Logger.getLogger("").setLevel(Level.WARNING);
+
+        System.out.println("=== Banc d'essai de préparation des tickets ===");
+        BaseEmbarquee.demarrer("bench_impression_ticket");
+        Vente vente = creerVente(new PharmacienDAO().obtenirParIdentifiant("admin"), lignesParTicket);
+
+        // Premier ticket : chargement du rapport compilé et lecture des informations de la pharmacie
+        RapportsJasper.vider();
+        long t0 = System.nanoTime();
+        PrintUtils.preparerTicketVente(vente);
+        long premier = System.nanoTime() - t0;
+
+        long[] avecCache = new long[nombreTickets];
+        for (int i = 0; i < nombreTickets; i++) {
+            long debut = System.nanoTime();
+            PrintUtils.preparerTicketVente(vente);
+            avecCache[i] = System.nanoTime() - debut;
+        }
+
+        // Ancien chemin : compilation du modèle avant chaque remplissage
+        long[] sansCache = new long[nombreTickets];
+        for (int i = 0; i < nombreTickets; i++) {
+            long debut = System.nanoTime();
+            try (InputStream modele = ImpressionTicketBenchmark.class.getResourceAsStream(MODELE)) {
+                JasperCompileManager.compileReport(modele);
+            }
+            PrintUtils.preparerTicketVente(vente);
+            sansCache[i] = System.nanoTime() - debut;
+        }
+
+        System.out.println(nombreTickets + " tickets de " + lignesParTicket + " lignes");
+        System.out.printf("Premier ticket (cache vide)        : %8.2f ms%n", premier / 1e6);
+        afficher("Compilation à chaque ticket", sansCache);
+        afficher("Rapport compilé en cache", avecCache);
+
+        DatabaseConfig.closeDataSource();
+    }
+
+    private static Vente creerVente(Pharmacien pharmacien, int lignes) {
+        Vente vente = new Vente();
+        vente.setId(1);
+        vente.setDateVente(LocalDateTime.now());
+        vente.setPharmacien(pharmacien);
+
+        for (int i = 1; i <= lignes; i++) {
+            Produit produit = new Produit("Produit " + i, "Produit de test " + i, 100,
+                    BigDecimal.valueOf(500 + i), false);
+            produit.setId(i);
+            produit.setPrixVente(BigDecimal.valueOf(500 + i));
+            vente.ajouterProduitVendu(new ProduitVendu(produit, 1 + i % 3, produit.getPrixVente()));
+        }
+
+        vente.setMontantPercu(vente.getMontantTotal().add(BigDecimal.valueOf(1000)));
+        vente.calculerMontantRendu();
+        return vente;
+    }
+
+    private static void afficher(String libelle, long[] latences) {
+        Arrays.sort(latences);
+        System.out.printf("%-35s: p50 %8.2f ms   p95 %8.2f ms%n", libelle,
+                ValidationVenteBenchmark.centile(latences, 50) / 1e6,
+                ValidationVenteBenchmark.centile(latences, 95) / 1e6);
+    }
+}
@@ -0,0 +1,174 @@
+package com.pharmajava.tools;
+
+import com.pharmajava.dao.PrevisionDAO;
+import com.pharmajava.model.PrevisionVente;
+import com.pharmajava.service.PrevisionDemande;
+import com.pharmajava.utils.DatabaseConfig;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Banc d'essai du calcul des prévisions de demande selon le nombre de fils,
+ * sur une base H2 embarquée en mode MySQL, initialisée depuis database/scripts
+ *
+ * Mesure d'abord l'ajustement seul, sur des séries déjà en mémoire, puis le calcul
+ * complet (lecture en flux, ajustement, enregistrement) de PrevisionDemande.
+ *
+ * Usage : PrevisionDemandeBenchmark [nombreDeProduits] [filsMaximum]  (5000 et le nombre de cœurs par défaut)
+ */
+public class PrevisionDemandeBenchmark {
+    private static final int REPETITIONS = 3;
+    private static final double[] PROFIL_HEBDOMADAIRE = {1.0, 1.1, 1.0, 1.2, 1.4, 0.6, 0.4};
+
+    public static void main(String[] args) throws Exception {
+        int nombreProduits = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int filsMaximum = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        // Les journaux INFO des DAO fausseraient la mesure
+        Logger.getLogger("").setLevel(Level.WARNING);
+
+        System.out.println("=== Banc d'essai des prévisions de demande ===");
+        BaseEmbarquee.demarrer("bench_prevision_demande");
+        BaseEmbarquee.genererCatalogue(nombreProduits, 1, 1000);
+        int lignes = genererHistorique(nombreProduits, new Random(42));
+        System.out.println(nombreProduits + " produits, " + lignes + " lignes de vente sur "
+                + PrevisionDemande.HISTORIQUE_JOURS + " jours");
+
+        List<Integer> ids = new ArrayList<>();
+        List<int[]> lues = new ArrayList<>();
+        new PrevisionDAO().parcourirSeries(LocalDate.now().minusDays(PrevisionDemande.HISTORIQUE_JOURS),
+                PrevisionDemande.HISTORIQUE_JOURS, (serie, produitId) -> {
+                    ids.add(produitId);
+                    lues.add(serie);
+                });
+        int[] produitIds = ids.stream().mapToInt(Integer::intValue).toArray();
+        int[][] series = lues.toArray(new int[0][]);
+
+        System.out.println();
+        System.out.println("Ajustement seul (" + produitIds.length + " séries en mémoire)");
+        long reference = 0;
+        for (int fils = 1; fils <= filsMaximum; fils = suivant(fils, filsMaximum)) {
+            ForkJoinPool pool = new ForkJoinPool(fils);
+            PrevisionDemande.ajuster(pool, produitIds, series);
+
+            long meilleur = Long.MAX_VALUE;
+            for (int r = 0; r < REPETITIONS; r++) {
+                long t0 = System.nanoTime();
+                PrevisionVente[] previsions = PrevisionDemande.ajuster(pool, produitIds, series);
+                meilleur = Math.min(meilleur, System.nanoTime() - t0);
+                if (previsions.length != produitIds.length) {
+                    throw new IllegalStateException("Prévisions manquantes");
+                }
+            }
+            pool.shutdown();
+
+            if (fils == 1) {
+                reference = meilleur;
+            }
+            afficher(fils, meilleur, reference);
+        }
+
+        System.out.println();
+        System.out.println("Calcul complet (lecture, ajustement, enregistrement)");
+        PrevisionDemande prevision = PrevisionDemande.getInstance();
+        prevision.recalculer(filsMaximum);
+        for (int fils = 1; fils <= filsMaximum; fils = suivant(fils, filsMaximum)) {
+            long meilleur = Long.MAX_VALUE;
+            for (int r = 0; r < REPETITIONS; r++) {
+                long t0 = System.nanoTime();
+                prevision.recalculer(fils);
+                meilleur = Math.min(meilleur, System.nanoTime() - t0);
+            }
+
+            if (fils == 1) {
+                reference = meilleur;
+            }
+            afficher(fils, meilleur, reference);
+        }
+
+        DatabaseConfig.closeDataSource();
+    }
+
+    /**
+     * Crée une vente par jour contenant, pour chaque produit, une quantité tirée selon
+     * une loi de Poisson de moyenne propre au produit et modulée par le jour de la semaine
+     */
+    private static int genererHistorique(int nombreProduits, Random random) throws SQLException {
+        String sqlVente = "INSERT INTO ventes (id, date_vente, montant_total, montant_percu, montant_rendu) "
+                + "VALUES (?, ?, 0, 0, 0)";
+        String sqlLigne = "INSERT INTO produits_vendus (vente_id, produit_id, quantite, prix_unitaire, prix_total) "
+                + "VALUES (?, ?, ?, ?, ?)";
+
+        double[] moyennes = new double[nombreProduits + 1];
+        for (int p = 1; p <= nombreProduits; p++) {
+            moyennes[p] = 0.1 + 8 * random.nextDouble() * random.nextDouble();
+        }
+
+        int lignes = 0;
+        LocalDate premierJour = LocalDate.now().minusDays(PrevisionDemande.HISTORIQUE_JOURS);
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement pstmtVente = conn.prepareStatement(sqlVente);
+             PreparedStatement pstmtLigne = conn.prepareStatement(sqlLigne)) {
+            conn.setAutoCommit(false);
+
+            for (int jour = 0; jour < PrevisionDemande.HISTORIQUE_JOURS; jour++) {
+                LocalDate date = premierJour.plusDays(jour);
+                pstmtVente.setInt(1, jour + 1);
+                pstmtVente.setTimestamp(2, Timestamp.valueOf(date.atTime(12, 0)));
+                pstmtVente.executeUpdate();
+
+                double facteur = PROFIL_HEBDOMADAIRE[date.getDayOfWeek().getValue() - 1];
+                for (int p = 1; p <= nombreProduits; p++) {
+                    int quantite = poisson(moyennes[p] * facteur, random);
+                    if (quantite == 0) {
+                        continue;
+                    }
+                    pstmtLigne.setInt(1, jour + 1);
+                    pstmtLigne.setInt(2, p);
+                    pstmtLigne.setInt(3, quantite);
+                    pstmtLigne.setBigDecimal(4, BigDecimal.valueOf(500));
+                    pstmtLigne.setBigDecimal(5, BigDecimal.valueOf(500L * quantite));
+                    pstmtLigne.addBatch();
+                    lignes++;
+                }
+                pstmtLigne.executeBatch();
+            }
+
+            conn.commit();
+            conn.setAutoCommit(true);
+        }
+        return lignes;
+    }
+
+    private static int poisson(double moyenne, Random random) {
+        double limite = Math.exp(-moyenne);
+        double produit = random.nextDouble();
+        int tirage = 0;
+        while (produit > limite) {
+            produit *= random.nextDouble();
+            tirage++;
+        }
+        return tirage;
+    }
+
+    // 1, 2, 4, ... puis le maximum demandé
+    private static int suivant(int fils, int filsMaximum) {
+        return fils < filsMaximum && fils * 2 > filsMaximum ? filsMaximum : fils * 2;
+    }
+
+    private static void afficher(int fils, long dureeNs, long referenceNs) {
+        System.out.printf("%3d fil(s) : %8.1f ms   accélération x%.2f%n",
+                fils, dureeNs / 1e6, (double) referenceNs / dureeNs);
+    }
+}
@@ -0,0 +1,100 @@
+package com.pharmajava.tools;
+
+import com.pharmajava.dao.PharmacienDAO;
+import com.pharmajava.dao.ProduitDAO;
+import com.pharmajava.dao.VenteDAO;
+import com.pharmajava.model.Pharmacien;
+import com.pharmajava.model.Produit;
+import com.pharmajava.model.ProduitVendu;
+import com.pharmajava.model.Vente;
+import com.pharmajava.utils.DatabaseConfig;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Banc d'essai de la latence de validation d'une vente (VenteDAO.ajouter)
+ * sur une base H2 embarquée en mode MySQL, initialisée depuis database/scripts
+ *
+ * Usage : ValidationVenteBenchmark [nombreDeVentes] [lignesParVente]  (500 et 10 par défaut)
+ */
+public class ValidationVenteBenchmark {
+    private static final int NOMBRE_PRODUITS = 200;
+    private static final int VENTES_DE_CHAUFFE = 50;
+
+    public static void main(String[] args) throws Exception {
+        int nombreVentes = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int lignesParVente = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        // Les journaux INFO des DAO fausseraient la mesure
+        Logger.getLogger("").setLevel(Level.WARNING);
+
+        System.out.println("=== Banc d'essai de validation des ventes ===");
+        BaseEmbarquee.demarrer("bench_validation_vente");
+        BaseEmbarquee.genererCatalogue(NOMBRE_PRODUITS, 5, 100_000);
+
+        Pharmacien pharmacien = new PharmacienDAO().obtenirParIdentifiant("admin");
+        ProduitDAO produitDAO = new ProduitDAO();
+        Produit[] produits = new Produit[NOMBRE_PRODUITS];
+        for (int i = 0; i < NOMBRE_PRODUITS; i++) {
+            produits[i] = produitDAO.obtenirParId(i + 1);
+        }
+
+        VenteDAO venteDAO = new VenteDAO();
+        Random random = new Random(42);
+
+        for (int i = 0; i < VENTES_DE_CHAUFFE; i++) {
+            venteDAO.ajouter(creerVente(produits, lignesParVente, pharmacien, random));
+        }
+
+        long[] latences = new long[nombreVentes];
+        int echecs = 0;
+        long debut = System.nanoTime();
+
+        for (int i = 0; i < nombreVentes; i++) {
+            Vente vente = creerVente(produits, lignesParVente, pharmacien, random);
+            long t0 = System.nanoTime();
+            if (venteDAO.ajouter(vente) == null) {
+                echecs++;
+            }
+            latences[i] = System.nanoTime() - t0;
+        }
+
+        long dureeTotale = System.nanoTime() - debut;
+        Arrays.sort(latences);
+
+        System.out.println("Ventes validées : " + (nombreVentes - echecs) + " / " + nombreVentes
+                + " (" + lignesParVente + " lignes chacune)");
+        System.out.printf("Latence moyenne : %.2f ms%n", Arrays.stream(latences).average().orElse(0) / 1e6);
+        System.out.printf("p50             : %.2f ms%n", centile(latences, 50) / 1e6);
+        System.out.printf("p95             : %.2f ms%n", centile(latences, 95) / 1e6);
+        System.out.printf("p99             : %.2f ms%n", centile(latences, 99) / 1e6);
+        System.out.printf("Débit           : %.1f ventes/s%n", nombreVentes / (dureeTotale / 1e9));
+
+        DatabaseConfig.closeDataSource();
+    }
+
+    private static Vente creerVente(Produit[] produits, int lignes, Pharmacien pharmacien, Random random) {
+        Vente vente = new Vente();
+        vente.setDateVente(LocalDateTime.now());
+        vente.setPharmacien(pharmacien);
+
+        for (int i = 0; i < lignes; i++) {
+            Produit produit = produits[random.nextInt(produits.length)];
+            vente.ajouterProduitVendu(new ProduitVendu(produit, 1 + random.nextInt(3), produit.getPrixVente()));
+        }
+
+        vente.setMontantPercu(vente.getMontantTotal().add(BigDecimal.valueOf(1000)));
+        vente.calculerMontantRendu();
+        return vente;
+    }
+
+    static long centile(long[] valeursTriees, int centile) {
+        int index = (int) Math.ceil(centile / 100.0 * valeursTriees.length) - 1;
+        return valeursTriees[Math.max(0, Math.min(index, valeursTriees.length - 1))];
+    }
+}
@@ -0,0 +1,123 @@
+package com.pharmajava.tools;
+
+import com.pharmajava.utils.DatabaseConfig;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Vérifie par EXPLAIN que les requêtes fréquentes de l'application utilisent un index
+ * Le schéma et ses migrations sont chargés dans une base H2 embarquée (voir BaseEmbarquee) ;
+ * le programme se termine en erreur si une requête retombe sur un parcours complet de table.
+ *
+ * Les recherches par sous-chaîne (LIKE '%...%') ne peuvent pas utiliser d'index B-tree
+ * et ne sont pas vérifiées ici.
+ *
+ * Usage : mvn test-compile exec:java -Dexec.classpathScope=test
+ *         -Dexec.mainClass=com.pharmajava.tools.VerificationPlansRequetes
+ */
+public class VerificationPlansRequetes {
+
+    private static final Map<String, String> REQUETES = new LinkedHashMap<>();
+
+    static {
+        REQUETES.put("Allocation FEFO des lots d'un produit",
+                "SELECT id, lot_numero, quantite_disponible, date_expiration FROM stock "
+                        + "WHERE produit_id = 42 AND quantite_disponible > 0 AND expire = FALSE "
+                        + "ORDER BY date_expiration ASC, id ASC");
+        REQUETES.put("Lots d'un produit avec le produit",
+                "SELECT s.id AS stock_id, s.produit_id, s.lot_numero, s.quantite_disponible, s.date_expiration, p.* "
+                        + "FROM stock s JOIN produits p ON p.id = s.produit_id WHERE s.produit_id = 42");
+        REQUETES.put("Lots échus au changement de jour",
+                "SELECT id, produit_id, quantite_disponible FROM stock "
+                        + "WHERE expire = FALSE AND date_expiration < CURRENT_DATE ORDER BY produit_id, id");
+        REQUETES.put("Nombre de lots expirés",
+                "SELECT COUNT(*) FROM stock WHERE expire = TRUE");
+        REQUETES.put("Ventes d'une période",
+                "SELECT * FROM ventes WHERE date_vente BETWEEN TIMESTAMP '2024-01-01 00:00:00' "
+                        + "AND TIMESTAMP '2024-01-31 23:59:59' ORDER BY date_vente DESC");
+        REQUETES.put("Totaux journaliers des ventes récentes par produit",
+                "SELECT pv.produit_id, CAST(v.date_vente AS DATE) AS jour, SUM(pv.quantite) AS quantite "
+                        + "FROM ventes v JOIN produits_vendus pv ON pv.vente_id = v.id "
+                        + "WHERE v.date_vente >= TIMESTAMP '2024-01-01 00:00:00' "
+                        + "GROUP BY pv.produit_id, CAST(v.date_vente AS DATE)");
+        REQUETES.put("Séries journalières des prévisions de demande",
+                "SELECT pv.produit_id, CAST(v.date_vente AS DATE) AS jour, SUM(pv.quantite) AS quantite "
+                        + "FROM ventes v JOIN produits_vendus pv ON pv.vente_id = v.id "
+                        + "WHERE v.date_vente >= TIMESTAMP '2024-01-01 00:00:00' "
+                        + "AND v.date_vente < TIMESTAMP '2024-07-01 00:00:00' "
+                        + "GROUP BY pv.produit_id, CAST(v.date_vente AS DATE) ORDER BY pv.produit_id");
+        REQUETES.put("Ventes d'un client",
+                "SELECT * FROM ventes WHERE client_id = 7 ORDER BY date_vente DESC");
+        REQUETES.put("Lignes d'un lot de ventes",
+                "SELECT * FROM produits_vendus WHERE vente_id IN (1, 2, 3, 4, 5)");
+        REQUETES.put("Mouvements de stock après un instantané",
+                "SELECT stock_id, quantite FROM mouvements_stock "
+                        + "WHERE id > 1000 AND date_mouvement <= CURRENT_TIMESTAMP");
+        REQUETES.put("Lots d'un instantané",
+                "SELECT stock_id, quantite FROM instantanes_stock "
+                        + "WHERE date_instantane = TIMESTAMP '2024-01-01 00:00:00'");
+        REQUETES.put("Historique d'un lot",
+                "SELECT * FROM mouvements_stock WHERE stock_id = 42 ORDER BY date_mouvement, id");
+        REQUETES.put("Historique des achats d'un fournisseur (page suivante)",
+                "SELECT * FROM ravitaillements WHERE fournisseur_id = 3 "
+                        + "AND (date_ravitaillement < TIMESTAMP '2024-06-01 00:00:00' "
+                        + "OR (date_ravitaillement = TIMESTAMP '2024-06-01 00:00:00' AND id < 500)) "
+                        + "ORDER BY date_ravitaillement DESC, id DESC LIMIT 50");
+        REQUETES.put("Historique des achats d'un produit",
+                "SELECT * FROM ravitaillements WHERE produit_id = 42 "
+                        + "ORDER BY date_ravitaillement DESC, id DESC LIMIT 50");
+        REQUETES.put("Provenance d'un lot",
+                "SELECT * FROM ravitaillements WHERE stock_id = 42");
+        REQUETES.put("Fournisseurs par début de nom",
+                "SELECT * FROM fournisseurs WHERE nom LIKE 'Lab%' ORDER BY nom LIMIT 20");
+        REQUETES.put("Produit par nom",
+                "SELECT * FROM produits WHERE nom = 'Produit 42'");
+        REQUETES.put("Pharmacien par identifiant",
+                "SELECT * FROM pharmaciens WHERE identifiant = 'admin'");
+    }
+
+    public static void main(String[] args) throws Exception {
+        BaseEmbarquee.demarrer("plans");
+        BaseEmbarquee.genererCatalogue(2000, 3, 50);
+
+        System.out.println("=== Vérification des plans d'exécution (" + REQUETES.size() + " requêtes) ===");
+
+        int echecs = 0;
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            for (Map.Entry<String, String> requete : REQUETES.entrySet()) {
+                String plan = expliquer(conn, requete.getValue());
+                if (plan.toLowerCase().contains("tablescan")) {
+                    echecs++;
+                    System.out.println("❌ " + requete.getKey() + " : parcours complet de table");
+                    System.out.println("   " + plan.replaceAll("\\s+", " "));
+                } else {
+                    System.out.println("✅ " + requete.getKey());
+                }
+            }
+        }
+
+        DatabaseConfig.closeDataSource();
+
+        if (echecs > 0) {
+            System.out.println("\n❌ " + echecs + " requête(s) sans index");
+            System.exit(1);
+        }
+        System.out.println("\n✅ Toutes les requêtes utilisent un index");
+    }
+
+    private static String expliquer(Connection conn, String sql) throws SQLException {
+        StringBuilder plan = new StringBuilder();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("EXPLAIN " + sql)) {
+            while (rs.next()) {
+                plan.append(rs.getString(1)).append('\n');
+            }
+        }
+        return plan.toString();
+    }
+}
@@ -0,0 +1,93 @@
+package com.pharmajava.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Tests de CacheReference
+ */
+class CacheReferenceTest {
+
+    @Test
+    void entreeLueServieJusquAInvalidation() {
+        CacheReference<String> cache = new CacheReference<>("test", 10, 1, TimeUnit.HOURS);
+        cache.ajouter(1, "admin", cache.debutLecture());
+
+        assertEquals("admin", cache.chercher(1));
+        cache.invalider(1);
+        assertNull(cache.chercher(1));
+        assertEquals(1, cache.getSucces());
+        assertEquals(1, cache.getEchecs());
+    }
+
+    @Test
+    void moinsRecemmentUtiliseEvinceAuDelaDeLaTaille() {
+        CacheReference<String> cache = new CacheReference<>("test", 2, 1, TimeUnit.HOURS);
+        cache.ajouter(1, "un", cache.debutLecture());
+        cache.ajouter(2, "deux", cache.debutLecture());
+
+        // 1 devient le plus récemment utilisé : c'est 2 qui sort
+        cache.chercher(1);
+        cache.ajouter(3, "trois", cache.debutLecture());
+
+        assertEquals(2, cache.getTaille());
+        assertEquals(1, cache.getEvictions());
+        assertEquals("un", cache.chercher(1));
+        assertNull(cache.chercher(2));
+        assertEquals("trois", cache.chercher(3));
+    }
+
+    @Test
+    void entreeExpireeApresSaDureeDeVie() throws InterruptedException {
+        CacheReference<String> cache = new CacheReference<>("test", 10, 50, TimeUnit.MILLISECONDS);
+        cache.ajouter(1, "un", cache.debutLecture());
+        assertEquals("un", cache.chercher(1));
+
+        Thread.sleep(100);
+
+        assertNull(cache.chercher(1));
+        assertEquals(1, cache.getExpirations());
+        assertEquals(0, cache.getTaille());
+    }
+
+    @Test
+    void lectureCommenceeAvantUneInvalidationNonGardee() {
+        CacheReference<String> cache = new CacheReference<>("test", 10, 1, TimeUnit.HOURS);
+
+        // Une écriture invalide l'entrée pendant que l'ancienne valeur est lue en base
+        long lecture = cache.debutLecture();
+        cache.invalider(1);
+        cache.ajouter(1, "ancienne valeur", lecture);
+        assertNull(cache.chercher(1));
+
+        cache.ajouter(1, "nouvelle valeur", cache.debutLecture());
+        assertEquals("nouvelle valeur", cache.chercher(1));
+    }
+
+    @Test
+    void viderInvalideAussiLesLecturesEnCours() {
+        CacheReference<String> cache = new CacheReference<>("test", 10, 1, TimeUnit.HOURS);
+        cache.ajouter(1, "un", cache.debutLecture());
+
+        long lecture = cache.debutLecture();
+        cache.vider();
+        cache.ajouter(2, "deux", lecture);
+
+        assertEquals(0, cache.getTaille());
+        assertNull(cache.chercher(1));
+    }
+
+    @Test
+    void cleOuValeurNulleIgnoree() {
+        CacheReference<String> cache = new CacheReference<>("test", 10, 1, TimeUnit.HOURS);
+        cache.ajouter(null, "sans clé", cache.debutLecture());
+        cache.ajouter(1, null, cache.debutLecture());
+
+        assertEquals(0, cache.getTaille());
+        assertNull(cache.chercher(null));
+    }
+}
@@ -0,0 +1,101 @@
+package com.pharmajava.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests de RoueTemporelle
+ */
+class RoueTemporelleTest {
+    // Un tour de roue dure 80 ms
+    private static final long PAS_MS = 10;
+    private static final int CASES = 8;
+
+    private final List<String> expirees = new CopyOnWriteArrayList<>();
+    private final Map<String, Long> instants = new ConcurrentHashMap<>();
+    private RoueTemporelle<String> roue;
+
+    @AfterEach
+    void arreter() {
+        if (roue != null) {
+            roue.close();
+        }
+    }
+
+    @Test
+    void echeancesAtteintesDansLOrdreEtJamaisEnAvance() throws InterruptedException {
+        CountDownLatch attendues = new CountDownLatch(3);
+        roue = demarrer(attendues);
+
+        long debut = System.nanoTime();
+        roue.planifier("lointaine", 250, TimeUnit.MILLISECONDS);
+        roue.planifier("proche", 20, TimeUnit.MILLISECONDS);
+        roue.planifier("moyenne", 60, TimeUnit.MILLISECONDS);
+
+        assertTrue(attendues.await(5, TimeUnit.SECONDS), "échéances non atteintes : " + expirees);
+        assertEquals(List.of("proche", "moyenne", "lointaine"), expirees);
+        assertTrue(instants.get("proche") - debut >= TimeUnit.MILLISECONDS.toNanos(20));
+        assertTrue(instants.get("moyenne") - debut >= TimeUnit.MILLISECONDS.toNanos(60));
+        // Plus lointaine qu'un tour complet : attend ses tours au lieu d'expirer au premier passage
+        assertTrue(instants.get("lointaine") - debut >= TimeUnit.MILLISECONDS.toNanos(250));
+    }
+
+    @Test
+    void echeanceAnnuleeNExpirePas() throws InterruptedException {
+        CountDownLatch attendues = new CountDownLatch(1);
+        roue = demarrer(attendues);
+
+        roue.planifier("annulee", 30, TimeUnit.MILLISECONDS).annuler();
+        roue.planifier("temoin", 100, TimeUnit.MILLISECONDS);
+
+        assertTrue(attendues.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("temoin"), expirees);
+    }
+
+    @Test
+    void erreurDeLActionNArretePasLaRoue() throws InterruptedException {
+        CountDownLatch attendues = new CountDownLatch(1);
+        roue = new RoueTemporelle<>("roue-test", PAS_MS, TimeUnit.MILLISECONDS, CASES, element -> {
+            if (element.equals("erreur")) {
+                throw new IllegalStateException("échec simulé");
+            }
+            expirees.add(element);
+            attendues.countDown();
+        });
+
+        roue.planifier("erreur", 10, TimeUnit.MILLISECONDS);
+        roue.planifier("suivante", 50, TimeUnit.MILLISECONDS);
+
+        assertTrue(attendues.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("suivante"), expirees);
+    }
+
+    @Test
+    void roueFermeeNExpirePlus() throws InterruptedException {
+        roue = demarrer(new CountDownLatch(1));
+        roue.planifier("apres-fermeture", 30, TimeUnit.MILLISECONDS);
+        roue.close();
+
+        Thread.sleep(150);
+        assertFalse(expirees.contains("apres-fermeture"));
+    }
+
+    private RoueTemporelle<String> demarrer(CountDownLatch attendues) {
+        return new RoueTemporelle<>("roue-test", PAS_MS, TimeUnit.MILLISECONDS, CASES, element -> {
+            instants.put(element, System.nanoTime());
+            expirees.add(element);
+            attendues.countDown();
+        });
+    }
+}
@@ -0,0 +1,108 @@
+package com.pharmajava.view;
+
+import com.pharmajava.model.Produit;
+import com.pharmajava.model.ProduitVendu;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests des lignes et du montant total de PanierTableModel
+ */
+class PanierTableModelTest {
+    private final PanierTableModel panier = new PanierTableModel(montant -> montant.toPlainString() + " FCFA");
+
+    @Test
+    void totalSuitLesAjouts() {
+        panier.ajouter(produit(1, "1250.50"), 2, null);
+        panier.ajouter(produit(2, "300"), 3, null);
+
+        assertEquals(new BigDecimal("3401.00"), panier.getMontantTotal());
+        assertEquals(2, panier.getRowCount());
+        assertEquals("2501.00 FCFA", panier.getValueAt(0, 3));
+    }
+
+    @Test
+    void totalSuitLesChangementsDeQuantite() {
+        panier.ajouter(produit(1, "500"), 2, null);
+        panier.ajouter(produit(2, "100"), 1, null);
+
+        PanierTableModel.Ligne ligne = panier.ligne(1);
+        panier.modifierQuantite(ligne, 5, null);
+
+        assertEquals(5, ligne.getQuantite());
+        assertEquals(new BigDecimal("2500"), ligne.getSousTotal());
+        assertEquals(new BigDecimal("2600"), panier.getMontantTotal());
+    }
+
+    @Test
+    void totalSuitLesRetraits() {
+        panier.ajouter(produit(1, "500"), 2, null);
+        panier.ajouter(produit(2, "100"), 1, null);
+
+        PanierTableModel.Ligne retiree = panier.retirer(0);
+
+        assertEquals(1, retiree.getProduitId());
+        assertNull(panier.ligne(1));
+        assertEquals(new BigDecimal("100"), panier.getMontantTotal());
+
+        panier.vider();
+        assertTrue(panier.estVide());
+        assertEquals(BigDecimal.ZERO, panier.getMontantTotal());
+    }
+
+    @Test
+    void positionDesLignesSuivantesRecaleeApresUnRetrait() {
+        panier.ajouter(produit(1, "500"), 1, null);
+        panier.ajouter(produit(2, "100"), 1, null);
+        panier.ajouter(produit(3, "10"), 1, null);
+
+        panier.retirer(0);
+
+        assertEquals(1, panier.modifierQuantite(panier.ligne(3), 4, null));
+        assertEquals(4, panier.getValueAt(1, 2));
+        assertEquals(new BigDecimal("140"), panier.getMontantTotal());
+    }
+
+    @Test
+    void produitDejaDansLePanierRefuse() {
+        Produit produit = produit(1, "500");
+        panier.ajouter(produit, 1, null);
+
+        assertThrows(IllegalStateException.class, () -> panier.ajouter(produit, 2, null));
+        assertEquals(new BigDecimal("500"), panier.getMontantTotal());
+    }
+
+    @Test
+    void produitsVendusConstruitsDepuisLesLignes() {
+        Produit premier = produit(1, "500");
+        panier.ajouter(premier, 2, null);
+        panier.ajouter(produit(2, "100"), 3, null);
+
+        List<ProduitVendu> produitsVendus = panier.produitsVendus();
+
+        assertEquals(2, produitsVendus.size());
+        assertSame(premier, produitsVendus.get(0).getProduit());
+        assertEquals(2, produitsVendus.get(0).getQuantite());
+
+        BigDecimal total = BigDecimal.ZERO;
+        for (ProduitVendu produitVendu : produitsVendus) {
+            total = total.add(produitVendu.getPrixTotal());
+        }
+        assertEquals(0, total.compareTo(panier.getMontantTotal()));
+    }
+
+    private static Produit produit(int id, String prix) {
+        Produit produit = new Produit("Produit " + id, "", 100, new BigDecimal(prix), false);
+        produit.setId(id);
+        produit.setPrixVente(new BigDecimal(prix));
+        return produit;
+    }
+}